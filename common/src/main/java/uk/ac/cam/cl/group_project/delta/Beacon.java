@@ -1,6 +1,10 @@
 package uk.ac.cam.cl.group_project.delta;
 
-public class Beacon {
+import java.io.Serializable;
+
+public class Beacon implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * The identifier of the beacon corresponding to this location
 	 */
@@ -0,0 +1,15 @@
+package uk.ac.cam.cl.group_project.delta;
+
+/**
+ * A source of the current time, in nanoseconds. Each simulation has its own
+ * clock so that several can run at once, and vehicles use the system clock.
+ *
+ * Implementations must be safe to read from any thread.
+ */
+public interface Clock {
+
+	/**
+	 * @return The current time in nanoseconds, which never decreases
+	 */
+	long getTime();
+}
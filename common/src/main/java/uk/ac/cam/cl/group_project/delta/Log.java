@@ -1,36 +1,56 @@
 package uk.ac.cam.cl.group_project.delta;
 
+import uk.ac.cam.cl.group_project.delta.log.AsyncLogger;
 import uk.ac.cam.cl.group_project.delta.log.LoggerInterface;
 import uk.ac.cam.cl.group_project.delta.log.StderrLogger;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Base singleton log class, shared between LEGO and simulation code. Classes extending LoggerInterface are required
  * for this class to function
  *
+ * Loggers registered with registerAsyncLogger, including the default StderrLogger, are run on a background thread so
+ * that logging doesn't delay the caller. Entries below the minimum severity are discarded before any formatting is
+ * done, and messages with parameters are only formatted if they will be logged.
+ *
  * @author Jack Wickham
  */
 public final class Log {
 	/**
-	 * The stored singleton instance of this class
+	 * Holds the singleton instance, which is created the first time getInstance is called. The class loader
+	 * guarantees this is only done once, even if several threads log at the same time.
+	 */
+	private static class InstanceHolder {
+		static final Log INSTANCE = new Log();
+	}
+
+	/**
+	 * The loggers which are run on the thread which is logging
 	 */
-	private static Log instance = null;
+	private final List<LoggerInterface> loggers;
 
 	/**
-	 * The class to use when constructing a new instance of Log
+	 * The logger which runs the other loggers on a background thread
 	 */
-	private List<LoggerInterface> loggers;
+	private final AsyncLogger asyncLogger;
+
+	/**
+	 * Entries with a lower severity than this are discarded
+	 */
+	private volatile Severity minimumSeverity = Severity.DEBUG;
 
 	/**
 	 * Don't allow this class to be instantiated or extended
 	 *
-	 * Create with an StderrLogger by default
+	 * Create with an asynchronous StderrLogger by default
 	 */
 	private Log () {
-		loggers = new ArrayList<>();
-		loggers.add(new StderrLogger());
+		loggers = new CopyOnWriteArrayList<>();
+		asyncLogger = new AsyncLogger();
+		asyncLogger.registerLogger(new StderrLogger());
+		loggers.add(asyncLogger);
 	}
 
 	/**
@@ -41,11 +61,15 @@ public final class Log {
 	 * @return The Log instance
 	 */
 	public static Log getInstance() {
-		if (instance == null) {
-			instance = new Log();
-		}
+		return InstanceHolder.INSTANCE;
+	}
 
-		return instance;
+	/**
+	 * @param severity The severity of a log entry
+	 * @return Whether entries of that severity will be logged
+	 */
+	public boolean isEnabled(Severity severity) {
+		return severity.ordinal() >= minimumSeverity.ordinal();
 	}
 
 	/**
@@ -55,6 +79,9 @@ public final class Log {
 	 * @param message The message
 	 */
 	public void log(Severity severity, String message) {
+		if (!isEnabled(severity)) {
+			return;
+		}
 		for (LoggerInterface logger : loggers) {
 			logger.log(severity, message);
 		}
@@ -67,11 +94,39 @@ public final class Log {
 	 * @param err The exception
 	 */
 	public void log(Severity severity, Throwable err) {
+		if (!isEnabled(severity)) {
+			return;
+		}
 		for (LoggerInterface logger : loggers) {
 			logger.log(severity, err);
 		}
 	}
 
+	/**
+	 * Log a message formatted with String.format. The message is only formatted if the entry will be logged, and
+	 * is formatted on the background thread for asynchronous loggers.
+	 *
+	 * @param severity The severity of the log entry
+	 * @param format The format string
+	 * @param args The arguments to the format string, which must not be modified afterwards
+	 */
+	public void log(Severity severity, String format, Object... args) {
+		if (!isEnabled(severity)) {
+			return;
+		}
+		String message = null;
+		for (LoggerInterface logger : loggers) {
+			if (logger instanceof AsyncLogger) {
+				((AsyncLogger) logger).log(severity, format, args);
+			} else {
+				if (message == null) {
+					message = String.format(format, args);
+				}
+				logger.log(severity, message);
+			}
+		}
+	}
+
 
 
 	/**
@@ -82,6 +137,15 @@ public final class Log {
 		getInstance().log(Severity.DEBUG, message);
 	}
 
+	/**
+	 * Log a debug message with parameters
+	 * @param format The format string of the message
+	 * @param args The arguments to the format string
+	 */
+	public static void debug(String format, Object... args) {
+		getInstance().log(Severity.DEBUG, format, args);
+	}
+
 	/**
 	 * Log an exception with debug severity
 	 * @param err The exception to log
@@ -98,6 +162,15 @@ public final class Log {
 		getInstance().log(Severity.WARN, message);
 	}
 
+	/**
+	 * Log a warning with parameters
+	 * @param format The format string of the message
+	 * @param args The arguments to the format string
+	 */
+	public static void warn(String format, Object... args) {
+		getInstance().log(Severity.WARN, format, args);
+	}
+
 	/**
 	 * Log an exception with warning severity
 	 * @param err The exception to log
@@ -114,6 +187,15 @@ public final class Log {
 		getInstance().log(Severity.ERROR, message);
 	}
 
+	/**
+	 * Log an error with parameters
+	 * @param format The format string of the message
+	 * @param args The arguments to the format string
+	 */
+	public static void error(String format, Object... args) {
+		getInstance().log(Severity.ERROR, format, args);
+	}
+
 	/**
 	 * Log an exception with error severity
 	 * @param err The exception to log
@@ -130,6 +212,15 @@ public final class Log {
 		getInstance().log(Severity.CRITICAL, message);
 	}
 
+	/**
+	 * Log a critical error with parameters
+	 * @param format The format string of the message
+	 * @param args The arguments to the format string
+	 */
+	public static void critical(String format, Object... args) {
+		getInstance().log(Severity.CRITICAL, format, args);
+	}
+
 	/**
 	 * Log an fatal exception
 	 * @param err The exception to log
@@ -141,15 +232,77 @@ public final class Log {
 
 
 	/**
-	 * Set the class to be used for logging
+	 * Add a logger which is run on the thread which is logging
 	 *
-	 * @param c The class that extends Log to use
+	 * @param c The logger to add
 	 */
 	public void registerLogger(LoggerInterface c) {
 		loggers.add(c);
 
 	}
 
+	/**
+	 * Remove a logger added with registerLogger
+	 *
+	 * @param c The logger to remove
+	 */
+	public void unregisterLogger(LoggerInterface c) {
+		loggers.remove(c);
+	}
+
+	/**
+	 * Add a logger which is run on the background logging thread, which should be used for any logger which
+	 * could be slow
+	 *
+	 * @param c The logger to add
+	 */
+	public void registerAsyncLogger(LoggerInterface c) {
+		asyncLogger.registerLogger(c);
+	}
+
+	/**
+	 * Set the lowest severity of entry which will be logged
+	 *
+	 * @param severity The minimum severity
+	 */
+	public void setMinimumSeverity(Severity severity) {
+		minimumSeverity = severity;
+	}
+
+	public Severity getMinimumSeverity() {
+		return minimumSeverity;
+	}
+
+	/**
+	 * Wait for the entries logged so far to be passed to the asynchronous loggers
+	 *
+	 * @param timeoutMillis The maximum time to wait in milliseconds
+	 * @return Whether all of the entries were logged in time
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public boolean flush(long timeoutMillis) throws InterruptedException {
+		return asyncLogger.flush(timeoutMillis);
+	}
+
+	/**
+	 * The maximum time to wait for entries to be logged before a program exits, in milliseconds
+	 */
+	public static final long EXIT_FLUSH_TIMEOUT_MILLIS = 2000;
+
+	/**
+	 * Wait for the entries logged so far to be passed to the asynchronous loggers, which run on a daemon thread, so
+	 * that they aren't lost when the program exits. Gives up after EXIT_FLUSH_TIMEOUT_MILLIS.
+	 */
+	public static void flushBeforeExit() {
+		try {
+			if (!getInstance().flush(EXIT_FLUSH_TIMEOUT_MILLIS)) {
+				System.err.println("Timed out waiting for log entries to be written");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	/**
 	 * Log severities which could be filtered on
 	 */
@@ -2,7 +2,10 @@ package uk.ac.cam.cl.group_project.delta;
 
 import uk.ac.cam.cl.group_project.delta.algorithm.communications.Packet;
 
-public class MessageReceipt {
+import java.io.Serializable;
+
+public class MessageReceipt implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	private final byte[] data;
 	private final long time;
@@ -13,8 +16,30 @@ public class MessageReceipt {
 	 * @param data The message which was received
 	 */
 	public MessageReceipt(byte[] data) {
+		this(data, Time.getClock());
+	}
+
+	/**
+	 * Timestamps a message as it arrives at the device
+	 *
+	 * @param data The message which was received
+	 * @param clock The clock used to timestamp the message
+	 */
+	public MessageReceipt(byte[] data, Clock clock) {
 		this.data = data;
-		this.time = Time.getTime();
+		this.time = clock.getTime();
+	}
+
+	/**
+	 * Wraps a message which arrived at a known time, such as one replayed
+	 * from a recording
+	 *
+	 * @param data The message which was received
+	 * @param time The time at which it was received
+	 */
+	public MessageReceipt(byte[] data, long time) {
+		this.data = data;
+		this.time = time;
 	}
 
 	/**
@@ -58,6 +83,10 @@ public class MessageReceipt {
 			return false;
 		}
 		MessageReceipt otherReceipt = (MessageReceipt) obj;
+		if (Packet.isBatchMessage(this.data)) {
+			// Batches contain several messages, so can't replace each other
+			return this == otherReceipt;
+		}
 		if (otherReceipt.data.length != this.data.length) {
 			return false;
 		}
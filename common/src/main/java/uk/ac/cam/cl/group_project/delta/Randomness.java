@@ -0,0 +1,109 @@
+package uk.ac.cam.cl.group_project.delta;
+
+import java.util.Random;
+
+/**
+ * The source of the random number generators used by the vehicles and the
+ * simulation, such as for vehicle IDs and simulated faults.
+ *
+ * By default each generator is seeded unpredictably. Once a seed has been set,
+ * each generator is seeded from it and the number of generators created
+ * before it, so a simulation which creates its generators in the same order
+ * and uses them in the same way makes the same random choices. Like
+ * {@link Time}, this is global, so simulations which run alongside others
+ * can't be reproduced.
+ */
+public class Randomness {
+
+	/**
+	 * Whether the generators are seeded from {@link #seed}
+	 */
+	private static boolean seeded = false;
+
+	private static long seed;
+
+	/**
+	 * The number of generators created since the seed was set
+	 */
+	private static long count;
+
+	/**
+	 * Seed every generator created after this from the given seed
+	 *
+	 * @param seed - the seed
+	 */
+	public static synchronized void setSeed(long seed) {
+		Randomness.seed = seed;
+		Randomness.seeded = true;
+		Randomness.count = 0;
+	}
+
+	/**
+	 * Seed every generator created after this from the given seed, as if a
+	 * number of generators had already been created from it, such as when a
+	 * simulation is restored from a checkpoint
+	 *
+	 * @param seed - the seed
+	 * @param count - the number of generators already created
+	 */
+	public static synchronized void setSeed(long seed, long count) {
+		setSeed(seed);
+		Randomness.count = count;
+	}
+
+	/**
+	 * @return the number of generators created since the seed was set
+	 */
+	public static synchronized long getCount() {
+		return count;
+	}
+
+	/**
+	 * Seed every generator created after this unpredictably
+	 */
+	public static synchronized void useUnseeded() {
+		seeded = false;
+	}
+
+	/**
+	 * @return whether the generators are being seeded from a set seed
+	 */
+	public static synchronized boolean isSeeded() {
+		return seeded;
+	}
+
+	/**
+	 * @return a new random number generator
+	 */
+	public static synchronized Random newRandom() {
+		if (!seeded) {
+			return new Random();
+		}
+		count++;
+		return new Random(mix(seed + count * 0x9E3779B97F4A7C15L));
+	}
+
+	/**
+	 * Get a seed for a generator of another kind, which is chosen in the same
+	 * way as the seed of a generator from {@link #newRandom()}
+	 *
+	 * @return a new seed
+	 */
+	public static synchronized long newSeed() {
+		if (!seeded) {
+			return new Random().nextLong();
+		}
+		count++;
+		return mix(seed + count * 0x9E3779B97F4A7C15L);
+	}
+
+	/**
+	 * Scramble the bits of a value, so that similar values give unrelated
+	 * seeds. This is the finaliser of the SplitMix64 generator.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
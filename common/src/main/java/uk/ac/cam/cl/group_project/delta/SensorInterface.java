@@ -19,6 +19,7 @@ public interface SensorInterface {
 	 * and their positions relative to this vehicle. Beacons are installed
 	 * in all platooning vehicles, but are not exclusive to these vehicles.
 	 * Position accuracy may degrade with distance and have significant noise.
+	 * The list may be reused by later calls, so should not be kept.
 	 *
 	 * @return list containing Beacons visible
 	 */
@@ -0,0 +1,51 @@
+package uk.ac.cam.cl.group_project.delta;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A clock which is advanced by a simulation. Updates are atomic and are seen
+ * immediately by other threads, so the GUI and the algorithms can read the
+ * time while the simulation thread advances it.
+ */
+public class SimulatedClock implements Clock, Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final AtomicLong time;
+
+	/**
+	 * Create a clock starting at time 0
+	 */
+	public SimulatedClock() {
+		this(0);
+	}
+
+	/**
+	 * @param time The initial time in nanoseconds
+	 */
+	public SimulatedClock(long time) {
+		this.time = new AtomicLong(time);
+	}
+
+	@Override
+	public long getTime() {
+		return time.get();
+	}
+
+	/**
+	 * @param time The new time in nanoseconds
+	 */
+	public void setTime(long time) {
+		this.time.set(time);
+	}
+
+	/**
+	 * Advance the clock
+	 *
+	 * @param diff The number of nanoseconds to advance by
+	 * @return The new time
+	 */
+	public long increaseTime(long diff) {
+		return time.addAndGet(diff);
+	}
+}
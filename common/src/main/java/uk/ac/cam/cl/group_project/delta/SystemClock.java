@@ -0,0 +1,23 @@
+package uk.ac.cam.cl.group_project.delta;
+
+/**
+ * A clock which uses the monotonic system timer
+ */
+public class SystemClock implements Clock {
+
+	/**
+	 * The only instance of this class, since it has no state
+	 */
+	public static final SystemClock INSTANCE = new SystemClock();
+
+	private SystemClock() {
+	}
+
+	/**
+	 * @return The value of System.nanoTime()
+	 */
+	@Override
+	public long getTime() {
+		return System.nanoTime();
+	}
+}
@@ -1,34 +1,57 @@
 package uk.ac.cam.cl.group_project.delta;
 
+/**
+ * The global time, which is used by default by anything which isn't given its
+ * own {@link Clock}. This is either the system time, or a time set by the
+ * simulation. Simulations which may run alongside others should give their
+ * vehicles a {@link SimulatedClock} instead.
+ */
 public class Time {
 
 	/**
 	 * The current global time, can be set by the simulation.
 	 */
-	private static long currentTime = -1;
+	private static final SimulatedClock definedClock = new SimulatedClock(-1);
 
 	/**
 	 * A flag indicating whether to use the system time or the set time.
 	 */
-	private static boolean useSetTime = false;
+	private static volatile boolean useSetTime = false;
+
+	/**
+	 * A clock which always reads the current global time
+	 */
+	private static final Clock globalClock = new Clock() {
+		@Override
+		public long getTime() {
+			return Time.getTime();
+		}
+	};
 
 	/**
 	 * @return The current 'global' time
 	 */
 	public static long getTime() {
 		if(useSetTime) {
-			return currentTime;
+			return definedClock.getTime();
 		} else {
 			return System.nanoTime();
 		}
 	}
 
+	/**
+	 * @return A clock which reads the current global time, including any changes made after this is called
+	 */
+	public static Clock getClock() {
+		return globalClock;
+	}
+
 	public static void setTime(long time) {
-		currentTime = time;
+		definedClock.setTime(time);
 	}
 
 	public static void increaseTime(long diff) {
-		currentTime += diff;
+		definedClock.increaseTime(diff);
 	}
 
 	public static void useSystemTime() {
@@ -1,16 +1,18 @@
 package uk.ac.cam.cl.group_project.delta.algorithm;
 
 import uk.ac.cam.cl.group_project.delta.BeaconInterface;
+import uk.ac.cam.cl.group_project.delta.Clock;
 import uk.ac.cam.cl.group_project.delta.DriveInterface;
 import uk.ac.cam.cl.group_project.delta.NetworkInterface;
 import uk.ac.cam.cl.group_project.delta.SensorInterface;
-import uk.ac.cam.cl.group_project.delta.Time;
 
 /**
  * Adaptive cruise control (no networking)
  * Uses a PID to calculate the chosen acceleration
  */
 public class ACC_Algorithm extends Algorithm{
+	private static final long serialVersionUID = 1L;
+
 	//ID parameters
 	private double pidP = 0.5;
 	private double pidI = 0;
@@ -29,90 +31,51 @@ public class ACC_Algorithm extends Algorithm{
 
 	public ACC_Algorithm(DriveInterface driveInterface,
 				SensorInterface sensorInterface, NetworkInterface networkInterface,
-				BeaconInterface beacons, FrontVehicleRoute.RouteNumber routeNumber) {
-				super(driveInterface, sensorInterface, networkInterface, beacons, routeNumber);
-	}
-
-	@Override
-	public void setParameter(ParameterEnum parameterEnum, double value) {
-		switch (parameterEnum) {
-			case PID_P:
-				pidP = value;
-				break;
-			case PID_I:
-				pidI = value;
-				break;
-			case PID_D:
-				pidD = value;
-				break;
-			case MaxAcc:
-				maxAcc = value;
-				break;
-			case MinAcc:
-				minAcc = value;
-				break;
-			case BufferDistance:
-				buffDist = value;
-				break;
-			case HeadTime:
-				headTime = value;
-				break;
-			case MaxSensorDist:
-				maxSensorDist = value;
-		}
+				BeaconInterface beacons, FrontVehicleRoute.RouteNumber routeNumber,
+				Clock clock) {
+		super(driveInterface, sensorInterface, networkInterface, beacons, routeNumber, clock);
+		parameters.define(ParameterEnum.PID_P, pidP, 0, 100);
+		parameters.define(ParameterEnum.PID_I, pidI, 0, 100);
+		parameters.define(ParameterEnum.PID_D, pidD, 0, 100);
+		parameters.define(ParameterEnum.MaxAcc, maxAcc, 0, 10);
+		parameters.define(ParameterEnum.MinAcc, minAcc, -10, 0);
+		parameters.define(ParameterEnum.BufferDistance, buffDist, 0, 10);
+		parameters.define(ParameterEnum.HeadTime, headTime, 0, 10);
+		parameters.define(ParameterEnum.MaxSensorDist, maxSensorDist, 0, 100);
 	}
 
 	@Override
-	public Double getParameter(ParameterEnum parameterEnum) {
-		switch (parameterEnum) {
-			case PID_P:
-				return pidP;
-			case PID_I:
-				return pidI;
-			case PID_D:
-				return pidD;
-			case MaxAcc:
-				return maxAcc;
-			case MinAcc:
-				return minAcc;
-			case BufferDistance:
-				return buffDist;
-			case HeadTime:
-				return headTime;
-			case MaxSensorDist:
-				return maxSensorDist;
-		}
-		return null;
-	}
-
-	@Override
-	public ParameterEnum[] getParameterList() {
-		return new ParameterEnum[] {ParameterEnum.PID_P, ParameterEnum.PID_I, ParameterEnum.PID_D, ParameterEnum.MaxAcc,
-				ParameterEnum.MinAcc, ParameterEnum.BufferDistance, ParameterEnum.HeadTime};
+	protected void applyParameters(ParameterRegistry.Snapshot values) {
+		pidP = values.get(ParameterEnum.PID_P);
+		pidI = values.get(ParameterEnum.PID_I);
+		pidD = values.get(ParameterEnum.PID_D);
+		maxAcc = values.get(ParameterEnum.MaxAcc);
+		minAcc = values.get(ParameterEnum.MinAcc);
+		buffDist = values.get(ParameterEnum.BufferDistance);
+		headTime = values.get(ParameterEnum.HeadTime);
+		maxSensorDist = values.get(ParameterEnum.MaxSensorDist);
 	}
 
 	//combine the front proximity predicted from the vehicle states at the beginning of the previous time period,
-	//and the sensor proximity data
-	private static Double weightFrontProximity(Double predictedFrontProximity, Double sensorFrontProximity) {
-		if (predictedFrontProximity != null && sensorFrontProximity != null) {
+	//and the sensor proximity data, the result is only valid if at least one of them is
+	private static double weightFrontProximity(boolean hasPredictedFrontProximity, double predictedFrontProximity,
+			boolean hasSensorFrontProximity, double sensorFrontProximity) {
+		if (hasPredictedFrontProximity && hasSensorFrontProximity) {
 			return 0.5 * predictedFrontProximity + 0.5 * sensorFrontProximity;
 		}
-		if(predictedFrontProximity != null){
+		if(hasPredictedFrontProximity){
 			return predictedFrontProximity;
 		}
-		if(sensorFrontProximity != null) {
-			return sensorFrontProximity;
-		}
-		else return null;
+		return sensorFrontProximity;
 	}
 
 	public void makeDecision() {
 		//decide on chosen acceleration, speed and turnRate
 
-		if(algorithmData.receiveMessageData != null && algorithmData.previousDistance != null)  {
+		if(algorithmData.receiveMessageData != null && algorithmData.hasPreviousDistance)  {
 
 			//calculate time since message received
-			double delay = (Time.getTime() - algorithmData.receiveMessageData.getStartTime()) / 1e9;
+			double delay = (algorithmData.clock.getTime() - algorithmData.receiveMessageData.getStartTime()) / 1e9;
 
 			// Calculate the distance us and our predecessor have travelled since message received
 			algorithmData.predictedPredecessorMovement = algorithmData.predecessorSpeed * delay
@@ -121,6 +84,7 @@ public class ACC_Algorithm extends Algorithm{
 					+ 0.5 * algorithmData.previousAcceleration * delay * delay;
 			algorithmData.predictedFrontProximity = algorithmData.predictedPredecessorMovement
 					- algorithmData.predictedMovement + algorithmData.previousDistance;
+			algorithmData.hasPredictedFrontProximity = true;
 
 			algorithmData.chosenSpeed = algorithmData.predecessorChosenSpeed;
 			algorithmData.chosenTurnRate = algorithmData.predecessorTurnRate;
@@ -128,26 +92,28 @@ public class ACC_Algorithm extends Algorithm{
 		}
 		else {
 			// No message received or no previous distance
-			algorithmData.predictedFrontProximity = null;
+			algorithmData.hasPredictedFrontProximity = false;
 			algorithmData.chosenSpeed = algorithmData.speed;
 			algorithmData.chosenTurnRate = algorithmData.turnRate;
 		}
 
-		if (algorithmData.frontProximity != null && algorithmData.frontProximity > maxSensorDist) {
-			algorithmData.frontProximity = null;
+		if (algorithmData.hasFrontProximity && algorithmData.frontProximity > maxSensorDist) {
+			algorithmData.hasFrontProximity = false;
 		}
 
-		Double weightedFrontProximity = weightFrontProximity(
-			algorithmData.predictedFrontProximity,
-			algorithmData.frontProximity
+		boolean hasWeightedFrontProximity = algorithmData.hasPredictedFrontProximity
+				|| algorithmData.hasFrontProximity;
+		double weightedFrontProximity = weightFrontProximity(
+			algorithmData.hasPredictedFrontProximity, algorithmData.predictedFrontProximity,
+			algorithmData.hasFrontProximity, algorithmData.frontProximity
 		);
 
-		if (weightedFrontProximity != null) {
+		if (hasWeightedFrontProximity) {
 			//get chosen acceleration from PID by giving it our proximity
 			double pTerm = pidP * (weightedFrontProximity -
 					(headTime * algorithmData.speed + buffDist));
 			double dTerm = 0;
-			if(algorithmData.previousDistance != null) {
+			if(algorithmData.hasPreviousDistance) {
 				dTerm = pidD * (weightedFrontProximity - algorithmData.previousDistance);
 			}
 			double chosenAcceleration = pTerm + dTerm;
@@ -162,8 +128,9 @@ public class ACC_Algorithm extends Algorithm{
 			emergencyStop();
 		}
 		//update previous state variables so that they are correct in next time period
-		if (weightedFrontProximity != null) {
+		if (hasWeightedFrontProximity) {
 			algorithmData.previousDistance = weightedFrontProximity;
+			algorithmData.hasPreviousDistance = true;
 		}
 		algorithmData.previousSpeed = algorithmData.speed;
 		algorithmData.previousAcceleration = algorithmData.acceleration;
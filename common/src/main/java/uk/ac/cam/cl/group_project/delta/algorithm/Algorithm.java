@@ -3,25 +3,69 @@ package uk.ac.cam.cl.group_project.delta.algorithm;
 import uk.ac.cam.cl.group_project.delta.*;
 import uk.ac.cam.cl.group_project.delta.algorithm.communications.Communications;
 import uk.ac.cam.cl.group_project.delta.algorithm.communications.ControlLayer;
+import uk.ac.cam.cl.group_project.delta.metrics.Counter;
+import uk.ac.cam.cl.group_project.delta.metrics.Histogram;
+import uk.ac.cam.cl.group_project.delta.metrics.MetricsRegistry;
 
-public abstract class Algorithm {
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+public abstract class Algorithm implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	public static final int ALGORITHM_LOOP_DURATION = 50000000; // 50ms
 	public static final int MAXIMUM_MESSAGE_AGE = ALGORITHM_LOOP_DURATION*4; //200ms
 
 	public AlgorithmData algorithmData = new AlgorithmData();
-	protected FrontVehicleRoute frontVehicleRoute;
+	protected RouteInterface frontVehicleRoute;
+
+	/**
+	 * The metrics of this vehicle, which are shared with its control layer.
+	 * Durations are measured in real nanoseconds, even in simulation.
+	 */
+	private final MetricsRegistry metrics = new MetricsRegistry();
+	private final Histogram readSensorsTime = metrics.histogram("loop.readSensors");
+	private final Histogram makeDecisionTime = metrics.histogram("loop.makeDecision");
+	private final Histogram frontVehicleRouteTime = metrics.histogram("loop.frontVehicleRoute");
+	private final Histogram sendMessageTime = metrics.histogram("loop.sendMessage");
+	private final Histogram sendInstructionTime = metrics.histogram("loop.sendInstruction");
+	private final Histogram loopTime = metrics.histogram("loop.total");
+	private final Histogram overrunTime = metrics.histogram("loop.overrun");
+	private final Counter overruns = metrics.counter("loop.overruns");
+	private final Histogram predecessorDataAge = metrics.histogram("algorithm.predecessorDataAge");
+
+	/**
+	 * The message sent to the other vehicles, which is refilled every loop
+	 */
+	private final CompactVehicleData sendMessageData = new CompactVehicleData(0, 0, 0, 0, 0, 0);
+
+	/**
+	 * Fuses the readings of each loop into the estimate of the predecessor in algorithmData
+	 */
+	protected final StateEstimator estimator = new StateEstimator();
+
+	/**
+	 * The tunable parameters, which subclasses define in their constructors.
+	 * Changes are copied into the subclass by applyParameters() at the start
+	 * of the next loop.
+	 */
+	protected final ParameterRegistry parameters = new ParameterRegistry();
+	private ParameterRegistry.Snapshot appliedParameters;
 
 	protected Algorithm(DriveInterface driveInterface,
 			SensorInterface sensorInterface,
 			NetworkInterface networkInterface,
 			BeaconInterface beacons,
-			FrontVehicleRoute.RouteNumber routeNumber) {
-		algorithmData.controlLayer = new ControlLayer(networkInterface, beacons);
+			FrontVehicleRoute.RouteNumber routeNumber,
+			Clock clock) {
+		algorithmData.clock = clock;
+		algorithmData.controlLayer = new ControlLayer(networkInterface, beacons, clock);
+		algorithmData.controlLayer.setMetrics(metrics);
 		algorithmData.commsInterface = new Communications(algorithmData.controlLayer);
 		algorithmData.driveInterface = driveInterface;
 		algorithmData.sensorInterface = sensorInterface;
-		frontVehicleRoute = new FrontVehicleRoute(algorithmData, ALGORITHM_LOOP_DURATION, routeNumber);
+		frontVehicleRoute = new FrontVehicleRoute(algorithmData, routeNumber);
 	}
 
 	/**
@@ -35,7 +79,8 @@ public abstract class Algorithm {
 				sensorInterface,
 				networkInterface,
 				beacons,
-				FrontVehicleRoute.RouteNumber.ROUTE_ZERO);
+				FrontVehicleRoute.RouteNumber.ROUTE_ZERO,
+				Time.getClock());
 	}
 
 	/**
@@ -48,17 +93,40 @@ public abstract class Algorithm {
 			NetworkInterface networkInterface,
 			BeaconInterface beacons,
 			FrontVehicleRoute.RouteNumber routeNumber) {
+		return createAlgorithm(algorithmEnum,
+				driveInterface,
+				sensorInterface,
+				networkInterface,
+				beacons,
+				routeNumber,
+				Time.getClock());
+	}
+
+	/**
+	 *Builds and returns algorithm of type specified by AlgorithmEnum input,
+	 *which reads the time from the given clock
+	 */
+	public static Algorithm createAlgorithm(
+			AlgorithmEnum algorithmEnum,
+			DriveInterface driveInterface,
+			SensorInterface sensorInterface,
+			NetworkInterface networkInterface,
+			BeaconInterface beacons,
+			FrontVehicleRoute.RouteNumber routeNumber,
+			Clock clock) {
 		switch (algorithmEnum) {
 		case Naive1:
-			return new NaiveAlgorithm1(driveInterface, sensorInterface, networkInterface, beacons, routeNumber);
+			return new NaiveAlgorithm1(driveInterface, sensorInterface, networkInterface, beacons, routeNumber, clock);
 		case Naive2:
-			return new NaiveAlgorithm2(driveInterface, sensorInterface, networkInterface, beacons, routeNumber);
+			return new NaiveAlgorithm2(driveInterface, sensorInterface, networkInterface, beacons, routeNumber, clock);
 		case Naive3:
-			return new NaiveAlgorithm3(driveInterface, sensorInterface, networkInterface, beacons, routeNumber);
+			return new NaiveAlgorithm3(driveInterface, sensorInterface, networkInterface, beacons, routeNumber, clock);
 		case Adaptive_Cruise_Control:
-			return new ACC_Algorithm(driveInterface, sensorInterface, networkInterface, beacons, routeNumber);
+			return new ACC_Algorithm(driveInterface, sensorInterface, networkInterface, beacons, routeNumber, clock);
 		case Cooperative_Adaptive_Cruise_Control:
-			return new CACC_Algorithm(driveInterface, sensorInterface, networkInterface, beacons, routeNumber);
+			return new CACC_Algorithm(driveInterface, sensorInterface, networkInterface, beacons, routeNumber, clock);
+		case Model_Predictive_Control:
+			return new MPC_Algorithm(driveInterface, sensorInterface, networkInterface, beacons, routeNumber, clock);
 		}
 		return null;
 	}
@@ -86,19 +154,53 @@ public abstract class Algorithm {
 	}
 
 	/** Sets an algorithms parameter.
-	 *  Will do nothing if that algorithm does not have the parameter **/
-	public abstract void setParameter(ParameterEnum parameterEnum, double value);
+	 *  Will do nothing if that algorithm does not have the parameter
+	 *  @throws IllegalArgumentException if the value is outside the parameter's bounds **/
+	public void setParameter(ParameterEnum parameterEnum, double value) {
+		parameters.set(parameterEnum, value);
+	}
+
+	/**
+	 * Sets several parameters at once, which will all be used from the same loop
+	 * @param values new value of each parameter, those the algorithm does not have are ignored
+	 * @throws IllegalArgumentException if any value is outside its bounds, in which case none are set
+	 */
+	public void setParameters(Map<ParameterEnum, Double> values) {
+		parameters.setAll(values);
+	}
 
 	/**
 	 * @param parameterEnum enum for parameter
 	 * @return if algorithm uses parameter then its value otherwise null
 	 */
-	public abstract Double getParameter(ParameterEnum parameterEnum);
+	public Double getParameter(ParameterEnum parameterEnum) {
+		return parameters.get(parameterEnum);
+	}
 
 	/**
 	 * @return Array of all parameters this algorithm uses
 	 */
-	public abstract ParameterEnum[] getParameterList();
+	public ParameterEnum[] getParameterList() {
+		return parameters.getParameters();
+	}
+
+	/**
+	 * @return the registry of parameters, which also holds their defaults and bounds
+	 */
+	public ParameterRegistry getParameterRegistry() {
+		return parameters;
+	}
+
+	/**
+	 * Copy the parameter values into the algorithm. Called on the control
+	 * thread before a loop whenever a parameter has changed, so the values
+	 * never change during a loop.
+	 *
+	 * @param values - the parameter values to use
+	 */
+	protected void applyParameters(ParameterRegistry.Snapshot values) {
+
+	}
 
 	public void initialise() {
 
@@ -107,10 +209,13 @@ public abstract class Algorithm {
 	private void readSensors() {
 		// try to get predecessors messages, trying next car infront if message null, upto the front of platoon
 		// note: leader check not needed as if leader then getPredecessorMessages() returns an empty list
-		//uses timestamp in message to decide which to use
+		//uses timestamp in message, which is the time the data was sampled, to decide which to use
 		// note: individual algorithms handle case in which no message ever received
-		for (VehicleData message : algorithmData.commsInterface.getPredecessorMessages()) {
+		// indexed loops are used here, as an iterator would be allocated every loop
+		List<VehicleData> messages = algorithmData.commsInterface.getPredecessorMessages();
+		for (int i = 0; i < messages.size(); i++) {
 			//loop through messages starting with predecessor up to leader
+			VehicleData message = messages.get(i);
 			if(message != null) {
 				if (algorithmData.receiveMessageData != null) {
 					if (message.getStartTime() > algorithmData.receiveMessageData.getStartTime() + ALGORITHM_LOOP_DURATION) {
@@ -123,11 +228,12 @@ public abstract class Algorithm {
 			}
 		}
 		if(algorithmData.receiveMessageData != null &&
-				Time.getTime() - algorithmData.receiveMessageData.getStartTime() > MAXIMUM_MESSAGE_AGE) {
+				algorithmData.clock.getTime() - algorithmData.receiveMessageData.getStartTime() > MAXIMUM_MESSAGE_AGE) {
 			//if message age is longer than MAXIMUM_MESSAGE_AGE discard message
 			algorithmData.receiveMessageData = null;
 		}
 		if (algorithmData.receiveMessageData != null) {
+			predecessorDataAge.record(algorithmData.clock.getTime() - algorithmData.receiveMessageData.getStartTime());
 			algorithmData.predecessorAcceleration = algorithmData.receiveMessageData.getAcceleration();
 			algorithmData.predecessorSpeed = algorithmData.receiveMessageData.getSpeed();
 			algorithmData.predecessorTurnRate = algorithmData.receiveMessageData.getTurnRate();
@@ -137,19 +243,23 @@ public abstract class Algorithm {
 		}
 
 		// read data from sensors
+		algorithmData.sampleTime = algorithmData.clock.getTime();
 		algorithmData.acceleration = algorithmData.sensorInterface.getAcceleration();
 		algorithmData.speed = algorithmData.sensorInterface.getSpeed();
 		algorithmData.turnRate = algorithmData.sensorInterface.getTurnRate();
 
 		algorithmData.beacons = algorithmData.sensorInterface.getBeacons();
 
+		algorithmData.hasPreviousAngle = algorithmData.hasAngle;
 		algorithmData.previousAngle = algorithmData.angle;
 		//find closest beacon within maximum sensor distance
 		double min = Double.POSITIVE_INFINITY;
-		for (Beacon beacon : algorithmData.beacons) {
+		for (int i = 0; i < algorithmData.beacons.size(); i++) {
+			Beacon beacon = algorithmData.beacons.get(i);
 			if (beacon.getDistanceLowerBound() <= min) {
 				min = beacon.getDistanceLowerBound();
 				algorithmData.closestBeacon = beacon;
+				algorithmData.hasAngle = true;
 				algorithmData.angle = algorithmData.closestBeacon.getAngle();
 			}
 		}
@@ -158,6 +268,7 @@ public abstract class Algorithm {
 		algorithmData.sensorFrontProximity = algorithmData.sensorInterface.getFrontProximity();
 
 		//combines beacon distance lower bound and sensor front proximity
+		algorithmData.hasFrontProximity = true;
 		if (algorithmData.closestBeacon != null && algorithmData.sensorFrontProximity != null) {
 			algorithmData.frontProximity = 0.5 * algorithmData.closestBeacon.getDistanceLowerBound() + 0.5 * algorithmData.sensorFrontProximity;
 		} else if (algorithmData.closestBeacon != null) {
@@ -165,29 +276,32 @@ public abstract class Algorithm {
 		} else if (algorithmData.sensorFrontProximity != null) {
 			algorithmData.frontProximity = algorithmData.sensorFrontProximity;
 		} else {
-			algorithmData.frontProximity = null;
+			algorithmData.hasFrontProximity = false;
 		}
 
 		// get initial distance reading from sensor, distance null if no distance reading
 		//algorithmData.previousDistance = algorithmData.frontProximity;
 		algorithmData.previousSpeed = algorithmData.speed;
 		algorithmData.previousAcceleration = algorithmData.acceleration;
+
+		estimator.update(algorithmData);
 	}
 
 	protected abstract void makeDecision();
 
 	private void sendMessage() {
-		// create and send message to other cars
-		VehicleData sendMessageData;
+		// fill in and send message to other cars, the same message is reused
+		// each loop as it is encoded before sendMessage returns
 		if(algorithmData.commsInterface.isLeader()) {
-			sendMessageData = new VehicleData(algorithmData.speed, algorithmData.acceleration,
+			sendMessageData.set(algorithmData.speed, algorithmData.acceleration,
 					algorithmData.turnRate, algorithmData.speed, algorithmData.acceleration,
 					algorithmData.turnRate);
 		} else {
-			sendMessageData = new VehicleData(algorithmData.speed, algorithmData.acceleration,
+			sendMessageData.set(algorithmData.speed, algorithmData.acceleration,
 					algorithmData.turnRate, algorithmData.chosenSpeed, algorithmData.chosenAcceleration,
 					algorithmData.chosenTurnRate);
 		}
+		sendMessageData.setStartTime(algorithmData.sampleTime);
 		algorithmData.commsInterface.sendMessage(sendMessageData);
 	}
 
@@ -210,8 +324,17 @@ public abstract class Algorithm {
 	 * Called by update and run
 	 */
 	private void runOneLoop() {
+		long loopStart = System.nanoTime();
+		ParameterRegistry.Snapshot values = parameters.snapshot();
+		if (values != appliedParameters) {
+			applyParameters(values);
+			appliedParameters = values;
+		}
 		// read data from sensors into data class
 		readSensors();
+		long phaseEnd = System.nanoTime();
+		readSensorsTime.record(phaseEnd - loopStart);
+		long phaseStart = phaseEnd;
 
 		if (Thread.interrupted()) {
 			emergencyStop();
@@ -221,20 +344,31 @@ public abstract class Algorithm {
 		if(!algorithmData.commsInterface.isLeader()) {
 			makeDecision();
 			shouldSendInstruction = true;
+			phaseEnd = System.nanoTime();
+			makeDecisionTime.record(phaseEnd - phaseStart);
 		} else {
 			shouldSendInstruction = frontVehicleRoute.nextStep();
+			phaseEnd = System.nanoTime();
+			frontVehicleRouteTime.record(phaseEnd - phaseStart);
 		}
+		phaseStart = phaseEnd;
 
 		if (Thread.interrupted()) {
 			emergencyStop();
 		}
 
 		sendMessage();
+		phaseEnd = System.nanoTime();
+		sendMessageTime.record(phaseEnd - phaseStart);
 
 		// send instructions to drive if not leader
 		if(shouldSendInstruction) {
 			sendInstruction();
+			phaseStart = phaseEnd;
+			phaseEnd = System.nanoTime();
+			sendInstructionTime.record(phaseEnd - phaseStart);
 		}
+		loopTime.record(phaseEnd - loopStart);
 
 		if (Thread.interrupted()) {
 			emergencyStop();
@@ -254,27 +388,57 @@ public abstract class Algorithm {
 	 */
 	public void run() {
 		initialise();
-		long startTime = Time.getTime();
+		long startTime = algorithmData.clock.getTime();
 
 		while (!algorithmData.emergencyOccurred) {
 			runOneLoop();
 			try {
-				long nanosToSleep = ALGORITHM_LOOP_DURATION - (Time.getTime() - startTime);
+				long nanosToSleep = ALGORITHM_LOOP_DURATION - (algorithmData.clock.getTime() - startTime);
 				if(nanosToSleep > 0) {
 					// Note: integer division desired
 					Thread.sleep(nanosToSleep/1000000);
 				} else {
-					Log.warn(String.format("LOOP_DURATION is too low, algorithm can't keep up (%dms too slow)", -nanosToSleep/1000000));
+					overruns.increment();
+					overrunTime.record(-nanosToSleep);
+					Log.warn("LOOP_DURATION is too low, algorithm can't keep up (%dms too slow)", -nanosToSleep/1000000);
 				}
 			} catch (InterruptedException e) {
 				emergencyStop();
 				break;
 			}
-			startTime = Time.getTime();
+			startTime = algorithmData.clock.getTime();
 		}
 		Log.debug("Algorithm has finished running");
 	}
 
+	/**
+	 * Replace the route followed by this vehicle when it is the leader. The
+	 * times of the keyframes are relative to the next loop as the leader.
+	 *
+	 * @param timeline - the route to follow
+	 */
+	public void setRoute(RouteTimeline timeline) {
+		frontVehicleRoute = new FrontVehicleRoute(algorithmData, timeline);
+	}
+
+	/**
+	 * Replace the way this vehicle drives when it is the leader, for example
+	 * with a {@link DriveCycleReplay}. The caller remains responsible for
+	 * closing the route if it holds any resources.
+	 *
+	 * @param route - the route to follow
+	 */
+	public void setRoute(RouteInterface route) {
+		frontVehicleRoute = route;
+	}
+
+	/**
+	 * @return The metrics of this vehicle, including the time taken by each part of the loop
+	 */
+	public MetricsRegistry getMetrics() {
+		return metrics;
+	}
+
 	public boolean isLeader() {
 		return algorithmData.commsInterface.isLeader();
 	}
@@ -1,25 +1,34 @@
 package uk.ac.cam.cl.group_project.delta.algorithm;
 
 import uk.ac.cam.cl.group_project.delta.Beacon;
+import uk.ac.cam.cl.group_project.delta.Clock;
 import uk.ac.cam.cl.group_project.delta.DriveInterface;
 import uk.ac.cam.cl.group_project.delta.SensorInterface;
 import uk.ac.cam.cl.group_project.delta.algorithm.communications.ControlLayer;
 
+import java.io.Serializable;
 import java.util.List;
 
 //class for storing and passing data used by algorithm
-public class AlgorithmData {
+//values which may be missing are stored as primitives with a flag saying whether they are valid,
+//so that no objects are allocated by each loop of the algorithm
+public class AlgorithmData implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	public ControlLayer controlLayer;
 	public CommsInterface commsInterface;
 	public SensorInterface sensorInterface;
 	public DriveInterface driveInterface;
+	public Clock clock;
 
 	public VehicleData receiveMessageData;
 
 	// True when an emergency has occurred
 	public boolean emergencyOccurred = false;
 
+	//time at which the sensors were last read
+	public long sampleTime;
+
 	//current vehicle state
 	public double acceleration;
 	public double speed;
@@ -30,10 +39,20 @@ public class AlgorithmData {
 
 	public List<Beacon> beacons;
 	public Beacon closestBeacon;
-	public Double angle;
+	public boolean hasAngle;
+	public double angle;
+
+	//frontProximity derived from beacons and sensor front proximity, only valid if hasFrontProximity
+	public boolean hasFrontProximity;
+	public double frontProximity;
 
-	//frontProximity derived from beacons and sensor front proximity
-	public Double frontProximity;
+	//estimate of the gap to the predecessor, its speed relative to this vehicle and its acceleration,
+	//fused from all of the readings by the StateEstimator, only valid if hasEstimate
+	public boolean hasEstimate;
+	public double estimatedGap;
+	public double estimatedGapStdDev;
+	public double estimatedRelativeSpeed;
+	public double estimatedPredecessorAcceleration;
 
 	public double chosenSpeed;
 	public double chosenAcceleration;
@@ -50,18 +69,24 @@ public class AlgorithmData {
 
 	public double predictedPredecessorMovement;
 	public double predictedMovement;
-	public Double predictedFrontProximity;
-	public Double previousPredictedProximity;
-
-	//null if no previous distance reading
-	public Double previousDistance;
+	public boolean hasPredictedFrontProximity;
+	public double predictedFrontProximity;
+	public boolean hasPreviousPredictedProximity;
+	public double previousPredictedProximity;
+
+	//only valid if there has been a previous distance reading
+	public boolean hasPreviousDistance;
+	public double previousDistance;
 	public double previousSpeed;
 	public double previousAcceleration;
 
-	public Double previousAngle;
+	public boolean hasPreviousAngle;
+	public double previousAngle;
 
 	//sum of errors used by PID
-	public Double errorSum;
+	public boolean hasErrorSum;
+	public double errorSum;
 
-	public Long lastTime;
+	public boolean hasLastTime;
+	public long lastTime;
 }
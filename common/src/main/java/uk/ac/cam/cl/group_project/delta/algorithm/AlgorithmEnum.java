@@ -1,7 +1,8 @@
 package uk.ac.cam.cl.group_project.delta.algorithm;
 
 public enum AlgorithmEnum {
-	Naive1, Naive2, Naive3, Adaptive_Cruise_Control, Cooperative_Adaptive_Cruise_Control;
+	Naive1, Naive2, Naive3, Adaptive_Cruise_Control, Cooperative_Adaptive_Cruise_Control,
+	Model_Predictive_Control;
 
 	@Override
 	public String toString() {
@@ -0,0 +1,153 @@
+package uk.ac.cam.cl.group_project.delta.algorithm;
+
+import java.io.Serializable;
+
+/**
+ * Solves quadratic programs with box constraints:
+ *
+ * <pre>
+ * minimise    0.5 x'Hx + f'x
+ * subject to  lower &lt;= x[i] &lt;= upper
+ * </pre>
+ *
+ * where H is symmetric and positive definite. It uses a fixed number of
+ * iterations of the accelerated projected gradient method (FISTA), so every
+ * solve takes the same number of operations, and no objects are allocated
+ * after construction. The result is not exact, but each iteration reduces the
+ * error, and starting from the previous solution makes few iterations enough.
+ */
+public class BoxQpSolver implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The number of variables
+	 */
+	private final int size;
+
+	private final int iterations;
+
+	/**
+	 * The hessian, stored by rows
+	 */
+	private final double[] hessian;
+
+	/**
+	 * The step size of each gradient step, which is the reciprocal of an
+	 * upper bound on the largest eigenvalue of the hessian
+	 */
+	private double stepSize;
+
+	/**
+	 * The momentum used after each iteration, which only depends on the iteration number
+	 */
+	private final double[] momentum;
+
+	private final double[] extrapolated;
+	private final double[] previous;
+
+	/**
+	 * Create a solver for problems of a fixed size
+	 *
+	 * @param size - the number of variables
+	 * @param iterations - the number of iterations used by each solve
+	 */
+	public BoxQpSolver(int size, int iterations) {
+		if (size < 1 || iterations < 1) {
+			throw new IllegalArgumentException("Size and iterations must be at least 1");
+		}
+		this.size = size;
+		this.iterations = iterations;
+		this.hessian = new double[size * size];
+		this.extrapolated = new double[size];
+		this.previous = new double[size];
+
+		momentum = new double[iterations];
+		double t = 1;
+		for (int k = 0; k < iterations; k++) {
+			double next = (1 + Math.sqrt(1 + 4 * t * t)) / 2;
+			momentum[k] = (t - 1) / next;
+			t = next;
+		}
+	}
+
+	/**
+	 * Set the hessian of the problem, which is copied
+	 *
+	 * @param h - the size by size hessian, stored by rows
+	 */
+	public void setHessian(double[] h) {
+		if (h.length != hessian.length) {
+			throw new IllegalArgumentException("Hessian must have " + hessian.length + " elements");
+		}
+		System.arraycopy(h, 0, hessian, 0, h.length);
+		// Every eigenvalue is at most the largest absolute row sum
+		double bound = 0;
+		for (int i = 0; i < size; i++) {
+			double sum = 0;
+			for (int j = 0; j < size; j++) {
+				sum += Math.abs(hessian[i * size + j]);
+			}
+			bound = Math.max(bound, sum);
+		}
+		stepSize = 1 / bound;
+	}
+
+	/**
+	 * Solve the problem with the given linear term and bounds
+	 *
+	 * @param f - the linear term of the objective
+	 * @param lower - the lower bound of every variable
+	 * @param upper - the upper bound of every variable
+	 * @param x - the point to start from, which is replaced by the solution
+	 */
+	public void solve(double[] f, double lower, double upper, double[] x) {
+		for (int i = 0; i < size; i++) {
+			x[i] = clamp(x[i], lower, upper);
+			extrapolated[i] = x[i];
+		}
+		for (int k = 0; k < iterations; k++) {
+			System.arraycopy(x, 0, previous, 0, size);
+			// Take a gradient step from the extrapolated point, and project it into the box
+			for (int i = 0; i < size; i++) {
+				double gradient = f[i];
+				int row = i * size;
+				for (int j = 0; j < size; j++) {
+					gradient += hessian[row + j] * extrapolated[j];
+				}
+				x[i] = clamp(extrapolated[i] - stepSize * gradient, lower, upper);
+			}
+			for (int i = 0; i < size; i++) {
+				extrapolated[i] = x[i] + momentum[k] * (x[i] - previous[i]);
+			}
+		}
+	}
+
+	/**
+	 * @param x - a point
+	 * @param f - the linear term of the objective
+	 * @return the value of the objective at the point
+	 */
+	public double objective(double[] x, double[] f) {
+		double value = 0;
+		for (int i = 0; i < size; i++) {
+			double hx = 0;
+			for (int j = 0; j < size; j++) {
+				hx += hessian[i * size + j] * x[j];
+			}
+			value += 0.5 * x[i] * hx + f[i] * x[i];
+		}
+		return value;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	private static double clamp(double value, double lower, double upper) {
+		return value < lower ? lower : (value > upper ? upper : value);
+	}
+}
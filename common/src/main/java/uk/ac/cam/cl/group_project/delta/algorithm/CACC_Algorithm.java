@@ -15,6 +15,7 @@ import uk.ac.cam.cl.group_project.delta.*;
  */
 
 public class CACC_Algorithm extends Algorithm {
+	private static final long serialVersionUID = 1L;
 
 	// PID parameters
 	//increases response time
@@ -55,128 +56,70 @@ public class CACC_Algorithm extends Algorithm {
 
 	public CACC_Algorithm(DriveInterface driveInterface,
 			SensorInterface sensorInterface, NetworkInterface networkInterface,
-			BeaconInterface beacons, FrontVehicleRoute.RouteNumber routeNumber) {
-		super(driveInterface, sensorInterface, networkInterface, beacons, routeNumber);
+			BeaconInterface beacons, FrontVehicleRoute.RouteNumber routeNumber,
+			Clock clock) {
+		super(driveInterface, sensorInterface, networkInterface, beacons, routeNumber, clock);
+		parameters.define(ParameterEnum.PID_P, pidP, 0, 100);
+		parameters.define(ParameterEnum.PID_I, pidI, 0, 100);
+		parameters.define(ParameterEnum.PID_D, pidD, 0, 100);
+		parameters.define(ParameterEnum.MaxAcc, maxAcc, 0, 10);
+		parameters.define(ParameterEnum.MinAcc, minAcc, -10, 0);
+		parameters.define(ParameterEnum.BufferDistance, buffDist, 0, 10);
+		parameters.define(ParameterEnum.HeadTime, headTime, 0, 10);
+		parameters.define(ParameterEnum.EmergencyDistance, emerDist, 0, 10);
+		parameters.define(ParameterEnum.MaxSensorDist, maxSensorDist, 0, 100);
+		parameters.define(ParameterEnum.pidP_NoNetwork, pidP_NoNetwork, 0, 100);
+		parameters.define(ParameterEnum.pidD_NoNetwork, pidD_NoNetwork, 0, 100);
+		parameters.define(ParameterEnum.proximitySmoothing, proximitySmoothing, 0, 1);
+		parameters.define(ParameterEnum.usePrediction, usePrediction ? 1 : 0, 0, 1);
+		parameters.define(ParameterEnum.TurningPidP, turnP, 0, 100);
+		parameters.define(ParameterEnum.TurningPidD, turnD, 0, 100);
 	}
 
 	@Override
-	public void setParameter(ParameterEnum parameterEnum, double value) {
-		switch (parameterEnum) {
-			case PID_P:
-				pidP = value;
-				break;
-			case PID_I:
-				pidI = value;
-				break;
-			case PID_D:
-				pidD = value;
-				break;
-			case MaxAcc:
-				maxAcc = value;
-				break;
-			case MinAcc:
-				minAcc = value;
-				break;
-			case BufferDistance:
-				buffDist = value;
-				break;
-			case HeadTime:
-				headTime = value;
-				break;
-			case EmergencyDistance:
-				emerDist = value;
-			case MaxSensorDist:
-				maxSensorDist = value;
-				break;
-			case pidP_NoNetwork:
-				pidP_NoNetwork = value;
-				break;
-			case pidD_NoNetwork:
-				pidD = value;
-				break;
-			case proximitySmoothing:
-				proximitySmoothing = value;
-				break;
-			case usePrediction:
-				if(value > 0) {
-					usePrediction = true;
-				} else {
-					usePrediction = false;
-				}
-			case TurningPidP:
-				turnP = value;
-			case TurningPidD:
-				turnD = value;
-		}
-	}
-
-	@Override
-	public Double getParameter(ParameterEnum parameterEnum) {
-		switch (parameterEnum) {
-			case PID_P:
-				return pidP;
-			case PID_I:
-				return pidI;
-			case PID_D:
-				return pidD;
-			case MaxAcc:
-				return maxAcc;
-			case MinAcc:
-				return minAcc;
-			case BufferDistance:
-				return buffDist;
-			case HeadTime:
-				return headTime;
-			case EmergencyDistance:
-				return emerDist;
-			case MaxSensorDist:
-				return maxSensorDist;
-			case pidP_NoNetwork:
-				return pidP_NoNetwork;
-			case pidD_NoNetwork:
-				return pidD_NoNetwork;
-			case proximitySmoothing:
-				return proximitySmoothing;
-			case usePrediction:
-				if(usePrediction) {
-					return 1.0;
-				} else {
-					return 0.0;
-				}
-			case TurningPidP:
-				return turnP;
-			case TurningPidD:
-				return turnD;
-		}
-		return null;
-	}
-	@Override
-	public ParameterEnum[] getParameterList() {
-		return new ParameterEnum[]{ParameterEnum.PID_P, ParameterEnum.PID_I, ParameterEnum.PID_D,
-			ParameterEnum.MaxAcc, ParameterEnum.MinAcc, ParameterEnum.BufferDistance, ParameterEnum.HeadTime,
-			ParameterEnum.EmergencyDistance, ParameterEnum.MaxSensorDist, ParameterEnum.pidP_NoNetwork,
-			ParameterEnum.pidD_NoNetwork, ParameterEnum.proximitySmoothing, ParameterEnum.usePrediction,
-			ParameterEnum.TurningPidP, ParameterEnum.TurningPidD};
+	protected void applyParameters(ParameterRegistry.Snapshot values) {
+		pidP = values.get(ParameterEnum.PID_P);
+		pidI = values.get(ParameterEnum.PID_I);
+		pidD = values.get(ParameterEnum.PID_D);
+		maxAcc = values.get(ParameterEnum.MaxAcc);
+		minAcc = values.get(ParameterEnum.MinAcc);
+		buffDist = values.get(ParameterEnum.BufferDistance);
+		headTime = values.get(ParameterEnum.HeadTime);
+		emerDist = values.get(ParameterEnum.EmergencyDistance);
+		maxSensorDist = values.get(ParameterEnum.MaxSensorDist);
+		pidP_NoNetwork = values.get(ParameterEnum.pidP_NoNetwork);
+		pidD_NoNetwork = values.get(ParameterEnum.pidD_NoNetwork);
+		proximitySmoothing = values.get(ParameterEnum.proximitySmoothing);
+		usePrediction = values.get(ParameterEnum.usePrediction) > 0;
+		turnP = values.get(ParameterEnum.TurningPidP);
+		turnD = values.get(ParameterEnum.TurningPidD);
 	}
 
 	@Override
 	public void makeDecision() {
 		// Fall back to beacon proximity if no real proximity available
-		if (algorithmData.frontProximity != null && algorithmData.frontProximity > maxSensorDist) {
-			algorithmData.frontProximity = null;
+		if (algorithmData.hasFrontProximity && algorithmData.frontProximity > maxSensorDist) {
+			algorithmData.hasFrontProximity = false;
 		}
 
 		// if prediction is turned on use the data from the message
 		// and previous front proximity to estimate the current front proximity
 		if(usePrediction) {
-			if (algorithmData.lastTime != null && algorithmData.predictedFrontProximity != null) {
-				double delay = (Time.getTime() - algorithmData.lastTime) / 1E9;
+			if (algorithmData.hasLastTime && algorithmData.hasPredictedFrontProximity) {
+				double delay = (algorithmData.clock.getTime() - algorithmData.lastTime) / 1E9;
+				//the predecessor's state was sampled when the message was created, so use the age
+				//of the message to extrapolate its movement over the delay
+				double age = delay;
+				if (algorithmData.receiveMessageData != null) {
+					age = (algorithmData.clock.getTime() - algorithmData.receiveMessageData.getStartTime()) / 1E9;
+				}
 				//calculate the distance us and our predecessor have travelled since message received
 				if(algorithmData.predecessorSpeed > 0.1) {
+					double ageAtLastTime = age - delay;
 					algorithmData.predictedPredecessorMovement = Math.max(0, algorithmData.predecessorSpeed * delay
-							+ 0.5 * algorithmData.predecessorAcceleration * delay * delay);
+							+ 0.5 * algorithmData.predecessorAcceleration * (age * age - ageAtLastTime * ageAtLastTime));
 				} else {
-					algorithmData.predictedMovement = 0;
+					algorithmData.predictedPredecessorMovement = 0;
 				}
 				if(algorithmData.previousSpeed > 0.1) {
 					algorithmData.predictedMovement = Math.max(0, algorithmData.previousSpeed * delay
@@ -193,13 +136,14 @@ public class CACC_Algorithm extends Algorithm {
 		double pTerm;
 		double iTerm = 0;
 		double dTerm = 0;
-		if(algorithmData.frontProximity != null && algorithmData.frontProximity < maxSensorDist) {
-			if(algorithmData.predictedFrontProximity != null) {
+		if(algorithmData.hasFrontProximity && algorithmData.frontProximity < maxSensorDist) {
+			if(algorithmData.hasPredictedFrontProximity) {
 				//update predicted proximity with new sensor data, weighting by proximitySmoothing coefficient
 				algorithmData.predictedFrontProximity = proximitySmoothing * algorithmData.predictedFrontProximity + (1 - proximitySmoothing) * algorithmData.frontProximity;
 			} else {
 				//if first time sensor is working then use front proximity as smoothed prediction
 				algorithmData.predictedFrontProximity = algorithmData.frontProximity;
+				algorithmData.hasPredictedFrontProximity = true;
 			}
 
 			//decide on chosen acceleration, speed and turnRate
@@ -213,10 +157,11 @@ public class CACC_Algorithm extends Algorithm {
 				double error = (algorithmData.predictedFrontProximity -
 						(headTime * algorithmData.speed + buffDist));
 				pTerm = pidP * error;
-				if(algorithmData.errorSum != null && error < 2 && error > -10) {
+				if(algorithmData.hasErrorSum && error < 2 && error > -10) {
 					algorithmData.errorSum += error;
 				} else {
 					algorithmData.errorSum = error;
+					algorithmData.hasErrorSum = true;
 				}
 				iTerm = pidI * algorithmData.errorSum;
 
@@ -225,7 +170,7 @@ public class CACC_Algorithm extends Algorithm {
 
 				//if no message received just use sensor data
 				pTerm = pidP_NoNetwork * (algorithmData.predictedFrontProximity - buffDist);
-				if(algorithmData.previousPredictedProximity != null) {
+				if(algorithmData.hasPreviousPredictedProximity) {
 					dTerm = pidD_NoNetwork * (algorithmData.predictedFrontProximity - algorithmData.previousPredictedProximity);
 				}
 			}
@@ -275,7 +220,7 @@ public class CACC_Algorithm extends Algorithm {
 				p *= algorithmData.speed * 10;
 			}
 			double d;
-			if (algorithmData.previousAngle == null) {
+			if (!algorithmData.hasPreviousAngle) {
 				d = 0;
 			} else {
 				d = turnD * (algorithmData.angle - algorithmData.previousAngle);
@@ -285,7 +230,9 @@ public class CACC_Algorithm extends Algorithm {
 			algorithmData.chosenTurnRate = algorithmData.predecessorTurnRate;
 		}
 
-		algorithmData.lastTime = Time.getTime();
+		algorithmData.lastTime = algorithmData.clock.getTime();
+		algorithmData.hasLastTime = true;
+		algorithmData.hasPreviousPredictedProximity = algorithmData.hasPredictedFrontProximity;
 		algorithmData.previousPredictedProximity = algorithmData.predictedFrontProximity;
 	}
 }
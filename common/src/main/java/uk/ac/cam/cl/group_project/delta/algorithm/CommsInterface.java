@@ -40,6 +40,7 @@ public interface CommsInterface {
 	 * current vehicle is the leader. The list will contain null values for
 	 * messages which have not been received recently by vehicles in front of
 	 * this one. The list will be ordered so the leader is the final message.
+	 * The list may be reused by later calls, so should not be kept.
 	 *
 	 * @return the list of messages from vehicles in front
 	 */
@@ -0,0 +1,148 @@
+package uk.ac.cam.cl.group_project.delta.algorithm;
+
+import java.nio.ByteBuffer;
+
+import uk.ac.cam.cl.group_project.delta.algorithm.communications.MessageType;
+
+/**
+ * A VehicleData message which is sent using 16-bit fixed-point fields rather
+ * than doubles. The chosen values are omitted when they encode to the same
+ * values as the measured ones, as is always the case for the leader.
+ *
+ * Values outside the range of a field are saturated to the largest value
+ * which can be represented.
+ */
+public class CompactVehicleData extends VehicleData {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The value of the least significant bit of the speed field, in m/s, which
+	 * allows speeds up to 327 m/s so that highway drive cycles fit
+	 */
+	public static final double SPEED_SCALE = 0.01;
+
+	/**
+	 * The value of the least significant bit of the acceleration field, in m/s/s
+	 */
+	public static final double ACCELERATION_SCALE = 0.001;
+
+	/**
+	 * The value of the least significant bit of the turn rate field, in rad/s
+	 */
+	public static final double TURN_RATE_SCALE = 0.001;
+
+	/**
+	 * Set in the flags byte if the chosen values follow the measured values
+	 */
+	private static final int CHOSEN_PRESENT_FLAG = 0x01;
+
+	/**
+	 * Create a message which will be sent in the compact format. The values
+	 * returned by the getters are exactly those given here, only the values
+	 * received by other vehicles are rounded.
+	 *
+	 * @param speed
+	 * @param acceleration
+	 * @param turnRate
+	 * @param chosenSpeed
+	 * @param chosenAcceleration
+	 * @param chosenTurnRate
+	 */
+	public CompactVehicleData(double speed, double acceleration, double turnRate, double chosenSpeed,
+			double chosenAcceleration, double chosenTurnRate) {
+		super(speed, acceleration, turnRate, chosenSpeed, chosenAcceleration, chosenTurnRate);
+	}
+
+	/**
+	 * Recreate the message from the bytebuffer, the bytebuffer should be
+	 * positioned at the start of the data, not at the start of the packet
+	 *
+	 * @param bytes the bytes to be converted
+	 */
+	public CompactVehicleData(ByteBuffer bytes) {
+		this(decodeFields(bytes));
+	}
+
+	private CompactVehicleData(double[] fields) {
+		super(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5]);
+	}
+
+	/**
+	 * Read the fields from the buffer, filling in the chosen values from
+	 * the measured values if they were omitted.
+	 *
+	 * @param bytes - the payload of the packet
+	 * @return the six fields in the order of the VehicleData constructor
+	 */
+	private static double[] decodeFields(ByteBuffer bytes) {
+		int flags = bytes.get();
+		double[] fields = new double[6];
+		fields[0] = bytes.getShort() * SPEED_SCALE;
+		fields[1] = bytes.getShort() * ACCELERATION_SCALE;
+		fields[2] = bytes.getShort() * TURN_RATE_SCALE;
+		if ((flags & CHOSEN_PRESENT_FLAG) != 0) {
+			fields[3] = bytes.getShort() * SPEED_SCALE;
+			fields[4] = bytes.getShort() * ACCELERATION_SCALE;
+			fields[5] = bytes.getShort() * TURN_RATE_SCALE;
+		} else {
+			fields[3] = fields[0];
+			fields[4] = fields[1];
+			fields[5] = fields[2];
+		}
+		return fields;
+	}
+
+	/**
+	 * Append the data in this object to the bytebuffer, the bytebuffer
+	 * should be positioned at the start of the data section or information
+	 * will be overwritten
+	 *
+	 * @return a byte representation of the data
+	 */
+	@Override
+	public ByteBuffer appendToBuffer(ByteBuffer bytes) {
+		short speed = toFixedPoint(getSpeed(), SPEED_SCALE);
+		short acceleration = toFixedPoint(getAcceleration(), ACCELERATION_SCALE);
+		short turnRate = toFixedPoint(getTurnRate(), TURN_RATE_SCALE);
+		short chosenSpeed = toFixedPoint(getChosenSpeed(), SPEED_SCALE);
+		short chosenAcceleration = toFixedPoint(getChosenAcceleration(), ACCELERATION_SCALE);
+		short chosenTurnRate = toFixedPoint(getChosenTurnRate(), TURN_RATE_SCALE);
+
+		boolean chosenPresent = speed != chosenSpeed
+				|| acceleration != chosenAcceleration
+				|| turnRate != chosenTurnRate;
+
+		bytes.put((byte) (chosenPresent ? CHOSEN_PRESENT_FLAG : 0));
+		bytes.putShort(speed);
+		bytes.putShort(acceleration);
+		bytes.putShort(turnRate);
+		if (chosenPresent) {
+			bytes.putShort(chosenSpeed);
+			bytes.putShort(chosenAcceleration);
+			bytes.putShort(chosenTurnRate);
+		}
+		return bytes;
+	}
+
+	@Override
+	public MessageType getType() {
+		return MessageType.CompactData;
+	}
+
+	/**
+	 * Convert a value into a fixed-point field, saturating if it is out of range.
+	 *
+	 * @param value - the value to be converted
+	 * @param scale - the value of the least significant bit
+	 * @return the fixed-point representation
+	 */
+	private static short toFixedPoint(double value, double scale) {
+		long scaled = Math.round(value / scale);
+		if (scaled > Short.MAX_VALUE) {
+			return Short.MAX_VALUE;
+		} else if (scaled < Short.MIN_VALUE) {
+			return Short.MIN_VALUE;
+		}
+		return (short) scaled;
+	}
+}
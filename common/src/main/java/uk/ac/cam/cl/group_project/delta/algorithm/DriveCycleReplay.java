@@ -0,0 +1,194 @@
+package uk.ac.cam.cl.group_project.delta.algorithm;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import uk.ac.cam.cl.group_project.delta.Log;
+
+/**
+ * Makes the leader replay a recorded drive cycle, given as a trace of the
+ * speed and turn rate of a vehicle over time. The trace is read from disk as
+ * it is needed, and only the two samples either side of the current time are
+ * kept, so traces of any length can be replayed.
+ *
+ * The trace has one sample per line, in the same form as a route file:
+ *
+ * <pre>
+ * # seconds, speed (m/s), turn rate (rad/s)
+ * 0.0, 0.0, 0
+ * 0.1, 0.05, 0
+ * </pre>
+ *
+ * The speed and turn rate are interpolated linearly between samples. The
+ * chosen acceleration is the gradient of the speed, plus a correction for the
+ * difference between the measured speed and the trace. Once the trace ends
+ * the final speed and turn rate are held.
+ */
+public class DriveCycleReplay implements RouteInterface, Closeable {
+
+	/**
+	 * The size of the buffer used to read the trace, in characters
+	 */
+	public static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The acceleration added per m/s of difference between the traced and measured speeds
+	 */
+	public static final double SPEED_GAIN = 1.0;
+
+	/**
+	 * The algorithmData object for this vehicle
+	 */
+	private final AlgorithmData algorithmData;
+
+	private final BufferedReader reader;
+
+	private int lineNumber = 0;
+
+	/**
+	 * The time of the first call to nextStep(), which the sample times are relative to
+	 */
+	private long startTime;
+	private boolean started = false;
+
+	/**
+	 * The last sample at or before the current time, if there has been one
+	 */
+	private boolean hasPrevious = false;
+	private long previousTime;
+	private double previousSpeed;
+	private double previousTurnRate;
+
+	/**
+	 * The first sample after the current time, if the trace hasn't ended
+	 */
+	private boolean hasNext;
+	private long nextTime;
+	private double nextSpeed;
+	private double nextTurnRate;
+
+	/**
+	 * Replay a trace from a file
+	 *
+	 * @param algorithmData - the algorithmData object for this vehicle
+	 * @param file - the trace to replay
+	 * @throws IOException if the file can't be opened
+	 */
+	public DriveCycleReplay(AlgorithmData algorithmData, File file) throws IOException {
+		this(algorithmData, Channels.newReader(FileChannel.open(file.toPath(), StandardOpenOption.READ), "UTF-8"));
+	}
+
+	/**
+	 * Replay a trace from a reader, which is closed by {@link #close()}
+	 *
+	 * @param algorithmData - the algorithmData object for this vehicle
+	 * @param reader - the trace to replay
+	 */
+	public DriveCycleReplay(AlgorithmData algorithmData, Reader reader) {
+		this.algorithmData = algorithmData;
+		this.reader = new BufferedReader(reader, BUFFER_SIZE);
+		hasNext = readSample();
+	}
+
+	/**
+	 * Called in each algorithm loop, sets the chosen acceleration and turn rate
+	 * from the trace
+	 *
+	 * @return whether the chosen values should be sent to the drive
+	 */
+	@Override
+	public boolean nextStep() {
+		long now = algorithmData.clock.getTime();
+		if (!started) {
+			startTime = now;
+			started = true;
+		}
+		long elapsed = now - startTime;
+		while (hasNext && nextTime <= elapsed) {
+			previousTime = nextTime;
+			previousSpeed = nextSpeed;
+			previousTurnRate = nextTurnRate;
+			hasPrevious = true;
+			hasNext = readSample();
+		}
+		if (!hasPrevious) {
+			// The first sample hasn't been reached
+			return false;
+		}
+
+		double speed;
+		double gradient;
+		double turnRate;
+		if (hasNext) {
+			double duration = (nextTime - previousTime) / 1E9;
+			double fraction = (elapsed - previousTime) / 1E9 / duration;
+			speed = previousSpeed + fraction * (nextSpeed - previousSpeed);
+			gradient = (nextSpeed - previousSpeed) / duration;
+			turnRate = previousTurnRate + fraction * (nextTurnRate - previousTurnRate);
+		} else {
+			speed = previousSpeed;
+			gradient = 0;
+			turnRate = previousTurnRate;
+		}
+		algorithmData.chosenSpeed = speed;
+		algorithmData.chosenAcceleration = gradient + SPEED_GAIN * (speed - algorithmData.speed);
+		algorithmData.chosenTurnRate = turnRate;
+		return true;
+	}
+
+	/**
+	 * @return whether there are samples left to read
+	 */
+	public boolean isFinished() {
+		return !hasNext;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	/**
+	 * Read the next sample into the next fields. A malformed trace ends the
+	 * replay rather than stopping the algorithm.
+	 *
+	 * @return whether a sample was read
+	 */
+	private boolean readSample() {
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] fields = line.split("[,\\s]+");
+				if (fields.length != 3) {
+					Log.error("Drive cycle line %d: expected 3 values but found %d", lineNumber, fields.length);
+					return false;
+				}
+				long time = Math.round(Double.parseDouble(fields[0]) * 1E9);
+				if (hasPrevious && time <= previousTime) {
+					Log.error("Drive cycle line %d: sample is not later than the previous one", lineNumber);
+					return false;
+				}
+				nextTime = time;
+				nextSpeed = Double.parseDouble(fields[1]);
+				nextTurnRate = Double.parseDouble(fields[2]);
+				return true;
+			}
+		} catch (IOException e) {
+			Log.error(e);
+		} catch (NumberFormatException e) {
+			Log.error("Drive cycle line %d: %s", lineNumber, e.getMessage());
+		}
+		return false;
+	}
+}
@@ -1,171 +1,181 @@
 package uk.ac.cam.cl.group_project.delta.algorithm;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.Serializable;
 
-public class FrontVehicleRoute {
+/**
+ * Makes the front vehicle follow a route, given as a timeline of keyframes.
+ * The position in the route is found from the time since the first step, so
+ * the route isn't stretched if the algorithm loop runs late or at a different
+ * rate.
+ */
+public class FrontVehicleRoute implements RouteInterface, Serializable {
+	private static final long serialVersionUID = 1L;
 
 	/**
-	 * The number of times nextStep() has been called
+	 * The keyframes of the route
 	 */
-	private int currentStep = 0;
+	private final RouteTimeline timeline;
 
 	/**
-	 * The next value of currentStep at which an action takes place
+	 * The index of the last keyframe which has been reached, or -1 if none has
 	 */
-	private int nextActionStep;
+	private int cursor = -1;
 
 	/**
-	 * True if there are any actions left to do
+	 * The time of the first call to nextStep(), which the keyframe times are relative to
 	 */
-	private boolean stepsRemaining = true;
+	private long startTime;
 
-	/**
-	 * List of remaining moves to do
-	 */
-	private List<Move> moves;
+	private boolean started = false;
 
 	/**
-	 * The algorithmData object for this vehicle
+	 * True once the last keyframe has been applied
 	 */
-	private AlgorithmData algorithmData;
+	private boolean finished = false;
 
 	/**
-	 * The number of seconds per algorithm loop
+	 * Whether any values have been applied yet
 	 */
-	private final double LOOP_LENGTH;
+	private boolean applied = false;
+	private double lastAcceleration;
+	private double lastTurnRate;
 
 	/**
-	 * Possible different types of move
+	 * The algorithmData object for this vehicle
 	 */
-	enum MoveType {ACCELERATION, TURN_RATE}
+	private AlgorithmData algorithmData;
 
 	/**
 	 * Possible different routes for the front vehicle to follow
 	 */
 	public enum RouteNumber {ROUTE_ZERO, ROUTE_ONE, ROUTE_TWO, ROUTE_THREE}
 
-	public FrontVehicleRoute(AlgorithmData algorithmData, double algoLoopLength, RouteNumber routeNumber) {
+	public FrontVehicleRoute(AlgorithmData algorithmData, RouteNumber routeNumber) {
+		this(algorithmData, getTimeline(routeNumber));
+	}
+
+	/**
+	 * Follow a timeline, such as one loaded from a file
+	 *
+	 * @param algorithmData - the algorithmData object for this vehicle
+	 * @param timeline - the route to follow
+	 */
+	public FrontVehicleRoute(AlgorithmData algorithmData, RouteTimeline timeline) {
 		this.algorithmData = algorithmData;
-		this.LOOP_LENGTH = algoLoopLength / 1000000000;
-		switch (routeNumber) {
-			case ROUTE_ZERO:
-				this.moves = routeZero();
-				break;
-			case ROUTE_ONE:
-				this.moves = routeOne();
-				break;
-			case ROUTE_TWO:
-				this.moves = routeTwo();
-				break;
-			case ROUTE_THREE:
-				this.moves = routeThree();
-				break;
-		}
-		updateNextActionStep();
+		this.timeline = timeline;
+		this.finished = timeline.size() == 0;
 	}
 
 	/**
 	 * Called in each algorithm loop, modifies algorithmData if necessary
+	 *
+	 * @return whether the chosen values have changed, so should be sent to the drive
 	 */
+	@Override
 	public boolean nextStep() {
-		if (!stepsRemaining) return false;
-		if (currentStep == nextActionStep) {
-			Move thisMove = moves.get(0);
-			switch (thisMove.move) {
-				case ACCELERATION:
-					algorithmData.chosenAcceleration = thisMove.amount;
-					break;
-				case TURN_RATE:
-					algorithmData.chosenTurnRate = thisMove.amount;
-					break;
-			}
-			moves.remove(0);
-			updateNextActionStep();
-			return true;
+		if (finished) return false;
+		long now = algorithmData.clock.getTime();
+		if (!started) {
+			startTime = now;
+			started = true;
+		}
+		long elapsed = now - startTime;
+		cursor = timeline.advance(cursor, elapsed);
+		if (cursor < 0) {
+			// The first keyframe hasn't been reached
+			return false;
+		}
+		if (cursor == timeline.size() - 1) {
+			finished = true;
 		}
-		currentStep++;
-		return false;
-	}
 
-	private void updateNextActionStep() {
-		if (moves.size() > 0) {
-			nextActionStep = (int) (moves.get(0).seconds / LOOP_LENGTH);
-		} else {
-			stepsRemaining = false;
+		double acceleration = timeline.getAcceleration(cursor, elapsed);
+		double turnRate = timeline.getTurnRate(cursor, elapsed);
+		if (applied && acceleration == lastAcceleration && turnRate == lastTurnRate) {
+			return false;
 		}
+		algorithmData.chosenAcceleration = acceleration;
+		algorithmData.chosenTurnRate = turnRate;
+		lastAcceleration = acceleration;
+		lastTurnRate = turnRate;
+		applied = true;
+		return true;
 	}
 
 	/**
-	 * @return empty list, i.e. car does nothing
+	 * @param routeNumber - one of the built in routes
+	 * @return the timeline of the route
 	 */
-	private static List<Move> routeZero() {
-		return new ArrayList<>();
+	public static RouteTimeline getTimeline(RouteNumber routeNumber) {
+		switch (routeNumber) {
+			case ROUTE_ONE:
+				return routeOne();
+			case ROUTE_TWO:
+				return routeTwo();
+			case ROUTE_THREE:
+				return routeThree();
+			default:
+				return RouteTimeline.empty();
+		}
 	}
 
 	/**
-	 * @return list of moves which makes the car accelerate at 0.05m/s/s for 3s,
-	 * then decelerate at the same speed for 3s, then repeat.
+	 * @return timeline which makes the car accelerate at 0.07m/s/s for 3s,
+	 * then decelerate at the same rate for 3s, then repeat.
 	 */
-	private static List<Move> routeOne() {
-		List<Move> moves = new ArrayList<>();
-		moves.add(new Move(1, MoveType.ACCELERATION, 0.07));
-		moves.add(new Move(4, MoveType.ACCELERATION, -0.07));
-		moves.add(new Move(7, MoveType.ACCELERATION, 0.07));
-		moves.add(new Move(10, MoveType.ACCELERATION, -0.07));
-		return moves;
+	private static RouteTimeline routeOne() {
+		return steps(new double[][] {
+				// seconds, acceleration, turn rate
+				{1, 0.07, 0},
+				{4, -0.07, 0},
+				{7, 0.07, 0},
+				{10, -0.07, 0}});
 	}
 
 	/**
-	 * @return list of moves which makes the car accelerate at 0.01m/m/m for 3s,
+	 * @return timeline which makes the car accelerate at 0.01m/s/s for 3s,
 	 * make a S shape (right first), then decelerate to a stop.
 	 */
-	private static List<Move> routeTwo() {
-		List<Move> moves = new ArrayList<>();
-		moves.add(new Move(1, MoveType.ACCELERATION, 0.01));
-		moves.add(new Move(4, MoveType.ACCELERATION, 0));
-		moves.add(new Move(5, MoveType.TURN_RATE, 0.3));
-		moves.add(new Move(7, MoveType.TURN_RATE, -0.3));
-		moves.add(new Move(11, MoveType.TURN_RATE, 0.3));
-		moves.add(new Move(14, MoveType.TURN_RATE, 0));
-		moves.add(new Move(15, MoveType.ACCELERATION, -0.01));
-		return moves;
+	private static RouteTimeline routeTwo() {
+		return steps(new double[][] {
+				{1, 0.01, 0},
+				{4, 0, 0},
+				{5, 0, 0.3},
+				{7, 0, -0.3},
+				{11, 0, 0.3},
+				{14, 0, 0},
+				{15, -0.01, 0}});
 	}
 
 	/**
-	 * @return list of moves which makes the car accelerate forwards, then
+	 * @return timeline which makes the car accelerate forwards, then
 	 * drive to the right, then to the left, then decelerate to a stop.
 	 */
-	private static List<Move> routeThree() {
-		List<Move> moves = new ArrayList<>();
-		moves.add(new Move(1, MoveType.ACCELERATION, 0.05));
-		moves.add(new Move(4, MoveType.ACCELERATION, 0));
-		moves.add(new Move(6, MoveType.TURN_RATE, 0.5));
-		moves.add(new Move(8, MoveType.TURN_RATE, 0));
-		moves.add(new Move(11, MoveType.TURN_RATE, -0.8));
-		moves.add(new Move(14, MoveType.TURN_RATE, 0));
-		moves.add(new Move(15, MoveType.ACCELERATION, -0.05));
-		return moves;
+	private static RouteTimeline routeThree() {
+		return steps(new double[][] {
+				{1, 0.05, 0},
+				{4, 0, 0},
+				{6, 0, 0.5},
+				{8, 0, 0},
+				{11, 0, -0.8},
+				{14, 0, 0},
+				{15, -0.05, 0}});
 	}
 
 	/**
-	 * A Move represents an action to be taken by the car
+	 * @param keyframes - rows of seconds, acceleration and turn rate
+	 * @return a timeline which holds the values of each keyframe until the next
 	 */
-	private static class Move {
-		/**
-		 * seconds - the number of seconds after start at which the action happens
-		 * move - the type of action, e.g. ACCELERATION or TURN_RATE
-		 * amount - the amount relevant to the move, e.g. the acceleration in m/s/s
-		 */
-		int seconds;
-		MoveType move;
-		double amount;
-
-		public Move(int seconds, MoveType move, double amount) {
-			this.seconds = seconds;
-			this.move = move;
-			this.amount = amount;
+	private static RouteTimeline steps(double[][] keyframes) {
+		long[] times = new long[keyframes.length];
+		double[] accelerations = new double[keyframes.length];
+		double[] turnRates = new double[keyframes.length];
+		for (int i = 0; i < keyframes.length; i++) {
+			times[i] = (long) (keyframes[i][0] * 1E9);
+			accelerations[i] = keyframes[i][1];
+			turnRates[i] = keyframes[i][2];
 		}
+		return new RouteTimeline(times, accelerations, turnRates, RouteTimeline.Interpolation.STEP);
 	}
 
 }
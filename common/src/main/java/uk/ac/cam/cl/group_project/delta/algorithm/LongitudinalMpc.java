@@ -0,0 +1,243 @@
+package uk.ac.cam.cl.group_project.delta.algorithm;
+
+import java.io.Serializable;
+
+/**
+ * A model predictive controller for the gap to the vehicle in front.
+ *
+ * Both vehicles are modelled in the same way as the simulated cars are
+ * driven: the acceleration is set directly and the drag is compensated for,
+ * so the speed is the integral of the acceleration. The predecessor is
+ * assumed to keep its current acceleration until it stops. Over a short
+ * horizon, this controller chooses the accelerations which minimise a weighted
+ * sum of:
+ * <ul>
+ *     <li>the squared error in the gap, compared to bufferDistance + headTime * speed</li>
+ *     <li>the squared difference in speed from the predecessor</li>
+ *     <li>the squared difference in acceleration from the predecessor</li>
+ *     <li>the squared change in acceleration between steps</li>
+ * </ul>
+ * subject to the acceleration limits. Only the first acceleration is used,
+ * and the problem is solved again in the next loop.
+ *
+ * The predictions are linear in the accelerations, so the hessian of the
+ * problem only depends on the parameters, and is only rebuilt when they
+ * change. Each solve uses a fixed number of iterations and allocates nothing.
+ */
+public class LongitudinalMpc implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	public static final int DEFAULT_HORIZON = 15;
+	public static final double DEFAULT_STEP_TIME = 0.1;
+	public static final int DEFAULT_ITERATIONS = 40;
+
+	/**
+	 * The number of steps predicted
+	 */
+	private final int horizon;
+
+	/**
+	 * The length of each step in seconds
+	 */
+	private final double stepTime;
+
+	private final BoxQpSolver solver;
+
+	private double gapWeight = 4.0;
+	private double speedWeight = 2.0;
+	private double accelerationWeight = 0.05;
+	private double jerkWeight = 0.5;
+
+	private double bufferDistance = 0.3;
+	private double headTime = 0.0;
+	private double minAcceleration = -2;
+	private double maxAcceleration = 0.2;
+
+	/**
+	 * gapSensitivity[k * horizon + j] is the decrease in the gap error after
+	 * step k caused by accelerating at 1m/s/s during step j
+	 */
+	private final double[] gapSensitivity;
+
+	private final double[] hessian;
+
+	/**
+	 * The gap error and relative speed after each step if this vehicle doesn't accelerate
+	 */
+	private final double[] freeGapError;
+	private final double[] freeRelativeSpeed;
+
+	private final double[] linear;
+
+	/**
+	 * The planned accelerations, which are the starting point of the next solve
+	 */
+	private final double[] plan;
+
+	private boolean hessianValid = false;
+
+	public LongitudinalMpc() {
+		this(DEFAULT_HORIZON, DEFAULT_STEP_TIME, DEFAULT_ITERATIONS);
+	}
+
+	/**
+	 * @param horizon - the number of steps predicted
+	 * @param stepTime - the length of each step in seconds
+	 * @param iterations - the number of iterations of the solver
+	 */
+	public LongitudinalMpc(int horizon, double stepTime, int iterations) {
+		this.horizon = horizon;
+		this.stepTime = stepTime;
+		this.solver = new BoxQpSolver(horizon, iterations);
+		this.gapSensitivity = new double[horizon * horizon];
+		this.hessian = new double[horizon * horizon];
+		this.freeGapError = new double[horizon];
+		this.freeRelativeSpeed = new double[horizon];
+		this.linear = new double[horizon];
+		this.plan = new double[horizon];
+	}
+
+	/**
+	 * Choose the acceleration of this vehicle
+	 *
+	 * @param gap - the distance to the vehicle in front in m
+	 * @param speed - the speed of this vehicle in m/s
+	 * @param predecessorSpeed - the speed of the vehicle in front in m/s
+	 * @param predecessorAcceleration - the acceleration of the vehicle in front in m/s/s
+	 * @param previousAcceleration - the acceleration chosen in the previous loop
+	 * @return the acceleration to use now
+	 */
+	public double solve(double gap, double speed, double predecessorSpeed, double predecessorAcceleration,
+			double previousAcceleration) {
+		if (!hessianValid) {
+			buildHessian();
+		}
+
+		for (int k = 0; k < horizon; k++) {
+			double t = (k + 1) * stepTime;
+			double predecessorMovement;
+			double relativeSpeed;
+			if (predecessorAcceleration < 0 && predecessorSpeed + predecessorAcceleration * t < 0) {
+				// The predecessor has stopped by now
+				predecessorMovement = predecessorSpeed * predecessorSpeed / (-2 * predecessorAcceleration);
+				relativeSpeed = -speed;
+			} else {
+				predecessorMovement = predecessorSpeed * t + 0.5 * predecessorAcceleration * t * t;
+				relativeSpeed = predecessorSpeed + predecessorAcceleration * t - speed;
+			}
+			freeGapError[k] = gap + predecessorMovement - speed * t - bufferDistance - headTime * speed;
+			freeRelativeSpeed[k] = relativeSpeed;
+		}
+
+		// linear = -(gapWeight A'e + speedWeight B's + accelerationWeight a_p + jerkWeight D'c)
+		for (int j = 0; j < horizon; j++) {
+			double sum = 0;
+			for (int k = j; k < horizon; k++) {
+				sum += gapWeight * gapSensitivity[k * horizon + j] * freeGapError[k]
+						+ speedWeight * stepTime * freeRelativeSpeed[k];
+			}
+			sum += accelerationWeight * predecessorAcceleration;
+			if (j == 0) {
+				sum += jerkWeight * previousAcceleration;
+			}
+			linear[j] = -sum;
+		}
+
+		solver.solve(linear, minAcceleration, maxAcceleration, plan);
+		return plan[0];
+	}
+
+	/**
+	 * Build the gap sensitivities and the hessian from the parameters
+	 */
+	private void buildHessian() {
+		for (int k = 0; k < horizon; k++) {
+			for (int j = 0; j < horizon; j++) {
+				// The acceleration during step j affects the state at the end of step k if j <= k
+				gapSensitivity[k * horizon + j] = j <= k
+						? stepTime * stepTime * (k - j + 0.5) + headTime * stepTime
+						: 0;
+			}
+		}
+		for (int i = 0; i < horizon; i++) {
+			for (int j = 0; j < horizon; j++) {
+				double sum = 0;
+				for (int k = Math.max(i, j); k < horizon; k++) {
+					sum += gapWeight * gapSensitivity[k * horizon + i] * gapSensitivity[k * horizon + j]
+							+ speedWeight * stepTime * stepTime;
+				}
+				if (i == j) {
+					sum += accelerationWeight + (i == horizon - 1 ? jerkWeight : 2 * jerkWeight);
+				} else if (Math.abs(i - j) == 1) {
+					sum -= jerkWeight;
+				}
+				hessian[i * horizon + j] = sum;
+			}
+		}
+		solver.setHessian(hessian);
+		hessianValid = true;
+	}
+
+	public void setWeights(double gapWeight, double speedWeight, double accelerationWeight, double jerkWeight) {
+		this.gapWeight = gapWeight;
+		this.speedWeight = speedWeight;
+		this.accelerationWeight = accelerationWeight;
+		this.jerkWeight = jerkWeight;
+		hessianValid = false;
+	}
+
+	public void setBufferDistance(double bufferDistance) {
+		this.bufferDistance = bufferDistance;
+	}
+
+	public void setHeadTime(double headTime) {
+		this.headTime = headTime;
+		hessianValid = false;
+	}
+
+	public void setAccelerationLimits(double minAcceleration, double maxAcceleration) {
+		this.minAcceleration = minAcceleration;
+		this.maxAcceleration = maxAcceleration;
+	}
+
+	public double getGapWeight() {
+		return gapWeight;
+	}
+
+	public double getSpeedWeight() {
+		return speedWeight;
+	}
+
+	public double getAccelerationWeight() {
+		return accelerationWeight;
+	}
+
+	public double getJerkWeight() {
+		return jerkWeight;
+	}
+
+	public int getHorizon() {
+		return horizon;
+	}
+
+	public int getIterations() {
+		return solver.getIterations();
+	}
+
+	/**
+	 * @return the value of the objective for the current plan, which can be
+	 *            used to check the convergence of the solver
+	 */
+	double getObjective() {
+		return solver.objective(plan, linear);
+	}
+
+	/**
+	 * Forget the previous plan, so the next solve starts from zero
+	 */
+	public void reset() {
+		for (int i = 0; i < horizon; i++) {
+			plan[i] = 0;
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package uk.ac.cam.cl.group_project.delta.algorithm;
+
+import uk.ac.cam.cl.group_project.delta.*;
+
+/**
+ * Cooperative cruise control using a model predictive controller.
+ *
+ * In each loop the accelerations over a short horizon are optimised using a
+ * model of both vehicles, starting from the gap and the state of the
+ * predecessor estimated by the {@link StateEstimator}, and the first one is
+ * used. See {@link LongitudinalMpc} for the model and the objective.
+ *
+ * If there is no estimate of the gap, the predecessor's speed from its most
+ * recent message is matched.
+ */
+public class MPC_Algorithm extends Algorithm {
+	private static final long serialVersionUID = 1L;
+
+	//maximum and minimum acceleration in m/s
+	private double maxAcc = 0.2;
+	private double minAcc = -2;
+
+	//constant buffer distance in m
+	private double buffDist = 0.3;
+	//constant headway time in s
+	private double headTime = 0.0;
+
+	//distance below which emergency stop happens
+	private double emerDist = 0.1;
+
+	private double maxSensorDist = 2;
+
+	//turning PD parameters
+	private double turnP = 2.0;
+	private double turnD = 2.0;
+
+	private final LongitudinalMpc mpc = new LongitudinalMpc();
+
+	public MPC_Algorithm(DriveInterface driveInterface,
+			SensorInterface sensorInterface, NetworkInterface networkInterface,
+			BeaconInterface beacons, FrontVehicleRoute.RouteNumber routeNumber,
+			Clock clock) {
+		super(driveInterface, sensorInterface, networkInterface, beacons, routeNumber, clock);
+		parameters.define(ParameterEnum.MaxAcc, maxAcc, 0, 10);
+		parameters.define(ParameterEnum.MinAcc, minAcc, -10, 0);
+		parameters.define(ParameterEnum.BufferDistance, buffDist, 0, 10);
+		parameters.define(ParameterEnum.HeadTime, headTime, 0, 10);
+		parameters.define(ParameterEnum.EmergencyDistance, emerDist, 0, 10);
+		parameters.define(ParameterEnum.MaxSensorDist, maxSensorDist, 0, 100);
+		parameters.define(ParameterEnum.TurningPidP, turnP, 0, 100);
+		parameters.define(ParameterEnum.TurningPidD, turnD, 0, 100);
+		parameters.define(ParameterEnum.GapWeight, mpc.getGapWeight(), 0, 1000);
+		parameters.define(ParameterEnum.SpeedWeight, mpc.getSpeedWeight(), 0, 1000);
+		parameters.define(ParameterEnum.AccelerationWeight, mpc.getAccelerationWeight(), 0.001, 1000);
+		parameters.define(ParameterEnum.JerkWeight, mpc.getJerkWeight(), 0, 1000);
+		updateMpc();
+	}
+
+	private void updateMpc() {
+		mpc.setAccelerationLimits(minAcc, maxAcc);
+		mpc.setBufferDistance(buffDist);
+		mpc.setHeadTime(headTime);
+		estimator.setMaximumRange(maxSensorDist);
+	}
+
+	@Override
+	protected void applyParameters(ParameterRegistry.Snapshot values) {
+		maxAcc = values.get(ParameterEnum.MaxAcc);
+		minAcc = values.get(ParameterEnum.MinAcc);
+		buffDist = values.get(ParameterEnum.BufferDistance);
+		headTime = values.get(ParameterEnum.HeadTime);
+		emerDist = values.get(ParameterEnum.EmergencyDistance);
+		maxSensorDist = values.get(ParameterEnum.MaxSensorDist);
+		turnP = values.get(ParameterEnum.TurningPidP);
+		turnD = values.get(ParameterEnum.TurningPidD);
+		mpc.setWeights(values.get(ParameterEnum.GapWeight), values.get(ParameterEnum.SpeedWeight),
+				values.get(ParameterEnum.AccelerationWeight), values.get(ParameterEnum.JerkWeight));
+		updateMpc();
+	}
+
+	@Override
+	public void makeDecision() {
+		if (!algorithmData.hasEstimate) {
+			if (algorithmData.receiveMessageData != null) {
+				//the gap isn't known, so just match the predecessor's speed
+				algorithmData.chosenAcceleration = clamp(algorithmData.predecessorAcceleration
+						+ (algorithmData.predecessorSpeed - algorithmData.speed));
+				algorithmData.chosenSpeed = algorithmData.speed;
+				chooseTurnRate();
+			} else {
+				//if no network packet and no proximity reading then emergency stop
+				emergencyStop();
+			}
+			return;
+		}
+
+		if (algorithmData.estimatedGap < emerDist) {
+			emergencyStop();
+		}
+
+		double predecessorSpeed = Math.max(0, algorithmData.speed + algorithmData.estimatedRelativeSpeed);
+		algorithmData.chosenAcceleration = mpc.solve(algorithmData.estimatedGap, algorithmData.speed,
+				predecessorSpeed, algorithmData.estimatedPredecessorAcceleration, algorithmData.chosenAcceleration);
+
+		//Note: This is not calculated
+		algorithmData.chosenSpeed = algorithmData.speed;
+
+		chooseTurnRate();
+	}
+
+	/**
+	 * Basic turning PD, which steers towards the closest beacon or follows the
+	 * predecessor's turn rate if there isn't one
+	 */
+	private void chooseTurnRate() {
+		if (algorithmData.closestBeacon != null && algorithmData.closestBeacon.getDistanceLowerBound() < maxSensorDist) {
+			double p = turnP * algorithmData.angle;
+			if (algorithmData.speed < 0.1) {
+				// Prevent swerving at low speeds
+				p *= algorithmData.speed * 10;
+			}
+			double d;
+			if (!algorithmData.hasPreviousAngle) {
+				d = 0;
+			} else {
+				d = turnD * (algorithmData.angle - algorithmData.previousAngle);
+			}
+			algorithmData.chosenTurnRate = p + d;
+		} else {
+			algorithmData.chosenTurnRate = algorithmData.predecessorTurnRate;
+		}
+	}
+
+	private double clamp(double acceleration) {
+		return Math.max(minAcc, Math.min(maxAcc, acceleration));
+	}
+}
@@ -0,0 +1,77 @@
+package uk.ac.cam.cl.group_project.delta.algorithm;
+
+import java.util.Random;
+
+import uk.ac.cam.cl.group_project.delta.metrics.Histogram;
+import uk.ac.cam.cl.group_project.delta.metrics.HistogramSnapshot;
+
+/**
+ * Times {@link LongitudinalMpc#solve} over a range of random states, so that
+ * the worst case can be compared with the algorithm loop. The solver always
+ * does the same amount of work, so the worst case only varies with
+ * interference from the JIT, the garbage collector and other threads.
+ *
+ * This is shared by the benchmark on a computer and the one run on an EV3 with
+ * the {@code --benchmark-mpc} argument.
+ */
+public class MpcTiming {
+
+	/**
+	 * The fraction of the algorithm loop which a solve is allowed to take by
+	 * default, leaving the rest for the sensors, the network and the other
+	 * controllers
+	 */
+	public static final double DEFAULT_BUDGET_FRACTION = 0.2;
+
+	/**
+	 * @param budgetFraction - the fraction of the algorithm loop allowed
+	 * @return the time allowed for a solve in nanoseconds
+	 */
+	public static long getBudget(double budgetFraction) {
+		return (long) (Algorithm.ALGORITHM_LOOP_DURATION * budgetFraction);
+	}
+
+	/**
+	 * Time a number of solves, after letting the JIT compile the solver.
+	 *
+	 * @param mpc - the controller to time
+	 * @param warmUpSolves - the number of solves to run before timing
+	 * @param solves - the number of solves to time
+	 * @return the times taken by the solves, in nanoseconds
+	 */
+	public static HistogramSnapshot time(LongitudinalMpc mpc, int warmUpSolves, int solves) {
+		Random random = new Random(0);
+		for (int i = 0; i < warmUpSolves; i++) {
+			solveRandom(mpc, random);
+		}
+
+		Histogram times = new Histogram();
+		for (int i = 0; i < solves; i++) {
+			long start = System.nanoTime();
+			solveRandom(mpc, random);
+			times.record(System.nanoTime() - start);
+		}
+		return times.snapshot();
+	}
+
+	/**
+	 * @param mpc - the controller
+	 * @return a description of the amount of work done by each solve
+	 */
+	public static String describe(LongitudinalMpc mpc) {
+		int horizon = mpc.getHorizon();
+		return "Horizon " + horizon + " steps, " + mpc.getIterations() + " iterations, "
+				+ (long) mpc.getIterations() * horizon * horizon + " multiply-adds per solve";
+	}
+
+	/**
+	 * Solve for a random state within the range seen while following
+	 */
+	private static void solveRandom(LongitudinalMpc mpc, Random random) {
+		double gap = 0.1 + 2 * random.nextDouble();
+		double speed = random.nextDouble();
+		double predecessorSpeed = random.nextDouble();
+		double predecessorAcceleration = 4 * random.nextDouble() - 2;
+		mpc.solve(gap, speed, predecessorSpeed, predecessorAcceleration, 0);
+	}
+}
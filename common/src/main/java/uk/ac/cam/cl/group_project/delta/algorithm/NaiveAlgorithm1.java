@@ -1,6 +1,7 @@
 package uk.ac.cam.cl.group_project.delta.algorithm;
 
 import uk.ac.cam.cl.group_project.delta.BeaconInterface;
+import uk.ac.cam.cl.group_project.delta.Clock;
 import uk.ac.cam.cl.group_project.delta.DriveInterface;
 import uk.ac.cam.cl.group_project.delta.NetworkInterface;
 import uk.ac.cam.cl.group_project.delta.SensorInterface;
@@ -10,24 +11,13 @@ import uk.ac.cam.cl.group_project.delta.SensorInterface;
  * its predecessors
  */
 public class NaiveAlgorithm1 extends Algorithm {
+	private static final long serialVersionUID = 1L;
 
 	public NaiveAlgorithm1(DriveInterface driveInterface,
 			SensorInterface sensorInterface, NetworkInterface networkInterface,
-			BeaconInterface beacons, FrontVehicleRoute.RouteNumber routeNumber) {
-		super(driveInterface, sensorInterface, networkInterface, beacons, routeNumber);
-	}
-
-	@Override
-	public void setParameter(ParameterEnum parameterEnum, double value) {}
-
-	@Override
-	public Double getParameter(ParameterEnum parameterEnum) {
-		return null;
-	}
-
-	@Override
-	public ParameterEnum[] getParameterList() {
-		return new ParameterEnum[0];
+			BeaconInterface beacons, FrontVehicleRoute.RouteNumber routeNumber,
+			Clock clock) {
+		super(driveInterface, sensorInterface, networkInterface, beacons, routeNumber, clock);
 	}
 
 	@Override
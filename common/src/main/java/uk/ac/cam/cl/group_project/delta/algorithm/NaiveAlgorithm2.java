@@ -1,6 +1,7 @@
 package uk.ac.cam.cl.group_project.delta.algorithm;
 
 import uk.ac.cam.cl.group_project.delta.BeaconInterface;
+import uk.ac.cam.cl.group_project.delta.Clock;
 import uk.ac.cam.cl.group_project.delta.DriveInterface;
 import uk.ac.cam.cl.group_project.delta.NetworkInterface;
 import uk.ac.cam.cl.group_project.delta.SensorInterface;
@@ -11,6 +12,7 @@ import uk.ac.cam.cl.group_project.delta.SensorInterface;
  * front proximity
  */
 public class NaiveAlgorithm2 extends Algorithm{
+	private static final long serialVersionUID = 1L;
 
 	private double buffDist = 0.3;
 	//larger values will result in more deceleration/acceleration when distance is too low/high
@@ -20,46 +22,21 @@ public class NaiveAlgorithm2 extends Algorithm{
 
 	public NaiveAlgorithm2(DriveInterface driveInterface,
 			SensorInterface sensorInterface, NetworkInterface networkInterface,
-			BeaconInterface beacons, FrontVehicleRoute.RouteNumber routeNumber) {
-		super(driveInterface, sensorInterface, networkInterface, beacons, routeNumber);
+			BeaconInterface beacons, FrontVehicleRoute.RouteNumber routeNumber,
+			Clock clock) {
+		super(driveInterface, sensorInterface, networkInterface, beacons, routeNumber, clock);
+		parameters.define(ParameterEnum.BufferDistance, buffDist, 0, 10);
+		parameters.define(ParameterEnum.MaxSensorDist, maxSensorDist, 0, 100);
+		parameters.define(ParameterEnum.BreakingConst, breakingConstant, 0.01, 100);
+		parameters.define(ParameterEnum.AccConst, accelerationConstant, 0.01, 100);
 	}
 
 	@Override
-	public void setParameter(ParameterEnum parameterEnum, double value) {
-		switch(parameterEnum) {
-			case BufferDistance:
-				buffDist = value;
-				return;
-			case AccConst:
-				accelerationConstant = value;
-				return;
-			case BreakingConst:
-				breakingConstant = value;
-				return;
-			case MaxSensorDist:
-				maxSensorDist = value;
-		}
-	}
-
-	@Override
-	public Double getParameter(ParameterEnum parameterEnum) {
-		switch(parameterEnum) {
-			case BufferDistance:
-				return buffDist;
-			case AccConst:
-				return accelerationConstant;
-			case BreakingConst:
-				return breakingConstant;
-			case MaxSensorDist:
-				return maxSensorDist;
-		}
-		return null;
-	}
-
-	@Override
-	public ParameterEnum[] getParameterList() {
-		return new ParameterEnum[]{ParameterEnum.BufferDistance, ParameterEnum.MaxSensorDist, ParameterEnum.BreakingConst,
-			ParameterEnum.AccConst, ParameterEnum.MaxSensorDist};
+	protected void applyParameters(ParameterRegistry.Snapshot values) {
+		buffDist = values.get(ParameterEnum.BufferDistance);
+		maxSensorDist = values.get(ParameterEnum.MaxSensorDist);
+		breakingConstant = values.get(ParameterEnum.BreakingConst);
+		accelerationConstant = values.get(ParameterEnum.AccConst);
 	}
 
 	@Override
@@ -70,7 +47,7 @@ public class NaiveAlgorithm2 extends Algorithm{
 		} else {
 			algorithmData.chosenAcceleration = algorithmData.acceleration;
 		}
-		if(algorithmData.frontProximity != null) {
+		if(algorithmData.hasFrontProximity) {
 			if (algorithmData.frontProximity < maxSensorDist) {
 				if (algorithmData.frontProximity < buffDist) {
 					if (algorithmData.chosenAcceleration >= 0) {
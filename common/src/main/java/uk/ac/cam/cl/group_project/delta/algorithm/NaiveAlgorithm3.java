@@ -1,10 +1,10 @@
 package uk.ac.cam.cl.group_project.delta.algorithm;
 
 import uk.ac.cam.cl.group_project.delta.BeaconInterface;
+import uk.ac.cam.cl.group_project.delta.Clock;
 import uk.ac.cam.cl.group_project.delta.DriveInterface;
 import uk.ac.cam.cl.group_project.delta.NetworkInterface;
 import uk.ac.cam.cl.group_project.delta.SensorInterface;
-import uk.ac.cam.cl.group_project.delta.Time;
 
 /**
  * As naive algorithm 2: additionally modifies the chosen acceleration by a
@@ -14,56 +14,37 @@ import uk.ac.cam.cl.group_project.delta.Time;
  */
 
 public class NaiveAlgorithm3 extends Algorithm{
+	private static final long serialVersionUID = 1L;
 
 	private double buffDist = 0.3;
 	private double maxSensorDist = 0.5;
 
 	public NaiveAlgorithm3(DriveInterface driveInterface,
 			SensorInterface sensorInterface, NetworkInterface networkInterface,
-			BeaconInterface beacons, FrontVehicleRoute.RouteNumber routeNumber) {
-		super(driveInterface, sensorInterface, networkInterface, beacons, routeNumber);
+			BeaconInterface beacons, FrontVehicleRoute.RouteNumber routeNumber,
+			Clock clock) {
+		super(driveInterface, sensorInterface, networkInterface, beacons, routeNumber, clock);
+		parameters.define(ParameterEnum.BufferDistance, buffDist, 0, 10);
+		parameters.define(ParameterEnum.MaxSensorDist, maxSensorDist, 0, 100);
 	}
 
 	@Override
-	public void setParameter(ParameterEnum parameterEnum, double value) {
-		switch(parameterEnum) {
-			case BufferDistance:
-				buffDist = value;
-				return;
-			case MaxSensorDist:
-				maxSensorDist = value;
-		}
-	}
-
-	@Override
-	public Double getParameter(ParameterEnum parameterEnum) {
-		switch(parameterEnum) {
-			case BufferDistance:
-				return buffDist;
-			case MaxSensorDist:
-				return maxSensorDist;
-		}
-		return null;
-	}
-
-	@Override
-	public ParameterEnum[] getParameterList() {
-		return new ParameterEnum[]{ParameterEnum.BufferDistance, ParameterEnum.MaxSensorDist};
+	protected void applyParameters(ParameterRegistry.Snapshot values) {
+		buffDist = values.get(ParameterEnum.BufferDistance);
+		maxSensorDist = values.get(ParameterEnum.MaxSensorDist);
 	}
 
 	//combine the front proximity predicted from the vehicle states at the beginning of the previous time period,
-	//and the sensor proximity data
-	private  Double weightFrontProximity(Double predictedFrontProximity, Double frontProximity) {
-		if (predictedFrontProximity != null && frontProximity != null) {
+	//and the sensor proximity data, the result is only valid if at least one of them is
+	private double weightFrontProximity(boolean hasPredictedFrontProximity, double predictedFrontProximity,
+			boolean hasFrontProximity, double frontProximity) {
+		if (hasPredictedFrontProximity && hasFrontProximity) {
 				return 0.5 * predictedFrontProximity + 0.5 * frontProximity;
 		}
-		if(predictedFrontProximity != null){
+		if(hasPredictedFrontProximity){
 			return predictedFrontProximity;
 		}
-		if(frontProximity != null) {
-			return frontProximity;
-		}
-		else return null;
+		return frontProximity;
 	}
 
 	@Override
@@ -71,9 +52,8 @@ public class NaiveAlgorithm3 extends Algorithm{
 		// decide on chosen acceleration, speed and turnRate
 		// calculate the distance us and our predecessor have travelled in the previous
 		// time period
-		Double weightedFrontProximity;
-		if (algorithmData.receiveMessageData != null && algorithmData.previousDistance != null) {
-			double delay = (Time.getTime() - algorithmData.receiveMessageData.getStartTime()) / 100000000;
+		if (algorithmData.receiveMessageData != null && algorithmData.hasPreviousDistance) {
+			double delay = (algorithmData.clock.getTime() - algorithmData.receiveMessageData.getStartTime()) / 100000000;
 			//calculate the distance us and our predecessor have travelled since message received
 			algorithmData.predictedPredecessorMovement = algorithmData.predecessorSpeed * delay
 					+ 0.5 * algorithmData.predecessorAcceleration * delay * delay;
@@ -81,27 +61,32 @@ public class NaiveAlgorithm3 extends Algorithm{
 					+ 0.5 * algorithmData.previousAcceleration * delay * delay;
 			algorithmData.predictedFrontProximity = algorithmData.predictedPredecessorMovement
 					- algorithmData.predictedMovement + algorithmData.previousDistance;
+			algorithmData.hasPredictedFrontProximity = true;
 
 			algorithmData.chosenSpeed = algorithmData.predecessorChosenSpeed;
 			algorithmData.chosenTurnRate = algorithmData.predecessorTurnRate;
 		} else {
 			//no message received or no previous distance
-			algorithmData.predictedFrontProximity = null;
+			algorithmData.hasPredictedFrontProximity = false;
 			algorithmData.chosenSpeed = algorithmData.speed;
 			algorithmData.chosenTurnRate = algorithmData.turnRate;
 		}
-		if (algorithmData.frontProximity != null && algorithmData.frontProximity > maxSensorDist) {
-			algorithmData.frontProximity = null;
+		if (algorithmData.hasFrontProximity && algorithmData.frontProximity > maxSensorDist) {
+			algorithmData.hasFrontProximity = false;
 		}
-		weightedFrontProximity = weightFrontProximity(algorithmData.predictedFrontProximity,
-				algorithmData.frontProximity);
+		boolean hasWeightedFrontProximity = algorithmData.hasPredictedFrontProximity
+				|| algorithmData.hasFrontProximity;
+		double weightedFrontProximity = weightFrontProximity(
+				algorithmData.hasPredictedFrontProximity, algorithmData.predictedFrontProximity,
+				algorithmData.hasFrontProximity, algorithmData.frontProximity);
 
 		// update previous state variables so that they are correct in next time period
+		algorithmData.hasPreviousDistance = hasWeightedFrontProximity;
 		algorithmData.previousDistance = weightedFrontProximity;
 		algorithmData.previousSpeed = algorithmData.speed;
 		algorithmData.previousAcceleration = algorithmData.acceleration;
 
-		if (weightedFrontProximity != null) {
+		if (hasWeightedFrontProximity) {
 			if (weightedFrontProximity < buffDist) {
 				if (algorithmData.chosenAcceleration >= 0) {
 					algorithmData.chosenAcceleration = algorithmData.chosenAcceleration * weightedFrontProximity / buffDist;
@@ -2,5 +2,6 @@ package uk.ac.cam.cl.group_project.delta.algorithm;
 
 public enum ParameterEnum {
 	PID_P, PID_I, PID_D, MaxAcc, MinAcc, BufferDistance, HeadTime, EmergencyDistance, MaxSensorDist, BreakingConst, AccConst,
-	pidP_NoNetwork, pidD_NoNetwork, proximitySmoothing, usePrediction, TurningPidP, TurningPidD
+	pidP_NoNetwork, pidD_NoNetwork, proximitySmoothing, usePrediction, TurningPidP, TurningPidD,
+	GapWeight, SpeedWeight, AccelerationWeight, JerkWeight
 }
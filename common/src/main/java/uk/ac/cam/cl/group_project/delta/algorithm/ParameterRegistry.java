@@ -0,0 +1,175 @@
+package uk.ac.cam.cl.group_project.delta.algorithm;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The tunable parameters of an algorithm, with their defaults and bounds.
+ *
+ * The values are held in an immutable {@link Snapshot}, which is replaced as
+ * a whole whenever any of them change. Readers such as the control thread
+ * take the current snapshot without locking, and always see a consistent set
+ * of values, even while another thread is changing several of them with
+ * {@link #setAll(Map)}. Writers are serialised.
+ */
+public class ParameterRegistry implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * An immutable set of parameter values
+	 */
+	public static final class Snapshot implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private final double[] values;
+
+		private Snapshot(double[] values) {
+			this.values = values;
+		}
+
+		/**
+		 * @param parameter - a parameter defined in the registry this came from
+		 * @return the value of the parameter
+		 */
+		public double get(ParameterEnum parameter) {
+			return values[parameter.ordinal()];
+		}
+	}
+
+	private final boolean[] defined = new boolean[ParameterEnum.values().length];
+	private final double[] defaults = new double[defined.length];
+	private final double[] minimums = new double[defined.length];
+	private final double[] maximums = new double[defined.length];
+
+	/**
+	 * The defined parameters, in the order they were defined
+	 */
+	private ParameterEnum[] parameters = new ParameterEnum[0];
+
+	private volatile Snapshot current = new Snapshot(new double[defined.length]);
+
+	/**
+	 * Add a parameter to the registry, set to its default
+	 *
+	 * @param parameter - the parameter
+	 * @param defaultValue - its initial value
+	 * @param minimum - the smallest value it can be set to
+	 * @param maximum - the largest value it can be set to
+	 * @throws IllegalArgumentException if the parameter is already defined,
+	 *            or the default is outside the bounds
+	 */
+	public synchronized void define(ParameterEnum parameter, double defaultValue, double minimum, double maximum) {
+		int index = parameter.ordinal();
+		if (defined[index]) {
+			throw new IllegalArgumentException(parameter + " is already defined");
+		}
+		if (!(minimum <= defaultValue && defaultValue <= maximum)) {
+			throw new IllegalArgumentException(
+					"Default " + defaultValue + " of " + parameter + " is outside [" + minimum + ", " + maximum + "]");
+		}
+		defined[index] = true;
+		defaults[index] = defaultValue;
+		minimums[index] = minimum;
+		maximums[index] = maximum;
+		parameters = Arrays.copyOf(parameters, parameters.length + 1);
+		parameters[parameters.length - 1] = parameter;
+
+		double[] values = current.values.clone();
+		values[index] = defaultValue;
+		current = new Snapshot(values);
+	}
+
+	/**
+	 * Set one parameter, doing nothing if it isn't defined
+	 *
+	 * @throws IllegalArgumentException if the value is outside the parameter's bounds
+	 */
+	public void set(ParameterEnum parameter, double value) {
+		setAll(Collections.singletonMap(parameter, value));
+	}
+
+	/**
+	 * Set several parameters at once, so that readers see either all or none
+	 * of the new values. Parameters which aren't defined are ignored.
+	 *
+	 * @param values - the new value of each parameter to change
+	 * @throws IllegalArgumentException if any value is outside its parameter's
+	 *            bounds, in which case none are changed
+	 */
+	public synchronized void setAll(Map<ParameterEnum, Double> values) {
+		for (Map.Entry<ParameterEnum, Double> entry : values.entrySet()) {
+			int index = entry.getKey().ordinal();
+			double value = entry.getValue();
+			if (defined[index] && !(minimums[index] <= value && value <= maximums[index])) {
+				throw new IllegalArgumentException(entry.getKey() + " must be in ["
+						+ minimums[index] + ", " + maximums[index] + "] but was " + value);
+			}
+		}
+		double[] next = current.values.clone();
+		for (Map.Entry<ParameterEnum, Double> entry : values.entrySet()) {
+			int index = entry.getKey().ordinal();
+			if (defined[index]) {
+				next[index] = entry.getValue();
+			}
+		}
+		current = new Snapshot(next);
+	}
+
+	/**
+	 * Set every parameter back to its default
+	 */
+	public synchronized void reset() {
+		current = new Snapshot(defaults.clone());
+	}
+
+	/**
+	 * @return the current values, without locking
+	 */
+	public Snapshot snapshot() {
+		return current;
+	}
+
+	/**
+	 * @return the value of the parameter, or null if it isn't defined
+	 */
+	public Double get(ParameterEnum parameter) {
+		if (!isDefined(parameter)) {
+			return null;
+		}
+		return current.get(parameter);
+	}
+
+	public synchronized boolean isDefined(ParameterEnum parameter) {
+		return defined[parameter.ordinal()];
+	}
+
+	/**
+	 * @return the defined parameters, in the order they were defined
+	 */
+	public synchronized ParameterEnum[] getParameters() {
+		return parameters.clone();
+	}
+
+	/**
+	 * @return the default of a defined parameter
+	 */
+	public synchronized double getDefault(ParameterEnum parameter) {
+		return defaults[parameter.ordinal()];
+	}
+
+	/**
+	 * @return the smallest value a defined parameter can be set to
+	 */
+	public synchronized double getMinimum(ParameterEnum parameter) {
+		return minimums[parameter.ordinal()];
+	}
+
+	/**
+	 * @return the largest value a defined parameter can be set to
+	 */
+	public synchronized double getMaximum(ParameterEnum parameter) {
+		return maximums[parameter.ordinal()];
+	}
+}
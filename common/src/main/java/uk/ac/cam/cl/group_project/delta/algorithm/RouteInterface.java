@@ -0,0 +1,17 @@
+package uk.ac.cam.cl.group_project.delta.algorithm;
+
+/**
+ * Something which decides how the vehicle drives while it is the leader of
+ * its platoon, such as a fixed route or a recorded drive cycle.
+ */
+public interface RouteInterface {
+
+	/**
+	 * Called in each loop of the algorithm while this vehicle is the leader.
+	 * Sets the chosen acceleration and turn rate in the algorithm data if
+	 * they should change.
+	 *
+	 * @return whether the chosen values should be sent to the drive
+	 */
+	public boolean nextStep();
+}
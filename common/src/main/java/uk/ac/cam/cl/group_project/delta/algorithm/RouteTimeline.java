@@ -0,0 +1,226 @@
+package uk.ac.cam.cl.group_project.delta.algorithm;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A precompiled route for the front vehicle to follow, stored as arrays of
+ * keyframes giving the acceleration and turn rate to use from a given time
+ * after the start of the route. The keyframes are sorted by time, so the
+ * values at a time can be found by a cursor which only moves forwards.
+ *
+ * Routes can be loaded from a text file with one keyframe per line:
+ *
+ * <pre>
+ * # seconds, acceleration (m/s/s), turn rate (rad/s)
+ * 0.0, 0.5, 0
+ * 2.5, 0.0, 0.1
+ * </pre>
+ *
+ * Values may be separated by commas or whitespace, and blank lines and lines
+ * starting with '#' are ignored.
+ */
+public class RouteTimeline implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * How the values between two keyframes are found
+	 */
+	public enum Interpolation {
+		/**
+		 * The values of a keyframe are used until the next keyframe
+		 */
+		STEP,
+
+		/**
+		 * The values change linearly from one keyframe to the next, which suits
+		 * sampled drive cycles
+		 */
+		LINEAR
+	}
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * The time of each keyframe in nanoseconds after the start of the route,
+	 * in non-decreasing order
+	 */
+	private final long[] times;
+	private final double[] accelerations;
+	private final double[] turnRates;
+	private final Interpolation interpolation;
+
+	/**
+	 * Create a timeline from the given keyframes. The arrays are copied.
+	 *
+	 * @param times - the time of each keyframe in nanoseconds after the start, in non-decreasing order
+	 * @param accelerations - the acceleration at each keyframe in m/s/s
+	 * @param turnRates - the turn rate at each keyframe in rad/s
+	 * @param interpolation - how values between keyframes are found
+	 * @throws IllegalArgumentException if the arrays have different lengths or the times are out of order
+	 */
+	public RouteTimeline(long[] times, double[] accelerations, double[] turnRates, Interpolation interpolation) {
+		if (times.length != accelerations.length || times.length != turnRates.length) {
+			throw new IllegalArgumentException("Keyframe arrays must have the same length");
+		}
+		for (int i = 1; i < times.length; i++) {
+			if (times[i] < times[i - 1]) {
+				throw new IllegalArgumentException("Keyframe times must be in order");
+			}
+		}
+		this.times = times.clone();
+		this.accelerations = accelerations.clone();
+		this.turnRates = turnRates.clone();
+		this.interpolation = interpolation;
+	}
+
+	/**
+	 * @return a timeline with no keyframes, i.e. the car does nothing
+	 */
+	public static RouteTimeline empty() {
+		return new RouteTimeline(new long[0], new double[0], new double[0], Interpolation.STEP);
+	}
+
+	/**
+	 * Load a timeline from a file, interpolating linearly between keyframes
+	 *
+	 * @param file - the file to read
+	 * @return the timeline
+	 * @throws IOException if the file can't be read
+	 * @throws IllegalArgumentException if the file isn't a valid route
+	 */
+	public static RouteTimeline load(File file) throws IOException {
+		try (Reader reader = new InputStreamReader(new FileInputStream(file), UTF_8)) {
+			return load(reader, Interpolation.LINEAR);
+		}
+	}
+
+	/**
+	 * Read a timeline in the format described above. The reader is not closed.
+	 *
+	 * @param reader - the text to read
+	 * @param interpolation - how values between keyframes are found
+	 * @return the timeline
+	 * @throws IOException if the reader fails
+	 * @throws IllegalArgumentException if the text isn't a valid route
+	 */
+	public static RouteTimeline load(Reader reader, Interpolation interpolation) throws IOException {
+		BufferedReader lines = new BufferedReader(reader);
+		long[] times = new long[64];
+		double[] accelerations = new double[64];
+		double[] turnRates = new double[64];
+		int count = 0;
+
+		String line;
+		int lineNumber = 0;
+		while ((line = lines.readLine()) != null) {
+			lineNumber++;
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] fields = line.split("[,\\s]+");
+			if (fields.length != 3) {
+				throw new IllegalArgumentException("Line " + lineNumber + ": expected 3 values but found " + fields.length);
+			}
+			if (count == times.length) {
+				times = Arrays.copyOf(times, count * 2);
+				accelerations = Arrays.copyOf(accelerations, count * 2);
+				turnRates = Arrays.copyOf(turnRates, count * 2);
+			}
+			try {
+				times[count] = Math.round(Double.parseDouble(fields[0]) * 1E9);
+				accelerations[count] = Double.parseDouble(fields[1]);
+				turnRates[count] = Double.parseDouble(fields[2]);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+			}
+			if (count > 0 && times[count] < times[count - 1]) {
+				throw new IllegalArgumentException("Line " + lineNumber + ": keyframe is earlier than the previous one");
+			}
+			count++;
+		}
+		return new RouteTimeline(Arrays.copyOf(times, count), Arrays.copyOf(accelerations, count),
+				Arrays.copyOf(turnRates, count), interpolation);
+	}
+
+	/**
+	 * @return the number of keyframes
+	 */
+	public int size() {
+		return times.length;
+	}
+
+	/**
+	 * @param index - the index of the keyframe
+	 * @return the time of the keyframe in nanoseconds after the start
+	 */
+	public long getTime(int index) {
+		return times[index];
+	}
+
+	/**
+	 * @return the time of the last keyframe in nanoseconds after the start, or 0 if there are none
+	 */
+	public long getDuration() {
+		return times.length == 0 ? 0 : times[times.length - 1];
+	}
+
+	public Interpolation getInterpolation() {
+		return interpolation;
+	}
+
+	/**
+	 * Find the keyframe which applies at a time, starting from a previous
+	 * result. As the cursor only moves forwards, following a route visits each
+	 * keyframe once, so each call takes O(1) time on average.
+	 *
+	 * @param cursor - a previous result for an earlier time, or -1
+	 * @param time - the time in nanoseconds after the start
+	 * @return the index of the last keyframe at or before the time, or -1 if there is none
+	 */
+	public int advance(int cursor, long time) {
+		while (cursor + 1 < times.length && times[cursor + 1] <= time) {
+			cursor++;
+		}
+		return cursor;
+	}
+
+	/**
+	 * @param cursor - the result of {@link #advance(int, long)} for the time
+	 * @param time - the time in nanoseconds after the start
+	 * @return the acceleration at the time in m/s/s
+	 */
+	public double getAcceleration(int cursor, long time) {
+		return valueAt(accelerations, cursor, time);
+	}
+
+	/**
+	 * @param cursor - the result of {@link #advance(int, long)} for the time
+	 * @param time - the time in nanoseconds after the start
+	 * @return the turn rate at the time in rad/s
+	 */
+	public double getTurnRate(int cursor, long time) {
+		return valueAt(turnRates, cursor, time);
+	}
+
+	private double valueAt(double[] values, int cursor, long time) {
+		if (cursor < 0) {
+			return 0;
+		}
+		if (interpolation == Interpolation.STEP || cursor + 1 >= times.length) {
+			return values[cursor];
+		}
+		long start = times[cursor];
+		long end = times[cursor + 1];
+		double fraction = (double) (time - start) / (end - start);
+		return values[cursor] + fraction * (values[cursor + 1] - values[cursor]);
+	}
+}
@@ -0,0 +1,318 @@
+package uk.ac.cam.cl.group_project.delta.algorithm;
+
+import java.io.Serializable;
+import java.util.List;
+
+import uk.ac.cam.cl.group_project.delta.Beacon;
+
+/**
+ * A Kalman filter which estimates the gap to the vehicle in front, its speed
+ * relative to this vehicle and its acceleration.
+ *
+ * The predecessor's acceleration is modelled as a random walk, and this
+ * vehicle's measured acceleration is used as the input to the model. In each
+ * loop the estimate is predicted forwards to the time the sensors were read,
+ * then corrected with:
+ * <ul>
+ *     <li>the proximity sensor reading, if it is in range</li>
+ *     <li>the centre of the distance range of the closest beacon, with a
+ *     variance matching the width of the range</li>
+ *     <li>the speed and acceleration in the predecessor's latest message,
+ *     extrapolated over the age of the message, with the uncertainty
+ *     increased to match</li>
+ * </ul>
+ * Each measurement only observes one state, so the corrections are scalar and
+ * the filter needs no matrix inverses. All state is held in fixed size arrays,
+ * so an update allocates nothing.
+ *
+ * Readings which are far from the estimate are rejected, unless several in a
+ * row are, which happens when the vehicle in front changes. The estimate is
+ * dropped if the gap hasn't been measured for long enough that its standard
+ * deviation exceeds {@link #MAXIMUM_GAP_STD_DEV}.
+ */
+public class StateEstimator implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The standard deviation of the proximity sensor in m
+	 */
+	public static final double PROXIMITY_STD_DEV = 0.02;
+
+	/**
+	 * The standard deviation of a beacon distance within its range in m,
+	 * which is added to the uncertainty from the width of the range
+	 */
+	public static final double BEACON_STD_DEV = 0.05;
+
+	/**
+	 * The standard deviation of the speed and acceleration in a message
+	 */
+	public static final double MESSAGE_SPEED_STD_DEV = 0.02;
+	public static final double MESSAGE_ACCELERATION_STD_DEV = 0.05;
+
+	/**
+	 * The rate at which the predecessor's acceleration is expected to change, in m/s/s/s
+	 */
+	public static final double JERK_STD_DEV = 1.0;
+
+	/**
+	 * The standard deviation of this vehicle's measured acceleration in m/s/s
+	 */
+	public static final double ACCELERATION_STD_DEV = 0.1;
+
+	/**
+	 * The standard deviation of the gap at which the estimate is dropped, in m
+	 */
+	public static final double MAXIMUM_GAP_STD_DEV = 1.0;
+
+	/**
+	 * Readings with a squared innovation more than this many times its variance are rejected
+	 */
+	public static final double GATE = 9;
+
+	/**
+	 * The number of readings rejected in a row after which the filter restarts from the next reading
+	 */
+	public static final int MAXIMUM_REJECTIONS = 5;
+
+	private static final int GAP = 0;
+	private static final int RELATIVE_SPEED = 1;
+	private static final int PREDECESSOR_ACCELERATION = 2;
+
+	/**
+	 * The largest gap reading which is used, in m
+	 */
+	private double maximumRange = 2;
+
+	/**
+	 * The state: gap, relative speed and predecessor acceleration
+	 */
+	private final double[] state = new double[3];
+
+	/**
+	 * The covariance of the state, stored by rows
+	 */
+	private final double[] covariance = new double[9];
+
+	private final double[] scratch = new double[9];
+	private final double[] row = new double[3];
+
+	private boolean initialised = false;
+	private long lastTime;
+
+	/**
+	 * The start time of the last message used, so that each message is only used once
+	 */
+	private long lastMessageTime = Long.MIN_VALUE;
+
+	private int rejections = 0;
+
+	/**
+	 * Update the estimate with the readings in algorithmData, and store the
+	 * new estimate in it
+	 *
+	 * @param data - the algorithmData of this vehicle, after the sensors have been read
+	 */
+	public void update(AlgorithmData data) {
+		if (initialised) {
+			predict((data.sampleTime - lastTime) / 1E9, data.acceleration);
+		}
+		lastTime = data.sampleTime;
+
+		if (data.sensorFrontProximity != null) {
+			double proximity = data.sensorFrontProximity;
+			if (proximity >= 0 && proximity <= maximumRange) {
+				measureGap(proximity, PROXIMITY_STD_DEV * PROXIMITY_STD_DEV, data);
+			}
+		}
+
+		Beacon closest = closestBeacon(data.beacons);
+		if (closest != null) {
+			double width = closest.getDistanceUpperBound() - closest.getDistanceLowerBound();
+			measureGap((closest.getDistanceLowerBound() + closest.getDistanceUpperBound()) / 2,
+					width * width / 12 + BEACON_STD_DEV * BEACON_STD_DEV, data);
+		}
+
+		VehicleData message = data.receiveMessageData;
+		if (initialised && message != null && message.getStartTime() != lastMessageTime) {
+			lastMessageTime = message.getStartTime();
+			double age = Math.max(0, (data.sampleTime - message.getStartTime()) / 1E9);
+			// The predecessor's acceleration may have changed since the message was sampled
+			double accelerationDrift = JERK_STD_DEV * age;
+			double speedDrift = accelerationDrift * age / 2;
+			correct(RELATIVE_SPEED,
+					message.getSpeed() + message.getAcceleration() * age - data.speed,
+					MESSAGE_SPEED_STD_DEV * MESSAGE_SPEED_STD_DEV + speedDrift * speedDrift, false);
+			correct(PREDECESSOR_ACCELERATION, message.getAcceleration(),
+					MESSAGE_ACCELERATION_STD_DEV * MESSAGE_ACCELERATION_STD_DEV
+							+ accelerationDrift * accelerationDrift, false);
+		}
+
+		if (initialised && covariance[0] > MAXIMUM_GAP_STD_DEV * MAXIMUM_GAP_STD_DEV) {
+			initialised = false;
+		}
+
+		data.hasEstimate = initialised;
+		data.estimatedGap = state[GAP];
+		data.estimatedGapStdDev = Math.sqrt(covariance[0]);
+		data.estimatedRelativeSpeed = state[RELATIVE_SPEED];
+		data.estimatedPredecessorAcceleration = state[PREDECESSOR_ACCELERATION];
+	}
+
+	/**
+	 * Forget the current estimate
+	 */
+	public void reset() {
+		initialised = false;
+		rejections = 0;
+	}
+
+	public void setMaximumRange(double maximumRange) {
+		this.maximumRange = maximumRange;
+	}
+
+	public boolean isInitialised() {
+		return initialised;
+	}
+
+	/**
+	 * @return the variance of the estimated gap in m^2
+	 */
+	public double getGapVariance() {
+		return covariance[0];
+	}
+
+	/**
+	 * Use a reading of the gap, starting the filter if necessary
+	 */
+	private void measureGap(double gap, double variance, AlgorithmData data) {
+		if (initialised && rejections < MAXIMUM_REJECTIONS) {
+			correct(GAP, gap, variance, true);
+			return;
+		}
+		// Start from this reading, taking the predecessor's state from its message if there is one
+		state[GAP] = gap;
+		state[RELATIVE_SPEED] = 0;
+		state[PREDECESSOR_ACCELERATION] = 0;
+		for (int i = 0; i < covariance.length; i++) {
+			covariance[i] = 0;
+		}
+		covariance[0] = variance;
+		covariance[4] = 1;
+		covariance[8] = 1;
+		if (data.receiveMessageData != null) {
+			state[RELATIVE_SPEED] = data.receiveMessageData.getSpeed() - data.speed;
+			state[PREDECESSOR_ACCELERATION] = data.receiveMessageData.getAcceleration();
+			lastMessageTime = data.receiveMessageData.getStartTime();
+		}
+		initialised = true;
+		rejections = 0;
+	}
+
+	/**
+	 * Advance the estimate by a time step
+	 *
+	 * @param dt - the time step in s
+	 * @param acceleration - the acceleration of this vehicle during the step
+	 */
+	private void predict(double dt, double acceleration) {
+		if (dt <= 0) {
+			return;
+		}
+		double dt2 = dt * dt;
+		state[GAP] += dt * state[RELATIVE_SPEED] + dt2 / 2 * (state[PREDECESSOR_ACCELERATION] - acceleration);
+		state[RELATIVE_SPEED] += dt * (state[PREDECESSOR_ACCELERATION] - acceleration);
+
+		// covariance = F covariance F' where F = [1 dt dt^2/2; 0 1 dt; 0 0 1]
+		double f01 = dt;
+		double f02 = dt2 / 2;
+		double f12 = dt;
+		// scratch = F covariance
+		for (int j = 0; j < 3; j++) {
+			double p0 = covariance[j];
+			double p1 = covariance[3 + j];
+			double p2 = covariance[6 + j];
+			scratch[j] = p0 + f01 * p1 + f02 * p2;
+			scratch[3 + j] = p1 + f12 * p2;
+			scratch[6 + j] = p2;
+		}
+		// covariance = scratch F'
+		for (int i = 0; i < 3; i++) {
+			double s0 = scratch[i * 3];
+			double s1 = scratch[i * 3 + 1];
+			double s2 = scratch[i * 3 + 2];
+			covariance[i * 3] = s0 + f01 * s1 + f02 * s2;
+			covariance[i * 3 + 1] = s1 + f12 * s2;
+			covariance[i * 3 + 2] = s2;
+		}
+
+		// Process noise from the change in the predecessor's acceleration
+		double q = JERK_STD_DEV * JERK_STD_DEV;
+		double dt3 = dt2 * dt;
+		double dt4 = dt3 * dt;
+		covariance[0] += q * dt4 * dt / 20;
+		covariance[1] += q * dt4 / 8;
+		covariance[2] += q * dt3 / 6;
+		covariance[3] += q * dt4 / 8;
+		covariance[4] += q * dt3 / 3;
+		covariance[5] += q * dt2 / 2;
+		covariance[6] += q * dt3 / 6;
+		covariance[7] += q * dt2 / 2;
+		covariance[8] += q * dt;
+
+		// and from the error in this vehicle's measured acceleration
+		double r = ACCELERATION_STD_DEV * ACCELERATION_STD_DEV;
+		covariance[0] += r * dt4 / 4;
+		covariance[1] += r * dt3 / 2;
+		covariance[3] += r * dt3 / 2;
+		covariance[4] += r * dt2;
+	}
+
+	/**
+	 * Correct the estimate with a reading of one of the states
+	 *
+	 * @param index - the state which was read
+	 * @param value - the reading
+	 * @param variance - the variance of the reading
+	 * @param gated - whether readings far from the estimate should be rejected
+	 */
+	private void correct(int index, double value, double variance, boolean gated) {
+		double innovation = value - state[index];
+		double innovationVariance = covariance[index * 4] + variance;
+		if (gated) {
+			if (innovation * innovation > GATE * innovationVariance) {
+				rejections++;
+				return;
+			}
+			rejections = 0;
+		}
+		for (int j = 0; j < 3; j++) {
+			row[j] = covariance[index * 3 + j];
+		}
+		for (int i = 0; i < 3; i++) {
+			double gain = covariance[i * 3 + index] / innovationVariance;
+			state[i] += gain * innovation;
+			for (int j = 0; j < 3; j++) {
+				covariance[i * 3 + j] -= gain * row[j];
+			}
+		}
+	}
+
+	/**
+	 * @return the beacon with the smallest lower bound within range, or null if there isn't one
+	 */
+	private Beacon closestBeacon(List<Beacon> beacons) {
+		Beacon closest = null;
+		if (beacons == null) {
+			return null;
+		}
+		for (int i = 0; i < beacons.size(); i++) {
+			Beacon beacon = beacons.get(i);
+			if (beacon.getDistanceLowerBound() <= maximumRange
+					&& (closest == null || beacon.getDistanceLowerBound() < closest.getDistanceLowerBound())) {
+				closest = beacon;
+			}
+		}
+		return closest;
+	}
+}
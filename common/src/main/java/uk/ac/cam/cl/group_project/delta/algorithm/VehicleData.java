@@ -6,17 +6,18 @@ import uk.ac.cam.cl.group_project.delta.algorithm.communications.Message;
 import uk.ac.cam.cl.group_project.delta.algorithm.communications.MessageType;
 
 public class VehicleData extends Message {
-
-	private final double speed;
-	private final double acceleration;
-	private final double turnRate;
-	private final double chosenSpeed;
-	private final double chosenAcceleration;
-	private final double chosenTurnRate;
+	private static final long serialVersionUID = 1L;
+
+	private double speed;
+	private double acceleration;
+	private double turnRate;
+	private double chosenSpeed;
+	private double chosenAcceleration;
+	private double chosenTurnRate;
 	private long startTime;
 
 	/**
-	 * Create an immutable MessageData object to be passed to the algorithm
+	 * Create a MessageData object to be passed to the algorithm
 	 * or to be broadcast over the network
 	 *
 	 * @param speed
@@ -99,6 +100,28 @@ public class VehicleData extends Message {
 		return chosenTurnRate;
 	}
 
+	/**
+	 * Replace the values of this message, so that a vehicle can reuse the same
+	 * object for the message it sends each loop. Messages which have been
+	 * received must not be changed, as they are shared with the algorithm.
+	 *
+	 * @param speed
+	 * @param acceleration
+	 * @param turnRate
+	 * @param chosenSpeed
+	 * @param chosenAcceleration
+	 * @param chosenTurnRate
+	 */
+	public void set(double speed, double acceleration, double turnRate, double chosenSpeed,
+			double chosenAcceleration, double chosenTurnRate) {
+		this.speed = speed;
+		this.acceleration = acceleration;
+		this.turnRate = turnRate;
+		this.chosenSpeed = chosenSpeed;
+		this.chosenAcceleration = chosenAcceleration;
+		this.chosenTurnRate = chosenTurnRate;
+	}
+
 	public long getStartTime() {
 		return startTime;
 	}
@@ -13,6 +13,7 @@ import java.util.Map;
  *
  */
 public class AcceptToMergeMessage extends MergeMessage {
+	private static final long serialVersionUID = 1L;
 
 	private boolean accepted;
 	private List<Integer> mainPlatoon;
@@ -3,6 +3,7 @@ package uk.ac.cam.cl.group_project.delta.algorithm.communications;
 import java.nio.ByteBuffer;
 
 public class BeaconIdAnswer extends Message {
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * The id of the platoon which was asked a question
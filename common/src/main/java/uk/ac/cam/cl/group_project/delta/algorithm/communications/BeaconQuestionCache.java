@@ -0,0 +1,198 @@
+package uk.ac.cam.cl.group_project.delta.algorithm.communications;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import uk.ac.cam.cl.group_project.delta.Clock;
+import uk.ac.cam.cl.group_project.delta.Time;
+
+/**
+ * Rate limits the BeaconIdQuestions sent by a platoon leader. Questions are
+ * keyed by the foreign platoon that would be asked and the beacon being asked
+ * about, so that a leader receiving many Data packets from a neighbouring
+ * platoon only asks about each visible beacon once in a while.
+ *
+ * Answers are cached for ANSWER_TTL. A question which was never answered is
+ * treated as a negative answer, and the time before the same question can be
+ * asked again is doubled each time, up to MAXIMUM_BACKOFF.
+ */
+public class BeaconQuestionCache implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The time in ns to wait for an answer before asking the same question again
+	 */
+	public static final long INITIAL_BACKOFF = 200000000L; // 200ms
+
+	/**
+	 * The maximum time in ns between repeats of a question which is never answered
+	 */
+	public static final long MAXIMUM_BACKOFF = 3200000000L; // 3.2 seconds
+
+	/**
+	 * The time in ns for which a positive answer suppresses further questions,
+	 * which matches the time a merge is given to progress
+	 */
+	public static final long ANSWER_TTL = 1000000000L; // 1 second
+
+	/**
+	 * The number of entries above which expired entries are removed
+	 */
+	private static final int PRUNE_THRESHOLD = 64;
+
+	/**
+	 * The mapping from (platoon id, beacon id) pairs to the state of that question
+	 */
+	private Map<Long, Entry> entries;
+
+	/**
+	 * The number of questions which have been allowed to be sent
+	 */
+	private long sentCount = 0;
+
+	/**
+	 * The number of questions which have been suppressed by the cache
+	 */
+	private long suppressedCount = 0;
+
+	/**
+	 * The clock used to expire questions and answers
+	 */
+	private final Clock clock;
+
+	public BeaconQuestionCache() {
+		this(Time.getClock());
+	}
+
+	public BeaconQuestionCache(Clock clock) {
+		this.clock = clock;
+		entries = new HashMap<>();
+	}
+
+	/**
+	 * Decide whether a question about the beacon should be sent to the platoon,
+	 * recording that it has been sent if so.
+	 *
+	 * @param platoonId - the platoon which would be asked
+	 * @param beaconId - the beacon which would be asked about
+	 * @return whether the question should be sent
+	 */
+	public boolean shouldAsk(int platoonId, int beaconId) {
+		long now = clock.getTime();
+		Long key = createKey(platoonId, beaconId);
+		Entry entry = entries.get(key);
+
+		if (entry != null && now < entry.nextAllowedTime) {
+			suppressedCount++;
+			return false;
+		}
+
+		if (entry == null) {
+			if (entries.size() >= PRUNE_THRESHOLD) {
+				prune(now);
+			}
+			entry = new Entry();
+			entries.put(key, entry);
+		} else if (entry.answered) {
+			// The previous answer has expired, so start again
+			entry.backoff = INITIAL_BACKOFF;
+		} else {
+			// The last question was never answered, so back off further
+			entry.backoff = Math.min(entry.backoff * 2, MAXIMUM_BACKOFF);
+		}
+		entry.answered = false;
+		entry.nextAllowedTime = now + entry.backoff;
+		entry.lastUpdate = now;
+		sentCount++;
+		return true;
+	}
+
+	/**
+	 * Record that an answer has been received, so the question will not be
+	 * asked again until ANSWER_TTL has passed.
+	 *
+	 * @param platoonId - the platoon which answered
+	 * @param beaconId - the beacon which the answer is about
+	 */
+	public void recordAnswer(int platoonId, int beaconId) {
+		long now = clock.getTime();
+		Long key = createKey(platoonId, beaconId);
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			entry = new Entry();
+			entries.put(key, entry);
+		}
+		entry.answered = true;
+		entry.backoff = INITIAL_BACKOFF;
+		entry.nextAllowedTime = now + ANSWER_TTL;
+		entry.lastUpdate = now;
+	}
+
+	/**
+	 * Forget all of the cached questions and answers, for example after this
+	 * vehicle changes platoon.
+	 */
+	public void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Remove any entries which no longer suppress questions and haven't been
+	 * updated recently enough to affect the backoff.
+	 *
+	 * @param now - the current time
+	 */
+	private void prune(long now) {
+		Iterator<Entry> it = entries.values().iterator();
+		while (it.hasNext()) {
+			Entry entry = it.next();
+			if (now >= entry.nextAllowedTime && now - entry.lastUpdate > MAXIMUM_BACKOFF * 2) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Pack the platoon id and beacon id into a single key
+	 */
+	private static Long createKey(int platoonId, int beaconId) {
+		return ((long) platoonId << 32) | (beaconId & 0xFFFFFFFFL);
+	}
+
+	public long getSentCount() {
+		return sentCount;
+	}
+
+	public long getSuppressedCount() {
+		return suppressedCount;
+	}
+
+	/**
+	 * The state of a single question
+	 */
+	private static class Entry implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The local time before which the question should not be asked again
+		 */
+		long nextAllowedTime;
+
+		/**
+		 * The current time to wait before the question is repeated
+		 */
+		long backoff = INITIAL_BACKOFF;
+
+		/**
+		 * Whether an answer has been received since the question was last asked
+		 */
+		boolean answered = false;
+
+		/**
+		 * The local time this entry was last changed
+		 */
+		long lastUpdate;
+	}
+}
@@ -1,12 +1,14 @@
 package uk.ac.cam.cl.group_project.delta.algorithm.communications;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
 import uk.ac.cam.cl.group_project.delta.algorithm.CommsInterface;
 import uk.ac.cam.cl.group_project.delta.algorithm.VehicleData;
 
-public class Communications implements CommsInterface {
+public class Communications implements CommsInterface, Serializable {
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * The layer which sits above the network layer which messages are
@@ -21,6 +23,11 @@ public class Communications implements CommsInterface {
 	 */
 	private PlatoonLookup messageLookup;
 
+	/**
+	 * The list returned by getPredecessorMessages, which is refilled on each call
+	 */
+	private List<VehicleData> predecessorMessages = new ArrayList<>();
+
 	/**
 	 * The implementation of the top layer of the communications stack.
 	 * Passes messages down to the MessageReceiver as gets messages through the PlatoonLookup
@@ -45,20 +52,18 @@ public class Communications implements CommsInterface {
 	}
 
 	/**
-	 * Return the messages from vehicles in front of this one
+	 * Return the messages from vehicles in front of this one. The same list is
+	 * reused by every call, so it is only valid until the next call.
 	 */
 	@Override
 	public List<VehicleData> getPredecessorMessages() {
 		messageLayer.updateMessages();
-		List<VehicleData> data = new ArrayList<>(messageLayer.getCurrentPosition());
+		predecessorMessages.clear();
 		for(int i = 1; i <= messageLayer.getCurrentPosition(); i++) {
-			if(messageLookup.containsKey(i)) {
-				data.add(messageLookup.get(i));
-			} else {
-				data.add(null);
-			}
+			// get returns null if no message has been received from that position
+			predecessorMessages.add(messageLookup.get(i));
 		}
-		return data;
+		return predecessorMessages;
 	}
 
 	/**
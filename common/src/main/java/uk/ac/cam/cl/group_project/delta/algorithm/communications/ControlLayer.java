@@ -1,5 +1,6 @@
 package uk.ac.cam.cl.group_project.delta.algorithm.communications;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -11,10 +12,17 @@ import java.util.Random;
 
 import uk.ac.cam.cl.group_project.delta.Beacon;
 import uk.ac.cam.cl.group_project.delta.BeaconInterface;
+import uk.ac.cam.cl.group_project.delta.Clock;
 import uk.ac.cam.cl.group_project.delta.Log;
 import uk.ac.cam.cl.group_project.delta.MessageReceipt;
 import uk.ac.cam.cl.group_project.delta.NetworkInterface;
+import uk.ac.cam.cl.group_project.delta.Randomness;
+import uk.ac.cam.cl.group_project.delta.Time;
+import uk.ac.cam.cl.group_project.delta.algorithm.Algorithm;
 import uk.ac.cam.cl.group_project.delta.algorithm.VehicleData;
+import uk.ac.cam.cl.group_project.delta.metrics.Counter;
+import uk.ac.cam.cl.group_project.delta.metrics.Histogram;
+import uk.ac.cam.cl.group_project.delta.metrics.MetricsRegistry;
 
 /**
  * This class handles the passing of messages to the network interface and
@@ -23,7 +31,8 @@ import uk.ac.cam.cl.group_project.delta.algorithm.VehicleData;
  * @author Aaron Hutton
  *
  */
-public class ControlLayer {
+public class ControlLayer implements Serializable {
+	private static final long serialVersionUID = 2L;
 
 	/**
 	 * The maximum range for which IDs can be picked up from beacons.
@@ -85,6 +94,76 @@ public class ControlLayer {
 	 */
 	private BeaconInterface beaconInterface;
 
+	/**
+	 * The cache used to rate limit the BeaconIdQuestions sent by this vehicle.
+	 */
+	private BeaconQuestionCache questionCache;
+
+	/**
+	 * The clock used for timestamps and timeouts.
+	 */
+	private final Clock clock;
+
+	/**
+	 * Collects the messages sent during each loop so they can be sent together.
+	 */
+	private PacketBatcher batcher;
+
+	/**
+	 * The generator of this vehicle's random IDs, which is kept rather than
+	 * created when needed so that its state belongs to the vehicle.
+	 */
+	private final Random random;
+
+	/**
+	 * The tracker used to drop reordered data and find the true age of data.
+	 */
+	private SenderTracker senderTracker = new SenderTracker();
+
+	/**
+	 * The maximum number of times the state of a vehicle will be relayed.
+	 */
+	public static final int MAXIMUM_RELAY_HOPS = 8;
+
+	/**
+	 * Whether the state of the leader and predecessor is relayed alongside the
+	 * status of this vehicle.
+	 */
+	private boolean relayEnabled = true;
+
+	/**
+	 * The messages used to relay the leader and predecessor states, which are
+	 * reused each loop as they are sent before sendMessage returns.
+	 */
+	private final RelayedVehicleData relayedLeaderState = new RelayedVehicleData();
+	private final RelayedVehicleData relayedPredecessorState = new RelayedVehicleData();
+
+	/**
+	 * The number of datagrams received from the network
+	 */
+	private Counter packetsReceived;
+
+	/**
+	 * The number of messages decoded from the received datagrams
+	 */
+	private Counter messagesDecoded;
+
+	/**
+	 * The number of datagrams dropped because they couldn't be decoded
+	 */
+	private Counter packetsMalformed;
+
+	/**
+	 * The number of status messages dropped because they were older than one
+	 * already received from the same vehicle
+	 */
+	private Counter dataReordered;
+
+	/**
+	 * The age of status messages from this platoon when they are received, in nanoseconds
+	 */
+	private Histogram dataAge;
+
 	/**
 	 * Create a new platoon instance by making a new MessageReceiver Object
 	 *
@@ -92,16 +171,32 @@ public class ControlLayer {
 	 *            - the network interface to be used
 	 */
 	public ControlLayer(NetworkInterface network, BeaconInterface beacons) {
+		this(network, beacons, Time.getClock());
+	}
+
+	/**
+	 * Create a new platoon instance by making a new MessageReceiver Object
+	 *
+	 * @param network
+	 *            - the network interface to be used
+	 * @param clock
+	 *            - the clock used for timestamps and timeouts
+	 */
+	public ControlLayer(NetworkInterface network, BeaconInterface beacons, Clock clock) {
+		this.clock = clock;
+		this.questionCache = new BeaconQuestionCache(clock);
 		messageLookup = new PlatoonLookup();
 		this.network = network;
+		this.batcher = new PacketBatcher(network);
 		this.beaconInterface = beacons;
-		Random r = new Random();
-		vehicleId = r.nextInt();
-		platoonId = r.nextInt();
+		this.random = Randomness.newRandom();
+		vehicleId = random.nextInt();
+		platoonId = random.nextInt();
 		leaderId = vehicleId;
 
 		idToPositionLookup = new HashMap<>();
 		idToPositionLookup.put(vehicleId, 0);
+		setMetrics(new MetricsRegistry());
 	}
 
 	/**
@@ -118,12 +213,35 @@ public class ControlLayer {
 	 */
 	public ControlLayer(NetworkInterface network, int vehicleId, int platoonId,
 			List<Integer> platoonOrder, BeaconInterface beacons) {
+		this(network, vehicleId, platoonId, platoonOrder, beacons, Time.getClock());
+	}
+
+	/**
+	 * Create a new platoon instance initialised with the specific platoon given
+	 *
+	 * @param network
+	 *            - the network interface to be used
+	 * @param vehicleId
+	 *            - this vehicles initial id
+	 * @param platoonId
+	 *            - the initial platoon id
+	 * @param platoonOrder
+	 *            - a list of the current platoon in terms of their ids
+	 * @param clock
+	 *            - the clock used for timestamps and timeouts
+	 */
+	public ControlLayer(NetworkInterface network, int vehicleId, int platoonId,
+			List<Integer> platoonOrder, BeaconInterface beacons, Clock clock) {
+		this.clock = clock;
+		this.questionCache = new BeaconQuestionCache(clock);
 		this.vehicleId = vehicleId;
 		this.platoonId = platoonId;
 		this.network = network;
+		this.batcher = new PacketBatcher(network);
 		this.messageLookup = new PlatoonLookup();
 		this.leaderId = platoonOrder.get(0);
 		this.beaconInterface = beacons;
+		this.random = Randomness.newRandom();
 		idToPositionLookup = new HashMap<>();
 
 		for (int i = 0; i < platoonOrder.size(); i++) {
@@ -136,16 +254,116 @@ public class ControlLayer {
 		for (int i = 0; i < platoonOrder.size(); i++) {
 			idToPositionLookup.put(platoonOrder.get(i), position - i);
 		}
+		setMetrics(new MetricsRegistry());
 	}
 
 	/**
-	 * Send the specific message across the network
+	 * Set the registry that the network metrics of this vehicle are recorded in
+	 *
+	 * @param metrics
+	 *            - the registry to use
+	 */
+	public void setMetrics(MetricsRegistry metrics) {
+		packetsReceived = metrics.counter("network.packetsReceived");
+		messagesDecoded = metrics.counter("network.messagesDecoded");
+		packetsMalformed = metrics.counter("network.packetsMalformed");
+		dataReordered = metrics.counter("network.dataReordered");
+		dataAge = metrics.histogram("network.dataAge");
+	}
+
+	/**
+	 * Send the specific message across the network, the start time of the
+	 * message should be the time at which the data was sampled. This is sent
+	 * once per loop, so also sends any other messages queued during the loop.
 	 *
 	 * @param message
 	 *            - the message to be sent
 	 */
 	public void sendMessage(VehicleData message) {
-		network.sendData(Packet.createPacket(message, vehicleId, platoonId));
+		sendPacket(message, platoonId, message.getStartTime());
+		if (relayEnabled) {
+			relayPlatoonState();
+		}
+		flushMessages();
+	}
+
+	/**
+	 * Queue the most recent states of the leader and the predecessor of this
+	 * vehicle to be relayed to the vehicles behind. The timestamp of each is the
+	 * time the state was sampled, so receivers can find its true age.
+	 */
+	private void relayPlatoonState() {
+		if (position >= 1) {
+			relayState(position, leaderId, relayedLeaderState);
+		}
+		if (position >= 2) {
+			for (Map.Entry<Integer, Integer> item : idToPositionLookup.entrySet()) {
+				if (item.getValue() == 1) {
+					relayState(1, item.getKey(), relayedPredecessorState);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Queue the state stored for the vehicle a given distance in front, if it
+	 * is recent enough and hasn't been relayed too many times
+	 *
+	 * @param distance
+	 *            - the number of places in front of this vehicle
+	 * @param originVehicleId
+	 *            - the id of that vehicle
+	 * @param relay
+	 *            - the message to fill in with the state
+	 */
+	private void relayState(int distance, int originVehicleId, RelayedVehicleData relay) {
+		VehicleData data = messageLookup.get(distance);
+		if (data == null || clock.getTime() - data.getStartTime() > Algorithm.MAXIMUM_MESSAGE_AGE) {
+			return;
+		}
+		int hopCount = 1;
+		if (data instanceof RelayedVehicleData) {
+			hopCount = ((RelayedVehicleData) data).getHopCount() + 1;
+		}
+		if (hopCount <= MAXIMUM_RELAY_HOPS) {
+			relay.set(data, originVehicleId, hopCount);
+			sendPacket(relay, platoonId, data.getStartTime());
+		}
+	}
+
+	/**
+	 * Send all of the messages which have been queued, combining them into
+	 * as few packets as possible.
+	 */
+	public void flushMessages() {
+		batcher.flush(vehicleId, platoonId);
+	}
+
+	/**
+	 * Send a message to the given platoon, timestamped with the current time
+	 *
+	 * @param message
+	 *            - the message to be sent
+	 * @param destinationPlatoonId
+	 *            - the platoon the message is addressed to
+	 */
+	private void sendPacket(Message message, int destinationPlatoonId) {
+		sendPacket(message, destinationPlatoonId, clock.getTime());
+	}
+
+	/**
+	 * Queue a message to be sent to the given platoon at the next flush
+	 *
+	 * @param message
+	 *            - the message to be sent
+	 * @param destinationPlatoonId
+	 *            - the platoon the message is addressed to
+	 * @param timestamp
+	 *            - the time at which the contents of the message were sampled
+	 */
+	private void sendPacket(Message message, int destinationPlatoonId, long timestamp) {
+		batcher.add(message, destinationPlatoonId, timestamp);
 	}
 
 	public int getCurrentPosition() {
@@ -160,7 +378,7 @@ public class ControlLayer {
 	 * Send an emergency packet to the network
 	 */
 	public void notifyEmergency() {
-		network.sendData(Packet.createPacket(new EmergencyMessage(), vehicleId, platoonId));
+		batcher.sendImmediately(new EmergencyMessage(), vehicleId, platoonId, clock.getTime());
 	}
 
 	/**
@@ -173,29 +391,55 @@ public class ControlLayer {
 		boolean containsRTM = false;
 		List<Packet> packets = new ArrayList<>();
 		for(MessageReceipt msg : network.pollData()) {
-			Packet p = new Packet(msg);
-
-			//Ignore packets sent by this vehicle
-			if(p.vehicleId != vehicleId) {
-				packets.add(p);
+			packetsReceived.increment();
+			List<Packet> parsed;
+			try {
+				parsed = Packet.parse(msg);
+			} catch (MalformedPacketException e) {
+				packetsMalformed.increment();
+				continue;
+			}
+			for(Packet p : parsed) {
+				messagesDecoded.increment();
+				//Ignore packets sent by this vehicle
+				if(p.vehicleId != vehicleId) {
+					packets.add(p);
+				}
+				containsRTM |= p.message.getType().equals(MessageType.RequestToMerge);
 			}
-			containsRTM |= p.message.getType().equals(MessageType.RequestToMerge);
 		}
 
 		for (Packet packet: packets) {
-			if(packet.message instanceof VehicleData) {
+			if(packet.message instanceof RelayedVehicleData) {
 				if (packet.platoonId == platoonId) {
-					// Update the data for that vehicle
-					messageLookup.put(idToPositionLookup.get(packet.vehicleId),
-							(VehicleData) packet.message);
+					handleRelayedData(packet);
+				}
+			} else if(packet.message instanceof VehicleData) {
+				if (packet.platoonId == platoonId) {
+					// Drop data which is older than data already received
+					if (!senderTracker.accept(packet)) {
+						dataReordered.increment();
+						continue;
+					}
+					VehicleData data = (VehicleData) packet.message;
+					data.setStartTime(senderTracker.toLocalTime(packet));
+					dataAge.record(clock.getTime() - data.getStartTime());
+					// Update the data for that vehicle, unless a relay has
+					// provided more recent data
+					Integer distance = idToPositionLookup.get(packet.vehicleId);
+					VehicleData previous = messageLookup.get(distance);
+					if (previous == null || previous.getStartTime() <= data.getStartTime()) {
+						messageLookup.put(distance, data);
+					}
 				} else {
 					Integer visibleId = getVisibleBeaconId();
-					if(visibleId != null && position == 0) {
+					if(visibleId != null && position == 0
+							&& questionCache.shouldAsk(packet.platoonId, visibleId)) {
 						// If there is a visible beacon, ask if they're in
 						// this platoon
 						BeaconIdQuestion question = new BeaconIdQuestion(platoonId,
 								visibleId);
-						network.sendData(Packet.createPacket(question, vehicleId, packet.platoonId));
+						sendPacket(question, packet.platoonId);
 					}
 				}
 			} else if(packet.message instanceof BeaconIdQuestion) {
@@ -205,11 +449,12 @@ public class ControlLayer {
 					// Tell the platoon which asked the question that they were correct
 					BeaconIdAnswer answer = new BeaconIdAnswer(
 							platoonId, question.getBeaconId());
-					network.sendData(Packet.createPacket(answer, vehicleId, question.getReturnPlatoonId()));
+					sendPacket(answer, question.getReturnPlatoonId());
 				}
 			} else if(packet.message instanceof BeaconIdAnswer) {
 				if(packet.platoonId == platoonId && position == 0) {
 					BeaconIdAnswer answer = (BeaconIdAnswer) packet.message;
+					questionCache.recordAnswer(answer.getAskedPlatoonId(), answer.getBeaconId());
 					Integer visibleBeacon = getVisibleBeaconId();
 					if(visibleBeacon != null && answer.getBeaconId() == visibleBeacon) {
 						// The visible beacon is known to be in a specific
@@ -248,6 +493,29 @@ public class ControlLayer {
 		}
 	}
 
+	/**
+	 * Store relayed state of a vehicle in front if it is more recent than the
+	 * state already known
+	 *
+	 * @param packet
+	 *            - the data in Packet format of a RelayedVehicleData
+	 */
+	private void handleRelayedData(Packet packet) {
+		RelayedVehicleData data = (RelayedVehicleData) packet.message;
+		Integer distance = idToPositionLookup.get(data.getOriginVehicleId());
+		// The relaying vehicle's clock is needed to find the age of the data,
+		// which is known once its own status has been received
+		if (distance == null || distance < 1 || data.getHopCount() > MAXIMUM_RELAY_HOPS
+				|| !senderTracker.isKnown(packet.vehicleId)) {
+			return;
+		}
+		data.setStartTime(senderTracker.toLocalTime(packet));
+		VehicleData previous = messageLookup.get(distance);
+		if (previous == null || previous.getStartTime() < data.getStartTime()) {
+			messageLookup.put(distance, data);
+		}
+	}
+
 	/**
 	 * Begin the merge protocol by sending a RequestToMerge to the other platoon
 	 *
@@ -258,11 +526,11 @@ public class ControlLayer {
 		BeaconIdAnswer answer = (BeaconIdAnswer) packet.message;
 		// Found a new platoon which we could merge with
 		if (position == 0 && (currentMerge == null || !currentMerge.isValid())) {
-			currentMerge = new Merge(answer.getAskedPlatoonId(), platoonId, idToPositionLookup.size());
+			currentMerge = new Merge(answer.getAskedPlatoonId(), platoonId, idToPositionLookup.size(), clock, random);
 
 			// Send an initial request to join
 			Message m = createNewMergeRequest(currentMerge.getTransactionId());
-			network.sendData(Packet.createPacket(m, vehicleId, answer.getAskedPlatoonId()));
+			sendPacket(m, answer.getAskedPlatoonId());
 		}
 	}
 
@@ -275,7 +543,7 @@ public class ControlLayer {
 	 */
 	private void handleRequestToMerge(Packet packet) {
 		// Everyone need to remember this info
-		currentMerge = new Merge(packet.platoonId, platoonId, packet.message);
+		currentMerge = new Merge(packet.platoonId, platoonId, packet.message, clock);
 
 		if (position == 0) {
 			// This is the leader of the main platoon, so make a response
@@ -286,13 +554,12 @@ public class ControlLayer {
 
 			// Add this acceptance to the current merge
 			currentMerge.handleMessage(m);
-			network.sendData(Packet.createPacket(m, vehicleId, currentMerge.getMergingPlatoonId()));
+			sendPacket(m, currentMerge.getMergingPlatoonId());
 
 			// Also send confirm message
-			network.sendData(Packet.createPacket(
+			sendPacket(
 					new ConfirmMergeMessage(currentMerge.getTransactionId()),
-					vehicleId,
-					currentMerge.getMergingPlatoonId()));
+					currentMerge.getMergingPlatoonId());
 		}
 	}
 
@@ -311,10 +578,9 @@ public class ControlLayer {
 
 			if (currentMerge.doesAccept() && (position != 0)) {
 				// This vehicle is happy so sends a confirmation
-				network.sendData(Packet.createPacket(
+				sendPacket(
 						new ConfirmMergeMessage(currentMerge.getTransactionId()),
-						vehicleId,
-						currentMerge.getMergingPlatoonId()));
+						currentMerge.getMergingPlatoonId());
 			}
 		}
 	}
@@ -334,14 +600,12 @@ public class ControlLayer {
 			// The merge has been agreed by all parties, so commits
 			if (currentMerge.isConfirmed()) {
 				// Tell everyone in both platoons to agree the merge
-				network.sendData(Packet.createPacket(
+				sendPacket(
 						new MergeCompleteMessage(currentMerge.getTransactionId()),
-						vehicleId,
-						currentMerge.getMergingPlatoonId()));
-				network.sendData(Packet.createPacket(
+						currentMerge.getMergingPlatoonId());
+				sendPacket(
 						new MergeCompleteMessage(currentMerge.getTransactionId()),
-						vehicleId,
-						currentMerge.getMainPlatoonId()));
+						currentMerge.getMainPlatoonId());
 				commitMerge();
 			}
 		}
@@ -393,12 +657,11 @@ public class ControlLayer {
 			currentPlatoon.add(item.getKey());
 		}
 		Map<Integer, Integer> renames = new HashMap<>();
-		Random r = new Random();
 		// Record new names to fix any conflicts
 		for (Integer i : conflictingIds) {
-			int newId = r.nextInt();
+			int newId = random.nextInt();
 			while (idToPositionLookup.containsKey(newId) || newIds.contains(newId)) {
-				newId = r.nextInt();
+				newId = random.nextInt();
 			}
 			renames.put(i, newId);
 		}
@@ -409,6 +672,9 @@ public class ControlLayer {
 	 * Commit the current merge by changing all of the data structures
 	 */
 	private void commitMerge() {
+		// Messages already queued must be sent with the current ids
+		flushMessages();
+
 		if (currentMerge.getChangePosition() != 0) {
 			// So switching platoons
 
@@ -432,6 +698,9 @@ public class ControlLayer {
 
 		currentMerge = null;
 
+		// Questions asked on behalf of the old platoon are no longer relevant
+		questionCache.clear();
+
 	}
 
 	/**
@@ -531,4 +800,24 @@ public class ControlLayer {
 		return leaderId;
 	}
 
+	public BeaconQuestionCache getBeaconQuestionCache() {
+		return questionCache;
+	}
+
+	public PacketBatcher getPacketBatcher() {
+		return batcher;
+	}
+
+	public boolean isRelayEnabled() {
+		return relayEnabled;
+	}
+
+	public void setRelayEnabled(boolean relayEnabled) {
+		this.relayEnabled = relayEnabled;
+	}
+
+	public SenderTracker getSenderTracker() {
+		return senderTracker;
+	}
+
 }
@@ -3,6 +3,7 @@ package uk.ac.cam.cl.group_project.delta.algorithm.communications;
 import java.nio.ByteBuffer;
 
 public class EmergencyMessage extends Message {
+	private static final long serialVersionUID = 1L;
 
 	@Override
 	public ByteBuffer appendToBuffer(ByteBuffer bytes) {
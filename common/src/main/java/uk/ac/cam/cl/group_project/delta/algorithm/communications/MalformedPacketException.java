@@ -0,0 +1,27 @@
+package uk.ac.cam.cl.group_project.delta.algorithm.communications;
+
+/**
+ * Thrown when a received packet can't be decoded, because it is truncated or
+ * the lengths in its headers don't match its contents. The packet should be
+ * dropped, as nothing in it can be trusted.
+ *
+ * @see Packet#parse(uk.ac.cam.cl.group_project.delta.MessageReceipt)
+ */
+public class MalformedPacketException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * @param message - a description of what is wrong with the packet
+	 */
+	public MalformedPacketException(String message) {
+		super(message);
+	}
+
+	/**
+	 * @param message - a description of what is wrong with the packet
+	 * @param cause - the error which decoding the packet caused
+	 */
+	public MalformedPacketException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
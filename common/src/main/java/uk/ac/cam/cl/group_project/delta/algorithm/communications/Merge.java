@@ -1,8 +1,9 @@
 package uk.ac.cam.cl.group_project.delta.algorithm.communications;
 
 import uk.ac.cam.cl.group_project.delta.Log;
-import uk.ac.cam.cl.group_project.delta.Time;
+import uk.ac.cam.cl.group_project.delta.Clock;
 
+import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -13,7 +14,8 @@ import java.util.Random;
  * @author Aaron
  *
  */
-public class Merge {
+public class Merge implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * The maximum time in ns between updates to a merge before it is invalidated
@@ -76,6 +78,11 @@ public class Merge {
 	 */
 	private int vehiclesToConfirm = 0;
 
+	/**
+	 * The clock used to time out the merge
+	 */
+	private final Clock clock;
+
 	/**
 	 * This is the constructor used by leader of the merging platoon.
 	 * This generates the transaction id
@@ -83,17 +90,19 @@ public class Merge {
 	 * @param mainPlatoon - the platoon id of the main platoon
 	 * @param currentPlatoon - the platoon id of the current platoon
 	 * @param platoonSize - the size of the merging platoon
+	 * @param clock - the clock used to time out the merge
+	 * @param random - the vehicle's generator of random IDs, which chooses the transaction id
 	 */
-	public Merge(int mainPlatoon, int currentPlatoon, int platoonSize) {
+	public Merge(int mainPlatoon, int currentPlatoon, int platoonSize, Clock clock, Random random) {
+		this.clock = clock;
 		this.mainPlatoonId = mainPlatoon;
 		this.platoonId = currentPlatoon;
 		this.mergingPlatoonId = currentPlatoon;
 		vehiclesToConfirm = platoonSize;
 
-		Random r = new Random();
-		transactionId = r.nextInt();
+		transactionId = random.nextInt();
 
-		lastUpdate = Time.getTime();
+		lastUpdate = clock.getTime();
 		state = MergeState.Requested;
 	}
 
@@ -102,8 +111,10 @@ public class Merge {
 	 *
 	 * @param mainPlatoon - the platoon id of the main platoon
 	 * @param currentPlatoon - the platoon id of the current platoon
+	 * @param clock - the clock used to time out the merge
 	 */
-	public Merge(int mainPlatoon, int currentPlatoon, Message m) {
+	public Merge(int mainPlatoon, int currentPlatoon, Message m, Clock clock) {
+		this.clock = clock;
 		this.mainPlatoonId = mainPlatoon;
 		this.platoonId = currentPlatoon;
 		vehiclesToConfirm = -1;
@@ -123,7 +134,7 @@ public class Merge {
 		if(mainPlatoon == currentPlatoon) {
 			additionalIdLookups = msg.getNewPlatoon();
 		}
-		lastUpdate = Time.getTime();
+		lastUpdate = clock.getTime();
 	}
 
 	/**
@@ -193,7 +204,7 @@ public class Merge {
 			}
 			idClashReplacements = msg.getRenames();
 		}
-		lastUpdate = Time.getTime();
+		lastUpdate = clock.getTime();
 	}
 
 	/**
@@ -209,7 +220,7 @@ public class Merge {
 				state = MergeState.Confirmed;
 			}
 		}
-		lastUpdate = Time.getTime();
+		lastUpdate = clock.getTime();
 	}
 
 	/**
@@ -219,7 +230,7 @@ public class Merge {
 	 * @return whether the merge is still valid
 	 */
 	public boolean isValid() {
-		return !state.equals(MergeState.Cancelled) && (Time.getTime() - TIMEOUT) < lastUpdate;
+		return !state.equals(MergeState.Cancelled) && (clock.getTime() - TIMEOUT) < lastUpdate;
 	}
 
 	public boolean doesAccept() {
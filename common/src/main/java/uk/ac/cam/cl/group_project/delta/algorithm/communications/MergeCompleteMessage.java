@@ -3,6 +3,7 @@ package uk.ac.cam.cl.group_project.delta.algorithm.communications;
 import java.nio.ByteBuffer;
 
 public class MergeCompleteMessage extends MergeMessage {
+	private static final long serialVersionUID = 1L;
 
 	public MergeCompleteMessage(ByteBuffer bytes) {
 		super(bytes);
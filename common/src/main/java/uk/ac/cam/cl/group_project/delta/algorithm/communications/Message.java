@@ -1,10 +1,13 @@
 package uk.ac.cam.cl.group_project.delta.algorithm.communications;
 
+import java.io.Serializable;
 import java.nio.ByteBuffer;
 
+import uk.ac.cam.cl.group_project.delta.algorithm.CompactVehicleData;
 import uk.ac.cam.cl.group_project.delta.algorithm.VehicleData;
 
-public abstract class Message {
+public abstract class Message implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	public abstract ByteBuffer appendToBuffer(ByteBuffer bytes);
 	public abstract MessageType getType();
@@ -25,6 +28,10 @@ public abstract class Message {
 			return new ConfirmMergeMessage(bytes);
 		case Data:
 			return new VehicleData(bytes);
+		case CompactData:
+			return new CompactVehicleData(bytes);
+		case RelayedData:
+			return new RelayedVehicleData(bytes);
 		case Emergency:
 			return new EmergencyMessage();
 		case MergeComplete:
@@ -5,7 +5,8 @@ import java.util.Map;
 
 public enum MessageType {
 	Emergency(0), Data(1), RequestToMerge(2), AcceptToMerge(3), ConfirmMerge(4), MergeComplete(5),
-	BeaconIdQuestion(6), BeaconIdAnswer(7);
+	BeaconIdQuestion(6), BeaconIdAnswer(7), CompactData(8), Batch(9),
+	RelayedData(10);
 
 	private int value;
 	private static Map<Integer, MessageType> lookup = new HashMap<>();
@@ -1,9 +1,17 @@
 package uk.ac.cam.cl.group_project.delta.algorithm.communications;
 
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 
 import uk.ac.cam.cl.group_project.delta.MessageReceipt;
 import uk.ac.cam.cl.group_project.delta.NetworkInterface;
+import uk.ac.cam.cl.group_project.delta.Time;
 import uk.ac.cam.cl.group_project.delta.algorithm.VehicleData;
 
 /**
@@ -17,7 +25,19 @@ public class Packet {
 	/**
 	 * The size in bytes of the header of the packet
 	 */
-	public final static int SIZE_OF_HEADER = 12;
+	public final static int SIZE_OF_HEADER = 24;
+
+	/**
+	 * The size in bytes of the header of each message in a batch packet
+	 */
+	public final static int SIZE_OF_BATCH_ENTRY_HEADER = 12;
+
+	/**
+	 * Every type of message, so that parsing all of them doesn't create a set
+	 * for each packet
+	 */
+	private final static Set<MessageType> ALL_TYPES =
+			Collections.unmodifiableSet(EnumSet.allOf(MessageType.class));
 
 	/**
 	 * These fields are generated from a packet received from the network.
@@ -28,6 +48,23 @@ public class Packet {
 	public final int platoonId;
 	public final int length;
 
+	/**
+	 * The sequence number given to this packet by its sender, which increases
+	 * by one for each packet it sends.
+	 */
+	public final int sequenceNumber;
+
+	/**
+	 * The time, according to the sender's clock, at which the contents of
+	 * the packet were sampled.
+	 */
+	public final long timestamp;
+
+	/**
+	 * The local time at which the packet was received.
+	 */
+	public final long receiptTime;
+
 	public final Message message;
 
 	/**
@@ -35,35 +72,179 @@ public class Packet {
 	 * Only one of message and payload will be defined, depending on the type.
 	 *
 	 * @param receipt - the packet receipt to be parsed
+	 * @throws MalformedPacketException if the packet is shorter than its
+	 *            header or the length in its header, or its type is unknown
 	 */
 	public Packet(MessageReceipt receipt) {
-		ByteBuffer bytes = ByteBuffer.wrap(receipt.getData());
+		receiptTime = receipt.getTime();
+		byte[] data = receipt.getData();
+		if (data.length < SIZE_OF_HEADER) {
+			throw new MalformedPacketException("Packet of " + data.length
+					+ " bytes is shorter than the header");
+		}
+		ByteBuffer bytes = ByteBuffer.wrap(data);
 		int packedInt = bytes.getInt();							// Contains the type and length
 		MessageType type = MessageType.valueOf((packedInt >> 24) & 0x000000FF);
 		length = packedInt & 0x00FFFFFF;
+		if (length < SIZE_OF_HEADER || length > data.length) {
+			throw new MalformedPacketException("Packet length " + length
+					+ " doesn't fit the " + data.length + " bytes received");
+		}
+		if (type == null) {
+			throw new MalformedPacketException("Unknown packet type " + ((packedInt >> 24) & 0x000000FF));
+		}
+		bytes.limit(length);
 
 		platoonId = bytes.getInt();
 		vehicleId = bytes.getInt();
+		sequenceNumber = bytes.getInt();
+		timestamp = bytes.getLong();
 
-		message = Message.decodeMessage(bytes, type);
+		message = decode(bytes, type);
 		if(message instanceof VehicleData) {
-			((VehicleData) message).setStartTime(receipt.getTime());
+			// Until the sender's clock is accounted for, the best
+			// estimate of the sample time is the receipt time
+			((VehicleData) message).setStartTime(receiptTime);
 		}
 	}
 
 	/**
-	 * Creates a new data packet which contains the MessageData which is passed to it
+	 * Create a packet from one message of a batch packet.
+	 */
+	private Packet(int vehicleId, int platoonId, int length, int sequenceNumber,
+			long timestamp, long receiptTime, Message message) {
+		this.vehicleId = vehicleId;
+		this.platoonId = platoonId;
+		this.length = length;
+		this.sequenceNumber = sequenceNumber;
+		this.timestamp = timestamp;
+		this.receiptTime = receiptTime;
+		this.message = message;
+		if(message instanceof VehicleData) {
+			((VehicleData) message).setStartTime(receiptTime);
+		}
+	}
+
+	/**
+	 * Parse a received packet into the messages it contains. A batch packet is
+	 * split into a Packet for each of its messages, which share the vehicle id
+	 * and sequence number of the batch. Any other packet results in a single Packet.
+	 *
+	 * @param receipt - the packet receipt to be parsed
+	 * @return the packets contained in the receipt
+	 * @throws MalformedPacketException if the packet can't be decoded
+	 */
+	public static List<Packet> parse(MessageReceipt receipt) {
+		return parse(receipt, ALL_TYPES);
+	}
+
+	/**
+	 * Parse the messages of the given types from a received packet. The type of
+	 * each message is read from its header, and messages of any other type are
+	 * skipped without being decoded.
+	 *
+	 * @param receipt - the packet receipt to be parsed
+	 * @param types - the types of message to keep
+	 * @return the packets of those types contained in the receipt
+	 * @throws MalformedPacketException if the packet can't be decoded, such as
+	 *            when an entry of a batch is truncated or its length is wrong
+	 */
+	public static List<Packet> parse(MessageReceipt receipt, Set<MessageType> types) {
+		if (!isBatchMessage(receipt.getData())) {
+			if (!types.contains(getType(receipt.getData()))) {
+				return Collections.emptyList();
+			}
+			return Collections.singletonList(new Packet(receipt));
+		}
+
+		byte[] data = receipt.getData();
+		ByteBuffer bytes = ByteBuffer.wrap(data);
+		int length = bytes.getInt() & 0x00FFFFFF;
+		if (length < SIZE_OF_HEADER || length > data.length) {
+			throw new MalformedPacketException("Batch length " + length
+					+ " doesn't fit the " + data.length + " bytes received");
+		}
+		bytes.getInt();							// The platoon id of the sender, unused
+		int vehicleId = bytes.getInt();
+		int sequenceNumber = bytes.getInt();
+		long timestamp = bytes.getLong();
+
+		List<Packet> packets = new ArrayList<>();
+		while (bytes.position() + SIZE_OF_BATCH_ENTRY_HEADER <= length) {
+			int start = bytes.position();
+			int packedInt = bytes.getInt();
+			MessageType type = MessageType.valueOf((packedInt >> 24) & 0x000000FF);
+			int entryLength = packedInt & 0x00FFFFFF;
+			// Every entry must move past its own header, or the loop would
+			// never end, and must end within the batch
+			if (entryLength < SIZE_OF_BATCH_ENTRY_HEADER || start + entryLength > length) {
+				throw new MalformedPacketException("Batch entry length " + entryLength
+						+ " at " + start + " doesn't fit the batch of " + length + " bytes");
+			}
+			int platoonId = bytes.getInt();
+			int timestampOffset = bytes.getInt();
+
+			if (types.contains(type)) {
+				// Stop the message from reading into the next entry
+				bytes.limit(start + entryLength);
+				Message message = decode(bytes, type);
+				bytes.limit(length);
+				if (message != null) {
+					packets.add(new Packet(vehicleId, platoonId, entryLength, sequenceNumber,
+							timestamp + timestampOffset, receipt.getTime(), message));
+				}
+			}
+			bytes.position(start + entryLength);
+		}
+		return packets;
+	}
+
+	/**
+	 * Decode a message which must end before the limit of the buffer
+	 *
+	 * @param bytes - the buffer, positioned at the start of the message
+	 * @param type - the type of the message
+	 * @return the message, or null if the type has no message
+	 * @throws MalformedPacketException if the message is truncated
+	 */
+	private static Message decode(ByteBuffer bytes, MessageType type) {
+		try {
+			return Message.decodeMessage(bytes, type);
+		} catch (BufferUnderflowException e) {
+			throw new MalformedPacketException("Truncated " + type + " message", e);
+		}
+	}
+
+	/**
+	 * Creates a new data packet which contains the MessageData which is passed to it,
+	 * with a sequence number of 0 and the current time as its timestamp
 	 *
 	 * @param message - the data to be sent
 	 * @param vehicleId - the current vehicle id
 	 * @param platoonId - the current platoon id
-	 * @return the packet to be sent
+	 * @return the packet to be sent, which is only as long as its contents
 	 */
 	public static byte[] createPacket(Message message, int vehicleId, int platoonId) {
-		ByteBuffer bytes = createHeader(vehicleId, platoonId);
+		return createPacket(message, vehicleId, platoonId, 0, Time.getTime());
+	}
+
+	/**
+	 * Creates a new data packet which contains the MessageData which is passed to it
+	 *
+	 * @param message - the data to be sent
+	 * @param vehicleId - the current vehicle id
+	 * @param platoonId - the current platoon id
+	 * @param sequenceNumber - the sequence number of this packet from this vehicle
+	 * @param timestamp - the time at which the contents of the packet were sampled
+	 * @return the packet to be sent, which is only as long as its contents
+	 */
+	public static byte[] createPacket(Message message, int vehicleId, int platoonId,
+			int sequenceNumber, long timestamp) {
+		ByteBuffer bytes = createHeader(vehicleId, platoonId, sequenceNumber, timestamp);
 		message.appendToBuffer(bytes);
+		int length = bytes.position();
 		updateLengthAndType(bytes, message.getType());
-		return bytes.array();
+		return Arrays.copyOf(bytes.array(), length);
 	}
 
 	/**
@@ -71,13 +252,17 @@ public class Packet {
 	 *
 	 * @param vehicleId
 	 * @param platoonId
+	 * @param sequenceNumber
+	 * @param timestamp
 	 * @return the byte buffer used to create the packet
 	 */
-	private static ByteBuffer createHeader(int vehicleId, int platoonId) {
+	private static ByteBuffer createHeader(int vehicleId, int platoonId, int sequenceNumber, long timestamp) {
 		ByteBuffer bytes = ByteBuffer.allocate(NetworkInterface.MAXIMUM_PACKET_SIZE);
 		bytes.putInt(0);					// Initially the length is unknown
 		bytes.putInt(platoonId);
 		bytes.putInt(vehicleId);
+		bytes.putInt(sequenceNumber);
+		bytes.putLong(timestamp);
 		return bytes;
 	}
 
@@ -94,6 +279,20 @@ public class Packet {
 		bytes.putInt((type.getValue() << 24) | (0x00FFFFFF & length));
 	}
 
+	/**
+	 * Read the type of a packet from its header, without decoding it
+	 *
+	 * @param data - the packet
+	 * @return the type of the packet, which is Batch for a batch packet, or
+	 *            null if the type is not known
+	 */
+	public static MessageType getType(byte[] data) {
+		if (data.length == 0) {
+			return null;
+		}
+		return MessageType.valueOf(data[0] & 0xFF);
+	}
+
 	/**
 	 * Tests whether the data passed in contains an emergency message
 	 *
@@ -101,6 +300,16 @@ public class Packet {
 	 * @return whether the message is an emergency
 	 */
 	public static boolean isEmergencyMessage(byte[] data) {
-		return MessageType.valueOf(data[0]).equals(MessageType.Emergency);
+		return data.length > 0 && MessageType.valueOf(data[0]) == MessageType.Emergency;
+	}
+
+	/**
+	 * Tests whether the data passed in is a batch of several messages
+	 *
+	 * @param data - the data to be tested
+	 * @return whether the packet is a batch
+	 */
+	public static boolean isBatchMessage(byte[] data) {
+		return data.length > 0 && data[0] == MessageType.Batch.getValue();
 	}
 }
@@ -0,0 +1,221 @@
+package uk.ac.cam.cl.group_project.delta.algorithm.communications;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.ac.cam.cl.group_project.delta.NetworkInterface;
+
+/**
+ * Collects the messages sent by a vehicle during one loop of the algorithm and
+ * sends them in as few packets as possible. Several messages are combined into
+ * a single batch packet, up to the maximum packet size, and a lone message is
+ * sent as a normal packet. Every packet sent is given the next sequence number.
+ * Each entry of a batch stores the offset of its timestamp from the batch's in
+ * an int, so messages sampled more than about 2.1s apart are sent in separate
+ * packets.
+ *
+ * @see Packet#parse(uk.ac.cam.cl.group_project.delta.MessageReceipt)
+ */
+public class PacketBatcher implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The network interface used to send the packets.
+	 */
+	private NetworkInterface network;
+
+	/**
+	 * The messages waiting to be sent, in the order they were added. Only the
+	 * first queueSize entries are in use, the rest are kept to be reused.
+	 */
+	private List<QueuedMessage> queue;
+
+	/**
+	 * The number of messages waiting to be sent
+	 */
+	private int queueSize = 0;
+
+	/**
+	 * Reused to find the size of each message when it is added, which is
+	 * allocated again rather than saved with the batcher
+	 */
+	private transient ByteBuffer scratch;
+
+	/**
+	 * The sequence number of the next packet sent
+	 */
+	private int sequenceNumber = 0;
+
+	/**
+	 * The number of packets which have been sent
+	 */
+	private long packetCount = 0;
+
+	/**
+	 * The number of messages which have been sent
+	 */
+	private long messageCount = 0;
+
+	public PacketBatcher(NetworkInterface network) {
+		this.network = network;
+		this.queue = new ArrayList<>();
+		this.scratch = ByteBuffer.allocate(NetworkInterface.MAXIMUM_PACKET_SIZE);
+	}
+
+	/**
+	 * Add a message to be sent at the next flush.
+	 *
+	 * @param message - the message to be sent
+	 * @param platoonId - the platoon the message is addressed to
+	 * @param timestamp - the time at which the contents of the message were sampled
+	 */
+	public void add(Message message, int platoonId, long timestamp) {
+		scratch.clear();
+		message.appendToBuffer(scratch);
+		if (queueSize == queue.size()) {
+			queue.add(new QueuedMessage());
+		}
+		QueuedMessage m = queue.get(queueSize++);
+		m.message = message;
+		m.platoonId = platoonId;
+		m.timestamp = timestamp;
+		m.size = Packet.SIZE_OF_BATCH_ENTRY_HEADER + scratch.position();
+	}
+
+	/**
+	 * Send a message straight away, without waiting for the next flush. This
+	 * should only be used for emergency messages.
+	 *
+	 * @param message - the message to be sent
+	 * @param vehicleId - the id of this vehicle
+	 * @param platoonId - the platoon the message is addressed to
+	 * @param timestamp - the time at which the contents of the message were sampled
+	 */
+	public void sendImmediately(Message message, int vehicleId, int platoonId, long timestamp) {
+		network.sendData(Packet.createPacket(message, vehicleId, platoonId,
+				sequenceNumber++, timestamp));
+		packetCount++;
+		messageCount++;
+	}
+
+	/**
+	 * Send all of the queued messages.
+	 *
+	 * @param vehicleId - the id of this vehicle
+	 * @param platoonId - the platoon this vehicle is in, used in the header of batch packets
+	 */
+	public void flush(int vehicleId, int platoonId) {
+		int start = 0;
+		while (start < queueSize) {
+			// Find how many messages will fit in the next packet
+			long timestamp = queue.get(start).timestamp;
+			int size = Packet.SIZE_OF_HEADER + queue.get(start).size;
+			int end = start + 1;
+			while (end < queueSize
+					&& size + queue.get(end).size <= NetworkInterface.MAXIMUM_PACKET_SIZE
+					&& fitsInOffset(queue.get(end).timestamp - timestamp)) {
+				size += queue.get(end).size;
+				end++;
+			}
+
+			if (end - start == 1) {
+				QueuedMessage m = queue.get(start);
+				network.sendData(Packet.createPacket(m.message, vehicleId, m.platoonId,
+						sequenceNumber++, m.timestamp));
+			} else {
+				network.sendData(createBatchPacket(start, end, size, vehicleId, platoonId));
+			}
+			packetCount++;
+			messageCount += end - start;
+			start = end;
+		}
+		for (int i = 0; i < queueSize; i++) {
+			// Don't keep the sent messages alive
+			queue.get(i).message = null;
+		}
+		queueSize = 0;
+	}
+
+	/**
+	 * Create a batch packet containing the queued messages in the range given.
+	 * The timestamp of the packet is the timestamp of the first message, and
+	 * each entry stores the offset of its timestamp from that.
+	 *
+	 * @param start - the index of the first message, inclusive
+	 * @param end - the index of the last message, exclusive
+	 * @param length - the total length of the packet
+	 * @param vehicleId - the id of this vehicle
+	 * @param platoonId - the platoon this vehicle is in
+	 * @return the packet to be sent
+	 */
+	private byte[] createBatchPacket(int start, int end, int length, int vehicleId, int platoonId) {
+		long timestamp = queue.get(start).timestamp;
+		ByteBuffer bytes = ByteBuffer.allocate(length);
+		bytes.putInt((MessageType.Batch.getValue() << 24) | (0x00FFFFFF & length));
+		bytes.putInt(platoonId);
+		bytes.putInt(vehicleId);
+		bytes.putInt(sequenceNumber++);
+		bytes.putLong(timestamp);
+
+		for (int i = start; i < end; i++) {
+			QueuedMessage m = queue.get(i);
+			bytes.putInt((m.message.getType().getValue() << 24) | (0x00FFFFFF & m.size));
+			bytes.putInt(m.platoonId);
+			bytes.putInt((int) (m.timestamp - timestamp));
+			m.message.appendToBuffer(bytes);
+		}
+		return bytes.array();
+	}
+
+	/**
+	 * @param offset - the difference between the timestamps of a message and its batch
+	 * @return whether the offset can be stored in a batch entry
+	 */
+	private static boolean fitsInOffset(long offset) {
+		return offset >= Integer.MIN_VALUE && offset <= Integer.MAX_VALUE;
+	}
+
+	/**
+	 * @return whether there are messages waiting to be sent
+	 */
+	public boolean isEmpty() {
+		return queueSize == 0;
+	}
+
+	public int getSequenceNumber() {
+		return sequenceNumber;
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		scratch = ByteBuffer.allocate(NetworkInterface.MAXIMUM_PACKET_SIZE);
+	}
+
+	public long getPacketCount() {
+		return packetCount;
+	}
+
+	public long getMessageCount() {
+		return messageCount;
+	}
+
+	/**
+	 * A message waiting to be sent, which is reused once it has been sent
+	 */
+	private static class QueuedMessage implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		Message message;
+		int platoonId;
+		long timestamp;
+
+		/**
+		 * The size of the message as an entry in a batch packet
+		 */
+		int size;
+	}
+}
@@ -5,6 +5,8 @@ import java.util.HashMap;
 import uk.ac.cam.cl.group_project.delta.algorithm.VehicleData;
 
 public class PlatoonLookup extends HashMap<Integer, VehicleData> {
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 *
 	 */
@@ -0,0 +1,100 @@
+package uk.ac.cam.cl.group_project.delta.algorithm.communications;
+
+import java.nio.ByteBuffer;
+
+import uk.ac.cam.cl.group_project.delta.algorithm.CompactVehicleData;
+import uk.ac.cam.cl.group_project.delta.algorithm.VehicleData;
+
+/**
+ * The state of another vehicle in the platoon, which is forwarded by a vehicle
+ * alongside its own status message. This allows vehicles at the back of a long
+ * platoon to receive the leader's state even if they are out of its range.
+ *
+ * The timestamp of the packet containing this message is the time the state
+ * was sampled by the original vehicle, so its age can be found in the same
+ * way as for data received directly.
+ */
+public class RelayedVehicleData extends CompactVehicleData {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The id of the vehicle which this state belongs to
+	 */
+	private int originVehicleId;
+
+	/**
+	 * The number of times this state has been forwarded, including this time
+	 */
+	private int hopCount;
+
+	/**
+	 * Create a message forwarding the given state
+	 *
+	 * @param data - the state to be forwarded
+	 * @param originVehicleId - the vehicle the state belongs to
+	 * @param hopCount - the number of times the state has been forwarded, including this time
+	 */
+	public RelayedVehicleData(VehicleData data, int originVehicleId, int hopCount) {
+		super(data.getSpeed(), data.getAcceleration(), data.getTurnRate(),
+				data.getChosenSpeed(), data.getChosenAcceleration(), data.getChosenTurnRate());
+		this.originVehicleId = originVehicleId;
+		this.hopCount = hopCount;
+		setStartTime(data.getStartTime());
+	}
+
+	/**
+	 * Create an empty message, to be filled in by {@link #set(VehicleData, int, int)}
+	 */
+	public RelayedVehicleData() {
+		super(0, 0, 0, 0, 0, 0);
+	}
+
+	/**
+	 * Replace the state forwarded by this message, so that the same message
+	 * can be reused each loop
+	 *
+	 * @param data - the state to be forwarded
+	 * @param originVehicleId - the vehicle the state belongs to
+	 * @param hopCount - the number of times the state has been forwarded, including this time
+	 */
+	public void set(VehicleData data, int originVehicleId, int hopCount) {
+		set(data.getSpeed(), data.getAcceleration(), data.getTurnRate(),
+				data.getChosenSpeed(), data.getChosenAcceleration(), data.getChosenTurnRate());
+		this.originVehicleId = originVehicleId;
+		this.hopCount = hopCount;
+		setStartTime(data.getStartTime());
+	}
+
+	/**
+	 * Recreate the message from the bytebuffer, the bytebuffer should be
+	 * positioned at the start of the data, not at the start of the packet
+	 *
+	 * @param bytes the bytes to be converted
+	 */
+	public RelayedVehicleData(ByteBuffer bytes) {
+		super(bytes);
+		originVehicleId = bytes.getInt();
+		hopCount = bytes.get() & 0xFF;
+	}
+
+	@Override
+	public ByteBuffer appendToBuffer(ByteBuffer bytes) {
+		super.appendToBuffer(bytes);
+		bytes.putInt(originVehicleId);
+		bytes.put((byte) Math.min(hopCount, 0xFF));
+		return bytes;
+	}
+
+	@Override
+	public MessageType getType() {
+		return MessageType.RelayedData;
+	}
+
+	public int getOriginVehicleId() {
+		return originVehicleId;
+	}
+
+	public int getHopCount() {
+		return hopCount;
+	}
+}
@@ -11,6 +11,7 @@ import java.util.List;
  *
  */
 public class RequestToMergeMessage extends MergeMessage {
+	private static final long serialVersionUID = 1L;
 
 	private int mergingPlatoonId;
 	private List<Integer> newPlatoon;
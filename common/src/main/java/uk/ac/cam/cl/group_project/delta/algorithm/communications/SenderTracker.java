@@ -0,0 +1,142 @@
+package uk.ac.cam.cl.group_project.delta.algorithm.communications;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps track of the latest sequence number and the clock offset of each
+ * vehicle which data has been received from. This allows reordered packets to
+ * be dropped and the timestamps of packets to be converted to the local clock.
+ *
+ * The clocks of different vehicles are not synchronised, so the offset is
+ * estimated as the smallest difference seen between the receipt time and the
+ * sender's timestamp. This includes the smallest transmission delay, so any
+ * extra delay in the network or in receiving the packet counts towards the age
+ * of the data. The estimate is allowed to slowly increase so that drift
+ * between the clocks can be followed.
+ *
+ * A vehicle which restarts starts its sequence numbers again, and its clock
+ * may have a new origin. A restart is detected when the sequence number goes
+ * back by at least {@link #REORDER_WINDOW}, or the clock offset changes by
+ * more than {@link #MAXIMUM_OFFSET_JUMP}, and the sender is then tracked as
+ * if it were new.
+ */
+public class SenderTracker implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The amount in ns the offset estimate is allowed to grow by for each
+	 * packet received, which is 20 parts per million at 20 packets per second.
+	 */
+	public static final long OFFSET_RELAXATION = 1000L; // 1us
+
+	/**
+	 * A packet which is further than this behind the latest sequence number is
+	 * assumed to come from a sender which has restarted, rather than being
+	 * reordered.
+	 */
+	public static final int REORDER_WINDOW = 1000;
+
+	/**
+	 * A packet whose clock offset differs from the estimate by more than this
+	 * is assumed to come from a sender which has restarted with a new clock,
+	 * as neither drift nor transmission delays change it this much.
+	 */
+	public static final long MAXIMUM_OFFSET_JUMP = 1000000000L; // 1s
+
+	/**
+	 * The state of each sender, keyed by vehicle id
+	 */
+	private Map<Integer, SenderState> senders;
+
+	/**
+	 * The number of packets which have been dropped for being out of order
+	 */
+	private long droppedCount = 0;
+
+	public SenderTracker() {
+		senders = new HashMap<>();
+	}
+
+	/**
+	 * Record the packet if it is newer than any seen from the same sender.
+	 *
+	 * @param packet - the received packet
+	 * @return false if the packet is older than one already seen and should be
+	 *         dropped, true otherwise
+	 */
+	public boolean accept(Packet packet) {
+		long offset = packet.receiptTime - packet.timestamp;
+		SenderState state = senders.get(packet.vehicleId);
+		// Subtract to handle the sequence number wrapping around
+		int difference = state == null ? 0 : packet.sequenceNumber - state.lastSequenceNumber;
+		if (state == null || difference <= -REORDER_WINDOW
+				|| Math.abs(offset - state.clockOffset) > MAXIMUM_OFFSET_JUMP) {
+			// A new or restarted sender, so nothing known about it still applies
+			state = new SenderState();
+			state.lastSequenceNumber = packet.sequenceNumber;
+			state.clockOffset = offset;
+			senders.put(packet.vehicleId, state);
+			return true;
+		}
+
+		if (difference <= 0) {
+			droppedCount++;
+			return false;
+		}
+		state.lastSequenceNumber = packet.sequenceNumber;
+		state.clockOffset = Math.min(state.clockOffset + OFFSET_RELAXATION, offset);
+		return true;
+	}
+
+	/**
+	 * Convert the timestamp of an accepted packet to the local clock.
+	 *
+	 * @param packet - a packet which has been accepted
+	 * @return the estimated local time at which the contents were sampled
+	 */
+	public long toLocalTime(Packet packet) {
+		SenderState state = senders.get(packet.vehicleId);
+		if (state == null) {
+			return packet.receiptTime;
+		}
+		return packet.timestamp + state.clockOffset;
+	}
+
+	/**
+	 * @param vehicleId - the id of a vehicle
+	 * @return whether a packet has been accepted from that vehicle
+	 */
+	public boolean isKnown(int vehicleId) {
+		return senders.containsKey(vehicleId);
+	}
+
+	/**
+	 * Forget all of the senders.
+	 */
+	public void clear() {
+		senders.clear();
+	}
+
+	public long getDroppedCount() {
+		return droppedCount;
+	}
+
+	/**
+	 * The state kept about a single sender
+	 */
+	private static class SenderState implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The sequence number of the newest packet received
+		 */
+		int lastSequenceNumber;
+
+		/**
+		 * The estimate of the local time minus the sender's time
+		 */
+		long clockOffset;
+	}
+}
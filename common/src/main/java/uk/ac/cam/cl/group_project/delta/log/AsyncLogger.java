@@ -0,0 +1,258 @@
+package uk.ac.cam.cl.group_project.delta.log;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import uk.ac.cam.cl.group_project.delta.Log;
+
+/**
+ * A logger which passes log entries to other loggers on a background thread,
+ * so that slow loggers (such as writing to stderr on the EV3) don't delay the
+ * thread which is logging.
+ *
+ * Entries are stored in a fixed size ring buffer of reusable objects, and
+ * messages with parameters are only formatted on the background thread. If the
+ * buffer is full then new entries are dropped rather than blocking the caller,
+ * and the number dropped is reported once there is space again.
+ */
+public class AsyncLogger implements LoggerInterface {
+
+	/**
+	 * The default number of entries which can be waiting to be logged
+	 */
+	public static final int DEFAULT_CAPACITY = 256;
+
+	/**
+	 * The ring buffer of entries. Only the entries between tail (inclusive) and
+	 * head (exclusive) contain entries waiting to be logged.
+	 */
+	private final Entry[] buffer;
+
+	/**
+	 * The total number of entries which have been added to the buffer
+	 */
+	private long head = 0;
+
+	/**
+	 * The total number of entries which have been removed from the buffer
+	 */
+	private long tail = 0;
+
+	/**
+	 * The number of entries dropped since this was last reported
+	 */
+	private long dropped = 0;
+
+	/**
+	 * The total number of entries dropped
+	 */
+	private long totalDropped = 0;
+
+	/**
+	 * The loggers which the entries are passed to on the background thread
+	 */
+	private final List<LoggerInterface> loggers = new CopyOnWriteArrayList<>();
+
+	/**
+	 * The background thread which passes entries to the loggers
+	 */
+	private final Thread drainThread;
+
+	/**
+	 * Create a new logger with the default capacity, and start the background thread
+	 */
+	public AsyncLogger() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Create a new logger, and start the background thread
+	 *
+	 * @param capacity The number of entries which can be waiting to be logged
+	 */
+	public AsyncLogger(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1");
+		}
+		buffer = new Entry[capacity];
+		for (int i = 0; i < capacity; i++) {
+			buffer[i] = new Entry();
+		}
+		drainThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drain();
+			}
+		}, "AsyncLogger");
+		drainThread.setDaemon(true);
+		drainThread.start();
+	}
+
+	/**
+	 * Add a logger which the entries will be passed to on the background thread
+	 *
+	 * @param logger The logger to add
+	 */
+	public void registerLogger(LoggerInterface logger) {
+		loggers.add(logger);
+	}
+
+	/**
+	 * Log a message
+	 *
+	 * @param severity The severity of the log entry
+	 * @param message The message
+	 */
+	@Override
+	public void log(Log.Severity severity, String message) {
+		log(severity, message, null, null);
+	}
+
+	/**
+	 * Log an exception
+	 *
+	 * @param severity The severity of the log entry
+	 * @param err The exception
+	 */
+	@Override
+	public void log(Log.Severity severity, Throwable err) {
+		log(severity, null, null, err);
+	}
+
+	/**
+	 * Log a message which will be formatted with String.format on the background
+	 * thread. The arguments must not be modified after they are passed in.
+	 *
+	 * @param severity The severity of the log entry
+	 * @param format The format string
+	 * @param args The arguments to the format string
+	 */
+	public void log(Log.Severity severity, String format, Object[] args) {
+		log(severity, format, args, null);
+	}
+
+	/**
+	 * Add an entry to the buffer, or drop it if the buffer is full
+	 */
+	private synchronized void log(Log.Severity severity, String format, Object[] args, Throwable err) {
+		if (head - tail == buffer.length) {
+			dropped++;
+			totalDropped++;
+			return;
+		}
+		Entry entry = buffer[(int) (head % buffer.length)];
+		entry.severity = severity;
+		entry.format = format;
+		entry.args = args;
+		entry.err = err;
+		if (head++ == tail) {
+			// The background thread may be waiting for an entry
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Wait until all of the entries added so far have been logged, or the timeout has passed
+	 *
+	 * @param timeoutMillis The maximum time to wait in milliseconds
+	 * @return Whether all of the entries were logged
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public synchronized boolean flush(long timeoutMillis) throws InterruptedException {
+		long target = head;
+		long end = System.currentTimeMillis() + timeoutMillis;
+		while (tail < target) {
+			long remaining = end - System.currentTimeMillis();
+			if (remaining <= 0) {
+				return false;
+			}
+			wait(remaining);
+		}
+		return true;
+	}
+
+	/**
+	 * @return The total number of entries which have been dropped because the buffer was full
+	 */
+	public synchronized long getDroppedCount() {
+		return totalDropped;
+	}
+
+	/**
+	 * The loop run by the background thread. Entries are swapped out of the
+	 * buffer for a spare entry so that the lock isn't held while logging.
+	 */
+	private void drain() {
+		Entry spare = new Entry();
+		while (true) {
+			long droppedBefore;
+			synchronized (this) {
+				while (head == tail) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+				int index = (int) (tail % buffer.length);
+				Entry entry = buffer[index];
+				buffer[index] = spare;
+				spare = entry;
+				droppedBefore = dropped;
+				dropped = 0;
+			}
+
+			if (droppedBefore > 0) {
+				dispatch(Log.Severity.WARN, "Log buffer full, " + droppedBefore + " entries dropped", null);
+			}
+			try {
+				if (spare.err != null) {
+					dispatch(spare.severity, null, spare.err);
+				} else if (spare.args != null) {
+					dispatch(spare.severity, String.format(spare.format, spare.args), null);
+				} else {
+					dispatch(spare.severity, spare.format, null);
+				}
+			} catch (RuntimeException e) {
+				// A bad format string shouldn't stop logging
+				dispatch(Log.Severity.ERROR, null, e);
+			}
+			spare.clear();
+
+			synchronized (this) {
+				tail++;
+				// Wake any threads waiting in flush
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Pass an entry to all of the loggers
+	 */
+	private void dispatch(Log.Severity severity, String message, Throwable err) {
+		for (LoggerInterface logger : loggers) {
+			if (err != null) {
+				logger.log(severity, err);
+			} else {
+				logger.log(severity, message);
+			}
+		}
+	}
+
+	/**
+	 * A reusable log entry
+	 */
+	private static class Entry {
+		Log.Severity severity;
+		String format;
+		Object[] args;
+		Throwable err;
+
+		void clear() {
+			format = null;
+			args = null;
+			err = null;
+		}
+	}
+}
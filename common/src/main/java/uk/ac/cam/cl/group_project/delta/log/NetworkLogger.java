@@ -1,4 +1,379 @@
 package uk.ac.cam.cl.group_project.delta.log;
 
-public class NetworkLogger {
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import uk.ac.cam.cl.group_project.delta.Log;
+import uk.ac.cam.cl.group_project.delta.Time;
+
+/**
+ * A logger which sends log entries over UDP, so that the logs of vehicles can
+ * be read while they are moving.
+ *
+ * Entries are added to a bounded queue, and are dropped if it is full, so
+ * logging never blocks. A background thread packs the queued entries into
+ * binary datagrams and sends them on {@link #DEFAULT_PORT}, which is separate
+ * from the port used by the platoon. The datagram format is:
+ *
+ * <pre>
+ * byte    version (1)
+ * int     sequence number of the datagram
+ * int     total number of entries dropped by the sender
+ * byte    length of the source name, followed by the name in UTF-8
+ * byte    number of entries
+ * entries:
+ *   long  time the entry was logged (ns, from Time.getTime())
+ *   byte  severity (ordinal of Log.Severity)
+ *   short length of the message, followed by the message in UTF-8
+ * </pre>
+ *
+ * All values are big-endian. The datagrams can be received and decoded using
+ * {@link #decode(byte[], int)}.
+ */
+public class NetworkLogger implements LoggerInterface, Closeable {
+
+	/**
+	 * The default UDP port used for log datagrams
+	 */
+	public static final int DEFAULT_PORT = 5188;
+
+	/**
+	 * The version of the datagram format
+	 */
+	public static final byte VERSION = 1;
+
+	/**
+	 * The maximum size of a datagram in bytes
+	 */
+	public static final int MAXIMUM_DATAGRAM_SIZE = 1024;
+
+	/**
+	 * The maximum length of a message in bytes, longer messages are truncated
+	 */
+	public static final int MAXIMUM_MESSAGE_LENGTH = 512;
+
+	/**
+	 * The maximum length of the source name in bytes
+	 */
+	public static final int MAXIMUM_NAME_LENGTH = 32;
+
+	/**
+	 * The size of the fixed part of each entry
+	 */
+	private static final int SIZE_OF_ENTRY_HEADER = 8 + 1 + 2;
+
+	/**
+	 * The default number of entries which can be waiting to be sent
+	 */
+	public static final int DEFAULT_CAPACITY = 256;
+
+	/**
+	 * The longest time an entry will wait before it is sent, in milliseconds
+	 */
+	public static final long FLUSH_INTERVAL = 200;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * The socket which the datagrams are sent from
+	 */
+	private final DatagramSocket socket;
+
+	/**
+	 * The address which the datagrams are sent to, which may be a broadcast address
+	 */
+	private final InetAddress address;
+
+	private final int port;
+
+	/**
+	 * The encoded name of this source, which is included in each datagram
+	 */
+	private final byte[] name;
+
+	/**
+	 * The entries waiting to be sent
+	 */
+	private final BlockingQueue<Entry> queue;
+
+	/**
+	 * The number of entries dropped because the queue was full
+	 */
+	private final AtomicInteger droppedCount = new AtomicInteger();
+
+	/**
+	 * The number of datagrams which have been sent
+	 */
+	private int sequenceNumber = 0;
+
+	private final Thread senderThread;
+
+	/**
+	 * Create a logger which sends to the default port
+	 *
+	 * @param name The name of this vehicle, which is shown by the collector
+	 * @param address The address to send to, which may be a broadcast address
+	 * @throws SocketException If the socket can't be created
+	 */
+	public NetworkLogger(String name, InetAddress address) throws SocketException {
+		this(name, address, DEFAULT_PORT, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Create a logger, and start the thread which sends the datagrams
+	 *
+	 * @param name The name of this vehicle, which is shown by the collector
+	 * @param address The address to send to, which may be a broadcast address
+	 * @param port The port to send to
+	 * @param capacity The number of entries which can be waiting to be sent
+	 * @throws SocketException If the socket can't be created
+	 */
+	public NetworkLogger(String name, InetAddress address, int port, int capacity) throws SocketException {
+		this.name = truncate(name.getBytes(UTF_8), MAXIMUM_NAME_LENGTH);
+		this.address = address;
+		this.port = port;
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.socket = new DatagramSocket();
+		this.socket.setBroadcast(true);
+
+		senderThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				send();
+			}
+		}, "NetworkLogger");
+		senderThread.setDaemon(true);
+		senderThread.start();
+	}
+
+	/**
+	 * Log a message
+	 *
+	 * @param severity The severity of the log entry
+	 * @param message The message
+	 */
+	@Override
+	public void log(Log.Severity severity, String message) {
+		if (!queue.offer(new Entry(Time.getTime(), severity, message))) {
+			droppedCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Log an exception, including where it was thrown
+	 *
+	 * @param severity The severity of the log entry
+	 * @param err The exception
+	 */
+	@Override
+	public void log(Log.Severity severity, Throwable err) {
+		StackTraceElement[] trace = err.getStackTrace();
+		if (trace.length > 0) {
+			log(severity, err.toString() + " at " + trace[0]);
+		} else {
+			log(severity, err.toString());
+		}
+	}
+
+	/**
+	 * @return The number of entries which have been dropped because the queue was full
+	 */
+	public int getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * Stop sending datagrams and close the socket. Entries which haven't been sent are discarded.
+	 */
+	@Override
+	public void close() {
+		senderThread.interrupt();
+		socket.close();
+	}
+
+	/**
+	 * The loop run by the background thread, which waits for an entry then
+	 * collects any others logged in the next flush interval into the same datagrams
+	 */
+	private void send() {
+		ByteBuffer buffer = ByteBuffer.allocate(MAXIMUM_DATAGRAM_SIZE);
+		List<Entry> entries = new ArrayList<>();
+		try {
+			while (true) {
+				entries.add(queue.take());
+				Thread.sleep(FLUSH_INTERVAL);
+				queue.drainTo(entries);
+
+				int start = 0;
+				while (start < entries.size()) {
+					int end = encode(buffer, entries, start);
+					try {
+						socket.send(new DatagramPacket(buffer.array(), buffer.position(), address, port));
+					} catch (IOException e) {
+						if (socket.isClosed()) {
+							return;
+						}
+						// Logging this could cause the same failure again, so just count it
+						droppedCount.addAndGet(end - start);
+					}
+					start = end;
+				}
+				entries.clear();
+			}
+		} catch (InterruptedException e) {
+			// Closed
+		}
+	}
+
+	/**
+	 * Encode as many entries as will fit into a datagram
+	 *
+	 * @param buffer The buffer to encode into, which is cleared first
+	 * @param entries The entries to send
+	 * @param start The index of the first entry to encode
+	 * @return The index of the first entry which wasn't encoded
+	 */
+	private int encode(ByteBuffer buffer, List<Entry> entries, int start) {
+		buffer.clear();
+		buffer.put(VERSION);
+		buffer.putInt(sequenceNumber++);
+		buffer.putInt(droppedCount.get());
+		buffer.put((byte) name.length);
+		buffer.put(name);
+		int countPosition = buffer.position();
+		buffer.put((byte) 0);
+
+		int end = start;
+		while (end < entries.size() && end - start < 0xFF) {
+			Entry entry = entries.get(end);
+			if (buffer.remaining() < SIZE_OF_ENTRY_HEADER + entry.message.length) {
+				break;
+			}
+			buffer.putLong(entry.time);
+			buffer.put((byte) entry.severity.ordinal());
+			buffer.putShort((short) entry.message.length);
+			buffer.put(entry.message);
+			end++;
+		}
+		buffer.put(countPosition, (byte) (end - start));
+		return end;
+	}
+
+	/**
+	 * Decode a datagram sent by a NetworkLogger
+	 *
+	 * @param data The received data
+	 * @param length The length of the datagram
+	 * @return The decoded datagram
+	 * @throws IllegalArgumentException If the data isn't a valid datagram
+	 */
+	public static Datagram decode(byte[] data, int length) {
+		ByteBuffer bytes = ByteBuffer.wrap(data, 0, length);
+		try {
+			if (bytes.get() != VERSION) {
+				throw new IllegalArgumentException("Unsupported log datagram version");
+			}
+			int sequenceNumber = bytes.getInt();
+			int droppedCount = bytes.getInt();
+			String source = readString(bytes, bytes.get() & 0xFF);
+			int count = bytes.get() & 0xFF;
+			List<Record> records = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				long time = bytes.getLong();
+				int severity = bytes.get();
+				if (severity < 0 || severity >= Log.Severity.values().length) {
+					throw new IllegalArgumentException("Invalid severity " + severity);
+				}
+				String message = readString(bytes, bytes.getShort() & 0xFFFF);
+				records.add(new Record(time, Log.Severity.values()[severity], message));
+			}
+			return new Datagram(source, sequenceNumber, droppedCount, records);
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("Log datagram is truncated", e);
+		}
+	}
+
+	private static String readString(ByteBuffer bytes, int length) {
+		if (length > bytes.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		String s = new String(bytes.array(), bytes.position(), length, UTF_8);
+		bytes.position(bytes.position() + length);
+		return s;
+	}
+
+	private static byte[] truncate(byte[] bytes, int length) {
+		if (bytes.length <= length) {
+			return bytes;
+		}
+		byte[] result = new byte[length];
+		System.arraycopy(bytes, 0, result, 0, length);
+		return result;
+	}
+
+	/**
+	 * An entry waiting to be sent, with the message already encoded
+	 */
+	private static class Entry {
+		final long time;
+		final Log.Severity severity;
+		final byte[] message;
+
+		Entry(long time, Log.Severity severity, String message) {
+			this.time = time;
+			this.severity = severity;
+			this.message = truncate(String.valueOf(message).getBytes(UTF_8), MAXIMUM_MESSAGE_LENGTH);
+		}
+	}
+
+	/**
+	 * A log entry received from a vehicle
+	 */
+	public static class Record {
+		public final long time;
+		public final Log.Severity severity;
+		public final String message;
+
+		public Record(long time, Log.Severity severity, String message) {
+			this.time = time;
+			this.severity = severity;
+			this.message = message;
+		}
+	}
+
+	/**
+	 * A datagram received from a vehicle
+	 */
+	public static class Datagram {
+		/**
+		 * The name of the vehicle which sent this
+		 */
+		public final String source;
+		public final int sequenceNumber;
+
+		/**
+		 * The total number of entries the sender has dropped
+		 */
+		public final int droppedCount;
+		public final List<Record> records;
+
+		public Datagram(String source, int sequenceNumber, int droppedCount, List<Record> records) {
+			this.source = source;
+			this.sequenceNumber = sequenceNumber;
+			this.droppedCount = droppedCount;
+			this.records = records;
+		}
+	}
 }
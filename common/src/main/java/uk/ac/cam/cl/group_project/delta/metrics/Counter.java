@@ -0,0 +1,33 @@
+package uk.ac.cam.cl.group_project.delta.metrics;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A count of events, which can be read from any thread
+ */
+public class Counter implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final AtomicLong count = new AtomicLong();
+
+	/**
+	 * Add one to the count
+	 */
+	public void increment() {
+		count.incrementAndGet();
+	}
+
+	/**
+	 * Add to the count
+	 *
+	 * @param n The amount to add
+	 */
+	public void add(long n) {
+		count.addAndGet(n);
+	}
+
+	public long get() {
+		return count.get();
+	}
+}
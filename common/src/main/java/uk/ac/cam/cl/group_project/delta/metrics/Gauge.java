@@ -0,0 +1,23 @@
+package uk.ac.cam.cl.group_project.delta.metrics;
+
+import java.io.Serializable;
+
+/**
+ * The latest value of a measurement, which can be read from any thread
+ */
+public class Gauge implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private volatile double value = Double.NaN;
+
+	public void set(double value) {
+		this.value = value;
+	}
+
+	/**
+	 * @return The latest value, or NaN if no value has been set
+	 */
+	public double get() {
+		return value;
+	}
+}
@@ -0,0 +1,125 @@
+package uk.ac.cam.cl.group_project.delta.metrics;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative values, such as durations in nanoseconds, with a
+ * fixed relative precision in the same way as an HdrHistogram.
+ *
+ * Values below 2^SUB_BUCKET_BITS each have their own bucket, and every power of
+ * two above that is split into 2^SUB_BUCKET_BITS linear buckets, so the value
+ * of any recorded sample is known to within about 6%. Values of 2^RANGE_BITS
+ * and above, which is about 18 minutes in nanoseconds, share the last bucket,
+ * although the maximum is still exact. This keeps each histogram under 5KB,
+ * as every vehicle has several, even on an EV3. Recording a value takes
+ * constant time, never allocates and doesn't lock, so it is safe to use in the
+ * control loop while another thread takes snapshots.
+ */
+public class Histogram implements Serializable {
+	private static final long serialVersionUID = 2L;
+
+	/**
+	 * The number of bits of each value which are stored exactly
+	 */
+	static final int SUB_BUCKET_BITS = 4;
+
+	static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * The number of bits of the values which are told apart
+	 */
+	static final int RANGE_BITS = 40;
+
+	/**
+	 * Enough buckets to store any value below 2^RANGE_BITS
+	 */
+	static final int BUCKET_COUNT = (RANGE_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+	private final AtomicLong totalCount = new AtomicLong();
+
+	private final AtomicLong sum = new AtomicLong();
+
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+	private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+	/**
+	 * Record a value. Negative values are recorded as 0.
+	 *
+	 * @param value The value to record
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts.incrementAndGet(indexOf(value));
+		totalCount.incrementAndGet();
+		sum.addAndGet(value);
+
+		long current;
+		while (value < (current = min.get()) && !min.compareAndSet(current, value)) {
+			// Retry
+		}
+		while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+			// Retry
+		}
+	}
+
+	/**
+	 * @return A copy of the current state of the histogram
+	 */
+	public HistogramSnapshot snapshot() {
+		long[] copy = new long[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			copy[i] = counts.get(i);
+		}
+		return new HistogramSnapshot(copy, totalCount.get(), sum.get(), min.get(), max.get());
+	}
+
+	/**
+	 * @param value A non-negative value
+	 * @return The index of the bucket containing the value
+	 */
+	static int indexOf(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		if (value >>> RANGE_BITS != 0) {
+			return BUCKET_COUNT - 1;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKET_COUNT + (int) ((value >>> shift) - SUB_BUCKET_COUNT);
+	}
+
+	/**
+	 * @param index The index of a bucket
+	 * @return The smallest value stored in the bucket
+	 */
+	static long lowestValueIn(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = index / SUB_BUCKET_COUNT - 1;
+		return (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+	}
+
+	/**
+	 * @param index The index of a bucket
+	 * @return The largest value stored in the bucket
+	 */
+	static long highestValueIn(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		if (index == BUCKET_COUNT - 1) {
+			// The last bucket also holds every larger value
+			return Long.MAX_VALUE;
+		}
+		int shift = index / SUB_BUCKET_COUNT - 1;
+		return lowestValueIn(index) + (1L << shift) - 1;
+	}
+}
@@ -0,0 +1,77 @@
+package uk.ac.cam.cl.group_project.delta.metrics;
+
+/**
+ * The state of a histogram at one point in time
+ */
+public class HistogramSnapshot {
+
+	private final long[] counts;
+	private final long count;
+	private final long sum;
+	private final long min;
+	private final long max;
+
+	HistogramSnapshot(long[] counts, long count, long sum, long min, long max) {
+		this.counts = counts;
+		this.count = count;
+		this.sum = sum;
+		this.min = min;
+		this.max = max;
+	}
+
+	/**
+	 * @return The number of values recorded
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return The smallest value recorded, or 0 if none have been
+	 */
+	public long getMin() {
+		return count == 0 ? 0 : min;
+	}
+
+	/**
+	 * @return The largest value recorded, or 0 if none have been
+	 */
+	public long getMax() {
+		return count == 0 ? 0 : max;
+	}
+
+	/**
+	 * @return The mean of the values recorded, or 0 if none have been
+	 */
+	public double getMean() {
+		return count == 0 ? 0 : (double) sum / count;
+	}
+
+	/**
+	 * Find the value which the given percentage of recorded values are less
+	 * than or equal to, to within the precision of the histogram
+	 *
+	 * @param percentile The percentage, between 0 and 100
+	 * @return The value at that percentile, or 0 if no values have been recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= target) {
+				return Math.min(Math.max(Histogram.highestValueIn(i), getMin()), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count=%d min=%d p50=%d p99=%d max=%d mean=%.1f", count, getMin(),
+				getValueAtPercentile(50), getValueAtPercentile(99), getMax(), getMean());
+	}
+}
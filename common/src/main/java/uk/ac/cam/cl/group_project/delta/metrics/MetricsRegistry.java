@@ -0,0 +1,90 @@
+package uk.ac.cam.cl.group_project.delta.metrics;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A named collection of counters, gauges and histograms for one vehicle.
+ *
+ * Metrics are created the first time they are requested, and the same object
+ * is returned afterwards, so callers should keep a reference to the metrics
+ * they update frequently rather than looking them up each time. Updating a
+ * metric never blocks, and snapshots can be taken from any thread.
+ */
+public class MetricsRegistry implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+	/**
+	 * @param name The name of the counter
+	 * @return The counter with that name, which is created if it doesn't exist
+	 */
+	public Counter counter(String name) {
+		Counter counter = counters.get(name);
+		if (counter == null) {
+			counter = new Counter();
+			Counter existing = counters.putIfAbsent(name, counter);
+			if (existing != null) {
+				counter = existing;
+			}
+		}
+		return counter;
+	}
+
+	/**
+	 * @param name The name of the gauge
+	 * @return The gauge with that name, which is created if it doesn't exist
+	 */
+	public Gauge gauge(String name) {
+		Gauge gauge = gauges.get(name);
+		if (gauge == null) {
+			gauge = new Gauge();
+			Gauge existing = gauges.putIfAbsent(name, gauge);
+			if (existing != null) {
+				gauge = existing;
+			}
+		}
+		return gauge;
+	}
+
+	/**
+	 * @param name The name of the histogram
+	 * @return The histogram with that name, which is created if it doesn't exist
+	 */
+	public Histogram histogram(String name) {
+		Histogram histogram = histograms.get(name);
+		if (histogram == null) {
+			histogram = new Histogram();
+			Histogram existing = histograms.putIfAbsent(name, histogram);
+			if (existing != null) {
+				histogram = existing;
+			}
+		}
+		return histogram;
+	}
+
+	/**
+	 * @return A copy of the current values of all of the metrics
+	 */
+	public MetricsSnapshot snapshot() {
+		Map<String, Long> counterValues = new TreeMap<>();
+		for (Map.Entry<String, Counter> e : counters.entrySet()) {
+			counterValues.put(e.getKey(), e.getValue().get());
+		}
+		Map<String, Double> gaugeValues = new TreeMap<>();
+		for (Map.Entry<String, Gauge> e : gauges.entrySet()) {
+			gaugeValues.put(e.getKey(), e.getValue().get());
+		}
+		Map<String, HistogramSnapshot> histogramValues = new TreeMap<>();
+		for (Map.Entry<String, Histogram> e : histograms.entrySet()) {
+			histogramValues.put(e.getKey(), e.getValue().snapshot());
+		}
+		return new MetricsSnapshot(counterValues, gaugeValues, histogramValues);
+	}
+}
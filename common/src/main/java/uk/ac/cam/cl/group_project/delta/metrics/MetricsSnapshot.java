@@ -0,0 +1,68 @@
+package uk.ac.cam.cl.group_project.delta.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The values of all of the metrics in a registry at one point in time, sorted by name
+ */
+public class MetricsSnapshot {
+
+	private final Map<String, Long> counters;
+	private final Map<String, Double> gauges;
+	private final Map<String, HistogramSnapshot> histograms;
+
+	MetricsSnapshot(Map<String, Long> counters, Map<String, Double> gauges,
+			Map<String, HistogramSnapshot> histograms) {
+		this.counters = Collections.unmodifiableMap(counters);
+		this.gauges = Collections.unmodifiableMap(gauges);
+		this.histograms = Collections.unmodifiableMap(histograms);
+	}
+
+	public Map<String, Long> getCounters() {
+		return counters;
+	}
+
+	public Map<String, Double> getGauges() {
+		return gauges;
+	}
+
+	public Map<String, HistogramSnapshot> getHistograms() {
+		return histograms;
+	}
+
+	/**
+	 * @param name The name of the counter
+	 * @return The value of the counter, or 0 if it doesn't exist
+	 */
+	public long getCounter(String name) {
+		Long value = counters.get(name);
+		return value == null ? 0 : value;
+	}
+
+	/**
+	 * @param name The name of the histogram
+	 * @return The histogram, or null if it doesn't exist
+	 */
+	public HistogramSnapshot getHistogram(String name) {
+		return histograms.get(name);
+	}
+
+	/**
+	 * @return The metrics formatted one per line
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, Long> e : counters.entrySet()) {
+			sb.append(e.getKey()).append(": ").append(e.getValue()).append('\n');
+		}
+		for (Map.Entry<String, Double> e : gauges.entrySet()) {
+			sb.append(e.getKey()).append(": ").append(e.getValue()).append('\n');
+		}
+		for (Map.Entry<String, HistogramSnapshot> e : histograms.entrySet()) {
+			sb.append(e.getKey()).append(": ").append(e.getValue()).append('\n');
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,70 @@
+package uk.ac.cam.cl.group_project.delta;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class RandomnessTest {
+
+	@After
+	public void teardown() {
+		Randomness.useUnseeded();
+	}
+
+	@Test
+	public void sameSeedGivesSameGeneratorsTest() {
+		Randomness.setSeed(42);
+		Random first = Randomness.newRandom();
+		Random second = Randomness.newRandom();
+
+		Randomness.setSeed(42);
+		Random firstAgain = Randomness.newRandom();
+		Random secondAgain = Randomness.newRandom();
+
+		for (int i = 0; i < 100; i++) {
+			assertEquals(first.nextLong(), firstAgain.nextLong());
+			assertEquals(second.nextGaussian(), secondAgain.nextGaussian(), 0);
+		}
+	}
+
+	@Test
+	public void generatorsFromOneSeedDifferTest() {
+		Randomness.setSeed(42);
+		Random first = Randomness.newRandom();
+		Random second = Randomness.newRandom();
+		assertNotEquals(first.nextLong(), second.nextLong());
+	}
+
+	@Test
+	public void differentSeedsGiveDifferentGeneratorsTest() {
+		Randomness.setSeed(1);
+		long one = Randomness.newRandom().nextLong();
+		Randomness.setSeed(2);
+		long two = Randomness.newRandom().nextLong();
+		assertNotEquals(one, two);
+	}
+
+	@Test
+	public void seedsFollowTheSameSequenceTest() {
+		Randomness.setSeed(42);
+		long first = Randomness.newSeed();
+		long second = Randomness.newSeed();
+		assertEquals(2, Randomness.getCount());
+
+		Randomness.setSeed(42, 1);
+		assertEquals(second, Randomness.newSeed());
+		assertNotEquals(first, second);
+	}
+
+	@Test
+	public void unseededTest() {
+		Randomness.setSeed(42);
+		assertTrue(Randomness.isSeeded());
+		Randomness.useUnseeded();
+		assertFalse(Randomness.isSeeded());
+		assertNotNull(Randomness.newRandom());
+	}
+}
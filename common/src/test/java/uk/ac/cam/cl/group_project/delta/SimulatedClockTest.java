@@ -0,0 +1,52 @@
+package uk.ac.cam.cl.group_project.delta;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class SimulatedClockTest {
+
+	@Test
+	public void increaseTimeTest() {
+		SimulatedClock clock = new SimulatedClock(100);
+		assertEquals(150, clock.increaseTime(50));
+		assertEquals(150, clock.getTime());
+		clock.setTime(0);
+		assertEquals(0, clock.getTime());
+	}
+
+	@Test
+	public void concurrentIncreasesNotLostTest() throws InterruptedException {
+		final SimulatedClock clock = new SimulatedClock();
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 10000; j++) {
+						clock.increaseTime(1);
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(40000, clock.getTime());
+	}
+
+	@Test
+	public void globalClockFollowsTimeTest() {
+		Clock global = Time.getClock();
+		Time.useDefinedTime();
+		try {
+			Time.setTime(1234);
+			assertEquals(1234, global.getTime());
+			Time.increaseTime(1);
+			assertEquals(1235, global.getTime());
+		} finally {
+			Time.useSystemTime();
+		}
+	}
+}
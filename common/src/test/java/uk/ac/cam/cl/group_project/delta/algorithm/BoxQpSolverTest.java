@@ -0,0 +1,42 @@
+package uk.ac.cam.cl.group_project.delta.algorithm;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class BoxQpSolverTest {
+
+	@Test
+	public void unconstrainedMinimumFoundTest() {
+		// minimise (x - 1)^2 + (y + 2)^2 + xy
+		BoxQpSolver solver = new BoxQpSolver(2, 200);
+		solver.setHessian(new double[] {2, 1, 1, 2});
+		double[] x = new double[2];
+		solver.solve(new double[] {-2, 4}, -10, 10, x);
+
+		// Solution of 2x + y = 2, x + 2y = -4
+		assertEquals(8.0 / 3, x[0], 1e-6);
+		assertEquals(-10.0 / 3, x[1], 1e-6);
+	}
+
+	@Test
+	public void boundsRespectedTest() {
+		BoxQpSolver solver = new BoxQpSolver(2, 200);
+		solver.setHessian(new double[] {2, 1, 1, 2});
+		double[] x = new double[2];
+		solver.solve(new double[] {-2, 4}, -1, 1, x);
+
+		// y is held at -1, then x minimises x^2 - 2x - x
+		assertEquals(-1, x[1], 1e-9);
+		assertEquals(1, x[0], 1e-9);
+	}
+
+	@Test
+	public void warmStartClampedTest() {
+		BoxQpSolver solver = new BoxQpSolver(1, 1);
+		solver.setHessian(new double[] {1});
+		double[] x = {100};
+		solver.solve(new double[] {0}, -1, 1, x);
+		assertTrue(x[0] <= 1);
+	}
+}
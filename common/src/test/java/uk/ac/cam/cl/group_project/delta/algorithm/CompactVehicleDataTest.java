@@ -0,0 +1,85 @@
+package uk.ac.cam.cl.group_project.delta.algorithm;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import uk.ac.cam.cl.group_project.delta.MessageReceipt;
+import uk.ac.cam.cl.group_project.delta.algorithm.communications.MessageType;
+import uk.ac.cam.cl.group_project.delta.algorithm.communications.Packet;
+
+public class CompactVehicleDataTest {
+
+	@Test
+	public void roundTripTest() {
+		VehicleData md = new CompactVehicleData(1.2341, -0.5, 0.25, 1.5, 2.0, -0.125);
+		ByteBuffer bytes = ByteBuffer.allocate(13);
+		md.appendToBuffer(bytes);
+		assertEquals(13, bytes.position());
+		bytes.rewind();
+
+		VehicleData decoded = new CompactVehicleData(bytes);
+		assertEquals(1.2341, decoded.getSpeed(), CompactVehicleData.SPEED_SCALE / 2);
+		assertEquals(-0.5, decoded.getAcceleration(), CompactVehicleData.ACCELERATION_SCALE / 2);
+		assertEquals(0.25, decoded.getTurnRate(), CompactVehicleData.TURN_RATE_SCALE / 2);
+		assertEquals(1.5, decoded.getChosenSpeed(), CompactVehicleData.SPEED_SCALE / 2);
+		assertEquals(2.0, decoded.getChosenAcceleration(), CompactVehicleData.ACCELERATION_SCALE / 2);
+		assertEquals(-0.125, decoded.getChosenTurnRate(), CompactVehicleData.TURN_RATE_SCALE / 2);
+	}
+
+	@Test
+	public void chosenValuesOmittedTest() {
+		VehicleData md = new CompactVehicleData(1.0, 0.5, -0.25, 1.0, 0.5, -0.25);
+		ByteBuffer bytes = ByteBuffer.allocate(13);
+		md.appendToBuffer(bytes);
+		assertEquals(7, bytes.position());
+		bytes.rewind();
+
+		VehicleData decoded = new CompactVehicleData(bytes);
+		assertEquals(1.0, decoded.getChosenSpeed(), 0);
+		assertEquals(0.5, decoded.getChosenAcceleration(), 0);
+		assertEquals(-0.25, decoded.getChosenTurnRate(), 0);
+	}
+
+	@Test
+	public void highwaySpeedRoundTripTest() {
+		// 130km/h, and a speed beyond any drive cycle
+		double[] speeds = {36.11, 60.0};
+		for (double speed : speeds) {
+			VehicleData md = new CompactVehicleData(speed, 0, 0, speed, 0, 0);
+			ByteBuffer bytes = ByteBuffer.allocate(13);
+			md.appendToBuffer(bytes);
+			bytes.rewind();
+
+			VehicleData decoded = new CompactVehicleData(bytes);
+			assertEquals(speed, decoded.getSpeed(), CompactVehicleData.SPEED_SCALE / 2);
+			assertEquals(speed, decoded.getChosenSpeed(), CompactVehicleData.SPEED_SCALE / 2);
+		}
+	}
+
+	@Test
+	public void saturationTest() {
+		VehicleData md = new CompactVehicleData(1000.0, -1000.0, 0, 0, 0, 0);
+		ByteBuffer bytes = ByteBuffer.allocate(13);
+		md.appendToBuffer(bytes);
+		bytes.rewind();
+
+		VehicleData decoded = new CompactVehicleData(bytes);
+		assertEquals(Short.MAX_VALUE * CompactVehicleData.SPEED_SCALE, decoded.getSpeed(), 1e-9);
+		assertEquals(Short.MIN_VALUE * CompactVehicleData.ACCELERATION_SCALE, decoded.getAcceleration(), 1e-9);
+	}
+
+	@Test
+	public void packetTest() {
+		byte[] data = Packet.createPacket(new CompactVehicleData(1.0, 0, 0, 1.0, 0, 0), 100, 500);
+		assertEquals(Packet.SIZE_OF_HEADER + 7, data.length);
+
+		Packet p = new Packet(new MessageReceipt(data));
+		assertEquals(data.length, p.length);
+		assertEquals(MessageType.CompactData, p.message.getType());
+		assertTrue(p.message instanceof VehicleData);
+		assertEquals(1.0, ((VehicleData) p.message).getSpeed(), 0);
+	}
+}
@@ -0,0 +1,72 @@
+package uk.ac.cam.cl.group_project.delta.algorithm;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import uk.ac.cam.cl.group_project.delta.SimulatedClock;
+
+public class DriveCycleReplayTest {
+
+	private static final long SECOND = 1000000000L;
+
+	@Test
+	public void traceFollowedTest() throws IOException {
+		SimulatedClock clock = new SimulatedClock();
+		AlgorithmData data = new AlgorithmData();
+		data.clock = clock;
+		DriveCycleReplay replay = new DriveCycleReplay(data, new StringReader(
+				"# seconds, speed, turn rate\n"
+				+ "0, 0, 0\n"
+				+ "2, 1.0, 0.2\n"
+				+ "4 1.0 0\n"));
+
+		assertTrue(replay.nextStep());
+		assertEquals(0.5, data.chosenAcceleration, 1e-9);
+
+		clock.increaseTime(SECOND);
+		data.speed = 0.5;
+		assertTrue(replay.nextStep());
+		assertEquals(0.5, data.chosenSpeed, 1e-9);
+		assertEquals(0.5, data.chosenAcceleration, 1e-9);
+		assertEquals(0.1, data.chosenTurnRate, 1e-9);
+
+		// Slower than the trace, so accelerate harder to catch up
+		data.speed = 0.25;
+		assertTrue(replay.nextStep());
+		assertEquals(0.5 + DriveCycleReplay.SPEED_GAIN * 0.25, data.chosenAcceleration, 1e-9);
+
+		clock.increaseTime(2 * SECOND);
+		data.speed = 1.0;
+		assertTrue(replay.nextStep());
+		assertEquals(0, data.chosenAcceleration, 1e-9);
+		assertEquals(0.1, data.chosenTurnRate, 1e-9);
+		assertFalse(replay.isFinished());
+
+		// The final speed and turn rate are held after the trace ends
+		clock.increaseTime(10 * SECOND);
+		assertTrue(replay.nextStep());
+		assertTrue(replay.isFinished());
+		assertEquals(1.0, data.chosenSpeed, 0);
+		assertEquals(0, data.chosenTurnRate, 0);
+		replay.close();
+	}
+
+	@Test
+	public void malformedTraceEndsReplayTest() throws IOException {
+		SimulatedClock clock = new SimulatedClock();
+		AlgorithmData data = new AlgorithmData();
+		data.clock = clock;
+		DriveCycleReplay replay = new DriveCycleReplay(data, new StringReader(
+				"0, 1.0, 0\n"
+				+ "1, fast, 0\n"));
+
+		assertTrue(replay.nextStep());
+		assertTrue(replay.isFinished());
+		assertEquals(1.0, data.chosenSpeed, 0);
+		replay.close();
+	}
+}
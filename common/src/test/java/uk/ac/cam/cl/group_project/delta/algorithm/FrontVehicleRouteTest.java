@@ -0,0 +1,71 @@
+package uk.ac.cam.cl.group_project.delta.algorithm;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import uk.ac.cam.cl.group_project.delta.SimulatedClock;
+
+public class FrontVehicleRouteTest {
+
+	private static final long SECOND = 1000000000L;
+
+	@Test
+	public void emptyRouteDoesNothingTest() {
+		AlgorithmData data = new AlgorithmData();
+		data.clock = new SimulatedClock();
+		FrontVehicleRoute route = new FrontVehicleRoute(data, FrontVehicleRoute.RouteNumber.ROUTE_ZERO);
+
+		assertFalse(route.nextStep());
+	}
+
+	@Test
+	public void keyframesFollowClockTest() {
+		SimulatedClock clock = new SimulatedClock();
+		clock.setTime(5 * SECOND);
+		AlgorithmData data = new AlgorithmData();
+		data.clock = clock;
+		FrontVehicleRoute route = new FrontVehicleRoute(data, FrontVehicleRoute.RouteNumber.ROUTE_ONE);
+
+		// The route starts at the first step, and the first keyframe is after 1s
+		assertFalse(route.nextStep());
+		clock.increaseTime(SECOND);
+		assertTrue(route.nextStep());
+		assertEquals(0.07, data.chosenAcceleration, 0);
+
+		// Nothing changes until the next keyframe
+		clock.increaseTime(SECOND);
+		assertFalse(route.nextStep());
+
+		// Skipping several loops doesn't delay the route
+		clock.increaseTime(9 * SECOND);
+		assertTrue(route.nextStep());
+		assertEquals(-0.07, data.chosenAcceleration, 0);
+		clock.increaseTime(SECOND);
+		assertFalse(route.nextStep());
+	}
+
+	@Test
+	public void linearRouteSentEachStepTest() {
+		SimulatedClock clock = new SimulatedClock();
+		AlgorithmData data = new AlgorithmData();
+		data.clock = clock;
+		FrontVehicleRoute route = new FrontVehicleRoute(data, new RouteTimeline(
+				new long[] {0, 2 * SECOND},
+				new double[] {0, 1.0},
+				new double[] {0.5, 0.5},
+				RouteTimeline.Interpolation.LINEAR));
+
+		assertTrue(route.nextStep());
+		assertEquals(0, data.chosenAcceleration, 0);
+		assertEquals(0.5, data.chosenTurnRate, 0);
+		clock.increaseTime(SECOND);
+		assertTrue(route.nextStep());
+		assertEquals(0.5, data.chosenAcceleration, 1e-9);
+		clock.increaseTime(SECOND);
+		assertTrue(route.nextStep());
+		assertEquals(1.0, data.chosenAcceleration, 1e-9);
+		clock.increaseTime(SECOND);
+		assertFalse(route.nextStep());
+	}
+}
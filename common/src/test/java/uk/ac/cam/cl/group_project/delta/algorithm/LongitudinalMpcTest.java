@@ -0,0 +1,56 @@
+package uk.ac.cam.cl.group_project.delta.algorithm;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class LongitudinalMpcTest {
+
+	@Test
+	public void fixedIterationsCloseToOptimumTest() {
+		double[][] states = {
+				// gap, speed, predecessor speed, predecessor acceleration
+				{1.0, 0, 0.5, 0},
+				{0.3, 0.5, 0, -1},
+				{0.35, 0.3, 0.3, 0.1},
+				{0.2, 1, 0.5, -2}};
+		for (double[] s : states) {
+			LongitudinalMpc exact = new LongitudinalMpc(LongitudinalMpc.DEFAULT_HORIZON,
+					LongitudinalMpc.DEFAULT_STEP_TIME, 20000);
+			LongitudinalMpc mpc = new LongitudinalMpc();
+			double expected = exact.solve(s[0], s[1], s[2], s[3], 0);
+			double actual = mpc.solve(s[0], s[1], s[2], s[3], 0);
+			assertEquals(expected, actual, 1e-3);
+			assertEquals(exact.getObjective(), mpc.getObjective(), 1e-3);
+		}
+	}
+
+	@Test
+	public void accelerationLimitsRespectedTest() {
+		LongitudinalMpc mpc = new LongitudinalMpc();
+		mpc.setAccelerationLimits(-0.5, 0.1);
+		assertEquals(0.1, mpc.solve(5.0, 0, 1.0, 0, 0), 1e-9);
+		assertEquals(-0.5, mpc.solve(0.2, 1.0, 0, -2, 0), 1e-9);
+	}
+
+	@Test
+	public void followerSettlesAtBufferDistanceTest() {
+		LongitudinalMpc mpc = new LongitudinalMpc();
+		mpc.setBufferDistance(0.3);
+		double dt = Algorithm.ALGORITHM_LOOP_DURATION / 1E9;
+		double gap = 1.0;
+		double speed = 0;
+		double predecessorSpeed = 0.3;
+		double acceleration = 0;
+		double minimumGap = gap;
+		for (int i = 0; i < 400; i++) {
+			acceleration = mpc.solve(gap, speed, predecessorSpeed, 0, acceleration);
+			gap += (predecessorSpeed - speed) * dt - 0.5 * acceleration * dt * dt;
+			speed = Math.max(0, speed + acceleration * dt);
+			minimumGap = Math.min(minimumGap, gap);
+		}
+		assertEquals(0.3, gap, 0.01);
+		assertEquals(predecessorSpeed, speed, 0.01);
+		assertTrue(minimumGap > 0.25);
+	}
+}
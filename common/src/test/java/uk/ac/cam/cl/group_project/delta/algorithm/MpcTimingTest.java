@@ -0,0 +1,22 @@
+package uk.ac.cam.cl.group_project.delta.algorithm;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import uk.ac.cam.cl.group_project.delta.metrics.HistogramSnapshot;
+
+public class MpcTimingTest {
+
+	@Test
+	public void everySolveTimedTest() {
+		HistogramSnapshot snapshot = MpcTiming.time(new LongitudinalMpc(), 10, 100);
+		assertEquals(100, snapshot.getCount());
+		assertTrue(snapshot.getMax() > 0);
+	}
+
+	@Test
+	public void budgetTest() {
+		assertEquals(Algorithm.ALGORITHM_LOOP_DURATION / 5, MpcTiming.getBudget(0.2));
+	}
+}
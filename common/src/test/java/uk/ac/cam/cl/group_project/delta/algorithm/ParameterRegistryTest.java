@@ -0,0 +1,132 @@
+package uk.ac.cam.cl.group_project.delta.algorithm;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.ac.cam.cl.group_project.delta.BeaconInterface;
+import uk.ac.cam.cl.group_project.delta.DriveInterface;
+import uk.ac.cam.cl.group_project.delta.NetworkInterface;
+import uk.ac.cam.cl.group_project.delta.SensorInterface;
+
+public class ParameterRegistryTest {
+
+	private ParameterRegistry registry;
+
+	@Before
+	public void setup() {
+		registry = new ParameterRegistry();
+		registry.define(ParameterEnum.PID_P, 4, 0, 10);
+		registry.define(ParameterEnum.PID_D, 2, 0, 10);
+	}
+
+	@Test
+	public void definedParametersTest() {
+		assertArrayEquals(new ParameterEnum[]{ParameterEnum.PID_P, ParameterEnum.PID_D}, registry.getParameters());
+		assertEquals(4, registry.get(ParameterEnum.PID_P), 0);
+		assertEquals(2, registry.snapshot().get(ParameterEnum.PID_D), 0);
+		assertNull(registry.get(ParameterEnum.PID_I));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void redefinedParameterTest() {
+		registry.define(ParameterEnum.PID_P, 1, 0, 10);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void defaultOutOfBoundsTest() {
+		registry.define(ParameterEnum.PID_I, 11, 0, 10);
+	}
+
+	@Test
+	public void undefinedParameterIgnoredTest() {
+		registry.set(ParameterEnum.PID_I, 100);
+		assertNull(registry.get(ParameterEnum.PID_I));
+	}
+
+	@Test
+	public void snapshotUnchangedBySetTest() {
+		ParameterRegistry.Snapshot before = registry.snapshot();
+		registry.set(ParameterEnum.PID_P, 5);
+		assertEquals(4, before.get(ParameterEnum.PID_P), 0);
+		assertEquals(5, registry.snapshot().get(ParameterEnum.PID_P), 0);
+		registry.reset();
+		assertEquals(4, registry.get(ParameterEnum.PID_P), 0);
+	}
+
+	@Test
+	public void invalidBulkUpdateChangesNothingTest() {
+		Map<ParameterEnum, Double> values = new EnumMap<>(ParameterEnum.class);
+		values.put(ParameterEnum.PID_P, 1.0);
+		values.put(ParameterEnum.PID_D, 20.0);
+		try {
+			registry.setAll(values);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals(4, registry.get(ParameterEnum.PID_P), 0);
+		assertEquals(2, registry.get(ParameterEnum.PID_D), 0);
+	}
+
+	@Test
+	public void bulkUpdateNotTornTest() throws InterruptedException {
+		final AtomicBoolean torn = new AtomicBoolean(false);
+		final AtomicBoolean running = new AtomicBoolean(true);
+		// The writer always keeps PID_P + PID_D == 6
+		Thread reader = new Thread() {
+			@Override
+			public void run() {
+				while (running.get()) {
+					ParameterRegistry.Snapshot values = registry.snapshot();
+					if (values.get(ParameterEnum.PID_P) + values.get(ParameterEnum.PID_D) != 6) {
+						torn.set(true);
+					}
+				}
+			}
+		};
+		reader.start();
+		Map<ParameterEnum, Double> values = new EnumMap<>(ParameterEnum.class);
+		for (int i = 0; i < 10000; i++) {
+			double p = (i % 7) * 0.5;
+			values.put(ParameterEnum.PID_P, p);
+			values.put(ParameterEnum.PID_D, 6 - p);
+			registry.setAll(values);
+		}
+		running.set(false);
+		reader.join();
+		assertFalse(torn.get());
+	}
+
+	@Test
+	public void algorithmParametersIndependentTest() {
+		for (AlgorithmEnum algorithmEnum : AlgorithmEnum.values()) {
+			Algorithm algorithm = Algorithm.createAlgorithm(algorithmEnum, mock(DriveInterface.class),
+					mock(SensorInterface.class), mock(NetworkInterface.class), mock(BeaconInterface.class));
+			ParameterRegistry parameters = algorithm.getParameterRegistry();
+			for (ParameterEnum changed : algorithm.getParameterList()) {
+				Map<ParameterEnum, Double> before = new EnumMap<>(ParameterEnum.class);
+				for (ParameterEnum p : algorithm.getParameterList()) {
+					before.put(p, algorithm.getParameter(p));
+				}
+				double value = parameters.getMaximum(changed);
+				if (value == before.get(changed)) {
+					value = parameters.getMinimum(changed);
+				}
+				algorithm.setParameter(changed, value);
+				for (ParameterEnum p : algorithm.getParameterList()) {
+					double expected = p == changed ? value : before.get(p);
+					assertEquals(algorithmEnum + " " + changed + " changed " + p,
+							expected, algorithm.getParameter(p), 0);
+				}
+				parameters.reset();
+			}
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package uk.ac.cam.cl.group_project.delta.algorithm;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+public class RouteTimelineTest {
+
+	private static final long SECOND = 1000000000L;
+
+	@Test
+	public void loadSkipsCommentsTest() throws IOException {
+		RouteTimeline timeline = RouteTimeline.load(new StringReader(
+				"# seconds, acceleration, turn rate\n"
+				+ "0, 1.0, 0\n"
+				+ "\n"
+				+ "2.5\t-1.0   0.25\n"), RouteTimeline.Interpolation.LINEAR);
+
+		assertEquals(2, timeline.size());
+		assertEquals(0, timeline.getTime(0));
+		assertEquals(2500000000L, timeline.getTime(1));
+		assertEquals(2500000000L, timeline.getDuration());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void loadRejectsOutOfOrderKeyframesTest() throws IOException {
+		RouteTimeline.load(new StringReader("2, 0, 0\n1, 0, 0\n"), RouteTimeline.Interpolation.LINEAR);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void loadRejectsMissingValuesTest() throws IOException {
+		RouteTimeline.load(new StringReader("2, 0\n"), RouteTimeline.Interpolation.LINEAR);
+	}
+
+	@Test
+	public void linearInterpolationTest() {
+		RouteTimeline timeline = new RouteTimeline(
+				new long[] {SECOND, 3 * SECOND},
+				new double[] {1.0, 3.0},
+				new double[] {0.0, -1.0},
+				RouteTimeline.Interpolation.LINEAR);
+
+		assertEquals(-1, timeline.advance(-1, 0));
+		int cursor = timeline.advance(-1, 2 * SECOND);
+		assertEquals(0, cursor);
+		assertEquals(2.0, timeline.getAcceleration(cursor, 2 * SECOND), 1e-9);
+		assertEquals(-0.5, timeline.getTurnRate(cursor, 2 * SECOND), 1e-9);
+
+		cursor = timeline.advance(cursor, 10 * SECOND);
+		assertEquals(1, cursor);
+		assertEquals(3.0, timeline.getAcceleration(cursor, 10 * SECOND), 1e-9);
+	}
+
+	@Test
+	public void stepInterpolationHoldsValuesTest() {
+		RouteTimeline timeline = new RouteTimeline(
+				new long[] {0, SECOND, SECOND, 2 * SECOND},
+				new double[] {1.0, 2.0, 3.0, 4.0},
+				new double[] {0, 0, 0, 0},
+				RouteTimeline.Interpolation.STEP);
+
+		int cursor = timeline.advance(-1, SECOND / 2);
+		assertEquals(1.0, timeline.getAcceleration(cursor, SECOND / 2), 0);
+		// Of two keyframes at the same time, the later one is used
+		cursor = timeline.advance(cursor, SECOND);
+		assertEquals(2, cursor);
+		assertEquals(3.0, timeline.getAcceleration(cursor, SECOND), 0);
+	}
+}
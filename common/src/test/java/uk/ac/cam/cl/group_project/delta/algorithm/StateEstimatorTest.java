@@ -0,0 +1,120 @@
+package uk.ac.cam.cl.group_project.delta.algorithm;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.ac.cam.cl.group_project.delta.Beacon;
+
+public class StateEstimatorTest {
+
+	private static final long STEP = Algorithm.ALGORITHM_LOOP_DURATION;
+
+	private StateEstimator estimator;
+	private AlgorithmData data;
+
+	@Before
+	public void setup() {
+		estimator = new StateEstimator();
+		data = new AlgorithmData();
+		data.beacons = new ArrayList<>();
+	}
+
+	private void step(Double proximity) {
+		data.sampleTime += STEP;
+		data.sensorFrontProximity = proximity;
+		estimator.update(data);
+	}
+
+	@Test
+	public void noEstimateWithoutGapReadingTest() {
+		data.receiveMessageData = new VehicleData(0.5, 0, 0, 0, 0, 0);
+		step(null);
+		assertFalse(data.hasEstimate);
+		step(Double.POSITIVE_INFINITY);
+		assertFalse(data.hasEstimate);
+	}
+
+	@Test
+	public void noisyProximityFilteredTest() {
+		Random random = new Random(1);
+		double gap = 1.0;
+		double relativeSpeed = -0.2;
+		double sumSquaredError = 0;
+		int samples = 0;
+		for (int i = 0; i < 60; i++) {
+			step(gap + random.nextGaussian() * StateEstimator.PROXIMITY_STD_DEV);
+			if (i >= 20) {
+				sumSquaredError += (data.estimatedGap - gap) * (data.estimatedGap - gap);
+				samples++;
+			}
+			gap += relativeSpeed * STEP / 1E9;
+		}
+		assertTrue(data.hasEstimate);
+		// The relative speed is found from the change in the gap alone
+		assertEquals(relativeSpeed, data.estimatedRelativeSpeed, 0.05);
+		assertTrue(Math.sqrt(sumSquaredError / samples) < StateEstimator.PROXIMITY_STD_DEV);
+	}
+
+	@Test
+	public void messagesPredictGapWhenSensorLostTest() {
+		VehicleData message = new VehicleData(0.3, 0.1, 0, 0, 0, 0);
+		data.receiveMessageData = message;
+		data.speed = 0.3;
+		double gap = 0.5;
+		double predecessorSpeed = 0.3;
+		for (int i = 0; i < 40; i++) {
+			// The predecessor accelerates, the follower keeps its speed, and messages arrive a loop late
+			message.set(predecessorSpeed, 0.1, 0, 0, 0, 0);
+			message.setStartTime(data.sampleTime);
+			predecessorSpeed += 0.1 * STEP / 1E9;
+			gap += (predecessorSpeed - data.speed) * STEP / 1E9;
+			step(i < 10 ? gap : null);
+		}
+		assertTrue(data.hasEstimate);
+		assertEquals(gap, data.estimatedGap, 0.02);
+		assertEquals(predecessorSpeed - data.speed, data.estimatedRelativeSpeed, 0.01);
+		assertEquals(0.1, data.estimatedPredecessorAcceleration, 0.01);
+	}
+
+	@Test
+	public void beaconRangeUsedTest() {
+		data.beacons.add(new Beacon(1, 0.4, 0.6, 0));
+		data.beacons.add(new Beacon(2, 1.5, 1.7, 0));
+		step(null);
+		assertTrue(data.hasEstimate);
+		assertEquals(0.5, data.estimatedGap, 1e-9);
+		// A proximity reading is more certain than the beacon range
+		step(0.45);
+		assertEquals(0.45, data.estimatedGap, 0.02);
+	}
+
+	@Test
+	public void outlierRejectedTest() {
+		for (int i = 0; i < 20; i++) {
+			step(0.5);
+		}
+		step(0.05);
+		assertEquals(0.5, data.estimatedGap, 0.01);
+		// A new vehicle in front is accepted after repeated rejections
+		for (int i = 0; i <= StateEstimator.MAXIMUM_REJECTIONS; i++) {
+			step(1.5);
+		}
+		assertEquals(1.5, data.estimatedGap, 0.01);
+	}
+
+	@Test
+	public void estimateDroppedWithoutReadingsTest() {
+		step(0.5);
+		assertTrue(data.hasEstimate);
+		for (int i = 0; i < 200 && data.hasEstimate; i++) {
+			step(null);
+		}
+		assertFalse(data.hasEstimate);
+		assertFalse(estimator.isInitialised());
+	}
+}
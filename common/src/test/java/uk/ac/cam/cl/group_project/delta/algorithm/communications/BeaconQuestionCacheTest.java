@@ -0,0 +1,95 @@
+package uk.ac.cam.cl.group_project.delta.algorithm.communications;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.ac.cam.cl.group_project.delta.SimulatedClock;
+import uk.ac.cam.cl.group_project.delta.Time;
+
+public class BeaconQuestionCacheTest {
+
+	@Before
+	public void useDefinedTime() {
+		Time.useDefinedTime();
+		Time.setTime(0);
+	}
+
+	@After
+	public void useSystemTime() {
+		Time.useSystemTime();
+	}
+
+	@Test
+	public void repeatedQuestionSuppressedTest() {
+		BeaconQuestionCache cache = new BeaconQuestionCache();
+
+		assertTrue(cache.shouldAsk(10, 20));
+		assertFalse(cache.shouldAsk(10, 20));
+		assertFalse(cache.shouldAsk(10, 20));
+		// A different platoon or beacon is a different question
+		assertTrue(cache.shouldAsk(11, 20));
+		assertTrue(cache.shouldAsk(10, 21));
+
+		assertEquals(3, cache.getSentCount());
+		assertEquals(2, cache.getSuppressedCount());
+	}
+
+	@Test
+	public void injectedClockUsedTest() {
+		SimulatedClock clock = new SimulatedClock();
+		BeaconQuestionCache cache = new BeaconQuestionCache(clock);
+
+		assertTrue(cache.shouldAsk(10, 20));
+		// Changes to the global time don't affect a cache with its own clock
+		Time.increaseTime(BeaconQuestionCache.INITIAL_BACKOFF);
+		assertFalse(cache.shouldAsk(10, 20));
+		clock.increaseTime(BeaconQuestionCache.INITIAL_BACKOFF);
+		assertTrue(cache.shouldAsk(10, 20));
+	}
+
+	@Test
+	public void unansweredQuestionBacksOffTest() {
+		BeaconQuestionCache cache = new BeaconQuestionCache();
+
+		assertTrue(cache.shouldAsk(10, 20));
+		Time.increaseTime(BeaconQuestionCache.INITIAL_BACKOFF);
+		assertTrue(cache.shouldAsk(10, 20));
+
+		// No answer was received, so the wait should have doubled
+		Time.increaseTime(BeaconQuestionCache.INITIAL_BACKOFF);
+		assertFalse(cache.shouldAsk(10, 20));
+		Time.increaseTime(BeaconQuestionCache.INITIAL_BACKOFF);
+		assertTrue(cache.shouldAsk(10, 20));
+	}
+
+	@Test
+	public void backoffIsBoundedTest() {
+		BeaconQuestionCache cache = new BeaconQuestionCache();
+
+		for (int i = 0; i < 20; i++) {
+			assertTrue(cache.shouldAsk(10, 20));
+			Time.increaseTime(BeaconQuestionCache.MAXIMUM_BACKOFF);
+		}
+	}
+
+	@Test
+	public void answerSuppressesUntilExpiryTest() {
+		BeaconQuestionCache cache = new BeaconQuestionCache();
+
+		assertTrue(cache.shouldAsk(10, 20));
+		Time.increaseTime(BeaconQuestionCache.INITIAL_BACKOFF);
+		cache.recordAnswer(10, 20);
+
+		Time.increaseTime(BeaconQuestionCache.ANSWER_TTL - 1);
+		assertFalse(cache.shouldAsk(10, 20));
+		Time.increaseTime(1);
+		assertTrue(cache.shouldAsk(10, 20));
+
+		// The answer resets the backoff
+		Time.increaseTime(BeaconQuestionCache.INITIAL_BACKOFF);
+		assertTrue(cache.shouldAsk(10, 20));
+	}
+}
@@ -3,6 +3,8 @@ package uk.ac.cam.cl.group_project.delta.algorithm.communications;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import java.util.List;
+
 import org.junit.Test;
 
 import uk.ac.cam.cl.group_project.delta.algorithm.VehicleData;
@@ -45,4 +47,30 @@ public class CommunicationsTest {
 
 		assertEquals(comms.getPredecessorMessages().get(0), data);
 	}
+
+	@Test
+	public void predecessorListReusedTest() {
+		ControlLayer controlLayer = mock(ControlLayer.class);
+		when(controlLayer.getCurrentPosition()).thenReturn(2);
+
+		PlatoonLookup lookup = new PlatoonLookup();
+
+		when(controlLayer.getPlatoonLookup()).thenReturn(lookup);
+
+		VehicleData data = new VehicleData(1.0, 1.0, 1.0, 1.0, 1.0, 1.0);
+		lookup.put(2, data);
+
+		Communications comms = new Communications(controlLayer);
+
+		List<VehicleData> first = comms.getPredecessorMessages();
+		assertEquals(2, first.size());
+		assertNull(first.get(0));
+
+		when(controlLayer.getCurrentPosition()).thenReturn(1);
+		lookup.put(1, data);
+		List<VehicleData> second = comms.getPredecessorMessages();
+		assertSame(first, second);
+		assertEquals(1, second.size());
+		assertEquals(data, second.get(0));
+	}
 }
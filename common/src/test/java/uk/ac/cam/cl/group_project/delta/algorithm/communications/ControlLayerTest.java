@@ -6,6 +6,7 @@ import static org.mockito.Mockito.*;
 import uk.ac.cam.cl.group_project.delta.BeaconInterface;
 import uk.ac.cam.cl.group_project.delta.MessageReceipt;
 import uk.ac.cam.cl.group_project.delta.NetworkInterface;
+import uk.ac.cam.cl.group_project.delta.Time;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -16,6 +17,7 @@ import org.mockito.ArgumentCaptor;
 
 import uk.ac.cam.cl.group_project.delta.algorithm.VehicleData;
 import uk.ac.cam.cl.group_project.delta.algorithm.communications.ControlLayer;
+import uk.ac.cam.cl.group_project.delta.metrics.MetricsRegistry;
 
 public class ControlLayerTest {
 
@@ -74,6 +76,114 @@ public class ControlLayerTest {
 
 	}
 
+	@Test
+	public void updateMessagesDropsReorderedDataTest() {
+		List<Integer> initialPlatoon = Arrays.asList(100, 200);
+		NetworkInterface network = mock(NetworkInterface.class);
+
+		VehicleData newer = new VehicleData(2.0, 0.0, 0.0, 2.0, 0.0, 0.0);
+		VehicleData older = new VehicleData(1.0, 0.0, 0.0, 1.0, 0.0, 0.0);
+
+		when(network.pollData())
+		.thenReturn(
+				Arrays.asList(
+						new MessageReceipt(
+								Packet.createPacket(newer, 100, 123, 2, 0))))
+		.thenReturn(
+				Arrays.asList(
+						new MessageReceipt(
+								Packet.createPacket(older, 100, 123, 1, 0))));
+		BeaconInterface beaconInterface = mock(BeaconInterface.class);
+		when(beaconInterface.getCurrentBeaconId()).thenReturn(0);
+		when(beaconInterface.getBeacons()).thenReturn(null);
+
+		ControlLayer control = new ControlLayer(network, 200, 123, initialPlatoon, beaconInterface);
+
+		control.updateMessages();
+		control.updateMessages();
+
+		assertEquals(newer.getSpeed(), control.getPlatoonLookup().get(1).getSpeed(), 0.0);
+		assertEquals(1, control.getSenderTracker().getDroppedCount());
+	}
+
+	@Test
+	public void updateMessagesDropsMalformedPacketsTest() {
+		List<Integer> initialPlatoon = Arrays.asList(100, 200);
+		NetworkInterface network = mock(NetworkInterface.class);
+
+		VehicleData data = new VehicleData(1.0, 2.0, 3.0, 4.0, 5.0, 6.0);
+		// A batch whose only entry has a length of zero
+		int length = Packet.SIZE_OF_HEADER + Packet.SIZE_OF_BATCH_ENTRY_HEADER;
+		byte[] malformed = new byte[length];
+		malformed[0] = (byte) MessageType.Batch.getValue();
+		malformed[3] = (byte) length;
+
+		when(network.pollData())
+		.thenReturn(
+				Arrays.asList(
+						new MessageReceipt(malformed),
+						new MessageReceipt(
+								Packet.createPacket(data, 100, 123))));
+		BeaconInterface beaconInterface = mock(BeaconInterface.class);
+		when(beaconInterface.getCurrentBeaconId()).thenReturn(0);
+		when(beaconInterface.getBeacons()).thenReturn(null);
+
+		MetricsRegistry metrics = new MetricsRegistry();
+		ControlLayer control = new ControlLayer(network, 200, 123, initialPlatoon, beaconInterface);
+		control.setMetrics(metrics);
+
+		control.updateMessages();
+
+		assertEquals(data.getSpeed(), control.getPlatoonLookup().get(1).getSpeed(), 0.0);
+		assertEquals(1, metrics.counter("network.packetsMalformed").get());
+	}
+
+	@Test
+	public void leaderStateRelayedTest() {
+		Time.useDefinedTime();
+		Time.setTime(1000000000L);
+		try {
+			List<Integer> initialPlatoon = Arrays.asList(100, 200, 300);
+			BeaconInterface beaconInterface = mock(BeaconInterface.class);
+			when(beaconInterface.getBeacons()).thenReturn(null);
+
+			// The middle vehicle receives the leader's state directly
+			VehicleData leaderData = new VehicleData(1.5, 0.5, 0.0, 1.5, 0.5, 0.0);
+			NetworkInterface middleNetwork = mock(NetworkInterface.class);
+			when(middleNetwork.pollData()).thenReturn(Arrays.asList(
+					new MessageReceipt(Packet.createPacket(leaderData, 100, 123, 0, Time.getTime()))));
+			ControlLayer middle = new ControlLayer(middleNetwork, 200, 123, initialPlatoon, beaconInterface);
+			middle.updateMessages();
+
+			Time.increaseTime(10000000L);
+			VehicleData middleData = new VehicleData(1.0, 0.0, 0.0, 1.0, 0.0, 0.0);
+			middleData.setStartTime(Time.getTime());
+			middle.sendMessage(middleData);
+
+			// Both states are sent in one packet
+			ArgumentCaptor<byte[]> argument = ArgumentCaptor.forClass(byte[].class);
+			verify(middleNetwork).sendData(argument.capture());
+
+			// The tail vehicle only hears the middle vehicle
+			NetworkInterface tailNetwork = mock(NetworkInterface.class);
+			when(tailNetwork.pollData()).thenReturn(Arrays.asList(
+					new MessageReceipt(argument.getValue())));
+			ControlLayer tail = new ControlLayer(tailNetwork, 300, 123, initialPlatoon, beaconInterface);
+			tail.updateMessages();
+
+			VehicleData predecessor = tail.getPlatoonLookup().get(1);
+			VehicleData leader = tail.getPlatoonLookup().get(2);
+			assertEquals(1.0, predecessor.getSpeed(), 0.01);
+			assertNotNull(leader);
+			assertEquals(1.5, leader.getSpeed(), 0.01);
+			assertEquals(1, ((RelayedVehicleData) leader).getHopCount());
+			// The leader's state is as old as when it was sampled
+			assertEquals(10000000L, Time.getTime() - leader.getStartTime());
+		} finally {
+			Time.useSystemTime();
+		}
+	}
+
 	/**
 	 * The test no longer makes as much sense.
 	 * Originally the RTM message was the first message sent
@@ -0,0 +1,190 @@
+package uk.ac.cam.cl.group_project.delta.algorithm.communications;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import uk.ac.cam.cl.group_project.delta.MessageReceipt;
+import uk.ac.cam.cl.group_project.delta.NetworkInterface;
+import uk.ac.cam.cl.group_project.delta.algorithm.VehicleData;
+
+public class PacketBatcherTest {
+
+	@Test
+	public void singleMessageSentNormallyTest() {
+		NetworkInterface network = mock(NetworkInterface.class);
+		PacketBatcher batcher = new PacketBatcher(network);
+
+		batcher.add(new ConfirmMergeMessage(42), 500, 1000);
+		batcher.flush(100, 123);
+
+		ArgumentCaptor<byte[]> argument = ArgumentCaptor.forClass(byte[].class);
+		verify(network).sendData(argument.capture());
+		assertFalse(Packet.isBatchMessage(argument.getValue()));
+
+		Packet p = new Packet(new MessageReceipt(argument.getValue()));
+		assertEquals(MessageType.ConfirmMerge, p.message.getType());
+		assertEquals(500, p.platoonId);
+		assertEquals(100, p.vehicleId);
+		assertEquals(1000, p.timestamp);
+		assertTrue(batcher.isEmpty());
+	}
+
+	@Test
+	public void messagesBatchedTest() {
+		NetworkInterface network = mock(NetworkInterface.class);
+		PacketBatcher batcher = new PacketBatcher(network);
+
+		batcher.add(new MergeCompleteMessage(42), 500, 1000);
+		batcher.add(new MergeCompleteMessage(42), 600, 1000);
+		batcher.add(new VehicleData(1.0, 2.0, 3.0, 4.0, 5.0, 6.0), 123, 900);
+		batcher.flush(100, 123);
+
+		ArgumentCaptor<byte[]> argument = ArgumentCaptor.forClass(byte[].class);
+		verify(network, times(1)).sendData(argument.capture());
+		assertTrue(Packet.isBatchMessage(argument.getValue()));
+
+		List<Packet> packets = Packet.parse(new MessageReceipt(argument.getValue()));
+		assertEquals(3, packets.size());
+
+		assertEquals(MessageType.MergeComplete, packets.get(0).message.getType());
+		assertEquals(500, packets.get(0).platoonId);
+		assertEquals(42, ((MergeCompleteMessage) packets.get(0).message).getTransactionId());
+		assertEquals(600, packets.get(1).platoonId);
+
+		Packet data = packets.get(2);
+		assertEquals(MessageType.Data, data.message.getType());
+		assertEquals(123, data.platoonId);
+		assertEquals(100, data.vehicleId);
+		assertEquals(900, data.timestamp);
+		assertEquals(6.0, ((VehicleData) data.message).getChosenTurnRate(), 0);
+
+		// All of the messages share the sequence number of the batch
+		assertEquals(packets.get(0).sequenceNumber, data.sequenceNumber);
+		assertEquals(1, batcher.getPacketCount());
+		assertEquals(3, batcher.getMessageCount());
+	}
+
+	@Test
+	public void distantTimestampsNotBatchedTest() {
+		NetworkInterface network = mock(NetworkInterface.class);
+		PacketBatcher batcher = new PacketBatcher(network);
+
+		// The offset of the last message from the first doesn't fit in an int
+		batcher.add(new MergeCompleteMessage(1), 500, 1000);
+		batcher.add(new MergeCompleteMessage(2), 500, 2000000000L);
+		batcher.add(new MergeCompleteMessage(3), 500, 3000000000L);
+		batcher.flush(100, 123);
+
+		ArgumentCaptor<byte[]> argument = ArgumentCaptor.forClass(byte[].class);
+		verify(network, times(2)).sendData(argument.capture());
+		List<Packet> packets = Packet.parse(new MessageReceipt(argument.getAllValues().get(0)));
+		assertEquals(2, packets.size());
+		assertEquals(2000000000L, packets.get(1).timestamp);
+		packets = Packet.parse(new MessageReceipt(argument.getAllValues().get(1)));
+		assertEquals(1, packets.size());
+		assertEquals(3000000000L, packets.get(0).timestamp);
+	}
+
+	@Test
+	public void batchFilteredByTypeTest() {
+		NetworkInterface network = mock(NetworkInterface.class);
+		PacketBatcher batcher = new PacketBatcher(network);
+
+		batcher.add(new MergeCompleteMessage(42), 500, 1000);
+		batcher.add(new VehicleData(1.0, 2.0, 3.0, 4.0, 5.0, 6.0), 123, 900);
+		batcher.flush(100, 123);
+
+		ArgumentCaptor<byte[]> argument = ArgumentCaptor.forClass(byte[].class);
+		verify(network).sendData(argument.capture());
+		MessageReceipt receipt = new MessageReceipt(argument.getValue());
+		assertEquals(MessageType.Batch, Packet.getType(argument.getValue()));
+
+		List<Packet> packets = Packet.parse(receipt, EnumSet.of(MessageType.MergeComplete));
+		assertEquals(1, packets.size());
+		assertEquals(MessageType.MergeComplete, packets.get(0).message.getType());
+		assertTrue(Packet.parse(receipt, EnumSet.noneOf(MessageType.class)).isEmpty());
+
+		// A packet of a single message is filtered by its own type
+		byte[] single = Packet.createPacket(new ConfirmMergeMessage(1), 100, 500);
+		assertEquals(MessageType.ConfirmMerge, Packet.getType(single));
+		assertTrue(Packet.parse(new MessageReceipt(single), EnumSet.of(MessageType.Data)).isEmpty());
+		assertEquals(1, Packet.parse(new MessageReceipt(single), EnumSet.of(MessageType.ConfirmMerge)).size());
+	}
+
+	@Test
+	public void batchSplitAtMaximumSizeTest() {
+		NetworkInterface network = mock(NetworkInterface.class);
+		PacketBatcher batcher = new PacketBatcher(network);
+
+		// Each entry is 12 + 48 bytes, so only 2 fit after the header
+		for (int i = 0; i < 5; i++) {
+			batcher.add(new VehicleData(i, 0, 0, 0, 0, 0), 123, 0);
+		}
+		batcher.flush(100, 123);
+
+		ArgumentCaptor<byte[]> argument = ArgumentCaptor.forClass(byte[].class);
+		verify(network, times(3)).sendData(argument.capture());
+
+		int count = 0;
+		int previousSequenceNumber = -1;
+		for (byte[] data : argument.getAllValues()) {
+			assertTrue(data.length <= NetworkInterface.MAXIMUM_PACKET_SIZE);
+			for (Packet p : Packet.parse(new MessageReceipt(data))) {
+				assertEquals(count, ((VehicleData) p.message).getSpeed(), 0);
+				assertTrue(p.sequenceNumber > previousSequenceNumber);
+				count++;
+			}
+			previousSequenceNumber = new Packet(new MessageReceipt(data)).sequenceNumber;
+		}
+		assertEquals(5, count);
+	}
+
+	@Test
+	public void batchesNotDeduplicatedTest() {
+		NetworkInterface network = mock(NetworkInterface.class);
+		PacketBatcher batcher = new PacketBatcher(network);
+
+		batcher.add(new ConfirmMergeMessage(1), 500, 0);
+		batcher.add(new ConfirmMergeMessage(1), 500, 0);
+		batcher.flush(100, 123);
+		batcher.add(new ConfirmMergeMessage(2), 500, 0);
+		batcher.add(new ConfirmMergeMessage(2), 500, 0);
+		batcher.flush(100, 123);
+
+		ArgumentCaptor<byte[]> argument = ArgumentCaptor.forClass(byte[].class);
+		verify(network, times(2)).sendData(argument.capture());
+		MessageReceipt first = new MessageReceipt(argument.getAllValues().get(0));
+		MessageReceipt second = new MessageReceipt(argument.getAllValues().get(1));
+		assertNotEquals(first, second);
+	}
+
+	@Test
+	public void reusedMessageSentWithNewValuesTest() {
+		NetworkInterface network = mock(NetworkInterface.class);
+		PacketBatcher batcher = new PacketBatcher(network);
+
+		// A vehicle refills the same message each loop, which is safe as it is encoded by flush
+		VehicleData message = new VehicleData(1.0, 0, 0, 0, 0, 0);
+		batcher.add(message, 123, 0);
+		batcher.add(new MergeCompleteMessage(42), 123, 0);
+		batcher.flush(100, 123);
+		message.set(2.0, 0, 0, 0, 0, 0);
+		batcher.add(message, 123, 0);
+		batcher.flush(100, 123);
+
+		ArgumentCaptor<byte[]> argument = ArgumentCaptor.forClass(byte[].class);
+		verify(network, times(2)).sendData(argument.capture());
+		List<Packet> first = Packet.parse(new MessageReceipt(argument.getAllValues().get(0)));
+		assertEquals(2, first.size());
+		assertEquals(1.0, ((VehicleData) first.get(0).message).getSpeed(), 0);
+		Packet second = new Packet(new MessageReceipt(argument.getAllValues().get(1)));
+		assertEquals(2.0, ((VehicleData) second.message).getSpeed(), 0);
+		assertTrue(batcher.isEmpty());
+	}
+}
@@ -3,6 +3,9 @@ package uk.ac.cam.cl.group_project.delta.algorithm.communications;
 import static org.junit.Assert.*;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Test;
 
 import uk.ac.cam.cl.group_project.delta.MessageReceipt;
@@ -28,9 +31,21 @@ public class PacketTest {
 		assertEquals(MessageType.valueOf(initial >>> 24), MessageType.Emergency);
 		assertEquals(buffer.getInt(), platoon);
 		assertEquals(buffer.getInt(), vehicle);
+		buffer.getInt();
+		buffer.getLong();
 		assertEquals(buffer.position(), initial & 0x00FFFFFF);
 	}
 
+	@Test
+	public void sequenceNumberAndTimestampTest() {
+		byte[] bytes = Packet.createPacket(new EmergencyMessage(), 100, 500, 42, 123456789L);
+
+		Packet p = new Packet(new MessageReceipt(bytes));
+
+		assertEquals(p.sequenceNumber, 42);
+		assertEquals(p.timestamp, 123456789L);
+	}
+
 	@Test
 	public void parsePacketTest() {
 		int vehicle = 100, platoon = 500;
@@ -44,4 +59,105 @@ public class PacketTest {
 		assertNotNull(p.message);
 		assertEquals(p.message.getType(), MessageType.Emergency);
 	}
+
+	@Test(expected = MalformedPacketException.class)
+	public void packetShorterThanHeaderTest() {
+		// An emergency stop with the 12 byte header used before timestamps were added
+		byte[] bytes = new byte[12];
+		bytes[3] = 12;
+		Packet.parse(new MessageReceipt(bytes));
+	}
+
+	@Test(expected = MalformedPacketException.class)
+	public void lengthShorterThanHeaderTest() {
+		byte[] bytes = Packet.createPacket(new EmergencyMessage(), 100, 500);
+		bytes[3] = 12;
+		Packet.parse(new MessageReceipt(bytes));
+	}
+
+	@Test(expected = MalformedPacketException.class)
+	public void truncatedPacketTest() {
+		byte[] bytes = Packet.createPacket(new ConfirmMergeMessage(42), 100, 500);
+		Packet.parse(new MessageReceipt(Arrays.copyOf(bytes, bytes.length - 2)));
+	}
+
+	@Test
+	public void emergencyStopCommandTest() {
+		// The packet sent by the emergency stop command in the README
+		byte[] bytes = new byte[Packet.SIZE_OF_HEADER];
+		bytes[3] = (byte) Packet.SIZE_OF_HEADER;
+
+		assertTrue(Packet.isEmergencyMessage(bytes));
+		assertEquals(MessageType.Emergency, Packet.parse(new MessageReceipt(bytes)).get(0).message.getType());
+	}
+
+	@Test
+	public void emptyPacketIsNotEmergencyTest() {
+		assertFalse(Packet.isEmergencyMessage(new byte[0]));
+	}
+
+	/**
+	 * Build a batch packet with a single ConfirmMerge entry
+	 *
+	 * @param entryLength - the length written in the header of the entry
+	 * @param batchLength - the length written in the header of the batch
+	 * @param size - the number of bytes in the packet
+	 */
+	private static MessageReceipt batch(int entryLength, int batchLength, int size) {
+		ByteBuffer bytes = ByteBuffer.allocate(size);
+		bytes.putInt((MessageType.Batch.getValue() << 24) | batchLength);
+		bytes.putInt(500);
+		bytes.putInt(100);
+		bytes.putInt(1);
+		bytes.putLong(0);
+		bytes.putInt((MessageType.ConfirmMerge.getValue() << 24) | entryLength);
+		bytes.putInt(500);
+		bytes.putInt(0);
+		if (bytes.remaining() >= 4) {
+			bytes.putInt(42);
+		}
+		return new MessageReceipt(bytes.array());
+	}
+
+	@Test
+	public void parseBatchTest() {
+		int length = Packet.SIZE_OF_HEADER + Packet.SIZE_OF_BATCH_ENTRY_HEADER + 4;
+		List<Packet> packets = Packet.parse(batch(Packet.SIZE_OF_BATCH_ENTRY_HEADER + 4, length, length));
+
+		assertEquals(1, packets.size());
+		assertEquals(42, ((ConfirmMergeMessage) packets.get(0).message).getTransactionId());
+	}
+
+	@Test(expected = MalformedPacketException.class, timeout = 1000)
+	public void zeroLengthBatchEntryTest() {
+		int length = Packet.SIZE_OF_HEADER + Packet.SIZE_OF_BATCH_ENTRY_HEADER + 4;
+		Packet.parse(batch(0, length, length));
+	}
+
+	@Test(expected = MalformedPacketException.class, timeout = 1000)
+	public void shortBatchEntryTest() {
+		int length = Packet.SIZE_OF_HEADER + Packet.SIZE_OF_BATCH_ENTRY_HEADER + 4;
+		Packet.parse(batch(4, length, length));
+	}
+
+	@Test(expected = MalformedPacketException.class)
+	public void truncatedBatchEntryTest() {
+		// The entry is longer than the batch
+		int length = Packet.SIZE_OF_HEADER + Packet.SIZE_OF_BATCH_ENTRY_HEADER + 4;
+		Packet.parse(batch(Packet.SIZE_OF_BATCH_ENTRY_HEADER + 8, length, length));
+	}
+
+	@Test(expected = MalformedPacketException.class)
+	public void truncatedBatchTest() {
+		// The datagram is shorter than the length in its header
+		int length = Packet.SIZE_OF_HEADER + Packet.SIZE_OF_BATCH_ENTRY_HEADER + 4;
+		Packet.parse(batch(Packet.SIZE_OF_BATCH_ENTRY_HEADER + 4, length, length - 4));
+	}
+
+	@Test(expected = MalformedPacketException.class)
+	public void batchEntryTooShortForItsMessageTest() {
+		// The ConfirmMerge message needs 4 bytes after the entry header
+		int length = Packet.SIZE_OF_HEADER + Packet.SIZE_OF_BATCH_ENTRY_HEADER + 4;
+		Packet.parse(batch(Packet.SIZE_OF_BATCH_ENTRY_HEADER, length, length));
+	}
 }
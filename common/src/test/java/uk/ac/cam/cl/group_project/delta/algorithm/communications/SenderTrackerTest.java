@@ -0,0 +1,116 @@
+package uk.ac.cam.cl.group_project.delta.algorithm.communications;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.ac.cam.cl.group_project.delta.MessageReceipt;
+import uk.ac.cam.cl.group_project.delta.Time;
+import uk.ac.cam.cl.group_project.delta.algorithm.VehicleData;
+
+public class SenderTrackerTest {
+
+	@Before
+	public void useDefinedTime() {
+		Time.useDefinedTime();
+		Time.setTime(0);
+	}
+
+	@After
+	public void useSystemTime() {
+		Time.useSystemTime();
+	}
+
+	/**
+	 * Create a packet from the given vehicle received at the current time
+	 */
+	private static Packet receive(int vehicleId, int sequenceNumber, long timestamp) {
+		VehicleData data = new VehicleData(1.0, 0, 0, 1.0, 0, 0);
+		return new Packet(new MessageReceipt(
+				Packet.createPacket(data, vehicleId, 123, sequenceNumber, timestamp)));
+	}
+
+	@Test
+	public void reorderedPacketDroppedTest() {
+		SenderTracker tracker = new SenderTracker();
+
+		assertTrue(tracker.accept(receive(100, 5, 0)));
+		assertTrue(tracker.accept(receive(100, 7, 0)));
+		assertFalse(tracker.accept(receive(100, 6, 0)));
+		assertFalse(tracker.accept(receive(100, 7, 0)));
+		// Other senders are tracked separately
+		assertTrue(tracker.accept(receive(200, 1, 0)));
+		assertEquals(2, tracker.getDroppedCount());
+	}
+
+	@Test
+	public void sequenceNumberWrapsTest() {
+		SenderTracker tracker = new SenderTracker();
+
+		assertTrue(tracker.accept(receive(100, Integer.MAX_VALUE, 0)));
+		assertTrue(tracker.accept(receive(100, Integer.MIN_VALUE, 0)));
+		assertFalse(tracker.accept(receive(100, Integer.MAX_VALUE, 0)));
+	}
+
+	@Test
+	public void restartedSenderAcceptedTest() {
+		SenderTracker tracker = new SenderTracker();
+
+		assertTrue(tracker.accept(receive(100, 5000, 0)));
+		assertTrue(tracker.accept(receive(100, 0, 0)));
+	}
+
+	@Test
+	public void restartedSenderClockResetTest() {
+		SenderTracker tracker = new SenderTracker();
+
+		Time.setTime(60000000000L);
+		assertTrue(tracker.accept(receive(100, 5000, 60000000000L)));
+		// The sender restarts with its clock starting again from 0
+		Time.setTime(70000000000L);
+		Packet p = receive(100, 0, 0);
+		assertTrue(tracker.accept(p));
+		assertEquals(70000000000L, tracker.toLocalTime(p));
+	}
+
+	@Test
+	public void quicklyRestartedSenderAcceptedTest() {
+		SenderTracker tracker = new SenderTracker();
+
+		// The sender restarts before its sequence number leaves the window
+		Time.setTime(60000000000L);
+		assertTrue(tracker.accept(receive(100, 50, 60000000000L)));
+		Time.setTime(70000000000L);
+		Packet p = receive(100, 0, 0);
+		assertTrue(tracker.accept(p));
+		assertEquals(70000000000L, tracker.toLocalTime(p));
+
+		// Its next packet is not dropped, and the new offset is kept
+		Time.setTime(70050000000L);
+		p = receive(100, 1, 50000000L);
+		assertTrue(tracker.accept(p));
+		assertEquals(70050000000L, tracker.toLocalTime(p));
+		assertEquals(0, tracker.getDroppedCount());
+	}
+
+	@Test
+	public void delayedPacketAgeTest() {
+		SenderTracker tracker = new SenderTracker();
+		// The sender's clock is 1 second ahead of the local clock
+		long senderOffset = 1000000000L;
+
+		Time.setTime(5000000L);
+		Packet p = receive(100, 0, 5000000L + senderOffset);
+		assertTrue(tracker.accept(p));
+		assertEquals(5000000L, tracker.toLocalTime(p));
+
+		// A packet delayed by 30ms should appear 30ms old, not new
+		long sampleTime = 50000000L;
+		Time.setTime(sampleTime + 30000000L);
+		p = receive(100, 1, sampleTime + senderOffset);
+		assertTrue(tracker.accept(p));
+		assertEquals(sampleTime, tracker.toLocalTime(p), SenderTracker.OFFSET_RELAXATION);
+	}
+}
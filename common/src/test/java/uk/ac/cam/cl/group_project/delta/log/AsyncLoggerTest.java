@@ -0,0 +1,115 @@
+package uk.ac.cam.cl.group_project.delta.log;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import uk.ac.cam.cl.group_project.delta.Log;
+
+public class AsyncLoggerTest {
+
+	/**
+	 * Records the messages logged, optionally waiting on a latch before each one
+	 */
+	private static class RecordingLogger implements LoggerInterface {
+		final List<String> messages = new ArrayList<>();
+		final CountDownLatch latch;
+
+		RecordingLogger(CountDownLatch latch) {
+			this.latch = latch;
+		}
+
+		@Override
+		public synchronized void log(Log.Severity severity, String message) {
+			if (latch != null) {
+				try {
+					latch.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+			messages.add(message);
+		}
+
+		@Override
+		public synchronized void log(Log.Severity severity, Throwable err) {
+			messages.add(err.toString());
+		}
+	}
+
+	@Test
+	public void messagesFormattedInOrderTest() throws InterruptedException {
+		AsyncLogger logger = new AsyncLogger(16);
+		RecordingLogger recorder = new RecordingLogger(null);
+		logger.registerLogger(recorder);
+
+		logger.log(Log.Severity.DEBUG, "first");
+		logger.log(Log.Severity.WARN, "second %d", new Object[] {2});
+		assertTrue(logger.flush(1000));
+
+		synchronized (recorder) {
+			assertEquals(2, recorder.messages.size());
+			assertEquals("first", recorder.messages.get(0));
+			assertEquals("second 2", recorder.messages.get(1));
+		}
+	}
+
+	@Test
+	public void fullBufferDropsEntriesTest() throws InterruptedException {
+		AsyncLogger logger = new AsyncLogger(4);
+		CountDownLatch latch = new CountDownLatch(1);
+		RecordingLogger recorder = new RecordingLogger(latch);
+		logger.registerLogger(recorder);
+
+		// The first entry may be taken by the background thread, which then
+		// blocks, so at most 5 of these can be stored
+		for (int i = 0; i < 10; i++) {
+			logger.log(Log.Severity.DEBUG, "message");
+		}
+		assertTrue(logger.getDroppedCount() >= 5);
+		latch.countDown();
+		assertTrue(logger.flush(1000));
+
+		synchronized (recorder) {
+			// The stored entries and a warning about the dropped ones
+			assertEquals(10 - logger.getDroppedCount() + 1, recorder.messages.size());
+		}
+	}
+
+	@Test
+	public void entriesBelowMinimumSeverityIgnoredTest() {
+		final List<String> messages = new ArrayList<>();
+		LoggerInterface logger = new LoggerInterface() {
+			@Override
+			public void log(Log.Severity severity, String message) {
+				messages.add(message);
+			}
+
+			@Override
+			public void log(Log.Severity severity, Throwable err) {
+			}
+		};
+		Log.getInstance().registerLogger(logger);
+		Log.getInstance().setMinimumSeverity(Log.Severity.WARN);
+		try {
+			Object arg = new Object() {
+				@Override
+				public String toString() {
+					fail("Ignored message was formatted");
+					return "";
+				}
+			};
+			Log.debug("ignored %s", arg);
+			Log.warn("logged %s", "warning");
+			assertEquals(1, messages.size());
+			assertEquals("logged warning", messages.get(0));
+		} finally {
+			Log.getInstance().unregisterLogger(logger);
+			Log.getInstance().setMinimumSeverity(Log.Severity.DEBUG);
+		}
+	}
+}
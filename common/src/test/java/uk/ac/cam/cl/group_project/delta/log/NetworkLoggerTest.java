@@ -0,0 +1,64 @@
+package uk.ac.cam.cl.group_project.delta.log;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+
+import org.junit.Test;
+
+import uk.ac.cam.cl.group_project.delta.Log;
+
+public class NetworkLoggerTest {
+
+	@Test
+	public void entriesSentInOneDatagramTest() throws IOException {
+		InetAddress loopback = InetAddress.getByName("127.0.0.1");
+		try (DatagramSocket receiver = new DatagramSocket(0, loopback)) {
+			receiver.setSoTimeout(5000);
+			NetworkLogger logger = new NetworkLogger("vehicle", loopback, receiver.getLocalPort(), 16);
+			try {
+				logger.log(Log.Severity.WARN, "first");
+				logger.log(Log.Severity.ERROR, new IllegalStateException("second"));
+
+				byte[] data = new byte[NetworkLogger.MAXIMUM_DATAGRAM_SIZE];
+				DatagramPacket packet = new DatagramPacket(data, data.length);
+				receiver.receive(packet);
+
+				NetworkLogger.Datagram datagram = NetworkLogger.decode(packet.getData(), packet.getLength());
+				assertEquals("vehicle", datagram.source);
+				assertEquals(0, datagram.sequenceNumber);
+				assertEquals(0, datagram.droppedCount);
+				assertEquals(2, datagram.records.size());
+				assertEquals(Log.Severity.WARN, datagram.records.get(0).severity);
+				assertEquals("first", datagram.records.get(0).message);
+				assertEquals(Log.Severity.ERROR, datagram.records.get(1).severity);
+				assertTrue(datagram.records.get(1).message.startsWith("java.lang.IllegalStateException: second at "));
+			} finally {
+				logger.close();
+			}
+		}
+	}
+
+	@Test
+	public void fullQueueDropsEntriesTest() throws IOException {
+		InetAddress loopback = InetAddress.getByName("127.0.0.1");
+		NetworkLogger logger = new NetworkLogger("vehicle", loopback, NetworkLogger.DEFAULT_PORT, 1);
+		try {
+			for (int i = 0; i < 10; i++) {
+				logger.log(Log.Severity.DEBUG, "message");
+			}
+			// At most one entry is being sent and one is queued
+			assertTrue(logger.getDroppedCount() >= 8);
+		} finally {
+			logger.close();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void truncatedDatagramRejectedTest() {
+		NetworkLogger.decode(new byte[] {NetworkLogger.VERSION, 0, 0}, 3);
+	}
+}
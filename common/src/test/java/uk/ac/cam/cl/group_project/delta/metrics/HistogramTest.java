@@ -0,0 +1,62 @@
+package uk.ac.cam.cl.group_project.delta.metrics;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class HistogramTest {
+
+	@Test
+	public void bucketsContainTheirValuesTest() {
+		long[] values = {0, 1, 15, 16, 17, 31, 32, 1000, 123456789L, (1L << 40) - 1, 1L << 40, Long.MAX_VALUE};
+		for (long value : values) {
+			int index = Histogram.indexOf(value);
+			assertTrue(index < Histogram.BUCKET_COUNT);
+			assertTrue(Histogram.lowestValueIn(index) <= value);
+			assertTrue(Histogram.highestValueIn(index) >= value);
+		}
+	}
+
+	@Test
+	public void percentilesWithinPrecisionTest() {
+		Histogram histogram = new Histogram();
+		for (long i = 1; i <= 1000; i++) {
+			histogram.record(i * 1000);
+		}
+		HistogramSnapshot snapshot = histogram.snapshot();
+
+		assertEquals(1000, snapshot.getCount());
+		assertEquals(1000, snapshot.getMin());
+		assertEquals(1000000, snapshot.getMax());
+		assertEquals(500500, snapshot.getMean(), 1e-6);
+		assertEquals(500000, snapshot.getValueAtPercentile(50), 500000 / 16.0);
+		assertEquals(990000, snapshot.getValueAtPercentile(99), 990000 / 16.0);
+		assertEquals(1000000, snapshot.getValueAtPercentile(100));
+	}
+
+	@Test
+	public void valuesBeyondRangeTest() {
+		Histogram histogram = new Histogram();
+		histogram.record(1000);
+		histogram.record(1L << 50);
+		HistogramSnapshot snapshot = histogram.snapshot();
+		assertEquals(1L << 50, snapshot.getMax());
+		assertEquals(1L << 50, snapshot.getValueAtPercentile(100));
+	}
+
+	@Test
+	public void emptyHistogramTest() {
+		HistogramSnapshot snapshot = new Histogram().snapshot();
+		assertEquals(0, snapshot.getCount());
+		assertEquals(0, snapshot.getMin());
+		assertEquals(0, snapshot.getMax());
+		assertEquals(0, snapshot.getValueAtPercentile(99));
+	}
+
+	@Test
+	public void negativeValuesRecordedAsZeroTest() {
+		Histogram histogram = new Histogram();
+		histogram.record(-5);
+		assertEquals(0, histogram.snapshot().getMax());
+	}
+}
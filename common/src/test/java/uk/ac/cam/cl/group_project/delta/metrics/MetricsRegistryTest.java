@@ -0,0 +1,34 @@
+package uk.ac.cam.cl.group_project.delta.metrics;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class MetricsRegistryTest {
+
+	@Test
+	public void sameMetricReturnedTest() {
+		MetricsRegistry registry = new MetricsRegistry();
+		assertSame(registry.counter("a"), registry.counter("a"));
+		assertSame(registry.gauge("a"), registry.gauge("a"));
+		assertSame(registry.histogram("a"), registry.histogram("a"));
+	}
+
+	@Test
+	public void snapshotIsCopyTest() {
+		MetricsRegistry registry = new MetricsRegistry();
+		registry.counter("packets").add(3);
+		registry.gauge("speed").set(1.5);
+		registry.histogram("time").record(100);
+
+		MetricsSnapshot snapshot = registry.snapshot();
+		registry.counter("packets").increment();
+		registry.histogram("time").record(200);
+
+		assertEquals(3, snapshot.getCounter("packets"));
+		assertEquals(0, snapshot.getCounter("missing"));
+		assertEquals(1.5, snapshot.getGauges().get("speed"), 0);
+		assertEquals(1, snapshot.getHistogram("time").getCount());
+		assertEquals(4, registry.snapshot().getCounter("packets"));
+	}
+}
@@ -34,6 +34,23 @@ public class BeaconTracker {
 	 */
 	private final double RADIANS_PER_ANGLE_UNIT = -0.052359878;
 
+	/**
+	 * The array the samples are read into, which is reused while the sample size doesn't change
+	 */
+	private float[] samples = new float[0];
+
+	/**
+	 * The list returned by `getBeaconData`, which is refilled on each call
+	 */
+	private final List<Beacon> beacons = new ArrayList<>(4);
+
+	/**
+	 * The last `Beacon` created for each channel, and the raw samples it was created from. Beacons are immutable, so
+	 * the same instance is returned again while the samples for its channel don't change.
+	 */
+	private Beacon[] lastBeacons = new Beacon[0];
+	private float[] lastSamples = new float[0];
+
 	/**
 	 * Create a new instance for the provided robot
 	 * @param ev3 The EV3 device to use, with an IR sensor connected to port 4
@@ -60,40 +77,43 @@ public class BeaconTracker {
 	 * The angle passed to Beacon is fairly precise, but it can be inaccurate when there are lots of reflections. This
 	 * only tends to happen at large angles, which shouldn't occur during normal use.
 	 *
+	 * This is called every loop of the algorithm, so it doesn't allocate anything unless a reading has changed. The
+	 * same list is returned by each call, so it is only valid until the next call.
+	 *
 	 * @return A list containing a `Beacon` instance for each visible beacon
 	 */
 	public List<Beacon> getBeaconData() {
-		float[] samples = new float[seekMode.sampleSize()];
+		int sampleSize = seekMode.sampleSize();
+		if (samples.length != sampleSize) {
+			samples = new float[sampleSize];
+			lastSamples = new float[sampleSize];
+			lastBeacons = new Beacon[sampleSize / 2];
+		}
 		seekMode.fetchSample(samples, 0);
 
-		List<Beacon> beacons = new ArrayList<>(4);
+		beacons.clear();
 
-		for (int i = 0; i < samples.length; i += 2) {
+		for (int i = 0; i + 1 < samples.length; i += 2) {
 			if (samples[i+1] != Float.POSITIVE_INFINITY) {
-				int beaconId = i / 2 + 1;
-				DblRange distanceMetres = convertDistanceToMetres(samples[i+1]);
-				double angleRadians = samples[i] * RADIANS_PER_ANGLE_UNIT;
-				beacons.add(new Beacon(beaconId, distanceMetres.lb, distanceMetres.ub, angleRadians));
+				int channel = i / 2;
+				if (lastBeacons[channel] == null || samples[i] != lastSamples[i] || samples[i+1] != lastSamples[i+1]) {
+					// The distance is converted into the approximate range of distances which give that reading, so
+					// ranges share common endpoints but don't overlap. This is slightly dependent on the current
+					// lighting, but it shouldn't have a significant impact.
+					double lowerBound = sensorToDistanceBound(samples[i+1] - 1);
+					double upperBound = sensorToDistanceBound(samples[i+1]);
+					double angleRadians = samples[i] * RADIANS_PER_ANGLE_UNIT;
+					lastBeacons[channel] = new Beacon(channel + 1, lowerBound, upperBound, angleRadians);
+					lastSamples[i] = samples[i];
+					lastSamples[i+1] = samples[i+1];
+				}
+				beacons.add(lastBeacons[channel]);
 			}
 		}
 
 		return beacons;
 	}
 
-	/**
-	 * Convert the arbitrary distance given by the IR sensor into some sort of meaningful distance. Note that this is
-	 * slightly dependent on the current lighting, but it shouldn't have a significant impact.
-	 *
-	 * The value returned is the range of values that, under typical conditions, would give the sensor reading provided,
-	 * so ranges share common endpoints but don't overlap.
-	 *
-	 * @param sensorDistance The distance provided by the sensor
-	 * @return An approximate range in metres
-	 */
-	private DblRange convertDistanceToMetres(float sensorDistance) {
-		return new DblRange(sensorToDistanceBound(sensorDistance - 1), sensorToDistanceBound(sensorDistance));
-	}
-
 	/**
 	 * Convert an IR sensor distance value to an approximate upper bound on the distance that the beacon is from the
 	 * sensor.
@@ -117,28 +137,4 @@ public class BeaconTracker {
 		}
 		return 0.0683 + 0.0267 * sensorValue + 0.000259 * sensorValue * sensorValue;
 	}
-
-	/**
-	 * A helper class to hold a pair of doubles
-	 */
-	private class DblRange {
-		/**
-		 * The lower bound of the range
-		 */
-		public double lb;
-		/**
-		 * The upper bound of the range
-		 */
-		public double ub;
-
-		/**
-		 * Create a new DblRange
-		 * @param lb The first number in the range
-		 * @param ub The last number in the range
-		 */
-		public DblRange(double lb, double ub) {
-			this.lb = lb;
-			this.ub = ub;
-		}
-	}
 }
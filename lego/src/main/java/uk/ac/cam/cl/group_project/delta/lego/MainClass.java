@@ -8,12 +8,24 @@ import lejos.robotics.Color;
 import uk.ac.cam.cl.group_project.delta.Log;
 import uk.ac.cam.cl.group_project.delta.algorithm.Algorithm;
 import uk.ac.cam.cl.group_project.delta.algorithm.AlgorithmEnum;
+import uk.ac.cam.cl.group_project.delta.algorithm.DriveCycleReplay;
 import uk.ac.cam.cl.group_project.delta.algorithm.FrontVehicleRoute;
+import uk.ac.cam.cl.group_project.delta.algorithm.LongitudinalMpc;
+import uk.ac.cam.cl.group_project.delta.algorithm.MpcTiming;
 import uk.ac.cam.cl.group_project.delta.algorithm.ParameterEnum;
+import uk.ac.cam.cl.group_project.delta.log.NetworkLogger;
+import uk.ac.cam.cl.group_project.delta.metrics.HistogramSnapshot;
 
+import java.io.File;
 import java.io.IOException;
 
 class MainClass {
+	/**
+	 * The argument which times the model predictive controller on this EV3
+	 * instead of driving. It may be followed by the number of solves to time.
+	 */
+	static final String BENCHMARK_MPC_OPTION = "--benchmark-mpc";
+
 	public static void main(String[] args) throws IOException {
 		EV3 ev3 = (EV3) BrickFinder.getLocal();
 		TextLCD lcd = ev3.getTextLCD();
@@ -21,13 +33,22 @@ class MainClass {
 
 		lcd.drawString("This is " + ev3.getName(), 0, 4);
 
+		if (args.length > 0 && args[0].equals(BENCHMARK_MPC_OPTION)) {
+			benchmarkMpc(lcd, args.length > 1 ? Integer.parseInt(args[1]) : 10000);
+			return;
+		}
+
 		Drive drive = new Drive(ev3);
 		Sensor sensor = new Sensor(drive, ev3);
 		LegoBeacon beacon = new LegoBeacon(sensor, ev3.getName());
 		Network network = null;
+		NetworkLogger networkLogger = null;
+		DriveCycleReplay replay = null;
 		EV3ColorSensor colourSensor = new EV3ColorSensor(ev3.getPort("S3"));
 		try {
 			network = new Network(Thread.currentThread());
+			networkLogger = new NetworkLogger(ev3.getName(), network.getBroadcastAddress());
+			Log.getInstance().registerAsyncLogger(networkLogger);
 			Algorithm algo = Algorithm.createAlgorithm(
 					AlgorithmEnum.Cooperative_Adaptive_Cruise_Control,
 					drive,
@@ -39,9 +60,23 @@ class MainClass {
 			algo.setParameter(ParameterEnum.TurningPidP, 0.5);
 			algo.setParameter(ParameterEnum.TurningPidD, 0.6);
 			algo.setParameter(ParameterEnum.PID_P, 2.0);
+			if (args.length > 0) {
+				// Replay a recorded drive cycle instead of the fixed route when leading
+				replay = new DriveCycleReplay(algo.algorithmData, new File(args[0]));
+				algo.setRoute(replay);
+			}
 			new MindstormsColourManager(colourSensor, algo).start();
 			algo.run();
+			Log.debug("Metrics:\n" + algo.getMetrics().snapshot());
 		} finally {
+			if (replay != null) {
+				replay.close();
+			}
+			// Write any remaining entries, including the metrics, before the network logger closes
+			Log.flushBeforeExit();
+			if (networkLogger != null) {
+				networkLogger.close();
+			}
 			if (network != null) {
 				network.close();
 			}
@@ -49,6 +84,27 @@ class MainClass {
 
 	}
 
+	/**
+	 * Time the model predictive controller, and show the worst case on the
+	 * screen and the standard output, which can be read over ssh.
+	 *
+	 * @param lcd - the screen of the EV3
+	 * @param solves - the number of solves to time
+	 */
+	private static void benchmarkMpc(TextLCD lcd, int solves) {
+		lcd.drawString("Timing MPC...", 0, 5);
+		LongitudinalMpc mpc = new LongitudinalMpc();
+		HistogramSnapshot snapshot = MpcTiming.time(mpc, 2000, solves);
+		long budget = MpcTiming.getBudget(MpcTiming.DEFAULT_BUDGET_FRACTION);
+
+		System.out.println(MpcTiming.describe(mpc));
+		System.out.println("Solve time (ns): " + snapshot);
+		System.out.println("Worst case " + snapshot.getMax() + "ns, budget " + budget + "ns");
+		lcd.clear(5);
+		lcd.drawString("MPC max " + snapshot.getMax() / 1000 + "us", 0, 5);
+		lcd.drawString("Budget " + budget / 1000 + "us", 0, 6);
+	}
+
 	private static class MindstormsColourManager extends Thread {
 		private EV3ColorSensor colourSensor;
 		private Algorithm algorithm;
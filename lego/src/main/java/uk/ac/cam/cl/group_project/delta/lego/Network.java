@@ -121,6 +121,13 @@ public class Network implements NetworkInterface, Closeable {
 		return messages;
 	}
 
+	/**
+	 * @return The broadcast address of the wifi network
+	 */
+	public InetAddress getBroadcastAddress() {
+		return broadcastAddress;
+	}
+
 	/**
 	 * Shut down the connection
 	 */
@@ -125,6 +125,18 @@ public class BeaconTrackerTest {
 		assertEquals("Wrong angle returned", Math.PI / 4, result.get(0).getAngle(), 0.03);
 	}
 
+	@Test
+	public void testUnchangedBeaconReused() {
+		mockSensorMode.setMockSample(new float[]{0, 1, 0, 2});
+		Beacon first = classUnderTest.getBeaconData().get(0);
+
+		mockSensorMode.setMockSample(new float[]{0, 1, 5.0f, 2});
+		List<Beacon> result = classUnderTest.getBeaconData();
+		assertEquals("Wrong number of beacon results returned", 2, result.size());
+		assertSame("Unchanged beacon should be reused", first, result.get(0));
+		assertEquals("Changed beacon should have the new angle", -5.0 * 0.052359878, result.get(1).getAngle(), 1e-6);
+	}
+
 
 	/**
 	 * A mock version of SensorMode, where the value provided by fetchSample can be preset.
@@ -0,0 +1,89 @@
+package uk.ac.cam.cl.group_project.delta.simulation;
+
+/**
+ * The global fault injection settings of the simulation, so that they can be
+ * changed and recorded in the same way. Settings which are switched on or off
+ * are 1 when on and 0 when off.
+ */
+public enum FaultSetting {
+	MESSAGE_DELIVERY_MODIFIER,
+	FRONT_PROXIMITY_STD_DEV,
+	FRONT_PROXIMITY_FAILURE_RATE,
+	FRONT_PROXIMITY_ENABLED,
+	BEACONS_EMULATE_MINDSTORMS,
+	BEACON_DISTANCE_STD_DEV,
+	BEACON_ANGLE_STD_DEV,
+	ACCELERATION_STD_DEV,
+	SPEED_STD_DEV,
+	TURN_RATE_STD_DEV;
+
+	/**
+	 * Get the current value of this setting.
+	 * @return    The value.
+	 */
+	public double get() {
+		switch (this) {
+			case MESSAGE_DELIVERY_MODIFIER:
+				return SimulatedNetwork.getMessageDeliveryModifier();
+			case FRONT_PROXIMITY_STD_DEV:
+				return FaultySensorModule.getFrontProximityStdDev();
+			case FRONT_PROXIMITY_FAILURE_RATE:
+				return FaultySensorModule.getFrontProximityFailureRate();
+			case FRONT_PROXIMITY_ENABLED:
+				return FaultySensorModule.isFrontProximityEnabled() ? 1 : 0;
+			case BEACONS_EMULATE_MINDSTORMS:
+				return FaultySensorModule.isBeaconsEmulateMindstorms() ? 1 : 0;
+			case BEACON_DISTANCE_STD_DEV:
+				return FaultySensorModule.getBeaconDistanceStdDev();
+			case BEACON_ANGLE_STD_DEV:
+				return FaultySensorModule.getBeaconAngleStdDev();
+			case ACCELERATION_STD_DEV:
+				return FaultySensorModule.getAccelerationStdDev();
+			case SPEED_STD_DEV:
+				return FaultySensorModule.getSpeedStdDev();
+			case TURN_RATE_STD_DEV:
+				return FaultySensorModule.getTurnRateStdDev();
+			default:
+				throw new AssertionError(this);
+		}
+	}
+
+	/**
+	 * Change this setting for every car.
+	 * @param value    The new value.
+	 */
+	public void set(double value) {
+		switch (this) {
+			case MESSAGE_DELIVERY_MODIFIER:
+				SimulatedNetwork.setMessageDeliveryModifier(value);
+				break;
+			case FRONT_PROXIMITY_STD_DEV:
+				FaultySensorModule.setFrontProximityStdDev(value);
+				break;
+			case FRONT_PROXIMITY_FAILURE_RATE:
+				FaultySensorModule.setFrontProximityFailureRate(value);
+				break;
+			case FRONT_PROXIMITY_ENABLED:
+				FaultySensorModule.setFrontProximityEnabled(value != 0);
+				break;
+			case BEACONS_EMULATE_MINDSTORMS:
+				FaultySensorModule.setBeaconsEmulateMindstorms(value != 0);
+				break;
+			case BEACON_DISTANCE_STD_DEV:
+				FaultySensorModule.setBeaconDistanceStdDev(value);
+				break;
+			case BEACON_ANGLE_STD_DEV:
+				FaultySensorModule.setBeaconAngleStdDev(value);
+				break;
+			case ACCELERATION_STD_DEV:
+				FaultySensorModule.setAccelerationStdDev(value);
+				break;
+			case SPEED_STD_DEV:
+				FaultySensorModule.setSpeedStdDev(value);
+				break;
+			case TURN_RATE_STD_DEV:
+				FaultySensorModule.setTurnRateStdDev(value);
+				break;
+		}
+	}
+}
@@ -1,21 +1,42 @@
 package uk.ac.cam.cl.group_project.delta.simulation;
 
 import uk.ac.cam.cl.group_project.delta.Beacon;
+import uk.ac.cam.cl.group_project.delta.SimulatedClock;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.ListIterator;
-import java.util.Random;
 
 /**
  * A wrapper around the normal simulated sensors which provides failure injection
  *
+ * The static settings apply the same memoryless faults to every car. Each car
+ * can also be given its own {@link SensorFault}s for each {@link SensorChannel},
+ * such as drift, bursts of failures, stale readings and latency, which are
+ * applied after the static settings. These are saved in checkpoints, but not
+ * in the input log of a simulation.
+ *
  * @author Jack Wickham
  */
 public class FaultySensorModule extends SimulatedSensorModule {
+	private static final long serialVersionUID = 1L;
+
 	/**
-	 * Random number generator
+	 * Source of the noise of this car's sensors
 	 */
-	private final Random random;
+	private final NoiseGenerator noise;
+
+	/**
+	 * Clock of the world, which times each reading
+	 */
+	private final SimulatedClock clock;
+
+	/**
+	 * This car's own faults of each sensor, in the order they are applied
+	 */
+	private final EnumMap<SensorChannel, List<SensorFault>> faults = new EnumMap<>(SensorChannel.class);
 
 	/**
 	 * Constructs a sensor module for given car in provided world.
@@ -25,9 +46,64 @@ public class FaultySensorModule extends SimulatedSensorModule {
 	 */
 	public FaultySensorModule (PhysicsCar car, World world) {
 		super(car, world);
-		random = new Random();
+		noise = new NoiseGenerator();
+		clock = world.getClock();
+	}
+
+	//#region Per-car fault processes
+
+	/**
+	 * Add a fault to one of this car's sensors, which is applied after those
+	 * already added
+	 * @param channel The sensor
+	 * @param fault The fault, which must not be used by any other sensor
+	 */
+	public void addFault(SensorChannel channel, SensorFault fault) {
+		List<SensorFault> chain = faults.get(channel);
+		if (chain == null) {
+			chain = new ArrayList<>();
+			faults.put(channel, chain);
+		}
+		chain.add(fault);
 	}
 
+	/**
+	 * Remove all of the faults added to one of this car's sensors
+	 * @param channel The sensor
+	 */
+	public void clearFaults(SensorChannel channel) {
+		faults.remove(channel);
+	}
+
+	/**
+	 * Get the faults added to one of this car's sensors
+	 * @param channel The sensor
+	 * @return The faults, in the order they are applied
+	 */
+	public List<SensorFault> getFaults(SensorChannel channel) {
+		List<SensorFault> chain = faults.get(channel);
+		return chain == null ? Collections.<SensorFault>emptyList() : Collections.unmodifiableList(chain);
+	}
+
+	/**
+	 * Apply this car's own faults of a sensor to a reading
+	 * @param channel The sensor
+	 * @param reading The reading after the static faults
+	 * @return The distorted reading
+	 */
+	private double applyFaults(SensorChannel channel, double reading) {
+		List<SensorFault> chain = faults.get(channel);
+		if (chain != null) {
+			long time = clock.getTime();
+			for (int i = 0; i < chain.size(); i++) {
+				reading = chain.get(i).apply(reading, time, noise);
+			}
+		}
+		return reading;
+	}
+
+	//#endregion
+
 	//#region Front proximity failure injection
 
 	/**
@@ -55,17 +131,22 @@ public class FaultySensorModule extends SimulatedSensorModule {
 	 */
 	@Override
 	public Double getFrontProximity () {
-		if (!frontProximityEnabled) {
-			return null;
-		}
-		Double result = super.getFrontProximity();
-		if (frontProximityFailureRate > random.nextFloat()) {
-			// Fake a failed reading
-			result = Double.POSITIVE_INFINITY;
+		Double result = null;
+		if (frontProximityEnabled) {
+			result = super.getFrontProximity();
+			if (frontProximityFailureRate > noise.nextDouble()) {
+				// Fake a failed reading
+				result = Double.POSITIVE_INFINITY;
+			}
+			if (result != null && frontProximityStdDev > 0) {
+				// Sample from the normal distribution with mean result and std dev of frontProximityStdDev
+				result = Math.max(0, noise.nextGaussian() * frontProximityStdDev + result);
+			}
 		}
-		if (result != null && frontProximityStdDev > 0) {
-			// Sample from the normal distribution with mean result and std dev of frontProximityStdDev
-			result = Math.max(0, random.nextGaussian() * frontProximityStdDev + result);
+		if (faults.containsKey(SensorChannel.FRONT_PROXIMITY)) {
+			// No reading is passed through the faults as NaN, so that it is delayed and held like any other
+			double faulty = applyFaults(SensorChannel.FRONT_PROXIMITY, result == null ? Double.NaN : result);
+			result = Double.isNaN(faulty) ? null : Math.max(0, faulty);
 		}
 		return result;
 	}
@@ -90,6 +171,18 @@ public class FaultySensorModule extends SimulatedSensorModule {
 		FaultySensorModule.frontProximityEnabled = enabled;
 	}
 
+	public static double getFrontProximityStdDev () {
+		return frontProximityStdDev;
+	}
+
+	public static double getFrontProximityFailureRate () {
+		return frontProximityFailureRate;
+	}
+
+	public static boolean isFrontProximityEnabled () {
+		return frontProximityEnabled;
+	}
+
 	//#endregion
 	//#region Beacon failure injection
 
@@ -125,7 +218,7 @@ public class FaultySensorModule extends SimulatedSensorModule {
 			// Process the beacon distance
 			double distance = beacon.getDistanceLowerBound(); // Lower and upper bounds are equal
 			if (beaconDistanceStdDev > 0) {
-				distance += random.nextGaussian() * beaconDistanceStdDev;
+				distance += noise.nextGaussian() * beaconDistanceStdDev;
 			}
 
 			double lowerBound, upperBound;
@@ -142,7 +235,7 @@ public class FaultySensorModule extends SimulatedSensorModule {
 			// Process the beacon angle
 			double angle = beacon.getAngle();
 			if (beaconAngleStdDev > 0) {
-				angle += random.nextGaussian() * beaconAngleStdDev;
+				angle += noise.nextGaussian() * beaconAngleStdDev;
 			}
 
 			// Create the new beacon and replace it in the list
@@ -203,6 +296,18 @@ public class FaultySensorModule extends SimulatedSensorModule {
 		FaultySensorModule.beaconAngleStdDev = beaconAngleStdDev;
 	}
 
+	public static boolean isBeaconsEmulateMindstorms () {
+		return beaconsEmulateMindstorms;
+	}
+
+	public static double getBeaconDistanceStdDev () {
+		return beaconDistanceStdDev;
+	}
+
+	public static double getBeaconAngleStdDev () {
+		return beaconAngleStdDev;
+	}
+
 	//#endregion
 	//#region Motion failure injection
 
@@ -220,9 +325,9 @@ public class FaultySensorModule extends SimulatedSensorModule {
 	public double getAcceleration () {
 		double acceleration = super.getAcceleration();
 		if (accelerationStdDev > 0) {
-			acceleration += random.nextGaussian() * accelerationStdDev;
+			acceleration += noise.nextGaussian() * accelerationStdDev;
 		}
-		return acceleration;
+		return applyFaults(SensorChannel.ACCELERATION, acceleration);
 	}
 
 	/**
@@ -234,9 +339,9 @@ public class FaultySensorModule extends SimulatedSensorModule {
 	public double getSpeed () {
 		double speed = super.getSpeed();
 		if (speedStdDev > 0) {
-			speed += random.nextGaussian() * speedStdDev;
+			speed += noise.nextGaussian() * speedStdDev;
 		}
-		return speed;
+		return applyFaults(SensorChannel.SPEED, speed);
 	}
 
 	/**
@@ -248,9 +353,9 @@ public class FaultySensorModule extends SimulatedSensorModule {
 	public double getTurnRate () {
 		double turnRate = super.getTurnRate();
 		if (turnRateStdDev > 0) {
-			turnRate += random.nextGaussian() * turnRateStdDev;
+			turnRate += noise.nextGaussian() * turnRateStdDev;
 		}
-		return turnRate;
+		return applyFaults(SensorChannel.TURN_RATE, turnRate);
 	}
 
 	/**
@@ -277,5 +382,17 @@ public class FaultySensorModule extends SimulatedSensorModule {
 		FaultySensorModule.turnRateStdDev = turnRateStdDev;
 	}
 
+	public static double getAccelerationStdDev () {
+		return accelerationStdDev;
+	}
+
+	public static double getSpeedStdDev () {
+		return speedStdDev;
+	}
+
+	public static double getTurnRateStdDev () {
+		return turnRateStdDev;
+	}
+
 	//#endregion
 }
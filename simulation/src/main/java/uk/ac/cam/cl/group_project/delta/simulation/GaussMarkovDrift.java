@@ -0,0 +1,69 @@
+package uk.ac.cam.cl.group_project.delta.simulation;
+
+/**
+ * A bias which wanders slowly over time, like the drift of a real sensor as
+ * it warms up, modelled as a first-order Gauss-Markov process: the bias decays
+ * exponentially towards 0 while being disturbed by white noise, so that it
+ * stays normally distributed with a fixed standard deviation.
+ */
+public class GaussMarkovDrift implements SensorFault {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Long-term standard deviation of the bias.
+	 */
+	private final double stdDev;
+
+	/**
+	 * Number of seconds over which the bias decays by a factor of e.
+	 */
+	private final double correlationTime;
+
+	/**
+	 * Current bias.
+	 */
+	private double bias;
+
+	/**
+	 * Time of the last reading, or -1 before the first.
+	 */
+	private long lastTime = -1;
+
+	/**
+	 * Construct a drifting bias.
+	 * @param stdDev             Long-term standard deviation of the bias.
+	 * @param correlationTime    Number of seconds over which the bias is
+	 *                           correlated, which must be positive.
+	 */
+	public GaussMarkovDrift(double stdDev, double correlationTime) {
+		if (correlationTime <= 0) {
+			throw new IllegalArgumentException("Correlation time must be positive");
+		}
+		this.stdDev = stdDev;
+		this.correlationTime = correlationTime;
+	}
+
+	@Override
+	public double apply(double reading, long time, NoiseGenerator noise) {
+		if (lastTime < 0) {
+			// Start from the long-term distribution
+			bias = stdDev * noise.nextGaussian();
+		}
+		else if (time > lastTime) {
+			// Exact discretisation, so the bias doesn't depend on how often it is read
+			double decay = Math.exp(-(time - lastTime) / 1e9 / correlationTime);
+			bias = decay * bias + stdDev * Math.sqrt(1 - decay * decay) * noise.nextGaussian();
+		}
+		lastTime = time;
+		return reading + bias;
+	}
+
+	/**
+	 * Get the current bias.
+	 * @return    The bias added to the last reading.
+	 */
+	public double getBias() {
+		return bias;
+	}
+
+}
@@ -0,0 +1,102 @@
+package uk.ac.cam.cl.group_project.delta.simulation;
+
+/**
+ * Failed readings which come in bursts, modelled by the Gilbert-Elliott
+ * model: the sensor switches at random between a good state and a bad state,
+ * each with its own failure rate, and stays in each for an exponentially
+ * distributed time.
+ */
+public class GilbertElliottDropout implements SensorFault {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Rate of switching from the good state to the bad state, per second.
+	 */
+	private final double badRate;
+
+	/**
+	 * Rate of switching from the bad state to the good state, per second.
+	 */
+	private final double goodRate;
+
+	/**
+	 * Proportion of readings which fail in the good state.
+	 */
+	private final double goodFailureRate;
+
+	/**
+	 * Proportion of readings which fail in the bad state.
+	 */
+	private final double badFailureRate;
+
+	/**
+	 * Value of a failed reading.
+	 */
+	private final double failedReading;
+
+	/**
+	 * Whether the sensor is in the bad state.
+	 */
+	private boolean bad;
+
+	/**
+	 * Time of the last reading, or -1 before the first.
+	 */
+	private long lastTime = -1;
+
+	/**
+	 * Construct a bursty failure process.
+	 * @param meanGoodTime       Mean number of seconds spent in the good state.
+	 * @param meanBadTime        Mean number of seconds spent in the bad state.
+	 * @param goodFailureRate    Proportion of readings which fail in the good
+	 *                           state.
+	 * @param badFailureRate     Proportion of readings which fail in the bad
+	 *                           state.
+	 * @param failedReading      Value of a failed reading, such as infinity
+	 *                           for a proximity sensor.
+	 */
+	public GilbertElliottDropout(double meanGoodTime, double meanBadTime,
+	                             double goodFailureRate, double badFailureRate,
+	                             double failedReading) {
+		if (meanGoodTime <= 0 || meanBadTime <= 0) {
+			throw new IllegalArgumentException("Mean state times must be positive");
+		}
+		this.badRate = 1 / meanGoodTime;
+		this.goodRate = 1 / meanBadTime;
+		this.goodFailureRate = goodFailureRate;
+		this.badFailureRate = badFailureRate;
+		this.failedReading = failedReading;
+	}
+
+	@Override
+	public double apply(double reading, long time, NoiseGenerator noise) {
+		double stationaryBad = badRate / (badRate + goodRate);
+		if (lastTime < 0) {
+			bad = noise.nextDouble() < stationaryBad;
+		}
+		else if (time > lastTime) {
+			// Probability of being in the bad state after the time since the
+			// last reading, given the state then, so any gap between readings
+			// takes constant time
+			double decay = Math.exp(-(badRate + goodRate) * (time - lastTime) / 1e9);
+			double probabilityBad = bad
+				? stationaryBad + (1 - stationaryBad) * decay
+				: stationaryBad * (1 - decay);
+			bad = noise.nextDouble() < probabilityBad;
+		}
+		lastTime = time;
+		if (!Double.isNaN(reading) && noise.nextDouble() < (bad ? badFailureRate : goodFailureRate)) {
+			return failedReading;
+		}
+		return reading;
+	}
+
+	/**
+	 * Check which state the sensor is in.
+	 * @return    Whether the sensor was in the bad state at the last reading.
+	 */
+	public boolean isBad() {
+		return bad;
+	}
+
+}
@@ -0,0 +1,102 @@
+package uk.ac.cam.cl.group_project.delta.simulation;
+
+import uk.ac.cam.cl.group_project.delta.log.NetworkLogger;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Receives the log datagrams sent by the NetworkLogger of each vehicle, and
+ * prints the entries from all of them to standard output.
+ *
+ * Missing datagrams and entries dropped by the vehicles are reported, so gaps
+ * in the log can be noticed. Run with {@code gradlew :simulation:runLogCollector},
+ * optionally with {@code -Pport=...} to listen on a different port.
+ */
+public class LogCollector {
+
+	/**
+	 * The output that entries are printed to
+	 */
+	private final PrintStream out;
+
+	/**
+	 * The state of each vehicle which has sent a datagram, by name
+	 */
+	private final Map<String, Source> sources = new HashMap<>();
+
+	public LogCollector(PrintStream out) {
+		this.out = out;
+	}
+
+	public static void main(String[] args) throws IOException {
+		int port = NetworkLogger.DEFAULT_PORT;
+		if (args.length > 0) {
+			port = Integer.parseInt(args[0]);
+		}
+
+		LogCollector collector = new LogCollector(System.out);
+		byte[] listenAddress = {0, 0, 0, 0};
+		try (DatagramSocket socket = new DatagramSocket(port, InetAddress.getByAddress(listenAddress))) {
+			System.err.printf("Listening for logs on UDP port %d\n", port);
+			byte[] buffer = new byte[NetworkLogger.MAXIMUM_DATAGRAM_SIZE];
+			while (true) {
+				DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+				socket.receive(packet);
+				collector.receive(packet.getAddress(), packet.getData(), packet.getLength());
+			}
+		}
+	}
+
+	/**
+	 * Decode a received datagram and print its entries
+	 *
+	 * @param sender The address the datagram was received from
+	 * @param data The received data
+	 * @param length The length of the datagram
+	 */
+	public void receive(InetAddress sender, byte[] data, int length) {
+		NetworkLogger.Datagram datagram;
+		try {
+			datagram = NetworkLogger.decode(data, length);
+		} catch (IllegalArgumentException e) {
+			out.printf("Invalid log datagram from %s: %s\n", sender.getHostAddress(), e.getMessage());
+			return;
+		}
+
+		Source source = sources.get(datagram.source);
+		if (source == null) {
+			source = new Source();
+			sources.put(datagram.source, source);
+		} else {
+			int missing = datagram.sequenceNumber - source.sequenceNumber - 1;
+			if (missing > 0) {
+				out.printf("[%s] %d log datagrams lost\n", datagram.source, missing);
+			}
+			if (datagram.droppedCount > source.droppedCount) {
+				out.printf("[%s] %d log entries dropped by the vehicle\n", datagram.source,
+						datagram.droppedCount - source.droppedCount);
+			}
+		}
+		source.sequenceNumber = datagram.sequenceNumber;
+		source.droppedCount = datagram.droppedCount;
+
+		for (NetworkLogger.Record record : datagram.records) {
+			out.printf("[%s %.3f] %s: %s\n", datagram.source, record.time / 1e9,
+					record.severity.name, record.message);
+		}
+	}
+
+	/**
+	 * The last state received from a vehicle
+	 */
+	private static class Source {
+		int sequenceNumber;
+		int droppedCount;
+	}
+}
@@ -1,9 +1,10 @@
 package uk.ac.cam.cl.group_project.delta.simulation;
 
 import uk.ac.cam.cl.group_project.delta.Log;
-import uk.ac.cam.cl.group_project.delta.Time;
+import uk.ac.cam.cl.group_project.delta.SimulatedClock;
 import uk.ac.cam.cl.group_project.delta.algorithm.Algorithm;
 import uk.ac.cam.cl.group_project.delta.algorithm.AlgorithmEnum;
+import uk.ac.cam.cl.group_project.delta.algorithm.FrontVehicleRoute;
 
 import java.io.*;
 import java.util.ArrayList;
@@ -38,6 +39,19 @@ class MainClass {
 		World world = new World();
 		SimulatedNetwork network = new SimulatedNetwork();
 
+		// Record the network traffic if a capture file was given
+		PcapSniffer capture = null;
+		if (args.length > 0) {
+			try {
+				capture = new PcapSniffer(args[0], PcapSniffer.DEFAULT_MAXIMUM_FILE_SIZE,
+						PcapSniffer.DEFAULT_CAPACITY, world.getClock());
+				network.register(capture);
+			}
+			catch (IOException e) {
+				Log.critical(e);
+			}
+		}
+
 		List<SimulatedCar> cars = new ArrayList<>(NUMBER_OF_VEHICLES);
 
 		// Create cars
@@ -50,7 +64,9 @@ class MainClass {
 					car.getDriveInterface(),
 					car.getSensorInterface(),
 					car.getNetworkInterface(),
-					car
+					car,
+					FrontVehicleRoute.RouteNumber.ROUTE_ZERO,
+					world.getClock()
 			));
 
 			car.setPosition(new Vector2D(
@@ -72,10 +88,10 @@ class MainClass {
 			// Add headers
 			writer.write("time,uuid,x,y,class\n");
 
-			Time.useDefinedTime();
-			Time.setTime(0);
+			SimulatedClock clock = world.getClock();
+			clock.setTime(0);
 
-			for (int step = 0; step < simulationSteps; step++, Time.increaseTime(UPDATE_INTERVAL)) {
+			for (int step = 0; step < simulationSteps; step++, clock.increaseTime(UPDATE_INTERVAL)) {
 
 				// Update the positions of everything in the world
 				world.update(UPDATE_INTERVAL / 1E9); // ns to s
@@ -90,7 +106,7 @@ class MainClass {
 					for (PhysicsBody body : world.getBodies()) {
 						Vector2D pos = body.getPosition();
 						writer.write(
-							Time.getTime() + ","
+							clock.getTime() + ","
 								+ body.getUuid() + ","
 								+ pos.getX() + ","
 								+ pos.getY() + ","
@@ -110,5 +126,24 @@ class MainClass {
 			car.stop();
 		}
 
+		if (capture != null) {
+			network.deregister(capture);
+			try {
+				capture.close();
+			}
+			catch (IOException e) {
+				Log.critical(e);
+			}
+			Log.debug("Captured network traffic to %s, dropping %d packets",
+					capture.getPath(0), capture.getDroppedCount());
+		}
+
+		// Report the timings of one of the following vehicles
+		Log.debug("Metrics of the last vehicle:\n" +
+				cars.get(cars.size() - 1).getController().getMetrics().snapshot());
+
+		// The loggers run on a daemon thread, which would be stopped with entries still waiting
+		Log.flushBeforeExit();
+
 	}
 }
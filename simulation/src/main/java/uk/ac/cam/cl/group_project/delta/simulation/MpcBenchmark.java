@@ -0,0 +1,38 @@
+package uk.ac.cam.cl.group_project.delta.simulation;
+
+import uk.ac.cam.cl.group_project.delta.algorithm.LongitudinalMpc;
+import uk.ac.cam.cl.group_project.delta.algorithm.MpcTiming;
+import uk.ac.cam.cl.group_project.delta.metrics.HistogramSnapshot;
+
+/**
+ * Measures the time taken by {@link LongitudinalMpc#solve} with
+ * {@link MpcTiming}, to check that it fits within the algorithm loop.
+ *
+ * Run with {@code gradlew :simulation:runMpcBenchmark}. This measures the
+ * computer it runs on; an EV3, which is much slower, is measured by starting
+ * the vehicle's program with {@code --benchmark-mpc}. The optional arguments
+ * are the number of solves to time and the fraction of the loop duration
+ * allowed, and the exit status is 1 if the slowest solve took longer than
+ * that.
+ */
+public class MpcBenchmark {
+
+	public static void main(String[] args) {
+		int solves = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		double budgetFraction = args.length > 1
+				? Double.parseDouble(args[1]) : MpcTiming.DEFAULT_BUDGET_FRACTION;
+
+		LongitudinalMpc mpc = new LongitudinalMpc();
+		HistogramSnapshot snapshot = MpcTiming.time(mpc, 20000, solves);
+
+		long budget = MpcTiming.getBudget(budgetFraction);
+		System.out.println(MpcTiming.describe(mpc));
+		System.out.println("Solve time (ns): " + snapshot);
+		System.out.println("Worst case " + snapshot.getMax() + "ns, budget " + budget + "ns ("
+				+ Math.round(100 * budgetFraction) + "% of the loop)");
+		if (snapshot.getMax() > budget) {
+			System.out.println("Worst case is over budget");
+			System.exit(1);
+		}
+	}
+}
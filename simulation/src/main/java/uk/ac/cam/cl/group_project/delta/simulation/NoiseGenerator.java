@@ -0,0 +1,161 @@
+package uk.ac.cam.cl.group_project.delta.simulation;
+
+import uk.ac.cam.cl.group_project.delta.Randomness;
+
+import java.io.Serializable;
+
+/**
+ * A fast, unsynchronised source of random noise for simulated faults, of which
+ * each car has its own so that cars can be simulated in parallel.
+ *
+ * Numbers are generated with xoroshiro128++, and normally distributed noise
+ * with the ziggurat method, which usually needs one number and no logarithms,
+ * square roots or divisions per sample, unlike {@link java.util.Random}.
+ * Generators are seeded from {@link Randomness}, so a seeded simulation makes
+ * the same faults every time.
+ */
+public class NoiseGenerator implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Number of layers of the ziggurat.
+	 */
+	private static final int LAYERS = 128;
+
+	/**
+	 * Start of the tail of the distribution, beyond the bottom layer.
+	 */
+	private static final double TAIL_START = 3.442619855899;
+
+	/**
+	 * Area of each layer, and of the bottom layer and the tail together.
+	 */
+	private static final double LAYER_AREA = 9.91256303526217e-3;
+
+	/**
+	 * Right-hand edge of each layer, from the bottom, followed by 0.
+	 */
+	private static final double[] EDGE = new double[LAYERS + 1];
+
+	/**
+	 * Proportion of each layer which is entirely under the curve.
+	 */
+	private static final double[] INNER = new double[LAYERS];
+
+	static {
+		double f = Math.exp(-0.5 * TAIL_START * TAIL_START);
+		EDGE[0] = LAYER_AREA / f;
+		EDGE[1] = TAIL_START;
+		EDGE[LAYERS] = 0;
+		for (int i = 2; i < LAYERS; i++) {
+			EDGE[i] = Math.sqrt(-2 * Math.log(LAYER_AREA / EDGE[i - 1] + f));
+			f = Math.exp(-0.5 * EDGE[i] * EDGE[i]);
+		}
+		for (int i = 0; i < LAYERS; i++) {
+			INNER[i] = EDGE[i + 1] / EDGE[i];
+		}
+	}
+
+	/**
+	 * State of the generator, which is never all zero.
+	 */
+	private long s0, s1;
+
+	/**
+	 * Construct a generator seeded from {@link Randomness}.
+	 */
+	public NoiseGenerator() {
+		this(Randomness.newSeed());
+	}
+
+	/**
+	 * Construct a generator from a seed.
+	 * @param seed    The seed.
+	 */
+	public NoiseGenerator(long seed) {
+		// Spread the seed over the state with SplitMix64
+		s0 = splitMix(seed + 0x9E3779B97F4A7C15L);
+		s1 = splitMix(seed + 2 * 0x9E3779B97F4A7C15L);
+		if ((s0 | s1) == 0) {
+			s1 = 1;
+		}
+	}
+
+	private static long splitMix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Get 64 random bits.
+	 * @return    A uniformly distributed long.
+	 */
+	public long nextLong() {
+		long a = s0;
+		long b = s1;
+		long result = Long.rotateLeft(a + b, 17) + a;
+		b ^= a;
+		s0 = Long.rotateLeft(a, 49) ^ b ^ (b << 21);
+		s1 = Long.rotateLeft(b, 28);
+		return result;
+	}
+
+	/**
+	 * Get a number uniformly distributed in [0, 1).
+	 * @return    The number.
+	 */
+	public double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * Get a number uniformly distributed in (0, 1), which can be used as the
+	 * argument of a logarithm.
+	 */
+	private double nextOpenDouble() {
+		return ((nextLong() >>> 11) + 0.5) * 0x1.0p-53;
+	}
+
+	/**
+	 * Get a number from the standard normal distribution, with mean 0 and
+	 * standard deviation 1.
+	 * @return    The number.
+	 */
+	public double nextGaussian() {
+		while (true) {
+			long bits = nextLong();
+			// The top 53 bits place the sample within a layer chosen by the bottom 7
+			double u = (bits >>> 11) * 0x1.0p-52 - 1;
+			int layer = (int) bits & (LAYERS - 1);
+			if (Math.abs(u) < INNER[layer]) {
+				return u * EDGE[layer];
+			}
+			if (layer == 0) {
+				return tail(u < 0);
+			}
+			// The sample is in the part of the layer which is partly under the curve
+			double x = u * EDGE[layer];
+			double f0 = Math.exp(-0.5 * (EDGE[layer] * EDGE[layer] - x * x));
+			double f1 = Math.exp(-0.5 * (EDGE[layer + 1] * EDGE[layer + 1] - x * x));
+			if (f1 + nextDouble() * (f0 - f1) < 1.0) {
+				return x;
+			}
+		}
+	}
+
+	/**
+	 * Sample from the normal distribution beyond {@link #TAIL_START}.
+	 * @param negative    Whether to sample from the negative tail.
+	 * @return            The number.
+	 */
+	private double tail(boolean negative) {
+		double x, y;
+		do {
+			x = Math.log(nextOpenDouble()) / TAIL_START;
+			y = Math.log(nextOpenDouble());
+		} while (-2 * y < x * x);
+		return negative ? x - TAIL_START : TAIL_START - x;
+	}
+
+}
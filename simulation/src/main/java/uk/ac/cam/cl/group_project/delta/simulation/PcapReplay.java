@@ -0,0 +1,341 @@
+package uk.ac.cam.cl.group_project.delta.simulation;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import uk.ac.cam.cl.group_project.delta.Clock;
+import uk.ac.cam.cl.group_project.delta.Log;
+import uk.ac.cam.cl.group_project.delta.MessageReceipt;
+import uk.ac.cam.cl.group_project.delta.NetworkInterface;
+
+/**
+ * A network which receives the platoon traffic recorded in a pcap file, such
+ * as a Wireshark capture of the vehicles, so that the communications stack can
+ * be run against real traffic without any vehicles.
+ *
+ * Each packet is returned by {@link #pollData()} once the time since the first
+ * poll reaches its time since the first packet in the capture, divided by the
+ * speed. With a {@link uk.ac.cam.cl.group_project.delta.SimulatedClock} which
+ * is advanced by a fixed step each loop, the capture can be replayed far
+ * faster than real time. The receipt time of each packet is the time it was
+ * due, rather than when it was polled.
+ *
+ * Only UDP datagrams to the platoon port are replayed, from captures of
+ * Ethernet, Linux cooked or raw IPv4 frames, with microsecond or nanosecond
+ * timestamps in either byte order. Anything else in the capture is skipped.
+ * The capture is read from disk as it is needed. Messages sent to this
+ * network are discarded.
+ */
+public class PcapReplay implements NetworkInterface, Closeable {
+
+	/**
+	 * The UDP port used by the vehicles
+	 */
+	public static final int DEFAULT_PORT = 5187;
+
+	/**
+	 * The size of the buffer used to read the capture, in bytes
+	 */
+	public static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final int MAGIC_MICROSECONDS = 0xa1b2c3d4;
+	private static final int MAGIC_NANOSECONDS = 0xa1b23c4d;
+
+	private static final int LINKTYPE_ETHERNET = 1;
+	private static final int LINKTYPE_RAW = 101;
+	private static final int LINKTYPE_LINUX_SLL = 113;
+	private static final int LINKTYPE_IPV4 = 228;
+
+	private static final int SIZE_OF_FILE_HEADER = 24;
+	private static final int SIZE_OF_RECORD_HEADER = 16;
+
+	private final DataInputStream in;
+
+	private final Clock clock;
+
+	private final double speed;
+
+	private final int port;
+
+	/**
+	 * The byte order of the pcap headers
+	 */
+	private final ByteOrder order;
+
+	/**
+	 * Whether the fraction of each timestamp is in nanoseconds rather than microseconds
+	 */
+	private final boolean nanoseconds;
+
+	private final int linkType;
+
+	private final byte[] recordHeader = new byte[SIZE_OF_RECORD_HEADER];
+
+	/**
+	 * The next packet to replay, if the capture hasn't ended
+	 */
+	private boolean hasNext;
+	private long nextTime;
+	private byte[] nextData;
+
+	/**
+	 * The capture time of the first packet, which the others are relative to
+	 */
+	private long firstPacketTime;
+
+	/**
+	 * The time of the first call to pollData()
+	 */
+	private long startTime;
+	private boolean started = false;
+
+	private int replayedCount = 0;
+	private int skippedCount = 0;
+	private int sentCount = 0;
+
+	/**
+	 * Replay a capture from a file on the platoon port
+	 *
+	 * @param file - the capture
+	 * @param clock - the clock which the replay follows
+	 * @param speed - the factor by which the replay is faster than the capture
+	 * @throws IOException if the file can't be read or isn't a pcap file
+	 */
+	public PcapReplay(File file, Clock clock, double speed) throws IOException {
+		this(new FileInputStream(file), clock, speed, DEFAULT_PORT);
+	}
+
+	/**
+	 * Replay a capture from a stream, which is closed by {@link #close()}
+	 *
+	 * @param in - the capture
+	 * @param clock - the clock which the replay follows
+	 * @param speed - the factor by which the replay is faster than the capture
+	 * @param port - the UDP port of the packets to replay
+	 * @throws IOException if the stream can't be read or isn't a pcap file
+	 */
+	public PcapReplay(InputStream in, Clock clock, double speed, int port) throws IOException {
+		if (!(speed > 0)) {
+			throw new IllegalArgumentException("Replay speed must be positive");
+		}
+		this.in = new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+		this.clock = clock;
+		this.speed = speed;
+		this.port = port;
+
+		byte[] header = new byte[SIZE_OF_FILE_HEADER];
+		try {
+			this.in.readFully(header);
+		} catch (EOFException e) {
+			throw new IOException("Capture is too short to be a pcap file", e);
+		}
+		ByteBuffer bytes = ByteBuffer.wrap(header);
+		int magic = bytes.getInt();
+		if (magic == MAGIC_MICROSECONDS || magic == MAGIC_NANOSECONDS) {
+			order = ByteOrder.BIG_ENDIAN;
+		} else if (Integer.reverseBytes(magic) == MAGIC_MICROSECONDS
+				|| Integer.reverseBytes(magic) == MAGIC_NANOSECONDS) {
+			order = ByteOrder.LITTLE_ENDIAN;
+			magic = Integer.reverseBytes(magic);
+		} else {
+			throw new IOException("Not a pcap file");
+		}
+		nanoseconds = magic == MAGIC_NANOSECONDS;
+		linkType = bytes.order(order).getInt(20) & 0x0FFFFFFF;
+		if (linkType != LINKTYPE_ETHERNET && linkType != LINKTYPE_RAW
+				&& linkType != LINKTYPE_LINUX_SLL && linkType != LINKTYPE_IPV4) {
+			throw new IOException("Unsupported pcap link type " + linkType);
+		}
+
+		hasNext = readPacket();
+		firstPacketTime = nextTime;
+	}
+
+	/**
+	 * Discard a message, as there are no vehicles to send it to
+	 *
+	 * @param message - the message
+	 */
+	@Override
+	public void sendData(byte[] message) {
+		sentCount++;
+	}
+
+	/**
+	 * @return the packets which have become due since the last call
+	 */
+	@Override
+	public List<MessageReceipt> pollData() {
+		long now = clock.getTime();
+		if (!started) {
+			startTime = now;
+			started = true;
+		}
+		if (!hasNext || dueTime() > now) {
+			return Collections.emptyList();
+		}
+		List<MessageReceipt> receipts = new ArrayList<>();
+		while (hasNext && dueTime() <= now) {
+			receipts.add(new MessageReceipt(nextData, dueTime()));
+			replayedCount++;
+			hasNext = readPacket();
+		}
+		return receipts;
+	}
+
+	/**
+	 * @return the time at which the next packet should be received
+	 */
+	private long dueTime() {
+		return startTime + (long) ((nextTime - firstPacketTime) / speed);
+	}
+
+	/**
+	 * @return whether every packet has been replayed
+	 */
+	public boolean isFinished() {
+		return !hasNext;
+	}
+
+	/**
+	 * @return the number of packets which have been replayed
+	 */
+	public int getReplayedCount() {
+		return replayedCount;
+	}
+
+	/**
+	 * @return the number of frames in the capture which weren't platoon packets
+	 */
+	public int getSkippedCount() {
+		return skippedCount;
+	}
+
+	/**
+	 * @return the number of messages which have been sent to this network
+	 */
+	public int getSentCount() {
+		return sentCount;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Read the next platoon packet into the next fields, skipping any other
+	 * frames. A truncated capture ends the replay rather than stopping the
+	 * algorithm.
+	 *
+	 * @return whether a packet was read
+	 */
+	private boolean readPacket() {
+		try {
+			while (true) {
+				int first = in.read();
+				if (first < 0) {
+					return false;
+				}
+				recordHeader[0] = (byte) first;
+				in.readFully(recordHeader, 1, SIZE_OF_RECORD_HEADER - 1);
+				ByteBuffer header = ByteBuffer.wrap(recordHeader).order(order);
+				long seconds = header.getInt() & 0xFFFFFFFFL;
+				long fraction = header.getInt() & 0xFFFFFFFFL;
+				int capturedLength = header.getInt();
+				if (capturedLength < 0 || capturedLength > BUFFER_SIZE) {
+					Log.error("Capture has a record of invalid length %d", capturedLength);
+					return false;
+				}
+				byte[] frame = new byte[capturedLength];
+				in.readFully(frame);
+
+				byte[] payload = extractPayload(frame);
+				if (payload == null) {
+					skippedCount++;
+					continue;
+				}
+				nextTime = seconds * 1000000000L + (nanoseconds ? fraction : fraction * 1000);
+				nextData = payload;
+				return true;
+			}
+		} catch (EOFException e) {
+			Log.error("Capture ends part way through a record");
+		} catch (IOException e) {
+			Log.error(e);
+		}
+		return false;
+	}
+
+	/**
+	 * Find the payload of a frame, if it is a complete UDP datagram to the
+	 * platoon port
+	 *
+	 * @param frame - the captured frame
+	 * @return the payload, or null if the frame should be skipped
+	 */
+	private byte[] extractPayload(byte[] frame) {
+		ByteBuffer bytes = ByteBuffer.wrap(frame);
+		int ip;
+		switch (linkType) {
+			case LINKTYPE_ETHERNET:
+				if (frame.length < 14) {
+					return null;
+				}
+				int etherType = bytes.getShort(12) & 0xFFFF;
+				ip = 14;
+				if (etherType == 0x8100 && frame.length >= 18) {
+					// VLAN tagged
+					etherType = bytes.getShort(16) & 0xFFFF;
+					ip = 18;
+				}
+				if (etherType != 0x0800) {
+					return null;
+				}
+				break;
+			case LINKTYPE_LINUX_SLL:
+				if (frame.length < 16 || (bytes.getShort(14) & 0xFFFF) != 0x0800) {
+					return null;
+				}
+				ip = 16;
+				break;
+			default:
+				ip = 0;
+		}
+
+		// IPv4 header
+		if (frame.length < ip + 20 || (frame[ip] & 0xF0) != 0x40) {
+			return null;
+		}
+		int ipHeaderLength = (frame[ip] & 0x0F) * 4;
+		int ipLength = bytes.getShort(ip + 2) & 0xFFFF;
+		boolean fragment = (bytes.getShort(ip + 6) & 0x3FFF) != 0;
+		if (frame[ip + 9] != 17 || fragment || ipLength > frame.length - ip) {
+			return null;
+		}
+
+		// UDP header
+		int udp = ip + ipHeaderLength;
+		if (ipLength < ipHeaderLength + 8) {
+			return null;
+		}
+		int destinationPort = bytes.getShort(udp + 2) & 0xFFFF;
+		int udpLength = bytes.getShort(udp + 4) & 0xFFFF;
+		if (destinationPort != port || udpLength < 8 || udpLength > ipLength - ipHeaderLength) {
+			return null;
+		}
+		return Arrays.copyOfRange(frame, udp + 8, udp + udpLength);
+	}
+}
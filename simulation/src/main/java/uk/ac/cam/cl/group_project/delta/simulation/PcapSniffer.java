@@ -0,0 +1,374 @@
+package uk.ac.cam.cl.group_project.delta.simulation;
+
+import uk.ac.cam.cl.group_project.delta.Clock;
+import uk.ac.cam.cl.group_project.delta.Log;
+import uk.ac.cam.cl.group_project.delta.Time;
+import uk.ac.cam.cl.group_project.delta.algorithm.communications.Packet;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Network sniffer which records every broadcast to pcap files, which can be
+ * opened in Wireshark with the platoon dissector.
+ *
+ * Each broadcast is written as an IPv4 UDP datagram on port {@link #PORT},
+ * the port used by the vehicles, from a 10.0.0.0/8 address made from the
+ * sender's vehicle ID to the broadcast address. Timestamps are the simulated
+ * time at which the packet was broadcast, in nanoseconds.
+ *
+ * Broadcasts are added to a bounded queue, and are dropped if it is full, so
+ * the network is never blocked. A background thread writes the queued
+ * packets through a buffer, and starts a new file whenever the current one
+ * would exceed the maximum size. The files are named
+ * {@code <prefix>-0000.pcap}, {@code <prefix>-0001.pcap} and so on.
+ */
+public class PcapSniffer implements SimulatedNetwork.Sniffer, Closeable {
+
+	/**
+	 * The UDP port used by the vehicles.
+	 */
+	public static final int PORT = 5187;
+
+	/**
+	 * The default number of broadcasts which can be waiting to be written.
+	 */
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	/**
+	 * The default maximum size of each file, in bytes.
+	 */
+	public static final long DEFAULT_MAXIMUM_FILE_SIZE = 100L * 1024 * 1024;
+
+	/**
+	 * Magic number of a pcap file with nanosecond timestamps.
+	 */
+	public static final int MAGIC_NUMBER = 0xa1b23c4d;
+
+	/**
+	 * Link type of packets which start with an IP header.
+	 */
+	public static final int LINKTYPE_RAW = 101;
+
+	public static final int SIZE_OF_FILE_HEADER = 24;
+	public static final int SIZE_OF_RECORD_HEADER = 16;
+	public static final int SIZE_OF_IP_HEADER = 20;
+	public static final int SIZE_OF_UDP_HEADER = 8;
+
+	/**
+	 * Size of the buffer that records are written through.
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Destination address of every packet, 255.255.255.255.
+	 */
+	private static final int BROADCAST_ADDRESS = 0xFFFFFFFF;
+
+	/**
+	 * Queued by {@link #close()} to stop the writer thread. The thread isn't
+	 * interrupted, as that would close the file channel.
+	 */
+	private static final Frame END = new Frame(0, new byte[0]);
+
+	private final String prefix;
+
+	private final long maximumFileSize;
+
+	/**
+	 * Clock used to timestamp each broadcast.
+	 */
+	private final Clock clock;
+
+	/**
+	 * Broadcasts waiting to be written.
+	 */
+	private final BlockingQueue<Frame> queue;
+
+	/**
+	 * Number of broadcasts dropped because the queue was full or they
+	 * couldn't be written.
+	 */
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	private final Thread writerThread;
+
+	/**
+	 * The number of files which have been started.
+	 */
+	private volatile int fileCount;
+
+	/**
+	 * The following are only used by the writer thread, after construction.
+	 */
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private FileChannel channel;
+	private long fileSize;
+	private short identification;
+
+	/**
+	 * Create a sniffer with the default capacity and file size, timestamping
+	 * packets with the global time.
+	 *
+	 * @param prefix    Path of the files to write, without the suffix.
+	 * @throws IOException if the first file can't be created.
+	 */
+	public PcapSniffer(String prefix) throws IOException {
+		this(prefix, DEFAULT_MAXIMUM_FILE_SIZE, DEFAULT_CAPACITY, Time.getClock());
+	}
+
+	/**
+	 * Create a sniffer, which writes to its first file immediately, and
+	 * start the thread which writes the packets. It must be registered with
+	 * a network to record anything.
+	 *
+	 * @param prefix             Path of the files to write, without the suffix.
+	 * @param maximumFileSize    Size in bytes after which a new file is started.
+	 * @param capacity           Number of broadcasts which can be waiting to be written.
+	 * @param clock              Clock used to timestamp broadcasts.
+	 * @throws IOException if the first file can't be created.
+	 */
+	public PcapSniffer(String prefix, long maximumFileSize, int capacity, Clock clock) throws IOException {
+		if (maximumFileSize < SIZE_OF_FILE_HEADER + SIZE_OF_RECORD_HEADER) {
+			throw new IllegalArgumentException("Maximum file size is too small for any packets");
+		}
+		this.prefix = prefix;
+		this.maximumFileSize = maximumFileSize;
+		this.clock = clock;
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		openFile();
+
+		writerThread = new Thread(this::write, "PcapSniffer");
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+
+	/**
+	 * Queue a broadcast to be written, or drop it if the queue is full.
+	 *
+	 * @param message    Packet sent.
+	 */
+	@Override
+	public void handleMessage(byte[] message) {
+		if (!queue.offer(new Frame(clock.getTime(), message))) {
+			droppedCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Write any broadcasts which are still queued, and close the file. The
+	 * sniffer should be deregistered from its network first.
+	 *
+	 * @throws IOException if interrupted while waiting for the writer.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			queue.put(END);
+			writerThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while closing capture", e);
+		}
+	}
+
+	/**
+	 * @return the number of broadcasts which have not been recorded
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * @return the path of a file written by this sniffer
+	 */
+	public Path getPath(int index) {
+		return Paths.get(String.format("%s-%04d.pcap", prefix, index));
+	}
+
+	/**
+	 * @return the number of files which have been started
+	 */
+	public int getFileCount() {
+		return fileCount;
+	}
+
+	/**
+	 * The loop run by the writer thread, which waits for a broadcast then
+	 * writes it along with any others which are queued, until it reaches the
+	 * end of the capture.
+	 */
+	private void write() {
+		List<Frame> frames = new ArrayList<>();
+		boolean closing = false;
+		while (!closing) {
+			try {
+				frames.add(queue.take());
+			} catch (InterruptedException e) {
+				// Not expected, but stop recording rather than stop the thread
+				frames.add(END);
+			}
+			queue.drainTo(frames);
+
+			int written = 0;
+			try {
+				for (Frame frame : frames) {
+					if (frame == END) {
+						closing = true;
+					} else {
+						writeFrame(frame);
+					}
+					written++;
+				}
+				flush();
+			} catch (IOException e) {
+				droppedCount.addAndGet(frames.size() - written);
+				Log.error(e);
+			}
+			frames.clear();
+		}
+
+		try {
+			channel.close();
+		} catch (IOException e) {
+			Log.error(e);
+		}
+	}
+
+	/**
+	 * Start the next file, closing the current one, and write its header.
+	 */
+	private void openFile() throws IOException {
+		if (channel != null) {
+			flush();
+			channel.close();
+		}
+		channel = FileChannel.open(
+			getPath(fileCount),
+			StandardOpenOption.CREATE,
+			StandardOpenOption.TRUNCATE_EXISTING,
+			StandardOpenOption.WRITE
+		);
+		fileCount++;
+
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC_NUMBER);
+		buffer.putShort((short) 2);                 // Major version
+		buffer.putShort((short) 4);                 // Minor version
+		buffer.putInt(0);                           // Time zone offset
+		buffer.putInt(0);                           // Timestamp accuracy
+		buffer.putInt(0xFFFF);                      // Snapshot length
+		buffer.putInt(LINKTYPE_RAW);
+		fileSize = SIZE_OF_FILE_HEADER;
+	}
+
+	/**
+	 * Add a broadcast to the buffer as a UDP datagram, first starting a new
+	 * file if it would make the current one too large.
+	 */
+	private void writeFrame(Frame frame) throws IOException {
+		int udpLength = SIZE_OF_UDP_HEADER + frame.data.length;
+		int ipLength = SIZE_OF_IP_HEADER + udpLength;
+		int recordLength = SIZE_OF_RECORD_HEADER + ipLength;
+		if (fileSize + recordLength > maximumFileSize && fileSize > SIZE_OF_FILE_HEADER) {
+			openFile();
+		}
+		if (buffer.remaining() < recordLength) {
+			flush();
+		}
+
+		// Record header
+		long time = Math.max(frame.time, 0);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt((int) (time / 1000000000L));
+		buffer.putInt((int) (time % 1000000000L));
+		buffer.putInt(ipLength);                    // Length captured
+		buffer.putInt(ipLength);                    // Length on the network
+
+		// IPv4 header
+		buffer.order(ByteOrder.BIG_ENDIAN);
+		int ipStart = buffer.position();
+		buffer.put((byte) 0x45);                    // Version 4, 5 word header
+		buffer.put((byte) 0);                       // Type of service
+		buffer.putShort((short) ipLength);
+		buffer.putShort(identification++);
+		buffer.putShort((short) 0x4000);            // Don't fragment
+		buffer.put((byte) 64);                      // Time to live
+		buffer.put((byte) 17);                      // UDP
+		buffer.putShort((short) 0);                 // Checksum, filled in below
+		buffer.putInt(sourceAddress(frame.data));
+		buffer.putInt(BROADCAST_ADDRESS);
+		buffer.putShort(ipStart + 10, checksum(buffer, ipStart, SIZE_OF_IP_HEADER));
+
+		// UDP header, without a checksum, which is optional over IPv4
+		buffer.putShort((short) PORT);
+		buffer.putShort((short) PORT);
+		buffer.putShort((short) udpLength);
+		buffer.putShort((short) 0);
+
+		buffer.put(frame.data);
+		fileSize += recordLength;
+	}
+
+	/**
+	 * Write the buffer to the file.
+	 */
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Get the address of the sender of a packet, which is 10.x.y.z where
+	 * x.y.z are the low 24 bits of its vehicle ID.
+	 */
+	private static int sourceAddress(byte[] data) {
+		if (data.length < Packet.SIZE_OF_HEADER) {
+			return 0x0A000000;
+		}
+		// The vehicle ID is the third int of the header
+		ByteBuffer bytes = ByteBuffer.wrap(data);
+		return 0x0A000000 | (bytes.getInt(8) & 0x00FFFFFF);
+	}
+
+	/**
+	 * Compute the internet checksum of part of a buffer.
+	 */
+	static short checksum(ByteBuffer bytes, int start, int length) {
+		int sum = 0;
+		for (int i = start; i < start + length; i += 2) {
+			sum += bytes.getShort(i) & 0xFFFF;
+		}
+		while ((sum >> 16) != 0) {
+			sum = (sum & 0xFFFF) + (sum >> 16);
+		}
+		return (short) ~sum;
+	}
+
+	/**
+	 * A broadcast waiting to be written.
+	 */
+	private static class Frame {
+		final long time;
+		final byte[] data;
+
+		Frame(long time, byte[] data) {
+			this.time = time;
+			this.data = data;
+		}
+	}
+}
@@ -5,6 +5,7 @@ package uk.ac.cam.cl.group_project.delta.simulation;
  * acceleration.
  */
 public class PhysicsBody extends UniquelyIdentifiable {
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * Absolute position in world space - in metres.
@@ -4,6 +4,7 @@ package uk.ac.cam.cl.group_project.delta.simulation;
  * Represents the physically simulated instantiation of a car.
  */
 public class PhysicsCar extends PhysicsBody {
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * The angle of the wheels relative to the car, in radians
@@ -0,0 +1,95 @@
+package uk.ac.cam.cl.group_project.delta.simulation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import uk.ac.cam.cl.group_project.delta.Beacon;
+import uk.ac.cam.cl.group_project.delta.BeaconInterface;
+import uk.ac.cam.cl.group_project.delta.SimulatedClock;
+import uk.ac.cam.cl.group_project.delta.algorithm.Algorithm;
+import uk.ac.cam.cl.group_project.delta.algorithm.communications.Communications;
+import uk.ac.cam.cl.group_project.delta.algorithm.communications.ControlLayer;
+import uk.ac.cam.cl.group_project.delta.metrics.Histogram;
+import uk.ac.cam.cl.group_project.delta.metrics.MetricsRegistry;
+
+/**
+ * Runs the communications stack of one vehicle against a capture of real
+ * platoon traffic, as fast as possible, and reports how long each loop took
+ * to receive and decode the packets that arrived during it.
+ *
+ * The replay follows a simulated clock which is advanced by one algorithm loop
+ * each iteration, so the result doesn't depend on how fast the computer is,
+ * except for the loop times. The vehicle sends nothing, and only observes.
+ *
+ * Captures from older vehicles, or with damaged packets, can contain packets
+ * which the current stack can't decode. These are dropped and counted by the
+ * control layer, and any other error while handling the packets of a loop is
+ * counted as a failed loop, so the replay always reaches the end.
+ *
+ * Run with {@code gradlew :simulation:runReplayBenchmark -Ppcap=capture.pcap}.
+ * The optional second argument is the speed of the replay compared to the
+ * capture.
+ */
+public class ReplayBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: ReplayBenchmark <capture.pcap> [speed]");
+			System.exit(2);
+		}
+		double speed = args.length > 1 ? Double.parseDouble(args[1]) : 1.0;
+
+		SimulatedClock clock = new SimulatedClock();
+		MetricsRegistry metrics = new MetricsRegistry();
+		Histogram loopTimes = new Histogram();
+		int loops = 0;
+		int failedLoops = 0;
+		long start = System.nanoTime();
+		try (PcapReplay replay = new PcapReplay(new File(args[0]), clock, speed)) {
+			ControlLayer control = new ControlLayer(replay, new NoBeacons(), clock);
+			control.setMetrics(metrics);
+			Communications communications = new Communications(control);
+
+			while (!replay.isFinished()) {
+				long loopStart = System.nanoTime();
+				try {
+					communications.getPredecessorMessages();
+					loopTimes.record(System.nanoTime() - loopStart);
+				} catch (RuntimeException e) {
+					if (failedLoops == 0) {
+						e.printStackTrace();
+					}
+					failedLoops++;
+				}
+				clock.increaseTime(Algorithm.ALGORITHM_LOOP_DURATION);
+				loops++;
+			}
+			long elapsed = System.nanoTime() - start;
+
+			System.out.println("Replayed " + replay.getReplayedCount() + " packets ("
+					+ replay.getSkippedCount() + " other frames skipped) in " + loops + " loops");
+			System.out.println(metrics.counter("network.packetsMalformed").get()
+					+ " packets couldn't be decoded and were dropped, " + failedLoops + " loops failed");
+			System.out.println("Loop time (ns): " + loopTimes.snapshot());
+			System.out.printf("%.1f times faster than real time%n", (double) clock.getTime() / elapsed);
+			System.out.println(metrics.snapshot());
+		}
+	}
+
+	/**
+	 * Beacons for a vehicle which can't see any others
+	 */
+	private static class NoBeacons implements BeaconInterface {
+		@Override
+		public int getCurrentBeaconId() {
+			return 0;
+		}
+
+		@Override
+		public List<Beacon> getBeacons() {
+			return Collections.emptyList();
+		}
+	}
+}
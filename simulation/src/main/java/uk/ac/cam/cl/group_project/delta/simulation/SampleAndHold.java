@@ -0,0 +1,46 @@
+package uk.ac.cam.cl.group_project.delta.simulation;
+
+/**
+ * A sensor which only takes a new reading at a fixed interval, and repeats
+ * its last reading until then, so readings are stale and sometimes repeated.
+ */
+public class SampleAndHold implements SensorFault {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Nanoseconds between samples.
+	 */
+	private final long period;
+
+	/**
+	 * The last sample.
+	 */
+	private double held;
+
+	/**
+	 * Time at which the next sample is due, or -1 before the first.
+	 */
+	private long nextSample = -1;
+
+	/**
+	 * Construct a sensor which samples periodically.
+	 * @param period    Number of seconds between samples, which must be
+	 *                  positive.
+	 */
+	public SampleAndHold(double period) {
+		if (period <= 0) {
+			throw new IllegalArgumentException("Sample period must be positive");
+		}
+		this.period = (long) (period * 1e9);
+	}
+
+	@Override
+	public double apply(double reading, long time, NoiseGenerator noise) {
+		if (time >= nextSample) {
+			held = reading;
+			nextSample = (time / period + 1) * period;
+		}
+		return held;
+	}
+
+}
@@ -0,0 +1,12 @@
+package uk.ac.cam.cl.group_project.delta.simulation;
+
+/**
+ * The readings of a {@link FaultySensorModule} which can be given their own
+ * {@link SensorFault}s.
+ */
+public enum SensorChannel {
+	FRONT_PROXIMITY,
+	ACCELERATION,
+	SPEED,
+	TURN_RATE
+}
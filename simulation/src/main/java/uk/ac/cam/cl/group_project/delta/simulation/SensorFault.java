@@ -0,0 +1,28 @@
+package uk.ac.cam.cl.group_project.delta.simulation;
+
+import java.io.Serializable;
+
+/**
+ * A process which distorts the readings of one of a car's sensors over time,
+ * such as a slowly drifting bias or bursts of failed readings. Faults are
+ * added to a {@link FaultySensorModule} with
+ * {@link FaultySensorModule#addFault(SensorChannel, SensorFault)}, where they
+ * are applied in the order they were added, each to the output of the last.
+ *
+ * Each instance holds the state of one sensor, so must not be shared between
+ * sensors or cars. Applying a fault takes constant time.
+ */
+public interface SensorFault extends Serializable {
+
+	/**
+	 * Distort a reading.
+	 * @param reading    The reading so far, or NaN if the sensor has no
+	 *                   reading, which should be passed on like any other.
+	 * @param time       Simulated time of the reading, in nanoseconds, which
+	 *                   never decreases between readings.
+	 * @param noise      Source of randomness of the sensor's car.
+	 * @return           The distorted reading.
+	 */
+	double apply(double reading, long time, NoiseGenerator noise);
+
+}
@@ -0,0 +1,91 @@
+package uk.ac.cam.cl.group_project.delta.simulation;
+
+import uk.ac.cam.cl.group_project.delta.algorithm.Algorithm;
+
+/**
+ * A delay between a sensor measuring something and the reading being
+ * available, implemented as a delay line of recent readings. Each reading is
+ * the newest one at least the latency old, or the oldest one if there is none
+ * yet.
+ *
+ * The delay line has a fixed capacity. If the sensor is read more often than
+ * the capacity allows, the oldest readings are dropped, so some readings are
+ * delayed by less than the latency.
+ */
+public class SensorLatency implements SensorFault {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Nanoseconds between a measurement and its reading.
+	 */
+	private final long latency;
+
+	/**
+	 * Ring buffer of the times and values of measurements which may still be
+	 * read, oldest first.
+	 */
+	private final long[] times;
+	private final double[] values;
+
+	/**
+	 * Index of the oldest measurement in the ring buffer.
+	 */
+	private int head;
+
+	/**
+	 * Number of measurements in the ring buffer.
+	 */
+	private int size;
+
+	/**
+	 * Construct a delayed sensor with room for the readings made by an
+	 * algorithm within the latency.
+	 * @param latency    Number of seconds between a measurement and its
+	 *                   reading, which must not be negative.
+	 */
+	public SensorLatency(double latency) {
+		this(latency, (int) Math.ceil(latency * 1e9 / Algorithm.ALGORITHM_LOOP_DURATION) + 2);
+	}
+
+	/**
+	 * Construct a delayed sensor.
+	 * @param latency     Number of seconds between a measurement and its
+	 *                    reading, which must not be negative.
+	 * @param capacity    Maximum number of readings held, which must be at
+	 *                    least the number made within the latency, plus one.
+	 */
+	public SensorLatency(double latency, int capacity) {
+		if (latency < 0) {
+			throw new IllegalArgumentException("Latency must not be negative");
+		}
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive");
+		}
+		this.latency = (long) (latency * 1e9);
+		this.times = new long[capacity];
+		this.values = new double[capacity];
+	}
+
+	@Override
+	public double apply(double reading, long time, NoiseGenerator noise) {
+		if (size == times.length) {
+			// Full, so drop the oldest measurement
+			head = (head + 1) % times.length;
+			size--;
+		}
+		int tail = (head + size) % times.length;
+		times[tail] = time;
+		values[tail] = reading;
+		size++;
+
+		// Drop measurements which have been superseded by a newer one which
+		// is old enough to read
+		long due = time - latency;
+		while (size > 1 && times[(head + 1) % times.length] <= due) {
+			head = (head + 1) % times.length;
+			size--;
+		}
+		return values[head];
+	}
+
+}
@@ -9,6 +9,7 @@ import java.util.List;
  * Encapsulation of simulated car object and its associated interface modules.
  */
 public class SimulatedCar extends PhysicsCar implements BeaconInterface {
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * Network interface for this car.
@@ -46,7 +47,7 @@ public class SimulatedCar extends PhysicsCar implements BeaconInterface {
 
 		super(wheelBase);
 
-		SimulatedNetworkModule snm = new SimulatedNetworkModule(this, network);
+		SimulatedNetworkModule snm = new SimulatedNetworkModule(this, network, world.getClock());
 		snm.setEmergencyHandler(m -> stop());
 
 		networkInterface = snm;
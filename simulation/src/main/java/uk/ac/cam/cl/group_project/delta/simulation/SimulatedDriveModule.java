@@ -2,10 +2,13 @@ package uk.ac.cam.cl.group_project.delta.simulation;
 
 import uk.ac.cam.cl.group_project.delta.DriveInterface;
 
+import java.io.Serializable;
+
 /**
  * Implements DriveInterface for simulated vehicles.
  */
-public class SimulatedDriveModule implements DriveInterface {
+public class SimulatedDriveModule implements DriveInterface, Serializable {
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * Physical car object that this wraps.
@@ -1,5 +1,10 @@
 package uk.ac.cam.cl.group_project.delta.simulation;
 
+import uk.ac.cam.cl.group_project.delta.Randomness;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -8,7 +13,8 @@ import java.util.Random;
 /**
  * Encapsulates modelling of simulated wireless (broadcast) network.
  */
-public class SimulatedNetwork {
+public class SimulatedNetwork implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * List of nodes in the simulated network.
@@ -16,9 +22,10 @@ public class SimulatedNetwork {
 	private List<SimulatedNetworkModule> handlers;
 
 	/**
-	 * List of sniffer callbacks in the network.
+	 * List of sniffer callbacks in the network, which observe rather than
+	 * take part in the simulation, so aren't saved with it.
 	 */
-	private List<Sniffer> sniffers;
+	private transient List<Sniffer> sniffers;
 
 	/**
 	 * A modifier for the rate at which packets should be dropped.
@@ -35,7 +42,12 @@ public class SimulatedNetwork {
 	public SimulatedNetwork() {
 		handlers = new ArrayList<>();
 		sniffers = new ArrayList<>();
-		random = new Random();
+		random = Randomness.newRandom();
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		sniffers = new ArrayList<>();
 	}
 
 	/**
@@ -105,6 +117,15 @@ public class SimulatedNetwork {
 		messageDeliveryModifier = value;
 	}
 
+	/**
+	 * Get the modifier for when packets should be dropped.
+	 *
+	 * @return The delivery modifier
+	 */
+	public static synchronized double getMessageDeliveryModifier () {
+		return messageDeliveryModifier;
+	}
+
 	/**
 	 * Determine whether this packet should be dropped when simulating packet loss. The probability distribution curve
 	 * chosen to simulate packet loss is an arctan curve which has been flipped, shifted and stretched so that it has
@@ -1,16 +1,19 @@
 package uk.ac.cam.cl.group_project.delta.simulation;
 
+import uk.ac.cam.cl.group_project.delta.Clock;
 import uk.ac.cam.cl.group_project.delta.NetworkInterface;
 import uk.ac.cam.cl.group_project.delta.MessageReceipt;
+import uk.ac.cam.cl.group_project.delta.Time;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Implements the NetworkInterface for simulated vehicles.
  */
-public class SimulatedNetworkModule implements NetworkInterface
-{
+public class SimulatedNetworkModule implements NetworkInterface, Serializable {
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * The car which sends messages.
@@ -32,12 +35,28 @@ public class SimulatedNetworkModule implements NetworkInterface
 	 */
 	private EmergencyHandler emergencyHandler;
 
+	/**
+	 * The clock used to timestamp received messages.
+	 */
+	private final Clock clock;
+
 	/**
 	 * Construct simulated network interface, for the world given.
 	 * @param car        The car that transmits and receives messages.
 	 * @param network    The network on which to communicate.
 	 */
 	public SimulatedNetworkModule(PhysicsCar car, SimulatedNetwork network) {
+		this(car, network, Time.getClock());
+	}
+
+	/**
+	 * Construct simulated network interface, for the world given.
+	 * @param car        The car that transmits and receives messages.
+	 * @param network    The network on which to communicate.
+	 * @param clock      The clock used to timestamp received messages.
+	 */
+	public SimulatedNetworkModule(PhysicsCar car, SimulatedNetwork network, Clock clock) {
+		this.clock = clock;
 		this.car = car;
 		this.network = network;
 		this.network.register(this);
@@ -75,7 +94,7 @@ public class SimulatedNetworkModule implements NetworkInterface
 			emergencyHandler.handle(message);
 		}
 		else {
-			messageBuffer.add(new MessageReceipt(message));
+			messageBuffer.add(new MessageReceipt(message, clock));
 		}
 	}
 
@@ -99,7 +118,7 @@ public class SimulatedNetworkModule implements NetworkInterface
 	 * Functional interface for emergency message handling.
 	 */
 	@FunctionalInterface
-	public interface EmergencyHandler {
+	public interface EmergencyHandler extends Serializable {
 		/**
 		 * Handle an emergency message.
 		 * @param message    The byte array received that contains the emergency
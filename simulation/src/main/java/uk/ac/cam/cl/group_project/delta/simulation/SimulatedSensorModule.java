@@ -3,13 +3,15 @@ package uk.ac.cam.cl.group_project.delta.simulation;
 import uk.ac.cam.cl.group_project.delta.SensorInterface;
 import uk.ac.cam.cl.group_project.delta.Beacon;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Implementation of sensor interface for simulated vehicles.
  */
-public class SimulatedSensorModule implements SensorInterface {
+public class SimulatedSensorModule implements SensorInterface, Serializable {
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * The world that we instrument.
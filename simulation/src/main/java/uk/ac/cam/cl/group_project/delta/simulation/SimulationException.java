@@ -4,6 +4,7 @@ package uk.ac.cam.cl.group_project.delta.simulation;
  * A generic exception that may occur during simulation.
  */
 public class SimulationException extends Exception {
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * Constructs a new exception with `null` as its detail message.
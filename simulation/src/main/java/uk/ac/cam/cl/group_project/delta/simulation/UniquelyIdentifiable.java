@@ -1,10 +1,16 @@
 package uk.ac.cam.cl.group_project.delta.simulation;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+
 /**
  * Gives objects a (runtime) unique identifier, which are assigned in ascending
- * numerical order starting at 1.
+ * numerical order starting at 1. Objects restored from a checkpoint keep their
+ * identifiers, and objects created afterwards are given higher ones.
  */
-public abstract class UniquelyIdentifiable {
+public abstract class UniquelyIdentifiable implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * Static tracker of next ID to assign.
@@ -20,7 +26,16 @@ public abstract class UniquelyIdentifiable {
 	 * Initialise ID with next available identifier.
 	 */
 	public UniquelyIdentifiable() {
-		uuid = next++;
+		synchronized (UniquelyIdentifiable.class) {
+			uuid = next++;
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		synchronized (UniquelyIdentifiable.class) {
+			next = Math.max(next, uuid + 1);
+		}
 	}
 
 	/**
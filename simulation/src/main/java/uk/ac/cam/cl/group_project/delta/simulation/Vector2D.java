@@ -1,9 +1,12 @@
 package uk.ac.cam.cl.group_project.delta.simulation;
 
+import java.io.Serializable;
+
 /**
  * Represents a vector of two components.
  */
-public class Vector2D {
+public class Vector2D implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * First vector component.
@@ -1,23 +1,34 @@
 package uk.ac.cam.cl.group_project.delta.simulation;
 
+import uk.ac.cam.cl.group_project.delta.SimulatedClock;
+
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Represents a physically simulated collection of physics objects.
  */
-public class World {
+public class World implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * A list of bodies contain within this environment.
 	 */
 	private final List<PhysicsBody> bodies;
 
+	/**
+	 * The simulated time in this world, which is read by the controllers of
+	 * the cars in it.
+	 */
+	private final SimulatedClock clock;
+
 	/**
 	 * Initialise an empty world.
 	 */
 	public World() {
 		this.bodies = new ArrayList<>();
+		this.clock = new SimulatedClock();
 	}
 
 	/**
@@ -38,4 +49,12 @@ public class World {
 		return this.bodies;
 	}
 
+	/**
+	 * Fetch the clock of this world, which is advanced by the simulation.
+	 * @return    The simulated clock.
+	 */
+	public SimulatedClock getClock() {
+		return clock;
+	}
+
 }
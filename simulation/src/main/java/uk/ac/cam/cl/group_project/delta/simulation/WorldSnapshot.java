@@ -0,0 +1,310 @@
+package uk.ac.cam.cl.group_project.delta.simulation;
+
+import uk.ac.cam.cl.group_project.delta.Beacon;
+import uk.ac.cam.cl.group_project.delta.algorithm.Algorithm;
+import uk.ac.cam.cl.group_project.delta.algorithm.AlgorithmData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable copy of the state of every body in a world at one instant.
+ * Snapshots are captured by the simulation thread and can be read by any
+ * other thread, such as the GUI, without locking the bodies.
+ *
+ * As well as a state object per body, the cars are stored in a flat buffer
+ * of doubles, {@link #CAR_STRIDE} per car, which renderers can iterate over
+ * without following references.
+ */
+public class WorldSnapshot {
+
+	/**
+	 * Offsets of the values of each car in the car buffer.
+	 */
+	public static final int CAR_UUID = 0;
+	public static final int CAR_X = 1;
+	public static final int CAR_Y = 2;
+	public static final int CAR_HEADING = 3;
+	public static final int CAR_WHEEL_ANGLE = 4;
+	public static final int CAR_LENGTH = 5;
+	public static final int CAR_WIDTH = 6;
+	public static final int CAR_WHEEL_BASE = 7;
+	public static final int CAR_PLATOON_ID = 8;
+	/**
+	 * 1 if the car is the leader of its platoon, otherwise 0.
+	 */
+	public static final int CAR_LEADER = 9;
+
+	/**
+	 * Number of values per car in the car buffer.
+	 */
+	public static final int CAR_STRIDE = 10;
+
+	/**
+	 * A snapshot containing no bodies.
+	 */
+	public static final WorldSnapshot EMPTY = new WorldSnapshot(0, new HashMap<>(), new double[0], 0);
+
+	/**
+	 * Simulated time at which the snapshot was captured, in nanoseconds.
+	 */
+	private final long time;
+
+	/**
+	 * State of each body, by UUID.
+	 */
+	private final Map<Integer, BodyState> bodies;
+
+	/**
+	 * The cars, {@link #CAR_STRIDE} values each.
+	 */
+	private final double[] cars;
+
+	private final int carCount;
+
+	private WorldSnapshot(long time, Map<Integer, BodyState> bodies, double[] cars, int carCount) {
+		this.time = time;
+		this.bodies = bodies;
+		this.cars = cars;
+		this.carCount = carCount;
+	}
+
+	/**
+	 * Capture the state of the given bodies. Each body is locked while it is
+	 * copied, so this should be called from the thread updating them.
+	 * @param time      Current simulated time, in nanoseconds.
+	 * @param bodies    Bodies to capture.
+	 * @return          The captured snapshot.
+	 */
+	public static WorldSnapshot capture(long time, List<PhysicsBody> bodies) {
+		Map<Integer, BodyState> states = new HashMap<>(bodies.size() * 2);
+		double[] cars = new double[bodies.size() * CAR_STRIDE];
+		int carCount = 0;
+		for (PhysicsBody body : bodies) {
+			BodyState state;
+			synchronized (body) {
+				if (body instanceof SimulatedCar) {
+					SimulatedCar car = (SimulatedCar) body;
+					CarState carState = new CarState(car);
+					int i = carCount * CAR_STRIDE;
+					cars[i + CAR_UUID] = carState.getUuid();
+					cars[i + CAR_X] = carState.getX();
+					cars[i + CAR_Y] = carState.getY();
+					cars[i + CAR_HEADING] = carState.getHeading();
+					cars[i + CAR_WHEEL_ANGLE] = carState.getWheelAngle();
+					cars[i + CAR_LENGTH] = car.getLength();
+					cars[i + CAR_WIDTH] = car.getWidth();
+					cars[i + CAR_WHEEL_BASE] = car.getWheelBase();
+					cars[i + CAR_PLATOON_ID] = carState.getPlatoonId();
+					cars[i + CAR_LEADER] = carState.isLeader() ? 1 : 0;
+					carCount++;
+					state = carState;
+				}
+				else {
+					state = new BodyState(body);
+				}
+			}
+			states.put(state.getUuid(), state);
+		}
+		return new WorldSnapshot(time, states, cars, carCount);
+	}
+
+	/**
+	 * Get the simulated time at which this was captured.
+	 * @return    Time in nanoseconds.
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * Get the state of a body.
+	 * @param uuid    UUID of the body.
+	 * @return        The body's state, or null if it was not in the world.
+	 */
+	public BodyState get(int uuid) {
+		return bodies.get(uuid);
+	}
+
+	/**
+	 * Get the number of cars in the car buffer.
+	 * @return    Number of cars.
+	 */
+	public int getCarCount() {
+		return carCount;
+	}
+
+	/**
+	 * Get a value from the car buffer.
+	 * @param car       Index of the car, less than {@link #getCarCount()}.
+	 * @param offset    One of the CAR_ offsets.
+	 * @return          The value.
+	 */
+	public double getCarValue(int car, int offset) {
+		return cars[car * CAR_STRIDE + offset];
+	}
+
+	/**
+	 * Get the number of bodies captured.
+	 * @return    Number of bodies.
+	 */
+	public int size() {
+		return bodies.size();
+	}
+
+	/**
+	 * The position of a body.
+	 */
+	public static class BodyState {
+
+		private final int uuid;
+		private final double x;
+		private final double y;
+
+		private BodyState(PhysicsBody body) {
+			uuid = body.getUuid();
+			x = body.getPosition().getX();
+			y = body.getPosition().getY();
+		}
+
+		public int getUuid() {
+			return uuid;
+		}
+
+		public double getX() {
+			return x;
+		}
+
+		public double getY() {
+			return y;
+		}
+
+	}
+
+	/**
+	 * The physical state of a car, and the state of its controller. The
+	 * sensor readings are those last used by the controller, so capturing a
+	 * snapshot does not scan the world.
+	 */
+	public static class CarState extends BodyState {
+
+		private final double velocityX;
+		private final double velocityY;
+		private final double heading;
+		private final double wheelAngle;
+		private final double enginePower;
+
+		private final boolean hasController;
+		private final boolean isLeader;
+		private final int vehicleId;
+		private final int platoonId;
+		private final int platoonPosition;
+		private final int leaderId;
+		private final Double frontProximity;
+		private final List<Beacon> beacons;
+
+		private CarState(SimulatedCar car) {
+			super(car);
+			Vector2D velocity = car.getVelocity();
+			velocityX = velocity.getX();
+			velocityY = velocity.getY();
+			heading = car.getHeading();
+			wheelAngle = car.getWheelAngle();
+			enginePower = car.getEnginePower();
+
+			Algorithm controller = car.getController();
+			hasController = controller != null;
+			if (hasController) {
+				AlgorithmData data = controller.algorithmData;
+				isLeader = controller.isLeader();
+				vehicleId = controller.getVehicleId();
+				platoonId = controller.getPlatoonId();
+				platoonPosition = controller.getPlatoonPosition();
+				leaderId = controller.getLeaderId();
+				frontProximity = data.sensorFrontProximity;
+				// Sensor modules may reuse the list for later scans, so copy it
+				beacons = data.beacons == null
+					? Collections.<Beacon>emptyList()
+					: Collections.unmodifiableList(new ArrayList<>(data.beacons));
+			}
+			else {
+				isLeader = false;
+				vehicleId = 0;
+				platoonId = 0;
+				platoonPosition = 0;
+				leaderId = 0;
+				frontProximity = null;
+				beacons = Collections.emptyList();
+			}
+		}
+
+		public double getVelocityX() {
+			return velocityX;
+		}
+
+		public double getVelocityY() {
+			return velocityY;
+		}
+
+		/**
+		 * @return    Heading in radians.
+		 */
+		public double getHeading() {
+			return heading;
+		}
+
+		/**
+		 * @return    Wheel angle in radians.
+		 */
+		public double getWheelAngle() {
+			return wheelAngle;
+		}
+
+		public double getEnginePower() {
+			return enginePower;
+		}
+
+		public boolean hasController() {
+			return hasController;
+		}
+
+		public boolean isLeader() {
+			return isLeader;
+		}
+
+		public int getVehicleId() {
+			return vehicleId;
+		}
+
+		public int getPlatoonId() {
+			return platoonId;
+		}
+
+		public int getPlatoonPosition() {
+			return platoonPosition;
+		}
+
+		public int getLeaderId() {
+			return leaderId;
+		}
+
+		/**
+		 * @return    Front proximity last read by the controller, or null.
+		 */
+		public Double getFrontProximity() {
+			return frontProximity;
+		}
+
+		/**
+		 * @return    Beacons last read by the controller.
+		 */
+		public List<Beacon> getBeacons() {
+			return beacons;
+		}
+
+	}
+
+}
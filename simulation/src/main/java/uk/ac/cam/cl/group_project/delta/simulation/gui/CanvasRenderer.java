@@ -0,0 +1,218 @@
+package uk.ac.cam.cl.group_project.delta.simulation.gui;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+import uk.ac.cam.cl.group_project.delta.simulation.WorldSnapshot;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Draws every car in a {@link WorldSnapshot} onto a single canvas, as an
+ * alternative to a scene graph node per car, which becomes slow with more
+ * than a few hundred cars.
+ *
+ * Cars are read from the snapshot's flat car buffer. Cars which are entirely
+ * outside the view are skipped, and cars smaller than a few pixels are drawn
+ * as a single dot.
+ */
+public class CanvasRenderer {
+
+	/**
+	 * On-screen length in pixels below which cars are drawn as dots.
+	 */
+	public static final double MINIMUM_DETAIL_SIZE = 4.0;
+
+	/**
+	 * The canvas to draw on, which should cover the view pane.
+	 */
+	private final Canvas canvas;
+
+	/**
+	 * Colours of the platoons drawn in this frame, by platoon ID.
+	 */
+	private Map<Integer, Paint> platoonColours = new HashMap<>();
+
+	/**
+	 * Colours of the platoons drawn in the last frame, by platoon ID. Only
+	 * these are kept for the next frame, so the colours of platoons which no
+	 * longer exist are dropped.
+	 */
+	private Map<Integer, Paint> previousColours = new HashMap<>();
+
+	/**
+	 * Number of cars drawn in the last frame.
+	 */
+	private int drawnCount;
+
+	/**
+	 * Construct a renderer.
+	 * @param canvas    The canvas to draw on.
+	 */
+	public CanvasRenderer(Canvas canvas) {
+		this.canvas = canvas;
+	}
+
+	/**
+	 * Draw a frame. The view transform is the same as the one the
+	 * {@link Controller} applies to the scene: a world position p is drawn at
+	 * p * scale + origin on the canvas.
+	 * @param snapshot    The state of the world to draw.
+	 * @param scale       Canvas pixels per world metre.
+	 * @param originX     X-position of the world origin on the canvas.
+	 * @param originY     Y-position of the world origin on the canvas.
+	 */
+	public void render(WorldSnapshot snapshot, double scale, double originX, double originY) {
+
+		GraphicsContext gc = canvas.getGraphicsContext2D();
+		double width = canvas.getWidth();
+		double height = canvas.getHeight();
+		gc.clearRect(0, 0, width, height);
+
+		// The part of the world that is in view
+		double minX = -originX / scale;
+		double maxX = (width - originX) / scale;
+		double minY = -originY / scale;
+		double maxY = (height - originY) / scale;
+
+		Map<Integer, Paint> swap = previousColours;
+		previousColours = platoonColours;
+		platoonColours = swap;
+		platoonColours.clear();
+
+		drawnCount = 0;
+		for (int i = 0; i < snapshot.getCarCount(); i++) {
+			double x = snapshot.getCarValue(i, WorldSnapshot.CAR_X);
+			double y = snapshot.getCarValue(i, WorldSnapshot.CAR_Y);
+			double wheelBase = snapshot.getCarValue(i, WorldSnapshot.CAR_WHEEL_BASE);
+			// Radius enclosing the car and its platoon circles, in any orientation
+			double radius = Math.max(snapshot.getCarValue(i, WorldSnapshot.CAR_LENGTH), wheelBase * 3.2);
+			if (x + radius < minX || x - radius > maxX || y + radius < minY || y - radius > maxY) {
+				continue;
+			}
+			drawnCount++;
+
+			Paint colour = getPlatoonColour((int) snapshot.getCarValue(i, WorldSnapshot.CAR_PLATOON_ID));
+			double screenX = x * scale + originX;
+			double screenY = y * scale + originY;
+			double length = snapshot.getCarValue(i, WorldSnapshot.CAR_LENGTH) * scale;
+
+			if (length < MINIMUM_DETAIL_SIZE) {
+				gc.setFill(colour);
+				gc.fillRect(screenX - 1, screenY - 1, 2, 2);
+				continue;
+			}
+
+			gc.save();
+			gc.translate(screenX, screenY);
+			gc.rotate(Math.toDegrees(-snapshot.getCarValue(i, WorldSnapshot.CAR_HEADING)));
+			drawCar(
+				gc,
+				colour,
+				length,
+				snapshot.getCarValue(i, WorldSnapshot.CAR_WIDTH) * scale,
+				wheelBase * scale,
+				Math.toDegrees(-snapshot.getCarValue(i, WorldSnapshot.CAR_WHEEL_ANGLE)),
+				snapshot.getCarValue(i, WorldSnapshot.CAR_LEADER) != 0
+			);
+			gc.restore();
+		}
+
+	}
+
+	/**
+	 * Draw a car in the same style as {@link SimulatedCarNode}, centred on the
+	 * origin and facing along the y-axis.
+	 */
+	private static void drawCar(GraphicsContext gc, Paint colour, double length, double width,
+								double wheelBase, double wheelAngle, boolean isLeader) {
+
+		// Platoon circles
+		gc.setGlobalAlpha(SimulatedCarNode.PLATOON_CIRCLE_OPACITY);
+		gc.setFill(colour);
+		double r = wheelBase * 1.5;
+		gc.fillOval(-r, -r, 2 * r, 2 * r);
+		if (isLeader) {
+			gc.setStroke(colour);
+			gc.setLineWidth(wheelBase * 0.1);
+			r = wheelBase * 1.6;
+			gc.strokeOval(-r, -r, 2 * r, 2 * r);
+		}
+		gc.setGlobalAlpha(1.0);
+
+		double hw = width / 2.0;
+		double hl = length / 2.0;
+		double wheelLength = length / 5.0;
+		double wheelWidth = wheelLength / 3.0;
+		gc.setFill(Color.WHITESMOKE);
+		gc.setStroke(Color.BLACK);
+		gc.setLineWidth(1.0);
+
+		// Rear wheels
+		drawRect(gc, -hw - wheelWidth * 0.2, (-wheelBase - wheelLength) / 2.0, wheelWidth, wheelLength);
+		drawRect(gc, hw - wheelWidth * 0.8, (-wheelBase - wheelLength) / 2.0, wheelWidth, wheelLength);
+
+		// Front wheels, turned about their centres
+		double frontY = wheelBase / 2.0;
+		double leftX = -hw - wheelWidth * 0.2 + wheelWidth / 2.0;
+		double rightX = hw - wheelWidth * 0.8 + wheelWidth / 2.0;
+		drawTurnedRect(gc, leftX, frontY, wheelAngle, wheelWidth, wheelLength);
+		drawTurnedRect(gc, rightX, frontY, wheelAngle, wheelWidth, wheelLength);
+
+		// Body
+		drawRect(gc, -hw, -hl, width, length);
+
+	}
+
+	private static void drawRect(GraphicsContext gc, double x, double y, double w, double h) {
+		gc.fillRect(x, y, w, h);
+		gc.strokeRect(x, y, w, h);
+	}
+
+	private static void drawTurnedRect(GraphicsContext gc, double x, double y, double angle, double w, double h) {
+		gc.save();
+		gc.translate(x, y);
+		gc.rotate(angle);
+		drawRect(gc, -w / 2.0, -h / 2.0, w, h);
+		gc.restore();
+	}
+
+	/**
+	 * Get the colour of a platoon, reusing the one from the last frame or
+	 * computing it if the platoon wasn't drawn then.
+	 * @param platoonId    ID of the platoon.
+	 * @return             The colour.
+	 */
+	private Paint getPlatoonColour(int platoonId) {
+		Paint colour = platoonColours.get(platoonId);
+		if (colour == null) {
+			colour = previousColours.get(platoonId);
+			if (colour == null) {
+				colour = SimulatedCarNode.toPaint(platoonId);
+			}
+			platoonColours.put(platoonId, colour);
+		}
+		return colour;
+	}
+
+	/**
+	 * Clear the canvas, such as when switching back to node rendering.
+	 */
+	public void clear() {
+		canvas.getGraphicsContext2D().clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+		platoonColours.clear();
+		previousColours.clear();
+		drawnCount = 0;
+	}
+
+	/**
+	 * Get the number of cars drawn in the last frame, after culling.
+	 * @return    Number of cars drawn.
+	 */
+	public int getDrawnCount() {
+		return drawnCount;
+	}
+
+}
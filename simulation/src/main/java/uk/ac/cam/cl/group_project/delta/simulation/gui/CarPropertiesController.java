@@ -59,6 +59,9 @@ public class CarPropertiesController {
 	@FXML
 	public ListView<String> beaconList;
 
+	@FXML
+	public ListView<String> metricsList;
+
 	@FXML
 	public GridPane algorithmParameters;
 
@@ -2,12 +2,12 @@ package uk.ac.cam.cl.group_project.delta.simulation.gui;
 
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
-import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.input.KeyEvent;
@@ -16,17 +16,24 @@ import javafx.scene.input.MouseEvent;
 import javafx.scene.input.ScrollEvent;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.Pane;
+import javafx.stage.FileChooser;
 import javafx.util.Duration;
-import uk.ac.cam.cl.group_project.delta.MessageReceipt;
-import uk.ac.cam.cl.group_project.delta.algorithm.Algorithm;
+import uk.ac.cam.cl.group_project.delta.Log;
 import uk.ac.cam.cl.group_project.delta.algorithm.AlgorithmEnum;
 import uk.ac.cam.cl.group_project.delta.algorithm.communications.MessageType;
 import uk.ac.cam.cl.group_project.delta.algorithm.communications.Packet;
 import uk.ac.cam.cl.group_project.delta.simulation.*;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * JavaFX GUI controller.
@@ -56,10 +63,21 @@ public class Controller {
 	private SimulationThread simulation;
 
 	/**
-	 * List of nodes representing objects in the simulated world.
+	 * Sniffer collecting the packets shown in the network log.
+	 */
+	private NetworkLogSniffer networkLogSniffer;
+
+	/**
+	 * List of nodes representing objects in the simulated world. This is
+	 * empty when the vehicles are drawn on the canvas.
 	 */
 	private List<SimulatedBodyNode> simulatedNodes;
 
+	/**
+	 * Every car displayed, whether as a node or on the canvas.
+	 */
+	private List<SimulatedCar> simulatedCars;
+
 	/**
 	 * Root GUI element.
 	 */
@@ -78,6 +96,30 @@ public class Controller {
 	@FXML
 	private Pane scene;
 
+	/**
+	 * Canvas covering the view pane, which the vehicles are drawn on instead
+	 * of the scene when canvas rendering is enabled.
+	 */
+	@FXML
+	private Canvas canvas;
+
+	/**
+	 * Button to switch between node and canvas rendering.
+	 */
+	@FXML
+	public ToggleButton canvasButton;
+
+	/**
+	 * Draws the vehicles on the canvas.
+	 */
+	private CanvasRenderer canvasRenderer;
+
+	/**
+	 * Whether the vehicles are drawn on the canvas rather than as nodes in
+	 * the scene.
+	 */
+	private boolean canvasRendering = false;
+
 	/**
 	 * GUI element containing the hierarchical information for a selected
 	 * object.
@@ -142,6 +184,18 @@ public class Controller {
 	@FXML
 	public Slider timeDilationSlider;
 
+	/**
+	 * Fast-forward button.
+	 */
+	@FXML
+	public ToggleButton fastForwardButton;
+
+	/**
+	 * Shows how fast the simulation is running compared to real time.
+	 */
+	@FXML
+	public Label speedLabel;
+
 	/**
 	 * Network parameter spinner.
 	 * @see uk.ac.cam.cl.group_project.delta.simulation.SimulatedNetwork#setMessageDeliveryModifier(double)
@@ -242,6 +296,11 @@ public class Controller {
 	 */
 	private SimulatedCarNode currentSelection;
 
+	/**
+	 * The car whose properties are displayed, if any.
+	 */
+	private SimulatedCarNode propertiesNode;
+
 	/**
 	 * Construct the application's simulation thread.
 	 */
@@ -249,8 +308,9 @@ public class Controller {
 
 		simulation = new SimulationThread();
 		simulatedNodes = new ArrayList<>();
+		simulatedCars = new ArrayList<>();
 		cursorPosition = new Vector2D();
-		networkLogStore = FXCollections.observableList(new LinkedList<>());
+		networkLogStore = FXCollections.observableArrayList();
 
 		// Create timeline
 		timeline = new Timeline();
@@ -282,6 +342,10 @@ public class Controller {
 
 		networkLog.setItems(networkLogStore);
 
+		canvas.widthProperty().bind(viewPane.widthProperty());
+		canvas.heightProperty().bind(viewPane.heightProperty());
+		canvasRenderer = new CanvasRenderer(canvas);
+
 		// Construct table columns
 		TableColumn<NetworkLogMessage, String> time = new TableColumn<>("Time");
 		time.setCellValueFactory(new PropertyValueFactory<>("time"));
@@ -303,6 +367,13 @@ public class Controller {
 		message.setPrefWidth(600);
 		networkLog.getColumns().add(message);
 
+		// Network log filters
+		for (CheckBox filter : new CheckBox[]{filterEmergency, filterData, filterMerges, filterQueries}) {
+			filter.selectedProperty().addListener(
+				(value, prev, next) -> networkLogSniffer.setTypes(getNetworkLogTypes())
+			);
+		}
+
 		// Time controls
 		pausedPane.visibleProperty().bind(pauseButton.selectedProperty());
 		timeDilationSlider.valueProperty().addListener(
@@ -315,34 +386,34 @@ public class Controller {
 
 		// Bind options
 		networkDeliveryModifier.valueProperty().addListener(
-			(value, prev, next) -> SimulatedNetwork.setMessageDeliveryModifier(next)
+			(value, prev, next) -> simulation.setFault(FaultSetting.MESSAGE_DELIVERY_MODIFIER, next)
 		);
 		frontProximityStdDev.valueProperty().addListener(
-			(value, prev, next) -> FaultySensorModule.setFrontProximityStdDev(next)
+			(value, prev, next) -> simulation.setFault(FaultSetting.FRONT_PROXIMITY_STD_DEV, next)
 		);
 		frontProximityFailureRate.valueProperty().addListener(
-			(value, prev, next) -> FaultySensorModule.setFrontProximityFailureRate(next)
+			(value, prev, next) -> simulation.setFault(FaultSetting.FRONT_PROXIMITY_FAILURE_RATE, next)
 		);
 		frontProximityEnabled.selectedProperty().addListener(
-			(value, prev, next) -> FaultySensorModule.setFrontProximityEnabled(next)
+			(value, prev, next) -> simulation.setFault(FaultSetting.FRONT_PROXIMITY_ENABLED, next ? 1 : 0)
 		);
 		beaconsEmulateMindstorms.selectedProperty().addListener(
-			(value, prev, next) -> FaultySensorModule.setBeaconsEmulateMindstorms(next)
+			(value, prev, next) -> simulation.setFault(FaultSetting.BEACONS_EMULATE_MINDSTORMS, next ? 1 : 0)
 		);
 		beaconDistanceStdDev.valueProperty().addListener(
-			(value, prev, next) -> FaultySensorModule.setBeaconDistanceStdDev(next)
+			(value, prev, next) -> simulation.setFault(FaultSetting.BEACON_DISTANCE_STD_DEV, next)
 		);
 		beaconAngleStdDev.valueProperty().addListener(
-			(value, prev, next) -> FaultySensorModule.setBeaconAngleStdDev(next)
+			(value, prev, next) -> simulation.setFault(FaultSetting.BEACON_ANGLE_STD_DEV, next)
 		);
 		accelerationStdDev.valueProperty().addListener(
-			(value, prev, next) -> FaultySensorModule.setAccelerationStdDev(next)
+			(value, prev, next) -> simulation.setFault(FaultSetting.ACCELERATION_STD_DEV, next)
 		);
 		speedStdDev.valueProperty().addListener(
-			(value, prev, next) -> FaultySensorModule.setSpeedStdDev(next)
+			(value, prev, next) -> simulation.setFault(FaultSetting.SPEED_STD_DEV, next)
 		);
 		turnRateStdDev.valueProperty().addListener(
-			(value, prev, next) -> FaultySensorModule.setTurnRateStdDev(next)
+			(value, prev, next) -> simulation.setFault(FaultSetting.TURN_RATE_STD_DEV, next)
 		);
 
 		// And we are ready to begin...
@@ -356,23 +427,122 @@ public class Controller {
 	private void start() {
 
 		// Register network packet sniffer
-		simulation.getNetwork().register(msg ->
-			Platform.runLater(() -> addToNetworkLog(new MessageReceipt(msg)))
-		);
+		networkLogSniffer = new NetworkLogSniffer(simulation.getClock(), NETWORK_LOG_CAPACITY);
+		networkLogSniffer.setTypes(getNetworkLogTypes());
+		simulation.getNetwork().register(networkLogSniffer);
 
 		// Start background tasks
+		networkLogSniffer.start();
 		simulation.start();
 		timeline.play();
 
 	}
 
 	/**
-	 * Update positions of all displayed nodes.
+	 * Update positions of all displayed nodes from the latest snapshot of the
+	 * simulation, without locking any of the simulated bodies.
 	 */
 	public void update() {
-		for (SimulatedBodyNode node : simulatedNodes) {
-			node.update();
+		WorldSnapshot snapshot = simulation.getSnapshot();
+		if (canvasRendering) {
+			canvasRenderer.render(
+				snapshot,
+				scene.getScaleX() * UNITS_PER_METRE,
+				getSceneTranslationX(),
+				getSceneTranslationY()
+			);
+			// Only the nodes being followed or shown in the properties pane need updating
+			if (currentSelection != null) {
+				currentSelection.update(snapshot);
+			}
+			if (propertiesNode != null && propertiesNode != currentSelection) {
+				propertiesNode.update(snapshot);
+			}
+		}
+		else {
+			for (SimulatedBodyNode node : simulatedNodes) {
+				node.update(snapshot);
+			}
+		}
+		if (propertiesNode != null) {
+			propertiesNode.updateDetails(snapshot);
+		}
+		updateNetworkLog();
+		speedLabel.setText(String.format("\u00d7%.1f", simulation.getSpeedRatio()));
+	}
+
+	/**
+	 * Switch between drawing the vehicles as nodes in the scene, and drawing
+	 * them all on a single canvas. Only the nodes of the selected car and the
+	 * car whose properties are displayed are kept while using the canvas.
+	 */
+	public void onCanvasToggle() {
+		canvasRendering = canvasButton.isSelected();
+		if (canvasRendering) {
+			scene.getChildren().removeAll(simulatedNodes);
+			simulatedNodes.clear();
+		}
+		else {
+			canvasRenderer.clear();
+			for (SimulatedCar car : simulatedCars) {
+				SimulatedCarNode node = getCarNode(car);
+				scene.getChildren().add(node);
+				simulatedNodes.add(node);
+			}
+		}
+		update();
+	}
+
+	/**
+	 * Find the car drawn at a point on the canvas.
+	 * @param x    X-coordinate, in view-pane space.
+	 * @param y    Y-coordinate, in view-pane space.
+	 * @return     Node of the closest car whose body contains the point, or
+	 *             null if there is none. The node is created if the car has
+	 *             none.
+	 */
+	private SimulatedCarNode pickCar(double x, double y) {
+		WorldSnapshot snapshot = simulation.getSnapshot();
+		double worldX = fromViewPaneToWorldSpaceX(x);
+		double worldY = fromViewPaneToWorldSpaceY(y);
+		int closestUuid = 0;
+		double closestDistance = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < snapshot.getCarCount(); i++) {
+			double dx = snapshot.getCarValue(i, WorldSnapshot.CAR_X) - worldX;
+			double dy = snapshot.getCarValue(i, WorldSnapshot.CAR_Y) - worldY;
+			double distance = Math.sqrt(dx * dx + dy * dy);
+			if (distance < snapshot.getCarValue(i, WorldSnapshot.CAR_LENGTH) / 2 && distance < closestDistance) {
+				closestDistance = distance;
+				closestUuid = (int) snapshot.getCarValue(i, WorldSnapshot.CAR_UUID);
+			}
+		}
+		for (SimulatedCar car : simulatedCars) {
+			if (car.getUuid() == closestUuid) {
+				return getCarNode(car);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Get a node representing a car, reusing the node of the selected car or
+	 * the car whose properties are displayed.
+	 * @param car    The car.
+	 * @return       The node.
+	 */
+	private SimulatedCarNode getCarNode(SimulatedCar car) {
+		if (currentSelection != null && currentSelection.getCar() == car) {
+			return currentSelection;
 		}
+		if (propertiesNode != null && propertiesNode.getCar() == car) {
+			return propertiesNode;
+		}
+		SimulatedCarNode node = new SimulatedCarNode(car, simulation);
+		node.addEventFilter(
+			MouseEvent.MOUSE_CLICKED,
+			e -> onCarClicked(e, node)
+		);
+		return node;
 	}
 
 	/**
@@ -380,42 +550,54 @@ public class Controller {
 	 * @param obj    The object to display.
 	 */
 	private void showProperties(Paneable obj) {
+		propertiesNode = obj instanceof SimulatedCarNode ? (SimulatedCarNode) obj : null;
 		Pane root = obj.toPane();
 		propertiesPane.getChildren().setAll(root);
 	}
 
 	/**
-	 * Add a message to the network log tab.
-	 * @param message   Message to add.
+	 * Add the packets decoded since the last frame to the network log tab,
+	 * as a single change to the table.
 	 */
-	private void addToNetworkLog(MessageReceipt message) {
-
-		Packet packet = new Packet(message);
-		NetworkLogMessage msg = new NetworkLogMessage(message.getTime(), packet);
-
-		MessageType type = packet.message.getType();
-		boolean isMergeMessage =
-			type == MessageType.RequestToMerge
-			|| type == MessageType.AcceptToMerge
-			|| type == MessageType.ConfirmMerge
-			|| type == MessageType.MergeComplete;
-		boolean isQuery =
-			type == MessageType.BeaconIdQuestion
-			|| type == MessageType.BeaconIdAnswer;
-
-		if (
-			(type == MessageType.Emergency && filterEmergency.isSelected())
-			|| (type == MessageType.Data && filterData.isSelected())
-			|| (isMergeMessage && filterMerges.isSelected())
-			|| (isQuery && filterQueries.isSelected())
-		) {
-			networkLogStore.add(0, msg);
-			if (networkLogStore.size() > NETWORK_LOG_CAPACITY) {
-				// Range is start-inclusive, end-exclusive
-				networkLogStore.remove(NETWORK_LOG_CAPACITY, networkLogStore.size());
-			}
+	private void updateNetworkLog() {
+		List<Packet> packets = networkLogSniffer.drain();
+		if (packets.isEmpty()) {
+			return;
 		}
+		List<NetworkLogMessage> log = new ArrayList<>(NETWORK_LOG_CAPACITY);
+		for (Packet packet : packets) {
+			log.add(new NetworkLogMessage(packet.receiptTime, packet));
+		}
+		// Keep the newest of the existing messages, up to the capacity
+		int kept = Math.min(networkLogStore.size(), NETWORK_LOG_CAPACITY - log.size());
+		log.addAll(networkLogStore.subList(0, kept));
+		networkLogStore.setAll(log);
+	}
 
+	/**
+	 * Get the types of message selected by the network log filters.
+	 * @return    Types of message to log.
+	 */
+	private Set<MessageType> getNetworkLogTypes() {
+		Set<MessageType> types = EnumSet.noneOf(MessageType.class);
+		if (filterEmergency.isSelected()) {
+			types.add(MessageType.Emergency);
+		}
+		if (filterData.isSelected()) {
+			types.addAll(EnumSet.of(MessageType.Data, MessageType.CompactData, MessageType.RelayedData));
+		}
+		if (filterMerges.isSelected()) {
+			types.addAll(EnumSet.of(
+				MessageType.RequestToMerge,
+				MessageType.AcceptToMerge,
+				MessageType.ConfirmMerge,
+				MessageType.MergeComplete
+			));
+		}
+		if (filterQueries.isSelected()) {
+			types.addAll(EnumSet.of(MessageType.BeaconIdQuestion, MessageType.BeaconIdAnswer));
+		}
+		return types;
 	}
 
 	/**
@@ -487,34 +669,22 @@ public class Controller {
 		switch (keyEvent.getCode()) {
 			case W:
 				if (currentSelection != null) {
-					SimulatedCar car = currentSelection.getCar();
-					synchronized (car) {
-						car.setEnginePower(0.25);
-					}
+					simulation.setEnginePower(currentSelection.getCar(), 0.25);
 				}
 				break;
 			case S:
 				if (currentSelection != null) {
-					SimulatedCar car = currentSelection.getCar();
-					synchronized (car) {
-						car.setEnginePower(-1000.0);
-					}
+					simulation.setEnginePower(currentSelection.getCar(), -1000.0);
 				}
 				break;
 			case A:
 				if (currentSelection != null) {
-					SimulatedCar car = currentSelection.getCar();
-					synchronized (car) {
-						car.setWheelAngle(-Math.PI / 8);
-					}
+					simulation.setWheelAngle(currentSelection.getCar(), -Math.PI / 8);
 				}
 				break;
 			case D:
 				if (currentSelection != null) {
-					SimulatedCar car = currentSelection.getCar();
-					synchronized (car) {
-						car.setWheelAngle(Math.PI / 8);
-					}
+					simulation.setWheelAngle(currentSelection.getCar(), Math.PI / 8);
 				}
 				break;
 			case SPACE:
@@ -557,20 +727,18 @@ public class Controller {
 		if (currentSelection != null) {
 			SimulatedCar car = currentSelection.getCar();
 			boolean consume = true;
-			synchronized (car) {
-				switch (keyEvent.getCode()) {
-					case W:
-					case S:
-						car.setEnginePower(0.0);
-						break;
-					case A:
-					case D:
-						car.setWheelAngle(0.0);
-						break;
-					default:
-						consume = false;
-						break;
-				}
+			switch (keyEvent.getCode()) {
+				case W:
+				case S:
+					simulation.setEnginePower(car, 0.0);
+					break;
+				case A:
+				case D:
+					simulation.setWheelAngle(car, 0.0);
+					break;
+				default:
+					consume = false;
+					break;
 			}
 			if (consume) {
 				keyEvent.consume();
@@ -595,6 +763,14 @@ public class Controller {
 	 */
 	@FXML
 	public void onViewPaneMouseClick(MouseEvent event) {
+		if (canvasRendering) {
+			// The cars are not nodes, so find the clicked car on the canvas
+			SimulatedCarNode node = pickCar(event.getX(), event.getY());
+			if (node != null) {
+				onCarClicked(event, node);
+				return;
+			}
+		}
 		if (event.getButton().equals(MouseButton.SECONDARY)) {
 			sceneContextMenu.show(viewPane, event.getScreenX(), event.getScreenY());
 		}
@@ -684,32 +860,23 @@ public class Controller {
 	 */
 	private void onDialogConfirmed(double wheelBase, double posX, double posY, AlgorithmEnum controller) {
 
-		SimulatedCar car = simulation.createCar(wheelBase);
-
-		synchronized (car) {
-			car.getPosition().setX(posX);
-			car.getPosition().setY(posY);
-			if (controller != null) {
-				car.setController(
-					Algorithm.createAlgorithm(
-						controller,
-						car.getDriveInterface(),
-						car.getSensorInterface(),
-						car.getNetworkInterface(),
-						car
-					)
-				);
-			}
-		}
+		addNode(simulation.createCar(wheelBase, posX, posY, controller));
 
-		SimulatedCarNode node = new SimulatedCarNode(car);
-		node.addEventFilter(
-			MouseEvent.MOUSE_CLICKED,
-			e -> onCarClicked(e, node)
-		);
+	}
+
+	/**
+	 * Display a car of the simulation. Its node is only created now when the
+	 * vehicles are drawn as nodes.
+	 * @param car    The car.
+	 */
+	private void addNode(SimulatedCar car) {
 
-		scene.getChildren().add(node);
-		simulatedNodes.add(node);
+		simulatedCars.add(car);
+		if (!canvasRendering) {
+			SimulatedCarNode node = getCarNode(car);
+			scene.getChildren().add(node);
+			simulatedNodes.add(node);
+		}
 
 	}
 
@@ -753,7 +920,8 @@ public class Controller {
 							.negate()
 					);
 				});
-				vehicleContextMenu.show(node, e.getScreenX(), e.getScreenY());
+				// Anchored to the view pane, as the node is not in the scene when using the canvas
+				vehicleContextMenu.show(viewPane, e.getScreenX(), e.getScreenY());
 
 				break;
 
@@ -782,6 +950,77 @@ public class Controller {
 		}
 	}
 
+	/**
+	 * Toggle whether the simulation runs as fast as possible.
+	 */
+	public void onFastForward() {
+		simulation.setFastForward(fastForwardButton.isSelected());
+	}
+
+	/**
+	 * Save the record of this run of the simulation to a file chosen by the
+	 * user, from which it can be replayed exactly.
+	 * @see InputLog#replay(java.io.InputStream)
+	 */
+	public void onSaveRecording() {
+		FileChooser chooser = new FileChooser();
+		chooser.setTitle("Save recording");
+		chooser.setInitialFileName("simulation-" + simulation.getSeed() + ".siml");
+		File file = chooser.showSaveDialog(scene.getScene().getWindow());
+		if (file != null) {
+			try (OutputStream out = new FileOutputStream(file)) {
+				simulation.writeInputLog(out);
+			}
+			catch (IOException e) {
+				Log.error(e);
+			}
+		}
+	}
+
+	/**
+	 * Save the whole state of the simulation to a file chosen by the user,
+	 * from which it can be restored any number of times.
+	 * @see SimulationThread#writeCheckpoint(OutputStream)
+	 */
+	public void onSaveCheckpoint() {
+		FileChooser chooser = new FileChooser();
+		chooser.setTitle("Save checkpoint");
+		chooser.setInitialFileName(String.format(
+			"simulation-%d-%.0fs.simc", simulation.getSeed(), simulation.getClock().getTime() / 1e9
+		));
+		File file = chooser.showSaveDialog(scene.getScene().getWindow());
+		if (file != null) {
+			try (OutputStream out = new FileOutputStream(file)) {
+				simulation.writeCheckpoint(out);
+			}
+			catch (IOException e) {
+				Log.error(e);
+			}
+		}
+	}
+
+	/**
+	 * Replace the simulation with one restored from a checkpoint file chosen
+	 * by the user.
+	 * @see SimulationThread#readCheckpoint(InputStream)
+	 */
+	public void onLoadCheckpoint() {
+		FileChooser chooser = new FileChooser();
+		chooser.setTitle("Load checkpoint");
+		File file = chooser.showOpenDialog(scene.getScene().getWindow());
+		if (file != null) {
+			SimulationThread restored;
+			try (InputStream in = new FileInputStream(file)) {
+				restored = SimulationThread.readCheckpoint(in);
+			}
+			catch (IOException e) {
+				Log.error(e);
+				return;
+			}
+			replaceSimulation(restored);
+		}
+	}
+
 	public void clearNetworkLog() {
 		networkLogStore.clear();
 	}
@@ -790,10 +1029,19 @@ public class Controller {
 	 * Reset the simulation world state.
 	 */
 	public void reset() {
+		replaceSimulation(new SimulationThread());
+	}
+
+	/**
+	 * Stop the current simulation and display another instead.
+	 * @param next    The new simulation, which has not been started.
+	 */
+	private void replaceSimulation(SimulationThread next) {
 
 		// Terminate the simulation
 		simulation.terminate();
 		simulation.interrupt();
+		networkLogSniffer.terminate();
 		timeline.stop();
 
 		// Reset view
@@ -811,9 +1059,13 @@ public class Controller {
 				scene.getChildren().remove(node);
 			}
 		}
+		simulatedNodes.clear();
+		simulatedCars.clear();
+		canvasRenderer.clear();
 
 		// Reset controls
 		pauseButton.setSelected(false);
+		fastForwardButton.setSelected(false);
 		timeDilationSlider.setValue(1.0);
 
 		// Clear network log
@@ -821,10 +1073,33 @@ public class Controller {
 
 		// Clear selection
 		currentSelection = null;
+		propertiesNode = null;
 		propertiesPane.getChildren().clear();
 
 		// Restart the simulation
-		simulation = new SimulationThread();
+		simulation = next;
+		List<PhysicsBody> bodies;
+		synchronized (simulation.getWorld()) {
+			bodies = new ArrayList<>(simulation.getWorld().getBodies());
+		}
+		for (PhysicsBody body : bodies) {
+			if (body instanceof SimulatedCar) {
+				addNode((SimulatedCar) body);
+			}
+		}
+
+		// Show the fault settings of the new simulation, which may have been
+		// restored from a checkpoint
+		networkDeliveryModifier.getValueFactory().setValue(FaultSetting.MESSAGE_DELIVERY_MODIFIER.get());
+		frontProximityStdDev.getValueFactory().setValue(FaultSetting.FRONT_PROXIMITY_STD_DEV.get());
+		frontProximityFailureRate.getValueFactory().setValue(FaultSetting.FRONT_PROXIMITY_FAILURE_RATE.get());
+		frontProximityEnabled.setSelected(FaultSetting.FRONT_PROXIMITY_ENABLED.get() != 0);
+		beaconsEmulateMindstorms.setSelected(FaultSetting.BEACONS_EMULATE_MINDSTORMS.get() != 0);
+		beaconDistanceStdDev.getValueFactory().setValue(FaultSetting.BEACON_DISTANCE_STD_DEV.get());
+		beaconAngleStdDev.getValueFactory().setValue(FaultSetting.BEACON_ANGLE_STD_DEV.get());
+		accelerationStdDev.getValueFactory().setValue(FaultSetting.ACCELERATION_STD_DEV.get());
+		speedStdDev.getValueFactory().setValue(FaultSetting.SPEED_STD_DEV.get());
+		turnRateStdDev.getValueFactory().setValue(FaultSetting.TURN_RATE_STD_DEV.get());
 
 		// And we may begin (again)...
 		start();
@@ -0,0 +1,306 @@
+package uk.ac.cam.cl.group_project.delta.simulation.gui;
+
+import uk.ac.cam.cl.group_project.delta.algorithm.AlgorithmEnum;
+import uk.ac.cam.cl.group_project.delta.algorithm.ParameterEnum;
+import uk.ac.cam.cl.group_project.delta.simulation.FaultSetting;
+import uk.ac.cam.cl.group_project.delta.simulation.SimulatedCar;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compact record of everything that affects a run of a
+ * {@link SimulationThread}, from which the run can be repeated exactly.
+ *
+ * With the random seed of the run, the only inputs are the size of each time
+ * step and the changes made by the user, which are applied between steps.
+ * Each is appended to the log as a record of a type byte followed by its
+ * values, where whole numbers are variable-length and other numbers are
+ * 8-byte doubles. Cars are identified by the order they were created in.
+ * Consecutive time steps are recorded as a single step of their total length,
+ * as the simulation advances in fixed steps whatever the length of each
+ * update, so the log only grows with the user's changes.
+ *
+ * <pre>
+ * int     {@link #MAGIC}
+ * byte    version ({@link #VERSION})
+ * long    random seed
+ * records:
+ *   STEP           varint dt (ns)
+ *   ADD_CAR        double wheel base, double x, double y, varint algorithm (ordinal + 1, or 0 for none)
+ *   ENGINE_POWER   varint car, double power
+ *   WHEEL_ANGLE    varint car, double angle
+ *   PARAMETER      varint car, varint parameter (ordinal), double value
+ *   FAULT          varint setting (ordinal), double value
+ * </pre>
+ */
+public class InputLog {
+
+	/**
+	 * The first bytes of a log, "SIML".
+	 */
+	public static final int MAGIC = 0x53494D4C;
+
+	/**
+	 * Version of the log format.
+	 */
+	public static final byte VERSION = 1;
+
+	private static final int STEP = 0;
+	private static final int ADD_CAR = 1;
+	private static final int ENGINE_POWER = 2;
+	private static final int WHEEL_ANGLE = 3;
+	private static final int PARAMETER = 4;
+	private static final int FAULT = 5;
+
+	/**
+	 * The log so far.
+	 */
+	private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+	/**
+	 * Total length of the time steps since the last record, which have not
+	 * been written yet.
+	 */
+	private long pendingStep;
+
+	/**
+	 * Start a log.
+	 * @param seed    The random seed of the run.
+	 */
+	public InputLog(long seed) {
+		writeFixed(MAGIC, 4);
+		bytes.write(VERSION);
+		writeFixed(seed, 8);
+	}
+
+	/**
+	 * Continue a log, such as one saved in a checkpoint.
+	 * @param log    The log so far.
+	 */
+	InputLog(byte[] log) {
+		bytes.write(log, 0, log.length);
+	}
+
+	/**
+	 * Record a time step, which is added to any steps since the last record.
+	 * @param dt    Length of the step, in nanoseconds.
+	 */
+	public synchronized void step(long dt) {
+		pendingStep += dt;
+	}
+
+	/**
+	 * Write the time steps since the last record as one step, before another
+	 * record or before the log is read.
+	 */
+	private void writePendingStep() {
+		if (pendingStep > 0) {
+			bytes.write(STEP);
+			writeVariable(pendingStep);
+			pendingStep = 0;
+		}
+	}
+
+	/**
+	 * Record a car being added to the world.
+	 * @param wheelBase     Distance from front- to rear-axle.
+	 * @param x             Initial x-coordinate.
+	 * @param y             Initial y-coordinate.
+	 * @param controller    Algorithm controlling the car, or null.
+	 */
+	public synchronized void addCar(double wheelBase, double x, double y, AlgorithmEnum controller) {
+		writePendingStep();
+		bytes.write(ADD_CAR);
+		writeDouble(wheelBase);
+		writeDouble(x);
+		writeDouble(y);
+		writeVariable(controller == null ? 0 : controller.ordinal() + 1);
+	}
+
+	/**
+	 * Record the engine power of a car being set.
+	 * @param car      Index of the car, in order of creation.
+	 * @param power    New engine power.
+	 */
+	public synchronized void enginePower(int car, double power) {
+		writePendingStep();
+		bytes.write(ENGINE_POWER);
+		writeVariable(car);
+		writeDouble(power);
+	}
+
+	/**
+	 * Record the wheel angle of a car being set.
+	 * @param car      Index of the car, in order of creation.
+	 * @param angle    New wheel angle.
+	 */
+	public synchronized void wheelAngle(int car, double angle) {
+		writePendingStep();
+		bytes.write(WHEEL_ANGLE);
+		writeVariable(car);
+		writeDouble(angle);
+	}
+
+	/**
+	 * Record a parameter of a car's algorithm being set.
+	 * @param car          Index of the car, in order of creation.
+	 * @param parameter    The parameter.
+	 * @param value        New value.
+	 */
+	public synchronized void parameter(int car, ParameterEnum parameter, double value) {
+		writePendingStep();
+		bytes.write(PARAMETER);
+		writeVariable(car);
+		writeVariable(parameter.ordinal());
+		writeDouble(value);
+	}
+
+	/**
+	 * Record a fault setting being changed.
+	 * @param setting    The setting.
+	 * @param value      New value.
+	 */
+	public synchronized void fault(FaultSetting setting, double value) {
+		writePendingStep();
+		bytes.write(FAULT);
+		writeVariable(setting.ordinal());
+		writeDouble(value);
+	}
+
+	/**
+	 * Get the size of the log so far.
+	 * @return    Size in bytes.
+	 */
+	public synchronized int size() {
+		writePendingStep();
+		return bytes.size();
+	}
+
+	/**
+	 * Write the log so far to a stream.
+	 * @param out    Stream to write to.
+	 * @throws IOException if the stream can't be written.
+	 */
+	public synchronized void writeTo(OutputStream out) throws IOException {
+		writePendingStep();
+		bytes.writeTo(out);
+	}
+
+	/**
+	 * Get a copy of the log so far.
+	 * @return    The log.
+	 */
+	public synchronized byte[] toByteArray() {
+		writePendingStep();
+		return bytes.toByteArray();
+	}
+
+	private void writeFixed(long value, int length) {
+		for (int shift = 8 * (length - 1); shift >= 0; shift -= 8) {
+			bytes.write((int) (value >>> shift));
+		}
+	}
+
+	private void writeDouble(double value) {
+		writeFixed(Double.doubleToLongBits(value), 8);
+	}
+
+	/**
+	 * Write a non-negative number in 7-bit groups, least significant first,
+	 * with the top bit set on all but the last.
+	 */
+	private void writeVariable(long value) {
+		while ((value & ~0x7FL) != 0) {
+			bytes.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		bytes.write((int) value);
+	}
+
+	/**
+	 * Repeat a recorded run on the calling thread, as fast as possible. The
+	 * returned simulation has not been started, and holds the state of the
+	 * world at the end of the run.
+	 * @param in    The log, which is read to the end but not closed.
+	 * @return      The simulation, which has recorded an identical log.
+	 * @throws IOException if the log can't be read or is invalid.
+	 */
+	public static SimulationThread replay(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+		if (data.readInt() != MAGIC) {
+			throw new IOException("Not a simulation input log");
+		}
+		int version = data.readByte();
+		if (version != VERSION) {
+			throw new IOException("Unsupported input log version " + version);
+		}
+		SimulationThread simulation = new SimulationThread(data.readLong(), false);
+		List<SimulatedCar> cars = new ArrayList<>();
+
+		int type;
+		while ((type = data.read()) >= 0) {
+			try {
+				switch (type) {
+					case STEP:
+						simulation.update(readVariable(data));
+						break;
+					case ADD_CAR:
+						double wheelBase = data.readDouble();
+						double x = data.readDouble();
+						double y = data.readDouble();
+						int controller = (int) readVariable(data);
+						cars.add(simulation.createCar(
+							wheelBase, x, y, controller == 0 ? null : AlgorithmEnum.values()[controller - 1]
+						));
+						break;
+					case ENGINE_POWER:
+						simulation.setEnginePower(cars.get((int) readVariable(data)), data.readDouble());
+						break;
+					case WHEEL_ANGLE:
+						simulation.setWheelAngle(cars.get((int) readVariable(data)), data.readDouble());
+						break;
+					case PARAMETER:
+						SimulatedCar car = cars.get((int) readVariable(data));
+						ParameterEnum parameter = ParameterEnum.values()[(int) readVariable(data)];
+						simulation.setParameter(car, parameter, data.readDouble());
+						break;
+					case FAULT:
+						FaultSetting setting = FaultSetting.values()[(int) readVariable(data)];
+						simulation.setFault(setting, data.readDouble());
+						break;
+					default:
+						throw new IOException("Unknown input log record type " + type);
+				}
+			}
+			catch (IndexOutOfBoundsException e) {
+				throw new IOException("Input log refers to an unknown car, algorithm or setting", e);
+			}
+			catch (EOFException e) {
+				throw new IOException("Input log ends part way through a record", e);
+			}
+		}
+		simulation.publishSnapshot();
+		return simulation;
+	}
+
+	private static long readVariable(DataInputStream data) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = data.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Invalid number in input log");
+	}
+
+}
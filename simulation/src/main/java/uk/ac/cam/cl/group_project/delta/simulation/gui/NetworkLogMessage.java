@@ -5,11 +5,11 @@ import javafx.scene.control.TableColumn;
 import uk.ac.cam.cl.group_project.delta.algorithm.VehicleData;
 import uk.ac.cam.cl.group_project.delta.algorithm.communications.*;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * JavaFX structure for tree view.
+ *
+ * The text of the message is only formatted when it is first displayed, so
+ * messages which are never scrolled into view are not formatted.
  */
 public class NetworkLogMessage {
 
@@ -34,9 +34,14 @@ public class NetworkLogMessage {
 	private ObjectProperty<MessageType> messageType = new SimpleObjectProperty<>();
 
 	/**
-	 * String body of the message.
+	 * The decoded message.
 	 */
-	private StringProperty message = new SimpleStringProperty();
+	private final Message content;
+
+	/**
+	 * String body of the message, or null until it is first needed.
+	 */
+	private StringProperty message;
 
 	/**
 	 * Construct a log message from a packet.
@@ -49,15 +54,27 @@ public class NetworkLogMessage {
 		senderId.set(packet.vehicleId);
 		platoonId.set(packet.platoonId);
 		messageType.set(packet.message.getType());
+		content = packet.message;
+
+	}
+
+	/**
+	 * Format the body of a message as text.
+	 * @param content    The message.
+	 * @return           Text describing the message.
+	 */
+	private static String format(Message content) {
 
 		String msg = "UNKNOWN";
 
-		switch (packet.message.getType()) {
+		switch (content.getType()) {
 			case Emergency:
 				msg = "Emergency!";
 				break;
 			case Data:
-				VehicleData vd = (VehicleData) packet.message;
+			case CompactData:
+			case RelayedData:
+				VehicleData vd = (VehicleData) content;
 				msg = String.format(
 					"%f (%f) m/s, %f (%f) m/s², %f (%f) rad/s",
 					vd.getSpeed(),
@@ -69,7 +86,7 @@ public class NetworkLogMessage {
 				);
 				break;
 			case RequestToMerge:
-				RequestToMergeMessage rtmm = (RequestToMergeMessage) packet.message;
+				RequestToMergeMessage rtmm = (RequestToMergeMessage) content;
 				msg = String.format(
 					"Requesting merge of platoon %d (Transaction %d)",
 					rtmm.getMergingPlatoonId(),
@@ -77,7 +94,7 @@ public class NetworkLogMessage {
 				);
 				break;
 			case AcceptToMerge:
-				AcceptToMergeMessage atmm = (AcceptToMergeMessage) packet.message;
+				AcceptToMergeMessage atmm = (AcceptToMergeMessage) content;
 				String status = atmm.isAccepted() ? "Accepting" : "Rejecting";
 				msg = String.format(
 					"%s merge (Transaction %d)",
@@ -86,21 +103,21 @@ public class NetworkLogMessage {
 				);
 				break;
 			case ConfirmMerge:
-				ConfirmMergeMessage cmm = (ConfirmMergeMessage) packet.message;
+				ConfirmMergeMessage cmm = (ConfirmMergeMessage) content;
 				msg = String.format(
 					"Merge approved (Transaction %d)",
 					cmm.getTransactionId()
 				);
 				break;
 			case MergeComplete:
-				MergeCompleteMessage mcm = (MergeCompleteMessage) packet.message;
+				MergeCompleteMessage mcm = (MergeCompleteMessage) content;
 				msg = String.format(
 					"Merge complete (Transaction %d)",
 					mcm.getTransactionId()
 				);
 				break;
 			case BeaconIdQuestion:
-				BeaconIdQuestion biq = (BeaconIdQuestion) packet.message;
+				BeaconIdQuestion biq = (BeaconIdQuestion) content;
 				msg = String.format(
 					"Where is Vehicle %d? Tell Platoon %d",
 					biq.getBeaconId(),
@@ -108,7 +125,7 @@ public class NetworkLogMessage {
 				);
 				break;
 			case BeaconIdAnswer:
-				BeaconIdAnswer bia = (BeaconIdAnswer) packet.message;
+				BeaconIdAnswer bia = (BeaconIdAnswer) content;
 				msg = String.format(
 					"Platoon %d contains Vehicle %d",
 					bia.getAskedPlatoonId(),
@@ -117,7 +134,7 @@ public class NetworkLogMessage {
 				break;
 		}
 
-		message.set(msg);
+		return msg;
 
 	}
 
@@ -156,10 +173,13 @@ public class NetworkLogMessage {
 	}
 
 	public String getMessage() {
-		return message.get();
+		return messageProperty().get();
 	}
 
 	public StringProperty messageProperty() {
+		if (message == null) {
+			message = new SimpleStringProperty(format(content));
+		}
 		return message;
 	}
 
@@ -0,0 +1,198 @@
+package uk.ac.cam.cl.group_project.delta.simulation.gui;
+
+import uk.ac.cam.cl.group_project.delta.Clock;
+import uk.ac.cam.cl.group_project.delta.Log;
+import uk.ac.cam.cl.group_project.delta.MessageReceipt;
+import uk.ac.cam.cl.group_project.delta.algorithm.communications.MessageType;
+import uk.ac.cam.cl.group_project.delta.algorithm.communications.Packet;
+import uk.ac.cam.cl.group_project.delta.simulation.SimulatedNetwork;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Network sniffer which collects the packets shown in the network log.
+ *
+ * Broadcasts are timestamped and queued on the simulation thread, after
+ * discarding any whose type is not being logged, which can be done from the
+ * header alone. They are decoded on this thread into a ring buffer holding
+ * only the most recent packets, which the GUI drains once per frame, so that
+ * neither the simulation nor the JavaFX thread decodes packets, and the
+ * JavaFX thread is not sent a task per broadcast.
+ */
+public class NetworkLogSniffer extends Thread implements SimulatedNetwork.Sniffer {
+
+	/**
+	 * Maximum number of broadcasts waiting to be decoded, beyond which they
+	 * are dropped.
+	 */
+	public static final int QUEUE_CAPACITY = 4096;
+
+	/**
+	 * Clock used to timestamp each broadcast.
+	 */
+	private final Clock clock;
+
+	/**
+	 * Broadcasts waiting to be decoded.
+	 */
+	private final BlockingQueue<MessageReceipt> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+	/**
+	 * The most recently decoded packets, oldest first from `written`.
+	 */
+	private final Packet[] ring;
+
+	/**
+	 * Total number of packets written to the ring buffer.
+	 */
+	private long written;
+
+	/**
+	 * Value of `written` when the ring buffer was last drained.
+	 */
+	private long drained;
+
+	/**
+	 * Types of message to log, which is replaced rather than modified.
+	 */
+	private volatile Set<MessageType> types = EnumSet.allOf(MessageType.class);
+
+	/**
+	 * Number of broadcasts dropped because the queue was full.
+	 */
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * Number of broadcasts which could not be decoded.
+	 */
+	private final AtomicLong failed = new AtomicLong();
+
+	/**
+	 * Construct a sniffer, which must be registered with a network and
+	 * started.
+	 * @param clock       Clock used to timestamp broadcasts.
+	 * @param capacity    Number of the most recent packets to keep.
+	 */
+	public NetworkLogSniffer(Clock clock, int capacity) {
+		this.clock = clock;
+		this.ring = new Packet[capacity];
+		this.setDaemon(true);
+	}
+
+	/**
+	 * Queue a broadcast to be decoded, if it may contain messages of a type
+	 * being logged. Called on the simulation thread.
+	 * @param message    Packet sent.
+	 */
+	@Override
+	public void handleMessage(byte[] message) {
+		MessageType type = Packet.getType(message);
+		// The messages in a batch can only be filtered once it is decoded
+		if (type != MessageType.Batch && !types.contains(type)) {
+			return;
+		}
+		if (!queue.offer(new MessageReceipt(message, clock))) {
+			dropped.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Decode queued broadcasts until interrupted. Broadcasts which can't be
+	 * decoded are counted and skipped, so that the log keeps updating.
+	 */
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				MessageReceipt receipt = queue.take();
+				List<Packet> packets;
+				try {
+					packets = Packet.parse(receipt, types);
+				}
+				catch (RuntimeException e) {
+					// Only the first is logged, as a faulty car may send many
+					if (failed.getAndIncrement() == 0) {
+						Log.warn("Network log could not decode a broadcast: " + e);
+					}
+					continue;
+				}
+				for (Packet packet : packets) {
+					add(packet);
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			// Fired by terminate(), so stop
+		}
+	}
+
+	/**
+	 * Stop decoding broadcasts. The sniffer should also be deregistered from
+	 * its network, if the network is still in use.
+	 */
+	public void terminate() {
+		interrupt();
+	}
+
+	/**
+	 * Add a decoded packet to the ring buffer, overwriting the oldest.
+	 * @param packet    Packet to add.
+	 */
+	private synchronized void add(Packet packet) {
+		ring[(int) (written % ring.length)] = packet;
+		written++;
+	}
+
+	/**
+	 * Take the packets decoded since the last call, up to the capacity of the
+	 * ring buffer, of which only the most recent are kept.
+	 * @return    The packets, newest first.
+	 */
+	public synchronized List<Packet> drain() {
+		int count = (int) Math.min(written - drained, ring.length);
+		drained = written;
+		if (count == 0) {
+			return Collections.emptyList();
+		}
+		List<Packet> packets = new ArrayList<>(count);
+		for (long i = written - 1; i >= written - count; i--) {
+			packets.add(ring[(int) (i % ring.length)]);
+		}
+		return packets;
+	}
+
+	/**
+	 * Set the types of message to log, from subsequent broadcasts.
+	 * @param types    Types to log.
+	 */
+	public void setTypes(Set<MessageType> types) {
+		Set<MessageType> copy = EnumSet.noneOf(MessageType.class);
+		copy.addAll(types);
+		this.types = copy;
+	}
+
+	/**
+	 * Get the number of broadcasts dropped because they arrived faster than
+	 * they could be decoded.
+	 * @return    Number of broadcasts dropped.
+	 */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	/**
+	 * Get the number of broadcasts which could not be decoded.
+	 * @return    Number of broadcasts which failed to decode.
+	 */
+	public long getFailedCount() {
+		return failed.get();
+	}
+
+}
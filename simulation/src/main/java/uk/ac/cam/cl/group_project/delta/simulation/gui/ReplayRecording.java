@@ -0,0 +1,50 @@
+package uk.ac.cam.cl.group_project.delta.simulation.gui;
+
+import uk.ac.cam.cl.group_project.delta.simulation.PhysicsBody;
+import uk.ac.cam.cl.group_project.delta.simulation.SimulatedCar;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Repeats a run of the GUI simulation which was saved with "Save recording",
+ * without a GUI and as fast as possible, and prints where each car ended up.
+ *
+ * Run with {@code gradlew :simulation:runReplay -Precording=<file>}.
+ */
+public class ReplayRecording {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: ReplayRecording <recording>");
+			System.exit(2);
+		}
+
+		long start = System.nanoTime();
+		SimulationThread simulation;
+		try (InputStream in = new FileInputStream(args[0])) {
+			simulation = InputLog.replay(in);
+		}
+		long elapsed = System.nanoTime() - start;
+		long simulated = simulation.getClock().getTime();
+
+		List<PhysicsBody> bodies;
+		synchronized (simulation.getWorld()) {
+			bodies = new ArrayList<>(simulation.getWorld().getBodies());
+		}
+		for (PhysicsBody body : bodies) {
+			if (body instanceof SimulatedCar) {
+				SimulatedCar car = (SimulatedCar) body;
+				System.out.printf("Car %d: position (%.3f, %.3f), heading %.3f, speed %.3f%n",
+					car.getUuid(), car.getPosition().getX(), car.getPosition().getY(),
+					car.getHeading(), car.getVelocity().magnitude());
+			}
+		}
+		System.out.printf("Replayed %.1f s with seed %d in %.1f s, %.1f times faster than real time%n",
+			simulated / 1e9, simulation.getSeed(), elapsed / 1e9, (double) simulated / elapsed);
+	}
+
+}
@@ -4,6 +4,7 @@ import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.scene.Group;
 import uk.ac.cam.cl.group_project.delta.simulation.PhysicsBody;
+import uk.ac.cam.cl.group_project.delta.simulation.WorldSnapshot;
 
 /**
  * Encapsulates the GUI representation of a simulated object in the world.
@@ -38,16 +39,26 @@ public class SimulatedBodyNode extends Group {
 	}
 
 	/**
-	 * Update the positions of this representation based on the physics
-	 * simulation.
+	 * Update the positions of this representation from a snapshot of the
+	 * physics simulation.
+	 * @param snapshot    The latest state of the world.
 	 */
-	public void update() {
-		synchronized (body) {
-			posX.set(body.getPosition().getX() * Controller.UNITS_PER_METRE);
-			posY.set(body.getPosition().getY() * Controller.UNITS_PER_METRE);
+	public void update(WorldSnapshot snapshot) {
+		WorldSnapshot.BodyState state = snapshot.get(body.getUuid());
+		if (state != null) {
+			update(state);
 		}
 	}
 
+	/**
+	 * Update this representation from the state of its body.
+	 * @param state    The body's state in the latest snapshot.
+	 */
+	protected void update(WorldSnapshot.BodyState state) {
+		posX.set(state.getX() * Controller.UNITS_PER_METRE);
+		posY.set(state.getY() * Controller.UNITS_PER_METRE);
+	}
+
 	/**
 	 * Get the body that this node represents.
 	 * @return    The body represented by this node.
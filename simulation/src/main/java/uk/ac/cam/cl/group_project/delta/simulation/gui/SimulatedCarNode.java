@@ -19,9 +19,13 @@ import javafx.scene.text.Text;
 import uk.ac.cam.cl.group_project.delta.Beacon;
 import uk.ac.cam.cl.group_project.delta.algorithm.Algorithm;
 import uk.ac.cam.cl.group_project.delta.algorithm.ParameterEnum;
+import uk.ac.cam.cl.group_project.delta.algorithm.ParameterRegistry;
+import uk.ac.cam.cl.group_project.delta.metrics.HistogramSnapshot;
+import uk.ac.cam.cl.group_project.delta.metrics.MetricsRegistry;
 import uk.ac.cam.cl.group_project.delta.simulation.SimulatedCar;
 import uk.ac.cam.cl.group_project.delta.simulation.SimulatedSensorModule;
 import uk.ac.cam.cl.group_project.delta.simulation.Vector2D;
+import uk.ac.cam.cl.group_project.delta.simulation.WorldSnapshot;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -104,16 +108,30 @@ public class SimulatedCarNode extends SimulatedBodyNode implements Paneable {
 	 */
 	private final ObservableList<String> beaconList;
 
+	/**
+	 * The timing metrics of the algorithm
+	 */
+	private final ObservableList<String> metricsList;
+
 	private final Algorithm algorithm;
 
+	/**
+	 * The simulation of the car, through which its parameters are changed so
+	 * that the changes are recorded.
+	 */
+	private final SimulationThread simulation;
+
 	/**
 	 * Construct a representation of the given car.
-	 * @param car    Car to represent.
+	 * @param car           Car to represent.
+	 * @param simulation    Simulation containing the car.
 	 */
-	public SimulatedCarNode(SimulatedCar car) {
+	public SimulatedCarNode(SimulatedCar car, SimulationThread simulation) {
 
 		super(car);
 
+		this.simulation = simulation;
+
 		// Construct properties
 		velX = new SimpleDoubleProperty(car.getVelocity().getX());
 		velY = new SimpleDoubleProperty(car.getVelocity().getY());
@@ -128,6 +146,7 @@ public class SimulatedCarNode extends SimulatedBodyNode implements Paneable {
 		platoonColour = new SimpleObjectProperty<>(Color.TRANSPARENT);
 		frontProximity = new SimpleObjectProperty<>(null);
 		beaconList = FXCollections.observableList(new ArrayList<>(4));
+		metricsList = FXCollections.observableList(new ArrayList<>(3));
 
 		rotateProperty().bind(headingProperty());
 
@@ -285,45 +304,76 @@ public class SimulatedCarNode extends SimulatedBodyNode implements Paneable {
 	}
 
 	/**
-	 * Update the GUI representation of the simulated object by polling the
-	 * simulation state.
+	 * Update the GUI representation of the simulated object from its state in
+	 * a snapshot of the simulation.
 	 */
 	@Override
-	public void update() {
-
-		super.update();
-
-		SimulatedCar car = getCar();
-		synchronized (car) {
-
-			velX.set(car.getVelocity().getX());
-			velY.set(car.getVelocity().getY());
-			heading.set(Math.toDegrees(-car.getHeading()));
-			wheelAngle.set(Math.toDegrees(-car.getWheelAngle()));
-			enginePower.set(car.getEnginePower());
-			frontProximity.set(car.getSensorInterface().getFrontProximity());
-
-			Algorithm controller = car.getController();
-			isLeader.set(controller.isLeader());
-			vehicleId.set(controller.getVehicleId());
-			platoonId.set(controller.getPlatoonId());
-			platoonPosition.set(controller.getPlatoonPosition());
-			platoonLeaderId.set(controller.getLeaderId());
-			platoonColour.set(toPaint(platoonId.get()));
-
-			beaconList.clear();
-			for (Beacon beacon : car.getSensorInterface().getBeacons()) {
-				String distanceText;
-				if (beacon.getDistanceUpperBound() == beacon.getDistanceLowerBound()) {
-					distanceText = String.format("%.2f", beacon.getDistanceUpperBound());
-				} else {
-					distanceText = String.format("%.2f-%.2f", beacon.getDistanceLowerBound(), beacon.getDistanceUpperBound());
-				}
-				beaconList.add(String.format("%d:  %sm, %.2frad", beacon.getBeaconIdentifier(), distanceText, beacon.getAngle()));
-			}
+	protected void update(WorldSnapshot.BodyState state) {
+
+		super.update(state);
+
+		WorldSnapshot.CarState car = (WorldSnapshot.CarState) state;
+		velX.set(car.getVelocityX());
+		velY.set(car.getVelocityY());
+		heading.set(Math.toDegrees(-car.getHeading()));
+		wheelAngle.set(Math.toDegrees(-car.getWheelAngle()));
+		enginePower.set(car.getEnginePower());
+		frontProximity.set(car.getFrontProximity());
+
+		isLeader.set(car.isLeader());
+		vehicleId.set(car.getVehicleId());
+		if (platoonId.get() != car.getPlatoonId()) {
+			platoonColour.set(toPaint(car.getPlatoonId()));
+		}
+		platoonId.set(car.getPlatoonId());
+		platoonPosition.set(car.getPlatoonPosition());
+		platoonLeaderId.set(car.getLeaderId());
 
+	}
+
+	/**
+	 * Update the beacon list and metrics, which are only needed while this
+	 * car's properties are displayed.
+	 * @param snapshot    The latest state of the world.
+	 */
+	public void updateDetails(WorldSnapshot snapshot) {
+
+		WorldSnapshot.BodyState state = snapshot.get(getCar().getUuid());
+		if (state == null) {
+			return;
+		}
+
+		beaconList.clear();
+		for (Beacon beacon : ((WorldSnapshot.CarState) state).getBeacons()) {
+			String distanceText;
+			if (beacon.getDistanceUpperBound() == beacon.getDistanceLowerBound()) {
+				distanceText = String.format("%.2f", beacon.getDistanceUpperBound());
+			} else {
+				distanceText = String.format("%.2f-%.2f", beacon.getDistanceLowerBound(), beacon.getDistanceUpperBound());
+			}
+			beaconList.add(String.format("%d:  %sm, %.2frad", beacon.getBeaconIdentifier(), distanceText, beacon.getAngle()));
 		}
 
+		// The metrics are safe to read from any thread
+		MetricsRegistry metrics = algorithm.getMetrics();
+		metricsList.setAll(
+			formatMetric("loop time", metrics.histogram("loop.total").snapshot()),
+			formatMetric("data age", metrics.histogram("network.dataAge").snapshot()),
+			String.format("overruns: %d", metrics.counter("loop.overruns").get())
+		);
+
+	}
+
+	/**
+	 * Format a histogram of nanosecond durations in milliseconds.
+	 * @param name         The name to show.
+	 * @param histogram    The histogram to format.
+	 * @return The formatted median and 99th percentile.
+	 */
+	private static String formatMetric(String name, HistogramSnapshot histogram) {
+		return String.format("%s: p50 %.2fms, p99 %.2fms", name,
+			histogram.getValueAtPercentile(50) / 1e6,
+			histogram.getValueAtPercentile(99) / 1e6);
 	}
 
 	/**
@@ -417,15 +467,18 @@ public class SimulatedCarNode extends SimulatedBodyNode implements Paneable {
 			);
 
 			controller.beaconList.setItems(beaconList);
+			controller.metricsList.setItems(metricsList);
 
 			ParameterEnum[] supportedParameters = algorithm.getParameterList();
+			ParameterRegistry registry = algorithm.getParameterRegistry();
 			RowConstraints rowHeightConstraint = new RowConstraints(30.0);
 			for (int i = 0; i < supportedParameters.length; i++) {
 				final ParameterEnum param = supportedParameters[i];
 				Label label = new Label(param.name());
-				EditableSpinner<Double> valueInput = new EditableSpinner<>(0.0, 1E300, algorithm.getParameter(param), 0.1);
+				EditableSpinner<Double> valueInput = new EditableSpinner<>(
+					registry.getMinimum(param), registry.getMaximum(param), algorithm.getParameter(param), 0.1);
 				valueInput.valueProperty().addListener(
-					(value, prev, next) -> algorithm.setParameter(param, next)
+					(value, prev, next) -> simulation.setParameter(getCar(), param, next)
 				);
 				controller.algorithmParameters.add(label, 0, i);
 				controller.algorithmParameters.add(valueInput, 1, i);
@@ -1,15 +1,45 @@
 package uk.ac.cam.cl.group_project.delta.simulation.gui;
 
 import uk.ac.cam.cl.group_project.delta.Log;
-import uk.ac.cam.cl.group_project.delta.Time;
+import uk.ac.cam.cl.group_project.delta.Randomness;
+import uk.ac.cam.cl.group_project.delta.SimulatedClock;
 import uk.ac.cam.cl.group_project.delta.algorithm.Algorithm;
+import uk.ac.cam.cl.group_project.delta.algorithm.AlgorithmEnum;
+import uk.ac.cam.cl.group_project.delta.algorithm.FrontVehicleRoute;
+import uk.ac.cam.cl.group_project.delta.algorithm.ParameterEnum;
 import uk.ac.cam.cl.group_project.delta.simulation.*;
 
+import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Encapsulates simulation running in separate thread.
+ *
+ * Every run is seeded, and the time steps and the user's changes made through
+ * this class are recorded in an {@link InputLog}, so the run can be repeated
+ * exactly with {@link InputLog#replay(java.io.InputStream)}.
+ *
+ * The whole state of the simulation can also be saved as a checkpoint, from
+ * which any number of independent copies can be restored and run in parallel,
+ * such as to try different parameters from the same point in a long run.
+ * Each simulation keeps track of its own random number generators, but the
+ * fault settings are global, so they are shared by every simulation and
+ * restoring a checkpoint replaces them.
+ *
+ * However much time each update covers, the world is advanced in fixed steps
+ * of {@link #STEP_SIZE} and the algorithms are run on every multiple of
+ * {@link Algorithm#ALGORITHM_LOOP_DURATION}, so the result doesn't depend on
+ * how fast the simulation runs. In fast-forward mode the simulation runs as
+ * fast as the CPU allows rather than following real time, such as for soak
+ * tests.
  */
 public class SimulationThread extends Thread {
 
@@ -18,12 +48,55 @@ public class SimulationThread extends Thread {
 	 */
 	private static final long UPDATE_INTERVAL = 1000000; // 1ms
 
+	/**
+	 * Number of simulation nanoseconds by which the world is advanced at a
+	 * time, which {@link #CONTROLLER_INTERVAL} is a multiple of.
+	 */
+	public static final long STEP_SIZE = 1000000; // 1ms
+
+	/**
+	 * Maximum number of real nanoseconds which the simulation catches up on
+	 * in one update, after it has fallen behind real time. Any more is
+	 * dropped, so that the simulation doesn't hold its lock for long.
+	 */
+	private static final long MAXIMUM_CATCH_UP = 100000000; // 100ms
+
+	/**
+	 * Number of simulation nanoseconds in each update in fast-forward mode,
+	 * between which the user's changes can be made.
+	 */
+	private static final long FAST_FORWARD_UPDATE = Algorithm.ALGORITHM_LOOP_DURATION;
+
+	/**
+	 * Number of real nanoseconds over which the speed of the simulation is
+	 * measured.
+	 */
+	private static final long SPEED_INTERVAL = 1000000000; // 1s
+
 	/**
 	 * Target number of simulation nanoseconds between algorithm controller
 	 * updates.
 	 */
 	private static final long CONTROLLER_INTERVAL = Algorithm.ALGORITHM_LOOP_DURATION;
 
+	/**
+	 * The first bytes of a checkpoint, "SIMC".
+	 */
+	public static final int CHECKPOINT_MAGIC = 0x53494D43;
+
+	/**
+	 * Version of the checkpoint format. Every class in a checkpoint declares
+	 * a serialVersionUID, which must change when its fields change in a way
+	 * that older checkpoints can't be read with.
+	 */
+	public static final byte CHECKPOINT_VERSION = 5;
+
+	/**
+	 * Minimum number of real nanoseconds between world snapshots, which is
+	 * shorter than a GUI frame so that each frame has a recent snapshot.
+	 */
+	private static final long SNAPSHOT_INTERVAL = 10000000; // 10ms
+
 	/**
 	 * Simulated world.
 	 */
@@ -52,29 +125,136 @@ public class SimulationThread extends Thread {
 	private long lastAlgorithmUpdate;
 
 	/**
-	 * Construct thread, and the world and network it will simulate.
+	 * Simulation time passed to {@link #update(long)} which is less than a
+	 * whole step, and so has not been simulated yet.
+	 */
+	private long pendingTime;
+
+	/**
+	 * Whether to run as fast as possible rather than following real time.
+	 */
+	private boolean fastForward;
+
+	/**
+	 * Simulation time which passed for each unit of real time, measured over
+	 * the last {@link #SPEED_INTERVAL}.
+	 */
+	private volatile double speedRatio;
+
+	/**
+	 * The most recently published state of the world, which is replaced
+	 * rather than modified so that it can be read without locking.
+	 */
+	private final AtomicReference<WorldSnapshot> snapshot =
+		new AtomicReference<>(WorldSnapshot.EMPTY);
+
+	/**
+	 * Real time at which the last snapshot was published.
+	 */
+	private long lastSnapshot;
+
+	/**
+	 * Seed of the random number generators of this simulation.
+	 */
+	private final long seed;
+
+	/**
+	 * Number of random number generators this simulation has created from its
+	 * seed, which is kept here rather than in {@link Randomness} so that
+	 * simulations don't affect each other.
+	 */
+	private long randomCount;
+
+	/**
+	 * Record of the inputs to this simulation.
+	 */
+	private final InputLog inputLog;
+
+	/**
+	 * Cars created by {@link #createCar(double, double, double, AlgorithmEnum)},
+	 * in order, which is how the input log refers to them.
+	 */
+	private final List<SimulatedCar> cars = new ArrayList<>();
+
+	/**
+	 * Construct thread, and the world and network it will simulate, with a
+	 * random seed.
 	 */
 	public SimulationThread() {
+		this(new Random().nextLong());
+	}
+
+	/**
+	 * Construct thread, and the world and network it will simulate. The
+	 * random number generators of everything created afterwards are seeded
+	 * from the given seed, until another simulation is constructed.
+	 * @param seed    Seed of the simulation.
+	 */
+	public SimulationThread(long seed) {
+		this(seed, true);
+	}
+
+	/**
+	 * Construct thread, and the world and network it will simulate.
+	 * @param seed              Seed of the simulation.
+	 * @param recordSettings    Whether to start the input log with the
+	 *                          current fault settings, rather than leaving
+	 *                          them to be set by a replayed log.
+	 */
+	SimulationThread(long seed, boolean recordSettings) {
+		this.seed = seed;
+		this.inputLog = new InputLog(seed);
+		if (recordSettings) {
+			for (FaultSetting setting : FaultSetting.values()) {
+				inputLog.fault(setting, setting.get());
+			}
+		}
 		this.world = new World();
-		this.network = new SimulatedNetwork();
+		synchronized (Randomness.class) {
+			Randomness.setSeed(seed);
+			this.network = new SimulatedNetwork();
+			randomCount = Randomness.getCount();
+		}
 		running = false;
 		timeDilationFactor = 1.0;
 		this.setDaemon(true);
 	}
 
+	/**
+	 * Construct thread from the state saved in a checkpoint.
+	 * @param state    The restored state.
+	 */
+	private SimulationThread(State state) {
+		this.seed = state.seed;
+		this.randomCount = state.randomCount;
+		FaultSetting[] settings = FaultSetting.values();
+		for (int i = 0; i < settings.length; i++) {
+			settings[i].set(state.faults[i]);
+		}
+		this.inputLog = new InputLog(state.inputLog);
+		this.world = state.world;
+		this.network = state.network;
+		this.cars.addAll(state.cars);
+		this.lastAlgorithmUpdate = state.lastAlgorithmUpdate;
+		this.pendingTime = state.pendingTime;
+		running = false;
+		timeDilationFactor = 1.0;
+		this.setDaemon(true);
+		publishSnapshot();
+	}
+
 	/**
 	 * Run this thread until `running` is set to `false`; that is, update the
-	 * world as quickly as possible in real-time.
+	 * world in time with real time, scaled by the time dilation factor, or as
+	 * quickly as possible in fast-forward mode.
 	 */
 	@Override
 	public void run() {
 
 		long realTime = System.nanoTime();
-
-		Time.useDefinedTime();
-		Time.setTime(0);
-
-		lastAlgorithmUpdate = 0;
+		long speedRealTime = realTime;
+		long speedSimulationTime = world.getClock().getTime();
+		long droppedTime = 0;
 
 		synchronized (this) {
 			running = true;
@@ -89,24 +269,48 @@ public class SimulationThread extends Thread {
 			}
 
 			long tmp = System.nanoTime();
-			long dt = tmp - realTime;
-			if (dt > UPDATE_INTERVAL) {
-				if (getTimeDilationFactor() > 0) {
-					update((long) (dt * getTimeDilationFactor()));
-				}
+			double factor = getTimeDilationFactor();
+			if (isFastForward() && factor > 0) {
+				update(FAST_FORWARD_UPDATE);
 				realTime = tmp;
 			}
+			else {
+				long dt = tmp - realTime;
+				if (dt > UPDATE_INTERVAL) {
+					if (dt > MAXIMUM_CATCH_UP) {
+						droppedTime += dt - MAXIMUM_CATCH_UP;
+						dt = MAXIMUM_CATCH_UP;
+					}
+					if (factor > 0) {
+						update((long) (dt * factor));
+					}
+					realTime = tmp;
+				}
 
-			try {
-				Thread.sleep(
-					UPDATE_INTERVAL / 1000000,
-					(int)(UPDATE_INTERVAL % 1000000)
-				);
+				try {
+					Thread.sleep(
+						UPDATE_INTERVAL / 1000000,
+						(int)(UPDATE_INTERVAL % 1000000)
+					);
+				}
+				catch (InterruptedException e) {
+					// Fired when another thread interrupts this, which is unlikely
+					// but may indicate that we should check that the simulation is
+					// still running, which we do on the next loop.
+				}
 			}
-			catch (InterruptedException e) {
-				// Fired when another thread interrupts this, which is unlikely
-				// but may indicate that we should check that the simulation is
-				// still running, which we do on the next loop.
+
+			if (tmp - speedRealTime >= SPEED_INTERVAL) {
+				long simulationTime = world.getClock().getTime();
+				speedRatio = (double) (simulationTime - speedSimulationTime) / (tmp - speedRealTime);
+				speedRealTime = tmp;
+				speedSimulationTime = simulationTime;
+				if (droppedTime > 0) {
+					Log.warn(String.format(
+						"Simulation thread fell %d ms behind real time", droppedTime / 1000000
+					));
+					droppedTime = 0;
+				}
 			}
 
 		}
@@ -114,13 +318,22 @@ public class SimulationThread extends Thread {
 	}
 
 	/**
-	 * Update the simulation state.
+	 * Update the simulation state, by as many whole steps of
+	 * {@link #STEP_SIZE} as fit in the time given and any left over from the
+	 * last update. The algorithms are run whenever a step ends on a multiple
+	 * of {@link #CONTROLLER_INTERVAL}, so none are skipped however large the
+	 * update is.
 	 * @param dt    True time delta, should have already been warped, in
 	 *                 nanoseconds.
 	 */
 	public synchronized void update(long dt) {
 
-		Time.increaseTime(dt);
+		inputLog.step(dt);
+
+		pendingTime += dt;
+		if (pendingTime < STEP_SIZE) {
+			return;
+		}
 
 		// Fetch bodies from world
 		List<PhysicsBody> bodies;
@@ -128,43 +341,74 @@ public class SimulationThread extends Thread {
 			bodies = new ArrayList<>(world.getBodies());
 		}
 
-		// Update world
-		double d_dt = dt / 1e9;
-		for (PhysicsBody body : bodies) {
-			synchronized (body) {
-				body.update(d_dt);
-			}
-		}
+		double d_dt = STEP_SIZE / 1e9;
+		while (pendingTime >= STEP_SIZE) {
+			pendingTime -= STEP_SIZE;
+			long now = world.getClock().increaseTime(STEP_SIZE);
 
-		// Update cars
-		if (Time.getTime() - lastAlgorithmUpdate > CONTROLLER_INTERVAL) {
+			// Update world
 			for (PhysicsBody body : bodies) {
-				if (body instanceof SimulatedCar) {
-					((SimulatedCar) body).updateControl();
+				synchronized (body) {
+					body.update(d_dt);
 				}
 			}
-			if ((Time.getTime() - lastAlgorithmUpdate) / CONTROLLER_INTERVAL > 1) {
-				Log.warn("Simulation thread cannot keep algorithms up-to-date");
+
+			// Update cars
+			if (now - lastAlgorithmUpdate >= CONTROLLER_INTERVAL) {
+				for (PhysicsBody body : bodies) {
+					if (body instanceof SimulatedCar) {
+						((SimulatedCar) body).updateControl();
+					}
+				}
+				lastAlgorithmUpdate = (now / CONTROLLER_INTERVAL) * CONTROLLER_INTERVAL;
 			}
-			lastAlgorithmUpdate = (Time.getTime() / CONTROLLER_INTERVAL) * CONTROLLER_INTERVAL;
 		}
 
+		if (System.nanoTime() - lastSnapshot >= SNAPSHOT_INTERVAL) {
+			publishSnapshot(bodies);
+		}
+
+	}
+
+	/**
+	 * Capture the state of the world and make it available to readers.
+	 * @param bodies    Bodies currently in the world.
+	 */
+	private synchronized void publishSnapshot(List<PhysicsBody> bodies) {
+		snapshot.set(WorldSnapshot.capture(world.getClock().getTime(), bodies));
+		lastSnapshot = System.nanoTime();
+	}
+
+	/**
+	 * Capture the state of the world now, such as after it has been changed
+	 * while the simulation is paused.
+	 */
+	public void publishSnapshot() {
+		List<PhysicsBody> bodies;
+		synchronized (world) {
+			bodies = new ArrayList<>(world.getBodies());
+		}
+		publishSnapshot(bodies);
 	}
 
 	/**
-	 * Update the simulation state in increments of UPDATE_INTERVAL, except the
-	 * last update which may be a different size if `dt` is not a multiple of
-	 * UPDATE_INTERVAL.
+	 * Get the most recently published state of the world without locking.
+	 * It may be up to {@link #SNAPSHOT_INTERVAL} of real time old while the
+	 * simulation is running.
+	 * @return    The latest world snapshot.
+	 */
+	public WorldSnapshot getSnapshot() {
+		return snapshot.get();
+	}
+
+	/**
+	 * Update the simulation state and publish a snapshot of the result
+	 * straight away, such as when stepping through a paused simulation.
 	 * @param dt    Simulation delta-t in ns, should have already been warped.
 	 */
 	public void smoothUpdate(long dt) {
-		// TODO: aim for step size uniformity
-		for (long i = 0; i <= dt; i += UPDATE_INTERVAL) {
-			update(UPDATE_INTERVAL);
-		}
-		if (dt % UPDATE_INTERVAL != 0) {
-			update(dt % UPDATE_INTERVAL);
-		}
+		update(dt);
+		publishSnapshot();
 	}
 
 	/**
@@ -175,6 +419,7 @@ public class SimulationThread extends Thread {
 		synchronized (world) {
 			world.getBodies().add(body);
 		}
+		publishSnapshot();
 	}
 
 	/**
@@ -188,19 +433,222 @@ public class SimulationThread extends Thread {
 			}
 			world.getBodies().remove(body);
 		}
+		publishSnapshot();
 	}
 
 	/**
-	 * Create a {@link SimulatedCar} within this simulated world.
+	 * Create a {@link SimulatedCar} within this simulated world, and record it
+	 * in the input log.
 	 * @param wheelBase     Distance from front- to rear-axle.
+	 * @param x             Initial x-coordinate.
+	 * @param y             Initial y-coordinate.
+	 * @param controller    Algorithm to control the car, or null for none.
 	 * @return              The car created.
 	 */
-	public SimulatedCar createCar(double wheelBase) {
-		SimulatedCar car = new SimulatedCar(wheelBase, world, network);
+	public synchronized SimulatedCar createCar(double wheelBase, double x, double y, AlgorithmEnum controller) {
+		inputLog.addCar(wheelBase, x, y, controller);
+		SimulatedCar car;
+		// Continue this simulation's sequence of generators, whichever
+		// simulation created one last
+		synchronized (Randomness.class) {
+			Randomness.setSeed(seed, randomCount);
+			car = new SimulatedCar(wheelBase, world, network);
+			synchronized (car) {
+				car.getPosition().setX(x);
+				car.getPosition().setY(y);
+				if (controller != null) {
+					car.setController(
+						Algorithm.createAlgorithm(
+							controller,
+							car.getDriveInterface(),
+							car.getSensorInterface(),
+							car.getNetworkInterface(),
+							car,
+							FrontVehicleRoute.RouteNumber.ROUTE_ZERO,
+							world.getClock()
+						)
+					);
+				}
+			}
+			randomCount = Randomness.getCount();
+		}
+		cars.add(car);
 		add(car);
 		return car;
 	}
 
+	/**
+	 * Set the engine power of a car, and record it in the input log.
+	 * @param car      A car created by this simulation.
+	 * @param power    New engine power.
+	 */
+	public synchronized void setEnginePower(SimulatedCar car, double power) {
+		synchronized (car) {
+			car.setEnginePower(power);
+		}
+		inputLog.enginePower(indexOf(car), power);
+	}
+
+	/**
+	 * Set the wheel angle of a car, and record it in the input log.
+	 * @param car      A car created by this simulation.
+	 * @param angle    New wheel angle.
+	 */
+	public synchronized void setWheelAngle(SimulatedCar car, double angle) {
+		synchronized (car) {
+			car.setWheelAngle(angle);
+		}
+		inputLog.wheelAngle(indexOf(car), angle);
+	}
+
+	/**
+	 * Set a parameter of a car's algorithm, and record it in the input log.
+	 * @param car          A car created by this simulation, with an algorithm.
+	 * @param parameter    The parameter.
+	 * @param value        New value.
+	 */
+	public synchronized void setParameter(SimulatedCar car, ParameterEnum parameter, double value) {
+		synchronized (car) {
+			car.getController().setParameter(parameter, value);
+		}
+		inputLog.parameter(indexOf(car), parameter, value);
+	}
+
+	/**
+	 * Change a fault setting, and record it in the input log.
+	 * @param setting    The setting.
+	 * @param value      New value.
+	 */
+	public synchronized void setFault(FaultSetting setting, double value) {
+		setting.set(value);
+		inputLog.fault(setting, value);
+	}
+
+	/**
+	 * Find how the input log refers to a car.
+	 * @param car    A car created by this simulation.
+	 * @return       Its index.
+	 */
+	private int indexOf(SimulatedCar car) {
+		int index = cars.indexOf(car);
+		if (index < 0) {
+			throw new IllegalArgumentException("Car was not created by this simulation");
+		}
+		return index;
+	}
+
+	/**
+	 * Get the seed of the random number generators of this simulation.
+	 * @return    The seed.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Get the record of the inputs to this simulation so far.
+	 * @return    The input log.
+	 */
+	public InputLog getInputLog() {
+		return inputLog;
+	}
+
+	/**
+	 * Write the record of the inputs to this simulation so far, from which it
+	 * can be replayed.
+	 * @param out    Stream to write to.
+	 * @throws IOException if the stream can't be written.
+	 */
+	public void writeInputLog(OutputStream out) throws IOException {
+		inputLog.writeTo(out);
+	}
+
+	/**
+	 * Save the whole state of this simulation between two updates, including
+	 * the cars, their algorithms and platoons, merges in progress and packets
+	 * which haven't been received, along with the input log so far. Network
+	 * sniffers are not saved.
+	 * @param out    Stream to write to, which is not closed.
+	 * @throws IOException if the stream can't be written.
+	 * @see #readCheckpoint(InputStream)
+	 */
+	public synchronized void writeCheckpoint(OutputStream out) throws IOException {
+		State state = new State();
+		state.seed = seed;
+		state.randomCount = randomCount;
+		FaultSetting[] settings = FaultSetting.values();
+		state.faults = new double[settings.length];
+		for (int i = 0; i < settings.length; i++) {
+			state.faults[i] = settings[i].get();
+		}
+		state.inputLog = inputLog.toByteArray();
+		state.world = world;
+		state.network = network;
+		state.cars = cars;
+		state.lastAlgorithmUpdate = lastAlgorithmUpdate;
+		state.pendingTime = pendingTime;
+
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(CHECKPOINT_MAGIC);
+		data.writeByte(CHECKPOINT_VERSION);
+		data.flush();
+		GZIPOutputStream zip = new GZIPOutputStream(out);
+		synchronized (world) {
+			ObjectOutputStream objects = new ObjectOutputStream(zip);
+			objects.writeObject(state);
+			objects.flush();
+		}
+		zip.finish();
+	}
+
+	/**
+	 * Restore a simulation from a checkpoint. The simulation has not been
+	 * started, and continues from the time the checkpoint was saved, with the
+	 * fault settings and random number generators as they were then. The
+	 * fault settings are global, so this replaces those of every other
+	 * simulation. Only classes of this program and the standard classes they
+	 * hold are read, so a checkpoint can't create objects of any other class.
+	 * @param in    The checkpoint, which is not closed.
+	 * @return      The restored simulation.
+	 * @throws IOException if the checkpoint can't be read or is invalid.
+	 */
+	public static SimulationThread readCheckpoint(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		if (data.readInt() != CHECKPOINT_MAGIC) {
+			throw new IOException("Not a simulation checkpoint");
+		}
+		int version = data.readByte();
+		if (version != CHECKPOINT_VERSION) {
+			throw new IOException("Unsupported checkpoint version " + version);
+		}
+		try {
+			ObjectInputStream objects = new CheckpointInputStream(new GZIPInputStream(in));
+			return new SimulationThread((State) objects.readObject());
+		}
+		catch (InvalidClassException e) {
+			throw new IOException("Checkpoint contains a class which can't be restored", e);
+		}
+		catch (ClassNotFoundException | ClassCastException e) {
+			throw new IOException("Checkpoint contains an unknown class", e);
+		}
+	}
+
+	/**
+	 * Create an independent copy of this simulation, as though it had been
+	 * saved to a checkpoint and restored.
+	 * @return    The copy, which has not been started.
+	 */
+	public SimulationThread fork() {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			writeCheckpoint(out);
+			return readCheckpoint(new ByteArrayInputStream(out.toByteArray()));
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Could not copy the simulation", e);
+		}
+	}
+
 	/**
 	 * Get the status of this thread.
 	 * @return    Returns true if the thread is running.
@@ -233,6 +681,34 @@ public class SimulationThread extends Thread {
 		this.timeDilationFactor = timeDilationFactor;
 	}
 
+	/**
+	 * Check whether the simulation is running as fast as possible.
+	 * @return    Whether fast-forward mode is on.
+	 */
+	public synchronized boolean isFastForward() {
+		return fastForward;
+	}
+
+	/**
+	 * Run the simulation as fast as the CPU allows, rather than following
+	 * real time scaled by the time dilation factor. It still stops while the
+	 * time dilation factor is 0.
+	 * @param fastForward    Whether to fast-forward.
+	 */
+	public synchronized void setFastForward(boolean fastForward) {
+		this.fastForward = fastForward;
+	}
+
+	/**
+	 * Get how fast the simulation is running, measured over the last second
+	 * while the thread is running.
+	 * @return    Simulated seconds per real second, or 0 before it has
+	 *            been measured.
+	 */
+	public double getSpeedRatio() {
+		return speedRatio;
+	}
+
 	/**
 	 * Get the simulated world.
 	 * @return    The physics world.
@@ -249,4 +725,109 @@ public class SimulationThread extends Thread {
 		return network;
 	}
 
+	/**
+	 * Get the clock of the simulated world.
+	 * @return    The simulated clock.
+	 */
+	public SimulatedClock getClock() {
+		return world.getClock();
+	}
+
+	/**
+	 * Reads the objects of a checkpoint, refusing any class which isn't
+	 * allowed in one before it is loaded, so that a crafted file can't run the
+	 * code of other classes while it is read.
+	 */
+	private static class CheckpointInputStream extends ObjectInputStream {
+
+		/**
+		 * Prefix of the names of the classes of this program.
+		 */
+		private static final String PACKAGE_PREFIX = "uk.ac.cam.cl.group_project.delta.";
+
+		/**
+		 * Standard classes which the classes of this program hold.
+		 */
+		private static final Set<String> STANDARD_CLASSES = new HashSet<>(Arrays.asList(
+			"java.lang.Boolean",
+			"java.lang.Double",
+			"java.lang.Enum",
+			"java.lang.Integer",
+			"java.lang.Long",
+			"java.lang.Number",
+			// Only as the element type of arrays, as it isn't serializable
+			"java.lang.Object",
+			"java.lang.String",
+			// Lambdas, which are only created by the class which captured them, which must be allowed too
+			"java.lang.invoke.SerializedLambda",
+			"java.util.ArrayDeque",
+			"java.util.ArrayList",
+			"java.util.EnumMap",
+			"java.util.HashMap",
+			"java.util.HashSet",
+			"java.util.LinkedHashMap",
+			"java.util.LinkedList",
+			"java.util.Random",
+			"java.util.TreeMap",
+			"java.util.concurrent.ConcurrentHashMap",
+			// Which is written with these by some versions of Java
+			"java.util.concurrent.ConcurrentHashMap$Segment",
+			"java.util.concurrent.locks.AbstractOwnableSynchronizer",
+			"java.util.concurrent.locks.AbstractQueuedSynchronizer",
+			"java.util.concurrent.locks.ReentrantLock",
+			"java.util.concurrent.locks.ReentrantLock$NonfairSync",
+			"java.util.concurrent.locks.ReentrantLock$Sync",
+			"java.util.concurrent.CopyOnWriteArrayList",
+			"java.util.concurrent.atomic.AtomicInteger",
+			"java.util.concurrent.atomic.AtomicLong",
+			"java.util.concurrent.atomic.AtomicLongArray"
+		));
+
+		CheckpointInputStream(InputStream in) throws IOException {
+			super(in);
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			String name = desc.getName();
+			// Arrays are allowed if their elements are
+			String element = name.replaceFirst("^\\[+", "");
+			if (element.length() == 1) {
+				// An array of a primitive type
+				return super.resolveClass(desc);
+			}
+			if (element.startsWith("L") && element.endsWith(";")) {
+				element = element.substring(1, element.length() - 1);
+			}
+			if (!element.startsWith(PACKAGE_PREFIX) && !STANDARD_CLASSES.contains(element)) {
+				throw new InvalidClassException(name, "Class is not allowed in a checkpoint");
+			}
+			return super.resolveClass(desc);
+		}
+
+		@Override
+		protected Class<?> resolveProxyClass(String[] interfaces) throws IOException {
+			throw new InvalidClassException("Proxy classes are not allowed in a checkpoint");
+		}
+
+	}
+
+	/**
+	 * Everything saved in a checkpoint.
+	 */
+	private static class State implements Serializable {
+		private static final long serialVersionUID = CHECKPOINT_VERSION;
+		long seed;
+		/** Number of random number generators created from the seed. */
+		long randomCount;
+		/** Value of each {@link FaultSetting}, in order. */
+		double[] faults;
+		byte[] inputLog;
+		World world;
+		SimulatedNetwork network;
+		List<SimulatedCar> cars;
+		long lastAlgorithmUpdate;
+		long pendingTime;
+	}
+
 }
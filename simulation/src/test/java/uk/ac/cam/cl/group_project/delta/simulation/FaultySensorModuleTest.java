@@ -191,5 +191,91 @@ public class FaultySensorModuleTest {
 		assertThat("Cumulative difference from the true value was out of range", differenceFromTrueValue, allOf(greaterThan(-4.0), lessThan(4.0)));
 	}
 
+	//#endregion
+	//#region Per-car fault tests
+
+	@Test
+	public void testFaultsOnlyAffectTheirCarAndSensor() {
+		classUnderTest.addFault(SensorChannel.SPEED, new GaussMarkovDrift(0.5, 1));
+		FaultySensorModule otherSensors = new FaultySensorModule(mainCar, world);
+
+		assertNotEquals(realSensorModule.getSpeed(), classUnderTest.getSpeed(), 0.0);
+		assertEquals(realSensorModule.getSpeed(), otherSensors.getSpeed(), 0.0);
+		assertEquals(realSensorModule.getAcceleration(), classUnderTest.getAcceleration(), 0.0);
+
+		classUnderTest.clearFaults(SensorChannel.SPEED);
+		assertEquals(realSensorModule.getSpeed(), classUnderTest.getSpeed(), 0.0);
+	}
+
+	@Test
+	public void testFaultsAreAppliedInOrder() {
+		addOtherCar();
+		classUnderTest.addFault(SensorChannel.FRONT_PROXIMITY, new SensorLatency(0.1));
+		classUnderTest.addFault(SensorChannel.FRONT_PROXIMITY, new GilbertElliottDropout(1, 1, 1, 1, Double.POSITIVE_INFINITY));
+		assertEquals(2, classUnderTest.getFaults(SensorChannel.FRONT_PROXIMITY).size());
+		assertEquals(Double.POSITIVE_INFINITY, classUnderTest.getFrontProximity(), 0.0);
+	}
+
+	@Test
+	public void testLatencyUsesWorldClock() {
+		addOtherCar();
+		classUnderTest.addFault(SensorChannel.FRONT_PROXIMITY, new SensorLatency(0.1));
+		double before = classUnderTest.getFrontProximity();
+
+		world.getBodies().get(1).setPosition(new Vector2D(0, 0.5));
+		world.getClock().increaseTime(50000000);
+		assertEquals(before, classUnderTest.getFrontProximity(), 0.0);
+		world.getClock().increaseTime(50000000);
+		assertEquals(before, classUnderTest.getFrontProximity(), 0.0);
+		world.getClock().increaseTime(50000000);
+		assertEquals(realSensorModule.getFrontProximity(), classUnderTest.getFrontProximity(), 1e-9);
+	}
+
+	@Test
+	public void testLatencyDelaysMissingReadings() {
+		addOtherCar();
+		classUnderTest.addFault(SensorChannel.FRONT_PROXIMITY, new SensorLatency(0.1));
+		long step = 50000000;
+		double before = 0;
+		for (int i = 0; i <= 20; i++) {
+			before = classUnderTest.getFrontProximity();
+			world.getClock().increaseTime(step);
+		}
+
+		// Readings which are missing are delayed like any other
+		FaultySensorModule.setFrontProximityEnabled(false);
+		assertEquals(before, classUnderTest.getFrontProximity(), 0.0);
+		world.getClock().increaseTime(step);
+		assertEquals(before, classUnderTest.getFrontProximity(), 0.0);
+		for (int i = 0; i < 80; i++) {
+			world.getClock().increaseTime(step);
+			assertNull(classUnderTest.getFrontProximity());
+		}
+
+		// So are readings after a gap, rather than older readings being used
+		FaultySensorModule.setFrontProximityEnabled(true);
+		world.getBodies().get(1).setPosition(new Vector2D(0, 0.5));
+		world.getClock().increaseTime(step);
+		assertNull(classUnderTest.getFrontProximity());
+		world.getClock().increaseTime(step);
+		assertNull(classUnderTest.getFrontProximity());
+		world.getClock().increaseTime(step);
+		assertEquals(realSensorModule.getFrontProximity(), classUnderTest.getFrontProximity(), 1e-9);
+	}
+
+	@Test
+	public void testSampleAndHoldHoldsMissingReadings() {
+		addOtherCar();
+		classUnderTest.addFault(SensorChannel.FRONT_PROXIMITY, new SampleAndHold(0.2));
+		FaultySensorModule.setFrontProximityEnabled(false);
+		assertNull(classUnderTest.getFrontProximity());
+
+		FaultySensorModule.setFrontProximityEnabled(true);
+		world.getClock().increaseTime(100000000);
+		assertNull(classUnderTest.getFrontProximity());
+		world.getClock().increaseTime(100000000);
+		assertEquals(realSensorModule.getFrontProximity(), classUnderTest.getFrontProximity(), 1e-9);
+	}
+
 	//#endregion
 }
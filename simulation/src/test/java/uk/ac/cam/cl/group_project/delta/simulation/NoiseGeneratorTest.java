@@ -0,0 +1,88 @@
+package uk.ac.cam.cl.group_project.delta.simulation;
+
+import org.junit.After;
+import org.junit.Test;
+import uk.ac.cam.cl.group_project.delta.Randomness;
+
+import java.io.*;
+
+import static org.junit.Assert.*;
+
+public class NoiseGeneratorTest {
+
+	private static final int SAMPLES = 1000000;
+
+	@After
+	public void teardown() {
+		Randomness.useUnseeded();
+	}
+
+	@Test
+	public void sameSeedGivesSameNoiseTest() {
+		NoiseGenerator first = new NoiseGenerator(7);
+		NoiseGenerator second = new NoiseGenerator(7);
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(first.nextGaussian(), second.nextGaussian(), 0);
+			assertEquals(first.nextLong(), second.nextLong());
+		}
+	}
+
+	@Test
+	public void seededFromRandomnessTest() {
+		Randomness.setSeed(42);
+		double first = new NoiseGenerator().nextGaussian();
+		double second = new NoiseGenerator().nextGaussian();
+		Randomness.setSeed(42);
+		assertEquals(first, new NoiseGenerator().nextGaussian(), 0);
+		assertNotEquals(first, second, 0);
+	}
+
+	@Test
+	public void uniformTest() {
+		NoiseGenerator noise = new NoiseGenerator(1);
+		double sum = 0;
+		for (int i = 0; i < SAMPLES; i++) {
+			double u = noise.nextDouble();
+			assertTrue(u >= 0 && u < 1);
+			sum += u;
+		}
+		assertEquals(0.5, sum / SAMPLES, 1e-3);
+	}
+
+	@Test
+	public void gaussianTest() {
+		NoiseGenerator noise = new NoiseGenerator(2);
+		double sum = 0, sumOfSquares = 0;
+		int[] beyond = new int[4];
+		for (int i = 0; i < SAMPLES; i++) {
+			double x = noise.nextGaussian();
+			sum += x;
+			sumOfSquares += x * x;
+			for (int sigma = 1; sigma < beyond.length && Math.abs(x) > sigma; sigma++) {
+				beyond[sigma]++;
+			}
+		}
+		assertEquals(0, sum / SAMPLES, 5e-3);
+		assertEquals(1, sumOfSquares / SAMPLES, 5e-3);
+		// Proportions of the standard normal distribution beyond 1, 2 and 3 standard deviations
+		assertEquals(0.3173, (double) beyond[1] / SAMPLES, 2e-3);
+		assertEquals(0.0455, (double) beyond[2] / SAMPLES, 1e-3);
+		assertEquals(0.0027, (double) beyond[3] / SAMPLES, 3e-4);
+	}
+
+	@Test
+	public void serializedCopyContinuesTest() throws IOException, ClassNotFoundException {
+		NoiseGenerator noise = new NoiseGenerator(3);
+		noise.nextGaussian();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new ObjectOutputStream(out).writeObject(noise);
+		NoiseGenerator copy = (NoiseGenerator) new ObjectInputStream(
+			new ByteArrayInputStream(out.toByteArray())
+		).readObject();
+
+		for (int i = 0; i < 100; i++) {
+			assertEquals(noise.nextGaussian(), copy.nextGaussian(), 0);
+		}
+	}
+}
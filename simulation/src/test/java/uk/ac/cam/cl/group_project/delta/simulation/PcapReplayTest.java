@@ -0,0 +1,197 @@
+package uk.ac.cam.cl.group_project.delta.simulation;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.ac.cam.cl.group_project.delta.BeaconInterface;
+import uk.ac.cam.cl.group_project.delta.MessageReceipt;
+import uk.ac.cam.cl.group_project.delta.SimulatedClock;
+import uk.ac.cam.cl.group_project.delta.algorithm.VehicleData;
+import uk.ac.cam.cl.group_project.delta.algorithm.communications.ConfirmMergeMessage;
+import uk.ac.cam.cl.group_project.delta.algorithm.communications.ControlLayer;
+import uk.ac.cam.cl.group_project.delta.algorithm.communications.EmergencyMessage;
+import uk.ac.cam.cl.group_project.delta.algorithm.communications.Packet;
+import uk.ac.cam.cl.group_project.delta.metrics.MetricsRegistry;
+
+public class PcapReplayTest {
+
+	private SimulatedClock clock;
+	private ByteBuffer capture;
+
+	@Before
+	public void setup() {
+		clock = new SimulatedClock();
+		clock.setTime(5000);
+		capture = ByteBuffer.allocate(4096);
+	}
+
+	private void writeHeader(ByteOrder order, int magic, int linkType) {
+		capture.order(order);
+		capture.putInt(magic);
+		capture.putShort((short) 2);
+		capture.putShort((short) 4);
+		capture.putInt(0);
+		capture.putInt(0);
+		capture.putInt(0xFFFF);
+		capture.putInt(linkType);
+	}
+
+	/**
+	 * Write a record containing an Ethernet frame with an IPv4 header
+	 */
+	private void writeEthernetRecord(long seconds, long microseconds, int etherType, int protocol,
+			int port, byte[] payload) {
+		int length = 14 + 20 + 8 + payload.length;
+		capture.putInt((int) seconds);
+		capture.putInt((int) microseconds);
+		capture.putInt(length);
+		capture.putInt(length);
+
+		ByteOrder order = capture.order();
+		capture.order(ByteOrder.BIG_ENDIAN);
+		capture.put(new byte[12]);
+		capture.putShort((short) etherType);
+		writeIp(protocol, port, payload);
+		capture.order(order);
+	}
+
+	private void writeIp(int protocol, int port, byte[] payload) {
+		capture.put((byte) 0x45);
+		capture.put((byte) 0);
+		capture.putShort((short) (20 + 8 + payload.length));
+		capture.putInt(0);
+		capture.put((byte) 64);
+		capture.put((byte) protocol);
+		capture.putShort((short) 0);
+		capture.putInt(0x0A000001);
+		capture.putInt(0xFFFFFFFF);
+		capture.putShort((short) port);
+		capture.putShort((short) port);
+		capture.putShort((short) (8 + payload.length));
+		capture.putShort((short) 0);
+		capture.put(payload);
+	}
+
+	private PcapReplay replay(double speed) throws IOException {
+		return new PcapReplay(new ByteArrayInputStream(capture.array(), 0, capture.position()),
+				clock, speed, PcapReplay.DEFAULT_PORT);
+	}
+
+	@Test
+	public void replayedAtSpeedTest() throws IOException {
+		byte[][] packets = new byte[3][];
+		writeHeader(ByteOrder.LITTLE_ENDIAN, 0xa1b2c3d4, 1);
+		for (int i = 0; i < 3; i++) {
+			packets[i] = Packet.createPacket(new ConfirmMergeMessage(i), 100, 500);
+			writeEthernetRecord(1000 + i, 250000, 0x0800, 17, PcapReplay.DEFAULT_PORT, packets[i]);
+		}
+		PcapReplay replay = replay(2);
+
+		// Replay starts from the first poll
+		List<MessageReceipt> receipts = replay.pollData();
+		assertEquals(1, receipts.size());
+		assertArrayEquals(packets[0], receipts.get(0).getData());
+		assertEquals(5000, receipts.get(0).getTime());
+
+		clock.increaseTime(400000000);
+		assertTrue(replay.pollData().isEmpty());
+
+		// The second packet was captured 1s later, so is due after 0.5s
+		clock.increaseTime(200000000);
+		receipts = replay.pollData();
+		assertEquals(1, receipts.size());
+		assertEquals(500005000, receipts.get(0).getTime());
+		ConfirmMergeMessage message = (ConfirmMergeMessage) new Packet(receipts.get(0)).message;
+		assertEquals(1, message.getTransactionId());
+
+		assertFalse(replay.isFinished());
+		clock.increaseTime(10000000000L);
+		assertEquals(1, replay.pollData().size());
+		assertTrue(replay.isFinished());
+		assertEquals(3, replay.getReplayedCount());
+	}
+
+	@Test
+	public void otherTrafficSkippedTest() throws IOException {
+		byte[] packet = Packet.createPacket(new EmergencyMessage(), 100, 500);
+		writeHeader(ByteOrder.LITTLE_ENDIAN, 0xa1b2c3d4, 1);
+		writeEthernetRecord(0, 0, 0x0806, 17, PcapReplay.DEFAULT_PORT, packet);		// ARP
+		writeEthernetRecord(0, 0, 0x0800, 6, PcapReplay.DEFAULT_PORT, packet);		// TCP
+		writeEthernetRecord(0, 0, 0x0800, 17, 5188, packet);						// Log port
+		writeEthernetRecord(0, 0, 0x0800, 17, PcapReplay.DEFAULT_PORT, packet);
+		PcapReplay replay = replay(1);
+
+		assertEquals(1, replay.pollData().size());
+		assertEquals(3, replay.getSkippedCount());
+		assertTrue(replay.isFinished());
+	}
+
+	@Test
+	public void rawBigEndianNanosecondCaptureTest() throws IOException {
+		byte[] packet = Packet.createPacket(new EmergencyMessage(), 100, 500);
+		writeHeader(ByteOrder.BIG_ENDIAN, 0xa1b23c4d, 101);
+		for (int i = 0; i < 2; i++) {
+			capture.putInt(7);
+			capture.putInt(100 * i);
+			capture.putInt(28 + packet.length);
+			capture.putInt(28 + packet.length);
+			writeIp(17, PcapReplay.DEFAULT_PORT, packet);
+		}
+		PcapReplay replay = replay(1);
+
+		assertEquals(1, replay.pollData().size());
+		clock.increaseTime(99);
+		assertTrue(replay.pollData().isEmpty());
+		clock.increaseTime(1);
+		assertEquals(1, replay.pollData().size());
+	}
+
+	@Test
+	public void undecodablePacketsDroppedTest() throws IOException {
+		// An emergency stop with the 12 byte header used before timestamps
+		// were added, followed by a current packet
+		byte[] old = new byte[12];
+		old[3] = 12;
+		writeHeader(ByteOrder.LITTLE_ENDIAN, 0xa1b2c3d4, 1);
+		writeEthernetRecord(0, 0, 0x0800, 17, PcapReplay.DEFAULT_PORT, old);
+		writeEthernetRecord(0, 0, 0x0800, 17, PcapReplay.DEFAULT_PORT,
+				Packet.createPacket(new VehicleData(1, 2, 3, 4, 5, 6), 100, 500));
+		PcapReplay replay = replay(1);
+
+		BeaconInterface beacons = mock(BeaconInterface.class);
+		MetricsRegistry metrics = new MetricsRegistry();
+		ControlLayer control = new ControlLayer(replay, beacons, clock);
+		control.setMetrics(metrics);
+		control.updateMessages();
+
+		assertTrue(replay.isFinished());
+		assertEquals(2, metrics.counter("network.packetsReceived").get());
+		assertEquals(1, metrics.counter("network.packetsMalformed").get());
+		assertEquals(1, metrics.counter("network.messagesDecoded").get());
+	}
+
+	@Test
+	public void messagesSentAreDiscardedTest() throws IOException {
+		writeHeader(ByteOrder.LITTLE_ENDIAN, 0xa1b2c3d4, 1);
+		PcapReplay replay = replay(1);
+		assertTrue(replay.isFinished());
+		replay.sendData(new byte[1]);
+		assertEquals(1, replay.getSentCount());
+		assertTrue(replay.pollData().isEmpty());
+	}
+
+	@Test(expected = IOException.class)
+	public void notPcapTest() throws IOException {
+		capture.put(new byte[24]);
+		replay(1);
+	}
+}
@@ -0,0 +1,133 @@
+package uk.ac.cam.cl.group_project.delta.simulation;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.ac.cam.cl.group_project.delta.SimulatedClock;
+import uk.ac.cam.cl.group_project.delta.algorithm.communications.ConfirmMergeMessage;
+import uk.ac.cam.cl.group_project.delta.algorithm.communications.EmergencyMessage;
+import uk.ac.cam.cl.group_project.delta.algorithm.communications.Packet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class PcapSnifferTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private SimulatedClock clock;
+	private String prefix;
+
+	@Before
+	public void setup() {
+		clock = new SimulatedClock();
+		prefix = folder.getRoot().toPath().resolve("capture").toString();
+	}
+
+	@Test
+	public void testPacketsRecorded() throws IOException {
+		PcapSniffer sniffer = new PcapSniffer(prefix, PcapSniffer.DEFAULT_MAXIMUM_FILE_SIZE, 16, clock);
+		byte[] first = Packet.createPacket(new EmergencyMessage(), 0x123456, 1);
+		byte[] second = Packet.createPacket(new ConfirmMergeMessage(7), 2, 1);
+		clock.setTime(1500000123L);
+		sniffer.handleMessage(first);
+		clock.setTime(2000000000L);
+		sniffer.handleMessage(second);
+		sniffer.close();
+
+		assertEquals(1, sniffer.getFileCount());
+		assertEquals(0, sniffer.getDroppedCount());
+		ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(sniffer.getPath(0)));
+		assertEquals(PcapSniffer.SIZE_OF_FILE_HEADER + 2 * overhead() + first.length + second.length, file.limit());
+
+		file.order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals(PcapSniffer.MAGIC_NUMBER, file.getInt());
+		assertEquals(PcapSniffer.LINKTYPE_RAW, file.getInt(20));
+		file.position(PcapSniffer.SIZE_OF_FILE_HEADER);
+
+		byte[] payload = readRecord(file, 1, 500000123);
+		assertArrayEquals(first, payload);
+		payload = readRecord(file, 2, 0);
+		assertArrayEquals(second, payload);
+		assertFalse(file.hasRemaining());
+	}
+
+	@Test
+	public void testSourceAddressAndChecksum() throws IOException {
+		PcapSniffer sniffer = new PcapSniffer(prefix, PcapSniffer.DEFAULT_MAXIMUM_FILE_SIZE, 16, clock);
+		sniffer.handleMessage(Packet.createPacket(new EmergencyMessage(), 0x7F123456, 1));
+		sniffer.close();
+
+		ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(sniffer.getPath(0)));
+		int ip = PcapSniffer.SIZE_OF_FILE_HEADER + PcapSniffer.SIZE_OF_RECORD_HEADER;
+		assertEquals(0x0A123456, file.getInt(ip + 12));
+		assertEquals(0xFFFFFFFF, file.getInt(ip + 16));
+		// The checksum of a header including its checksum is 0
+		assertEquals(0, PcapSniffer.checksum(file, ip, PcapSniffer.SIZE_OF_IP_HEADER));
+	}
+
+	@Test
+	public void testFilesRotated() throws IOException {
+		byte[] packet = Packet.createPacket(new EmergencyMessage(), 1, 1);
+		// Room for two packets in each file
+		long size = PcapSniffer.SIZE_OF_FILE_HEADER + 2 * (overhead() + packet.length);
+		PcapSniffer sniffer = new PcapSniffer(prefix, size, 16, clock);
+		for (int i = 0; i < 5; i++) {
+			sniffer.handleMessage(packet);
+		}
+		sniffer.close();
+
+		assertEquals(3, sniffer.getFileCount());
+		assertEquals(size, Files.size(sniffer.getPath(0)));
+		assertEquals(size, Files.size(sniffer.getPath(1)));
+		assertEquals(size - overhead() - packet.length, Files.size(sniffer.getPath(2)));
+		ByteBuffer last = ByteBuffer.wrap(Files.readAllBytes(sniffer.getPath(2))).order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals(PcapSniffer.MAGIC_NUMBER, last.getInt());
+	}
+
+	@Test
+	public void testFullQueueDropsPackets() throws IOException {
+		PcapSniffer sniffer = new PcapSniffer(prefix, PcapSniffer.DEFAULT_MAXIMUM_FILE_SIZE, 1, clock);
+		sniffer.close();
+		// Nothing is written after closing, so the queue stays full
+		byte[] packet = Packet.createPacket(new EmergencyMessage(), 1, 1);
+		sniffer.handleMessage(packet);
+		sniffer.handleMessage(packet);
+		assertEquals(1, sniffer.getDroppedCount());
+	}
+
+	private static int overhead() {
+		return PcapSniffer.SIZE_OF_RECORD_HEADER + PcapSniffer.SIZE_OF_IP_HEADER + PcapSniffer.SIZE_OF_UDP_HEADER;
+	}
+
+	/**
+	 * Read a record, checking its headers, and return the UDP payload.
+	 */
+	private static byte[] readRecord(ByteBuffer file, int seconds, int nanoseconds) {
+		file.order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals(seconds, file.getInt());
+		assertEquals(nanoseconds, file.getInt());
+		int length = file.getInt();
+		assertEquals(length, file.getInt());
+
+		file.order(ByteOrder.BIG_ENDIAN);
+		int start = file.position();
+		assertEquals(0x45, file.get(start));
+		assertEquals(length, file.getShort(start + 2));
+		assertEquals(17, file.get(start + 9));
+		int udp = start + PcapSniffer.SIZE_OF_IP_HEADER;
+		assertEquals(PcapSniffer.PORT, file.getShort(udp));
+		assertEquals(PcapSniffer.PORT, file.getShort(udp + 2));
+		assertEquals(length - PcapSniffer.SIZE_OF_IP_HEADER, file.getShort(udp + 4));
+
+		int payloadStart = udp + PcapSniffer.SIZE_OF_UDP_HEADER;
+		file.position(start + length);
+		return Arrays.copyOfRange(file.array(), payloadStart, start + length);
+	}
+}
@@ -0,0 +1,148 @@
+package uk.ac.cam.cl.group_project.delta.simulation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SensorFaultTest {
+
+	/**
+	 * Nanoseconds between readings, as often as the algorithms read them.
+	 */
+	private static final long INTERVAL = 50000000;
+
+	private final NoiseGenerator noise = new NoiseGenerator(5);
+
+	@Test
+	public void driftKeepsItsStandardDeviationTest() {
+		GaussMarkovDrift drift = new GaussMarkovDrift(0.1, 2);
+		double sumOfSquares = 0;
+		int readings = 200000;
+		for (int i = 0; i < readings; i++) {
+			double bias = drift.apply(1, i * INTERVAL, noise) - 1;
+			sumOfSquares += bias * bias;
+		}
+		assertEquals(0.1, Math.sqrt(sumOfSquares / readings), 0.01);
+	}
+
+	@Test
+	public void driftIsCorrelatedTest() {
+		GaussMarkovDrift drift = new GaussMarkovDrift(0.1, 2);
+		double last = drift.apply(0, 0, noise);
+		double sumOfProducts = 0, sumOfSquares = 0;
+		int readings = 200000;
+		for (int i = 1; i < readings; i++) {
+			double bias = drift.apply(0, i * INTERVAL, noise);
+			sumOfProducts += bias * last;
+			sumOfSquares += last * last;
+			last = bias;
+		}
+		// Correlation between readings 50ms apart is exp(-0.05 / 2)
+		assertEquals(Math.exp(-0.025), sumOfProducts / sumOfSquares, 0.01);
+	}
+
+	@Test
+	public void driftDoesNotChangeWithinAReadingTest() {
+		GaussMarkovDrift drift = new GaussMarkovDrift(0.1, 2);
+		double first = drift.apply(0, INTERVAL, noise);
+		assertEquals(first, drift.apply(0, INTERVAL, noise), 0);
+	}
+
+	@Test
+	public void dropoutsComeInBurstsTest() {
+		// Bad for 0.5s in every 5s, and always failing while bad
+		GilbertElliottDropout dropout = new GilbertElliottDropout(4.5, 0.5, 0, 1, Double.POSITIVE_INFINITY);
+		int readings = 200000;
+		int failures = 0, bursts = 0;
+		boolean failing = false;
+		for (int i = 0; i < readings; i++) {
+			boolean failed = dropout.apply(1, i * INTERVAL, noise) == Double.POSITIVE_INFINITY;
+			assertEquals(dropout.isBad(), failed);
+			if (failed) {
+				failures++;
+				if (!failing) {
+					bursts++;
+				}
+			}
+			failing = failed;
+		}
+		assertEquals(0.1, (double) failures / readings, 0.01);
+		// Bursts last 0.5s on average, which is 10 readings, or a bit more
+		// as they end at the first reading after
+		assertEquals(10.5, (double) failures / bursts, 1);
+	}
+
+	@Test
+	public void goodStateFailuresTest() {
+		GilbertElliottDropout dropout = new GilbertElliottDropout(1, 1, 0.2, 0.2, -1);
+		int failures = 0;
+		for (int i = 0; i < 100000; i++) {
+			if (dropout.apply(1, i * INTERVAL, noise) == -1) {
+				failures++;
+			}
+		}
+		assertEquals(0.2, failures / 100000.0, 0.01);
+	}
+
+	@Test
+	public void sampleAndHoldRepeatsReadingsTest() {
+		SampleAndHold hold = new SampleAndHold(0.12);
+		assertEquals(0, hold.apply(0, 0, noise), 0);
+		assertEquals(0, hold.apply(1, 50000000, noise), 0);
+		assertEquals(0, hold.apply(2, 100000000, noise), 0);
+		assertEquals(3, hold.apply(3, 150000000, noise), 0);
+		assertEquals(3, hold.apply(4, 200000000, noise), 0);
+		assertEquals(5, hold.apply(5, 250000000, noise), 0);
+	}
+
+	@Test
+	public void latencyDelaysReadingsTest() {
+		SensorLatency latency = new SensorLatency(0.1);
+		assertEquals(0, latency.apply(0, 0, noise), 0);
+		assertEquals(0, latency.apply(1, 50000000, noise), 0);
+		assertEquals(0, latency.apply(2, 100000000, noise), 0);
+		assertEquals(1, latency.apply(3, 150000000, noise), 0);
+		assertEquals(1, latency.apply(4, 180000000, noise), 0);
+		assertEquals(2, latency.apply(5, 200000000, noise), 0);
+	}
+
+	@Test
+	public void longLatencyTest() {
+		SensorLatency latency = new SensorLatency(1);
+		for (int i = 0; i < 1000; i++) {
+			double reading = latency.apply(i, i * INTERVAL, noise);
+			assertEquals(Math.max(0, i - 20), reading, 0);
+		}
+	}
+
+	@Test
+	public void latencyDelaysMissingReadingsTest() {
+		SensorLatency latency = new SensorLatency(0.1);
+		assertEquals(1, latency.apply(1, 0, noise), 0);
+		assertEquals(1, latency.apply(Double.NaN, 50000000, noise), 0);
+		assertEquals(1, latency.apply(2, 100000000, noise), 0);
+		assertTrue(Double.isNaN(latency.apply(3, 150000000, noise)));
+		assertEquals(2, latency.apply(4, 200000000, noise), 0);
+	}
+
+	@Test
+	public void fullLatencyDropsOldestTest() {
+		SensorLatency latency = new SensorLatency(1, 3);
+		for (int i = 0; i < 100; i++) {
+			double reading = latency.apply(i, i * INTERVAL, noise);
+			assertEquals(Math.max(0, i - 2), reading, 0);
+		}
+	}
+
+	@Test
+	public void missingReadingsPassThroughDropoutsTest() {
+		GilbertElliottDropout dropout = new GilbertElliottDropout(1, 1, 1, 1, Double.POSITIVE_INFINITY);
+		assertTrue(Double.isNaN(dropout.apply(Double.NaN, 0, noise)));
+		assertEquals(Double.POSITIVE_INFINITY, dropout.apply(1, INTERVAL, noise), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidCorrelationTimeTest() {
+		new GaussMarkovDrift(1, 0);
+	}
+}
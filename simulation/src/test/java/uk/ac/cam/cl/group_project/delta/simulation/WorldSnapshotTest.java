@@ -0,0 +1,107 @@
+package uk.ac.cam.cl.group_project.delta.simulation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.ac.cam.cl.group_project.delta.Beacon;
+import uk.ac.cam.cl.group_project.delta.algorithm.Algorithm;
+import uk.ac.cam.cl.group_project.delta.algorithm.AlgorithmEnum;
+import uk.ac.cam.cl.group_project.delta.algorithm.FrontVehicleRoute;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class WorldSnapshotTest {
+	private World world;
+	private SimulatedCar car;
+	private PhysicsBody body;
+
+	@Before
+	public void setup() {
+		world = new World();
+		car = new SimulatedCar(world, new SimulatedNetwork());
+		car.setPosition(new Vector2D(1, 2));
+		car.setEnginePower(0.5);
+		body = new PhysicsBody();
+		body.setPosition(new Vector2D(3, 4));
+		world.getBodies().addAll(Arrays.asList(car, body));
+	}
+
+	@Test
+	public void testStateCaptured() {
+		WorldSnapshot snapshot = WorldSnapshot.capture(5, world.getBodies());
+		assertEquals(5, snapshot.getTime());
+		assertEquals(2, snapshot.size());
+
+		WorldSnapshot.BodyState bodyState = snapshot.get(body.getUuid());
+		assertFalse(bodyState instanceof WorldSnapshot.CarState);
+		assertEquals(3, bodyState.getX(), 0);
+		assertEquals(4, bodyState.getY(), 0);
+
+		WorldSnapshot.CarState carState = (WorldSnapshot.CarState) snapshot.get(car.getUuid());
+		assertEquals(1, carState.getX(), 0);
+		assertEquals(2, carState.getY(), 0);
+		assertEquals(0.5, carState.getEnginePower(), 0);
+		assertFalse(carState.hasController());
+		assertNull(carState.getFrontProximity());
+		assertTrue(carState.getBeacons().isEmpty());
+	}
+
+	@Test
+	public void testSnapshotUnchangedBySimulation() {
+		WorldSnapshot snapshot = WorldSnapshot.capture(0, world.getBodies());
+		car.getPosition().setX(10);
+		car.setEnginePower(0);
+		car.update(0.1);
+		WorldSnapshot.CarState carState = (WorldSnapshot.CarState) snapshot.get(car.getUuid());
+		assertEquals(1, carState.getX(), 0);
+		assertEquals(0.5, carState.getEnginePower(), 0);
+	}
+
+	@Test
+	public void testBeaconsCopied() {
+		car.setController(Algorithm.createAlgorithm(
+			AlgorithmEnum.Naive1,
+			car.getDriveInterface(),
+			car.getSensorInterface(),
+			car.getNetworkInterface(),
+			car,
+			FrontVehicleRoute.RouteNumber.ROUTE_ZERO,
+			world.getClock()
+		));
+		// A sensor module which reuses its list of beacons
+		List<Beacon> beacons = new ArrayList<>();
+		beacons.add(new Beacon(1, 0.5, 0.5, 0));
+		car.getController().algorithmData.beacons = beacons;
+
+		WorldSnapshot snapshot = WorldSnapshot.capture(0, world.getBodies());
+		beacons.clear();
+		WorldSnapshot.CarState carState = (WorldSnapshot.CarState) snapshot.get(car.getUuid());
+		assertEquals(1, carState.getBeacons().size());
+		assertEquals(1, carState.getBeacons().get(0).getBeaconIdentifier());
+	}
+
+	@Test
+	public void testCarBuffer() {
+		WorldSnapshot snapshot = WorldSnapshot.capture(0, world.getBodies());
+		assertEquals(1, snapshot.getCarCount());
+		assertEquals(car.getUuid(), snapshot.getCarValue(0, WorldSnapshot.CAR_UUID), 0);
+		assertEquals(1, snapshot.getCarValue(0, WorldSnapshot.CAR_X), 0);
+		assertEquals(2, snapshot.getCarValue(0, WorldSnapshot.CAR_Y), 0);
+		assertEquals(car.getHeading(), snapshot.getCarValue(0, WorldSnapshot.CAR_HEADING), 0);
+		assertEquals(car.getLength(), snapshot.getCarValue(0, WorldSnapshot.CAR_LENGTH), 0);
+		assertEquals(car.getWheelBase(), snapshot.getCarValue(0, WorldSnapshot.CAR_WHEEL_BASE), 0);
+		assertEquals(0, snapshot.getCarValue(0, WorldSnapshot.CAR_LEADER), 0);
+		assertEquals(0, WorldSnapshot.EMPTY.getCarCount());
+	}
+
+	@Test
+	public void testMissingBody() {
+		WorldSnapshot snapshot = WorldSnapshot.capture(0, world.getBodies());
+		assertNull(snapshot.get(new PhysicsBody().getUuid()));
+		assertNull(WorldSnapshot.EMPTY.get(car.getUuid()));
+	}
+}
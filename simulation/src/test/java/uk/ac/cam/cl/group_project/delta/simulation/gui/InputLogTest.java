@@ -0,0 +1,154 @@
+package uk.ac.cam.cl.group_project.delta.simulation.gui;
+
+import org.junit.After;
+import org.junit.Test;
+import uk.ac.cam.cl.group_project.delta.Randomness;
+import uk.ac.cam.cl.group_project.delta.algorithm.AlgorithmEnum;
+import uk.ac.cam.cl.group_project.delta.algorithm.ParameterEnum;
+import uk.ac.cam.cl.group_project.delta.simulation.FaultSetting;
+import uk.ac.cam.cl.group_project.delta.simulation.PhysicsBody;
+import uk.ac.cam.cl.group_project.delta.simulation.SimulatedCar;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InputLogTest {
+
+	@After
+	public void teardown() {
+		for (FaultSetting setting : FaultSetting.values()) {
+			setting.set(0);
+		}
+		FaultSetting.FRONT_PROXIMITY_ENABLED.set(1);
+		Randomness.useUnseeded();
+	}
+
+	/**
+	 * Run a platoon with faults and user input, as the GUI would.
+	 */
+	private SimulationThread record(long seed) {
+		SimulationThread simulation = new SimulationThread(seed);
+		simulation.setFault(FaultSetting.MESSAGE_DELIVERY_MODIFIER, 1.0);
+		simulation.setFault(FaultSetting.FRONT_PROXIMITY_STD_DEV, 0.05);
+		simulation.setFault(FaultSetting.SPEED_STD_DEV, 0.02);
+
+		List<SimulatedCar> cars = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			cars.add(simulation.createCar(0.15, -0.4 * i, 0, AlgorithmEnum.Naive2));
+		}
+		SimulatedCar manual = simulation.createCar(0.15, 0, 1, AlgorithmEnum.Naive2);
+
+		ParameterEnum parameter = cars.get(1).getController().getParameterList()[0];
+		for (int step = 0; step < 3000; step++) {
+			if (step == 100) {
+				simulation.setEnginePower(manual, 0.25);
+				simulation.setWheelAngle(manual, Math.PI / 8);
+			}
+			if (step == 500) {
+				simulation.setParameter(cars.get(1), parameter,
+					cars.get(1).getController().getParameter(parameter) * 1.1);
+				simulation.setFault(FaultSetting.MESSAGE_DELIVERY_MODIFIER, 2.0);
+			}
+			if (step == 800) {
+				simulation.setWheelAngle(manual, 0.0);
+			}
+			// Uneven steps, like those of a real-time run
+			simulation.update(1000000 + (step % 7) * 123457);
+		}
+		return simulation;
+	}
+
+	private static List<SimulatedCar> carsOf(SimulationThread simulation) {
+		List<SimulatedCar> cars = new ArrayList<>();
+		for (PhysicsBody body : simulation.getWorld().getBodies()) {
+			cars.add((SimulatedCar) body);
+		}
+		return cars;
+	}
+
+	@Test
+	public void replayIsIdenticalTest() throws IOException {
+		SimulationThread original = record(1234);
+		byte[] log = original.getInputLog().toByteArray();
+
+		// Change the settings, which the replay should restore
+		FaultSetting.MESSAGE_DELIVERY_MODIFIER.set(0);
+		SimulationThread replay = InputLog.replay(new ByteArrayInputStream(log));
+
+		assertEquals(1234, replay.getSeed());
+		assertEquals(original.getClock().getTime(), replay.getClock().getTime());
+		List<SimulatedCar> expected = carsOf(original);
+		List<SimulatedCar> actual = carsOf(replay);
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getPosition().getX(), actual.get(i).getPosition().getX(), 0);
+			assertEquals(expected.get(i).getPosition().getY(), actual.get(i).getPosition().getY(), 0);
+			assertEquals(expected.get(i).getHeading(), actual.get(i).getHeading(), 0);
+			assertEquals(expected.get(i).getEnginePower(), actual.get(i).getEnginePower(), 0);
+		}
+		assertArrayEquals(log, replay.getInputLog().toByteArray());
+	}
+
+	@Test
+	public void carsMoveTest() {
+		SimulationThread simulation = record(1);
+		SimulatedCar manual = carsOf(simulation).get(4);
+		assertNotEquals(1, manual.getPosition().getY(), 1e-3);
+	}
+
+	@Test
+	public void writeInputLogTest() throws IOException {
+		SimulationThread simulation = new SimulationThread(7);
+		simulation.createCar(0.15, 1, 2, null);
+		simulation.update(1000000);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		simulation.writeInputLog(out);
+		assertArrayEquals(simulation.getInputLog().toByteArray(), out.toByteArray());
+		assertEquals(out.size(), simulation.getInputLog().size());
+	}
+
+	@Test
+	public void idleRunKeepsLogSmallTest() throws IOException {
+		SimulationThread simulation = new SimulationThread(7);
+		SimulatedCar car = simulation.createCar(0.15, 0, 0, AlgorithmEnum.Naive2);
+		simulation.setEnginePower(car, 0.2);
+		int start = simulation.getInputLog().size();
+
+		// A simulated minute in real-time sized steps
+		for (int step = 0; step < 60000; step++) {
+			simulation.update(1000000);
+		}
+		assertTrue(simulation.getInputLog().size() - start < 8);
+
+		SimulationThread replay = InputLog.replay(new ByteArrayInputStream(simulation.getInputLog().toByteArray()));
+		assertEquals(simulation.getClock().getTime(), replay.getClock().getTime());
+		assertEquals(car.getPosition().getY(), carsOf(replay).get(0).getPosition().getY(), 0);
+	}
+
+	@Test(expected = IOException.class)
+	public void invalidLogTest() throws IOException {
+		InputLog.replay(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5}));
+	}
+
+	@Test(expected = IOException.class)
+	public void truncatedLogTest() throws IOException {
+		SimulationThread simulation = new SimulationThread(7);
+		simulation.createCar(0.15, 1, 2, null);
+		byte[] log = simulation.getInputLog().toByteArray();
+		byte[] truncated = new byte[log.length - 3];
+		System.arraycopy(log, 0, truncated, 0, truncated.length);
+		InputLog.replay(new ByteArrayInputStream(truncated));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unknownCarTest() {
+		SimulationThread simulation = new SimulationThread(7);
+		SimulationThread other = new SimulationThread(8);
+		simulation.setEnginePower(other.createCar(0.15, 0, 0, null), 1.0);
+	}
+}
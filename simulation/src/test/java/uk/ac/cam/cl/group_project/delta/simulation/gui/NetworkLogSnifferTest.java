@@ -0,0 +1,93 @@
+package uk.ac.cam.cl.group_project.delta.simulation.gui;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.cam.cl.group_project.delta.SimulatedClock;
+import uk.ac.cam.cl.group_project.delta.algorithm.communications.ConfirmMergeMessage;
+import uk.ac.cam.cl.group_project.delta.algorithm.communications.EmergencyMessage;
+import uk.ac.cam.cl.group_project.delta.algorithm.communications.MessageType;
+import uk.ac.cam.cl.group_project.delta.algorithm.communications.Packet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NetworkLogSnifferTest {
+	private SimulatedClock clock;
+	private NetworkLogSniffer sniffer;
+
+	@Before
+	public void setup() {
+		clock = new SimulatedClock();
+		sniffer = new NetworkLogSniffer(clock, 3);
+		sniffer.setTypes(EnumSet.of(MessageType.ConfirmMerge));
+	}
+
+	@After
+	public void teardown() {
+		sniffer.terminate();
+	}
+
+	/**
+	 * Drain the sniffer until the given number of packets have been decoded.
+	 */
+	private List<Packet> drain(int count) throws InterruptedException {
+		List<Packet> packets = new ArrayList<>();
+		for (int i = 0; i < 1000 && packets.size() < count; i++) {
+			packets.addAll(sniffer.drain());
+			Thread.sleep(1);
+		}
+		return packets;
+	}
+
+	@Test
+	public void testFilteredAndTimestamped() throws InterruptedException {
+		clock.setTime(42);
+		sniffer.handleMessage(Packet.createPacket(new EmergencyMessage(), 1, 1));
+		sniffer.handleMessage(Packet.createPacket(new ConfirmMergeMessage(7), 1, 1));
+		sniffer.start();
+
+		List<Packet> packets = drain(1);
+		assertEquals(1, packets.size());
+		assertEquals(MessageType.ConfirmMerge, packets.get(0).message.getType());
+		assertEquals(42, packets.get(0).receiptTime);
+		assertTrue(sniffer.drain().isEmpty());
+	}
+
+	@Test
+	public void testOnlyNewestKept() throws InterruptedException {
+		for (int i = 0; i < 5; i++) {
+			sniffer.handleMessage(Packet.createPacket(new ConfirmMergeMessage(i), 1, 1));
+		}
+		sniffer.start();
+		// Wait for all five to be decoded before draining
+		while (sniffer.getState() != Thread.State.WAITING) {
+			Thread.sleep(1);
+		}
+
+		List<Packet> packets = sniffer.drain();
+		assertEquals(3, packets.size());
+		for (int i = 0; i < 3; i++) {
+			assertEquals(4 - i, ((ConfirmMergeMessage) packets.get(i).message).getTransactionId());
+		}
+		assertEquals(0, sniffer.getDroppedCount());
+	}
+
+	@Test
+	public void testUndecodableSkipped() throws InterruptedException {
+		// Truncated part way through the message
+		byte[] truncated = Packet.createPacket(new ConfirmMergeMessage(1), 1, 1);
+		sniffer.handleMessage(Arrays.copyOf(truncated, truncated.length - 2));
+		sniffer.handleMessage(Packet.createPacket(new ConfirmMergeMessage(2), 1, 1));
+		sniffer.start();
+
+		List<Packet> packets = drain(1);
+		assertEquals(1, packets.size());
+		assertEquals(2, ((ConfirmMergeMessage) packets.get(0).message).getTransactionId());
+		assertEquals(1, sniffer.getFailedCount());
+	}
+}
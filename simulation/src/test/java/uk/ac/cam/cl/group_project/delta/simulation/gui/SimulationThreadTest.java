@@ -0,0 +1,251 @@
+package uk.ac.cam.cl.group_project.delta.simulation.gui;
+
+import org.junit.After;
+import org.junit.Test;
+import uk.ac.cam.cl.group_project.delta.Randomness;
+import uk.ac.cam.cl.group_project.delta.algorithm.Algorithm;
+import uk.ac.cam.cl.group_project.delta.algorithm.AlgorithmEnum;
+import uk.ac.cam.cl.group_project.delta.algorithm.ParameterEnum;
+import uk.ac.cam.cl.group_project.delta.simulation.FaultSetting;
+import uk.ac.cam.cl.group_project.delta.simulation.PhysicsBody;
+import uk.ac.cam.cl.group_project.delta.simulation.SimulatedCar;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class SimulationThreadTest {
+
+	@After
+	public void teardown() {
+		for (FaultSetting setting : FaultSetting.values()) {
+			setting.set(0);
+		}
+		FaultSetting.FRONT_PROXIMITY_ENABLED.set(1);
+		Randomness.useUnseeded();
+	}
+
+	/**
+	 * Create a platoon of every kind of algorithm, with faults, which has
+	 * been driving for a while.
+	 */
+	private static SimulationThread platoon() {
+		SimulationThread simulation = new SimulationThread(99);
+		simulation.setFault(FaultSetting.MESSAGE_DELIVERY_MODIFIER, 1.0);
+		simulation.setFault(FaultSetting.SPEED_STD_DEV, 0.02);
+		AlgorithmEnum[] algorithms = {
+			AlgorithmEnum.Naive1,
+			AlgorithmEnum.Cooperative_Adaptive_Cruise_Control,
+			AlgorithmEnum.Adaptive_Cruise_Control,
+			AlgorithmEnum.Model_Predictive_Control,
+			AlgorithmEnum.Naive2,
+			AlgorithmEnum.Naive3
+		};
+		for (int i = 0; i < algorithms.length; i++) {
+			simulation.createCar(0.15, 0, -0.4 * i, algorithms[i]);
+		}
+		SimulatedCar leader = carsOf(simulation).get(0);
+		simulation.setEnginePower(leader, 0.3);
+		run(simulation, 2000);
+		return simulation;
+	}
+
+	private static void run(SimulationThread simulation, int steps) {
+		for (int step = 0; step < steps; step++) {
+			simulation.update(1000000);
+		}
+	}
+
+	private static List<SimulatedCar> carsOf(SimulationThread simulation) {
+		List<SimulatedCar> cars = new ArrayList<>();
+		for (PhysicsBody body : simulation.getWorld().getBodies()) {
+			cars.add((SimulatedCar) body);
+		}
+		return cars;
+	}
+
+	private static void assertSameState(SimulationThread expected, SimulationThread actual) {
+		assertEquals(expected.getClock().getTime(), actual.getClock().getTime());
+		List<SimulatedCar> expectedCars = carsOf(expected);
+		List<SimulatedCar> actualCars = carsOf(actual);
+		assertEquals(expectedCars.size(), actualCars.size());
+		for (int i = 0; i < expectedCars.size(); i++) {
+			SimulatedCar e = expectedCars.get(i);
+			SimulatedCar a = actualCars.get(i);
+			assertEquals(e.getPosition().getX(), a.getPosition().getX(), 0);
+			assertEquals(e.getPosition().getY(), a.getPosition().getY(), 0);
+			assertEquals(e.getHeading(), a.getHeading(), 0);
+			assertEquals(e.getEnginePower(), a.getEnginePower(), 0);
+			assertEquals(
+				e.getController().getPlatoonId(),
+				a.getController().getPlatoonId()
+			);
+		}
+	}
+
+	@Test
+	public void restoredCheckpointContinuesIdenticallyTest() throws IOException {
+		SimulationThread original = platoon();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		original.writeCheckpoint(out);
+
+		SimulationThread restored = SimulationThread.readCheckpoint(new ByteArrayInputStream(out.toByteArray()));
+		assertSameState(original, restored);
+		assertEquals(carsOf(original).get(0).getUuid(), carsOf(restored).get(0).getUuid());
+
+		run(original, 2000);
+		run(restored, 2000);
+		assertSameState(original, restored);
+		assertArrayEquals(original.getInputLog().toByteArray(), restored.getInputLog().toByteArray());
+	}
+
+	@Test
+	public void restoredInputLogReplaysTest() throws IOException {
+		SimulationThread restored = platoon().fork();
+		run(restored, 500);
+		SimulationThread replayed = InputLog.replay(new ByteArrayInputStream(restored.getInputLog().toByteArray()));
+		assertSameState(restored, replayed);
+	}
+
+	@Test
+	public void branchesRunInParallelTest() throws InterruptedException {
+		SimulationThread original = platoon();
+		final SimulationThread unchanged = original.fork();
+		final SimulationThread changed = original.fork();
+		SimulatedCar follower = carsOf(changed).get(1);
+		ParameterEnum parameter = ParameterEnum.BufferDistance;
+		changed.setParameter(follower, parameter, follower.getController().getParameter(parameter) + 0.5);
+
+		Thread[] threads = {
+			new Thread(() -> run(unchanged, 2000)),
+			new Thread(() -> run(changed, 2000))
+		};
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		run(original, 2000);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertSameState(original, unchanged);
+		assertNotEquals(
+			carsOf(original).get(1).getPosition().getY(),
+			carsOf(changed).get(1).getPosition().getY(),
+			1e-3
+		);
+	}
+
+	@Test
+	public void checkpointIsCompactTest() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		platoon().writeCheckpoint(out);
+		assertTrue("Checkpoint is " + out.size() + " bytes", out.size() < 64 * 1024);
+	}
+
+	@Test
+	public void branchesKeepTheirOwnRandomnessTest() {
+		SimulationThread original = platoon();
+		SimulationThread first = original.fork();
+		SimulationThread second = original.fork();
+		SimulationThread third = original.fork();
+
+		// Creating a car in one branch doesn't change the cars created in the others
+		second.createCar(0.15, 0, 1, AlgorithmEnum.Naive2);
+		first.createCar(0.15, 0, 1, AlgorithmEnum.Naive2);
+		third.createCar(0.15, 0, 1, AlgorithmEnum.Naive2);
+		run(first, 500);
+		run(third, 500);
+		assertSameState(first, third);
+	}
+
+	@Test
+	public void restoringReplacesGlobalFaultSettingsTest() throws IOException {
+		// The fault settings are shared by every simulation, which is a known limitation
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		platoon().writeCheckpoint(out);
+		SimulationThread other = new SimulationThread(1);
+		other.setFault(FaultSetting.SPEED_STD_DEV, 0.5);
+
+		SimulationThread.readCheckpoint(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(0.02, FaultSetting.SPEED_STD_DEV.get(), 0);
+	}
+
+	@Test
+	public void checkpointRefusesOtherClassesTest() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(SimulationThread.CHECKPOINT_MAGIC);
+		data.writeByte(SimulationThread.CHECKPOINT_VERSION);
+		data.flush();
+		GZIPOutputStream zip = new GZIPOutputStream(out);
+		ObjectOutputStream objects = new ObjectOutputStream(zip);
+		objects.writeObject(new Date());
+		objects.flush();
+		zip.finish();
+
+		try {
+			SimulationThread.readCheckpoint(new ByteArrayInputStream(out.toByteArray()));
+			fail("Checkpoint containing a Date was restored");
+		}
+		catch (IOException e) {
+			assertTrue(e.getCause() instanceof InvalidClassException);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void invalidCheckpointTest() throws IOException {
+		SimulationThread.readCheckpoint(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5}));
+	}
+
+	@Test
+	public void updateSizeDoesNotChangeRunTest() {
+		SimulationThread fine = platoon();
+		SimulationThread coarse = platoon();
+		run(fine, 1000);
+		for (int i = 0; i < 3; i++) {
+			coarse.update(333333333);
+		}
+		coarse.update(1);
+		assertSameState(fine, coarse);
+	}
+
+	@Test
+	public void controllersRunOnEveryIntervalTest() {
+		SimulationThread simulation = new SimulationThread(1);
+		SimulatedCar car = simulation.createCar(0.15, 0, 0, AlgorithmEnum.Naive1);
+		Algorithm algorithm = spy(car.getController());
+		List<Long> times = new ArrayList<>();
+		doAnswer(invocation -> times.add(simulation.getClock().getTime())).when(algorithm).update();
+		car.setController(algorithm);
+
+		simulation.update(1000000000);
+		simulation.update(Algorithm.ALGORITHM_LOOP_DURATION / 2);
+
+		assertEquals(20, times.size());
+		for (int i = 0; i < times.size(); i++) {
+			assertEquals((i + 1) * Algorithm.ALGORITHM_LOOP_DURATION, (long) times.get(i));
+		}
+	}
+
+	@Test
+	public void fastForwardTest() throws InterruptedException {
+		SimulationThread simulation = platoon();
+		simulation.setFastForward(true);
+		simulation.start();
+		Thread.sleep(1500);
+		simulation.terminate();
+		simulation.join();
+		assertTrue("Ran at " + simulation.getSpeedRatio() + " times real time", simulation.getSpeedRatio() > 10);
+	}
+}
@@ -2,7 +2,8 @@ print("Registering platoon dissector")
 
 
 local PORT_NUMBER = 5187
-local PACKET_LENGTH = 200
+local MAX_PACKET_LENGTH = 200
+local HEADER_LENGTH = 24
 
 -- creates a Proto object, but doesn't register it yet
 local platoon = Proto("platoon","Platooning Protocol")
@@ -17,6 +18,18 @@ local CONFIRM_TYPE = 4
 local COMPLETE_TYPE = 5
 local BEACON_Q_TYPE = 6
 local BEACON_A_TYPE = 7
+local COMPACT_DATA_TYPE = 8
+local BATCH_TYPE = 9
+local RELAYED_DATA_TYPE = 10
+
+-- The length of the header of each message in a batch
+local BATCH_ENTRY_HEADER_LENGTH = 12
+
+-- Scales of the fixed-point fields in compact data messages
+local COMPACT_SPEED_SCALE = 0.01
+local COMPACT_ACCEL_SCALE = 0.001
+local COMPACT_TR_SCALE = 0.001
+local COMPACT_CHOSEN_PRESENT = 0x01
 
 local types = {
     [EMERGENCY_TYPE] = "Emergency",
@@ -26,13 +39,18 @@ local types = {
     [CONFIRM_TYPE] = "Merge Confirmation",
     [COMPLETE_TYPE] = "Merge Commit",
     [BEACON_Q_TYPE] = "Beacon ID Question",
-    [BEACON_A_TYPE] = "Beacon ID Answer"
+    [BEACON_A_TYPE] = "Beacon ID Answer",
+    [COMPACT_DATA_TYPE] = "Compact Data",
+    [BATCH_TYPE] = "Batch",
+    [RELAYED_DATA_TYPE] = "Relayed Data"
 }
 
 -- create the fields
 local pf_type_field = ProtoField.uint8("platoon.type", "Message Type", base.DEC, types)
 local pf_platoon_field = ProtoField.uint32("platoon.platoon", "Destination Platoon")
 local pf_vehicle_field = ProtoField.uint32("platoon.vehicle", "Vehicle ID")
+local pf_sequence_field = ProtoField.uint32("platoon.sequence", "Sequence Number")
+local pf_timestamp_field = ProtoField.int64("platoon.timestamp", "Sender Timestamp (ns)")
 
 -- Data fields
 local pf_speed_field = ProtoField.double("platoon.data.speed", "Speed (m/s)")
@@ -41,7 +59,19 @@ local pf_tr_field = ProtoField.double("platoon.data.tr", "Turn Rate (rad/s)")
 local pf_chosen_speed_field = ProtoField.double("platoon.data.chosen_speed", "Chosen Speed (m/s)")
 local pf_chosen_accel_field = ProtoField.double("platoon.data.chosen_accel", "Chosen Acceleration (m/s/s)")
 local pf_chosen_tr_field = ProtoField.double("platoon.data.chosen_tr", "Chosen Turn Rate (rad/s)")
+local pf_compact_flags_field = ProtoField.uint8("platoon.data.flags", "Compact Flags", base.HEX)
+local pf_chosen_present_field = ProtoField.bool("platoon.data.chosen_present", "Chosen Values Present?", 8, {"Yes", "No"}, COMPACT_CHOSEN_PRESENT)
+
 
+-- Relay fields
+local pf_relay_origin_field = ProtoField.uint32("platoon.relay.origin", "Origin Vehicle ID")
+local pf_relay_hops_field = ProtoField.uint8("platoon.relay.hops", "Hop Count")
+
+-- Batch fields
+local pf_entry_field = ProtoField.bytes("platoon.batch.entry", "Batched Message")
+local pf_entry_type_field = ProtoField.uint8("platoon.batch.type", "Message Type", base.DEC, types)
+local pf_entry_platoon_field = ProtoField.uint32("platoon.batch.platoon", "Destination Platoon")
+local pf_entry_offset_field = ProtoField.int32("platoon.batch.timestamp_offset", "Timestamp Offset (ns)")
 
 -- Merging fields
 local pf_transaction_field = ProtoField.uint32("platoon.merging.transaction_id", "Merge Transaction ID")
@@ -64,11 +94,15 @@ local pf_beacon_response_field = ProtoField.uint32("platoon.beacon.response_id",
 
 -- Register the fields
 platoon.fields = {pf_type_field, pf_platoon_field, pf_vehicle_field,
+    pf_sequence_field, pf_timestamp_field,
     pf_transaction_field, pf_merging_platoon_field, pf_length_platoon_field,
     pf_platoon_member_field, pf_merge_accepted_field, pf_beacon_id_field,
     pf_beacon_asking_field, pf_beacon_response_field, pf_length_rename_field,
     pf_name_initial_field, pf_name_final_field, pf_speed_field, pf_accel_field,
-    pf_tr_field, pf_chosen_speed_field, pf_chosen_accel_field, pf_chosen_tr_field
+    pf_tr_field, pf_chosen_speed_field, pf_chosen_accel_field, pf_chosen_tr_field,
+    pf_compact_flags_field, pf_chosen_present_field, pf_entry_field,
+    pf_entry_type_field, pf_entry_platoon_field, pf_entry_offset_field,
+    pf_relay_origin_field, pf_relay_hops_field
 }
 
 
@@ -77,40 +111,18 @@ local types_field = Field.new("platoon.type")
 local platoon_field = Field.new("platoon.platoon")
 local vehicle_field = Field.new("platoon.vehicle")
 
--- Actually assign the dissector
-function platoon.dissector(tvbuf, pktinfo, root)
-
-    -- Set the protocol column to show our protocol name
-    pktinfo.cols.protocol:set("Platooning")
+-- Dissect the payload of a single message starting at offset base, returning
+-- any extra text for the info column
+local function dissect_payload(tvbuf, tree, type, base)
     local info_string = ""
 
-    -- Find out the packet size
-    local pktlen = tvbuf:reported_length_remaining()
-
-    if pktlen ~= PACKET_LENGTH then
-        return
-    end
-
-    -- Add the protocol to the protocol trees
-    local tree = root:add(platoon, tvbuf:range(0,pktlen))
-
-    -- Read the common fields
-    tree:add(pf_type_field, tvbuf:range(0,1))
-    local type = tvbuf:range(0,1):uint()
-
-    tree:add(pf_platoon_field, tvbuf:range(4,4))
-
-    tree:add(pf_vehicle_field, tvbuf:range(8,4))
-
-    info_string = info_string .. types_field().display ..", Platoon: " .. platoon_field().display
-
     if type == RTM_TYPE or type == ATM_TYPE or
             type == CONFIRM_TYPE or type == COMPLETE_TYPE then
         local merge_tree = tree:add("Merging")
-        merge_tree:add(pf_transaction_field, tvbuf:range(12, 4))
-        info_string = info_string ..", Transaction: "..tvbuf:range(12, 4):uint()
+        merge_tree:add(pf_transaction_field, tvbuf:range(base, 4))
+        info_string = info_string ..", Transaction: "..tvbuf:range(base, 4):uint()
 
-        local pos = 16
+        local pos = base + 4
         if type == RTM_TYPE then
             merge_tree:add(pf_merging_platoon_field, tvbuf:range(pos, 4))
             info_string = info_string ..", Merging Platoon: "..tvbuf:range(pos, 4):uint()
@@ -137,21 +149,117 @@ function platoon.dissector(tvbuf, pktinfo, root)
         end
     elseif type == BEACON_A_TYPE or type == BEACON_Q_TYPE then
         if type == BEACON_Q_TYPE then
-            tree:add(pf_beacon_asking_field, tvbuf:range(12,4))
+            tree:add(pf_beacon_asking_field, tvbuf:range(base,4))
         else
-            tree:add(pf_beacon_response_field, tvbuf:range(12,4))
+            tree:add(pf_beacon_response_field, tvbuf:range(base,4))
         end
-        tree:add(pf_beacon_id_field, tvbuf:range(16,4))
-        info_string = info_string .. ", Beacon ID: "..tvbuf:range(16, 4):uint()
+        tree:add(pf_beacon_id_field, tvbuf:range(base+4,4))
+        info_string = info_string .. ", Beacon ID: "..tvbuf:range(base+4, 4):uint()
     elseif type == DATA_TYPE then
         local data_tree = tree:add("Data")
 
-        data_tree:add(pf_speed_field, tvbuf:range(12,8))
-        data_tree:add(pf_accel_field, tvbuf:range(20,8))
-        data_tree:add(pf_tr_field, tvbuf:range(28,8))
-        data_tree:add(pf_chosen_speed_field, tvbuf:range(36,8))
-        data_tree:add(pf_chosen_accel_field, tvbuf:range(44,8))
-        data_tree:add(pf_chosen_tr_field, tvbuf:range(52,8))
+        data_tree:add(pf_speed_field, tvbuf:range(base,8))
+        data_tree:add(pf_accel_field, tvbuf:range(base+8,8))
+        data_tree:add(pf_tr_field, tvbuf:range(base+16,8))
+        data_tree:add(pf_chosen_speed_field, tvbuf:range(base+24,8))
+        data_tree:add(pf_chosen_accel_field, tvbuf:range(base+32,8))
+        data_tree:add(pf_chosen_tr_field, tvbuf:range(base+40,8))
+    elseif type == COMPACT_DATA_TYPE or type == RELAYED_DATA_TYPE then
+        local data_tree
+        if type == COMPACT_DATA_TYPE then
+            data_tree = tree:add("Compact Data")
+        else
+            data_tree = tree:add("Relayed Data")
+        end
+
+        local flags_tree = data_tree:add(pf_compact_flags_field, tvbuf:range(base,1))
+        flags_tree:add(pf_chosen_present_field, tvbuf:range(base,1))
+        local flags = tvbuf:range(base,1):uint()
+
+        -- Measured values, converted from fixed-point
+        data_tree:add(pf_speed_field, tvbuf:range(base+1,2), tvbuf:range(base+1,2):int() * COMPACT_SPEED_SCALE)
+        data_tree:add(pf_accel_field, tvbuf:range(base+3,2), tvbuf:range(base+3,2):int() * COMPACT_ACCEL_SCALE)
+        data_tree:add(pf_tr_field, tvbuf:range(base+5,2), tvbuf:range(base+5,2):int() * COMPACT_TR_SCALE)
+
+        -- The chosen values are only sent if they differ from the measured ones
+        if bit.band(flags, COMPACT_CHOSEN_PRESENT) ~= 0 then
+            data_tree:add(pf_chosen_speed_field, tvbuf:range(base+7,2), tvbuf:range(base+7,2):int() * COMPACT_SPEED_SCALE)
+            data_tree:add(pf_chosen_accel_field, tvbuf:range(base+9,2), tvbuf:range(base+9,2):int() * COMPACT_ACCEL_SCALE)
+            data_tree:add(pf_chosen_tr_field, tvbuf:range(base+11,2), tvbuf:range(base+11,2):int() * COMPACT_TR_SCALE)
+        end
+
+        -- Relayed data is followed by the id of the original vehicle and the hop count
+        if type == RELAYED_DATA_TYPE then
+            local pos = base + 7
+            if bit.band(flags, COMPACT_CHOSEN_PRESENT) ~= 0 then
+                pos = pos + 6
+            end
+            data_tree:add(pf_relay_origin_field, tvbuf:range(pos,4))
+            data_tree:add(pf_relay_hops_field, tvbuf:range(pos+4,1))
+            info_string = info_string .. ", Origin: "..tvbuf:range(pos,4):uint()
+        end
+    end
+
+    return info_string
+end
+
+-- Actually assign the dissector
+function platoon.dissector(tvbuf, pktinfo, root)
+
+    -- Set the protocol column to show our protocol name
+    pktinfo.cols.protocol:set("Platooning")
+    local info_string = ""
+
+    -- Find out the packet size
+    local pktlen = tvbuf:reported_length_remaining()
+
+    if pktlen < HEADER_LENGTH or pktlen > MAX_PACKET_LENGTH then
+        return
+    end
+
+    -- Add the protocol to the protocol trees
+    local tree = root:add(platoon, tvbuf:range(0,pktlen))
+
+    -- Read the common fields
+    tree:add(pf_type_field, tvbuf:range(0,1))
+    local type = tvbuf:range(0,1):uint()
+
+    tree:add(pf_platoon_field, tvbuf:range(4,4))
+
+    tree:add(pf_vehicle_field, tvbuf:range(8,4))
+
+    tree:add(pf_sequence_field, tvbuf:range(12,4))
+
+    tree:add(pf_timestamp_field, tvbuf:range(16,8))
+
+    info_string = info_string .. types_field().display ..", Platoon: " .. platoon_field().display
+
+    if type == BATCH_TYPE then
+        -- Each entry has its own type, length and destination platoon
+        local pos = HEADER_LENGTH
+        local count = 0
+        while pos + BATCH_ENTRY_HEADER_LENGTH <= pktlen do
+            local entry_type = tvbuf:range(pos,1):uint()
+            local entry_length = tvbuf:range(pos+1,3):uint()
+            if entry_length < BATCH_ENTRY_HEADER_LENGTH or pos + entry_length > pktlen then
+                break
+            end
+            local entry_tree = tree:add(pf_entry_field, tvbuf:range(pos, entry_length))
+            entry_tree:add(pf_entry_type_field, tvbuf:range(pos,1))
+            entry_tree:add(pf_entry_platoon_field, tvbuf:range(pos+4,4))
+            entry_tree:add(pf_entry_offset_field, tvbuf:range(pos+8,4))
+            dissect_payload(tvbuf, entry_tree, entry_type, pos + BATCH_ENTRY_HEADER_LENGTH)
+            if count == 0 then
+                info_string = info_string .. ": "
+            else
+                info_string = info_string .. ", "
+            end
+            info_string = info_string .. (types[entry_type] or "Unknown")
+            count = count + 1
+            pos = pos + entry_length
+        end
+    else
+        info_string = info_string .. dissect_payload(tvbuf, tree, type, HEADER_LENGTH)
     end
 
     -- Set the info field of the packet